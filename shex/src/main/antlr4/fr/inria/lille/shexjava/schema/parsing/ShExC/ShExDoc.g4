@@ -30,12 +30,26 @@
 // ~ s/groupShape/groupTripleExpr/ (EGP 20160930)
 // ~ s/unaryShape/unaryTripleExpr/ (EGP 20160930)
 // ~ s/encapsulatedShape/bracketedTripleExpr/ (EGP 20160930)
+// Oct 19, 2026 - CODE is lexed only after '%' iri, otherwise every '{' was scanned up to the next '%'
 
 
 
 
 grammar ShExDoc;
 
+@lexer::members {
+	// true if the last two tokens are '%' and an iri, the only place where a CODE can appear
+	private boolean afterPercent = false;
+	private boolean afterCodeIri = false;
+
+	@Override
+	public void emit(Token token) {
+		super.emit(token);
+		afterCodeIri = afterPercent && (token.getType() == IRIREF || token.getType() == PNAME_LN || token.getType() == PNAME_NS);
+		afterPercent = "%".equals(token.getText());
+	}
+}
+
 shExDoc 		: directive* ((notStartAction | startActions) statement*)? EOF;  // leading CODE
 directive       : baseDecl
 				| prefixDecl
@@ -235,7 +249,7 @@ KW_FALSE        	: 'false' ;
 PASS				  : [ \t\r\n]+ -> skip;
 COMMENT				  : '#' ~[\r\n]* -> skip;
 
-CODE                  : '{' (~[%\\] | '\\' [%\\] | UCHAR)* '%' '}' ;
+CODE                  : '{' {afterCodeIri}? (~[%\\] | '\\' [%\\] | UCHAR)* '%' '}' ;
 RDF_TYPE              : 'a' ;
 IRIREF                : '<' (~[\u0000-\u0020=<>"{}|^`\\] | UCHAR)* '>' ; /* #x00=NULL #01-#x1F=control codes #x20=space */
 PNAME_NS			  : PN_PREFIX? ':' ;
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.commandLine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.schema.parsing.ShExBinarySerializer;
+
+/** Saves a schema in the binary format, so that it can be loaded by {@link GenParser} without parsing nor analysis.
+ * 
+ * Arguments: 
+ * <schema file> : a schema in ShExC (.shex), ShExJ (.json) or ShExR
+ * <output file> : the binary schema, usually with the extension .shexb
+ * 
+ * @author Jérémie Dusart
+ */
+public class CompileSchema {
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.out.println(USAGE);
+			return;
+		}
+		Path source = Paths.get(args[0]);
+		Path destination = Paths.get(args[1]);
+		
+		long startTime = System.currentTimeMillis();
+		ShexSchema schema;
+		try {
+			schema = GenParser.parseSchema(source);
+		} catch (Exception e) {
+			System.err.println("Error while parsing the schema file. Caused by: " + e.getMessage());
+			return;
+		}
+		long parseTime = System.currentTimeMillis() - startTime;
+		
+		startTime = System.currentTimeMillis();
+		try {
+			ShExBinarySerializer.toBinary(schema, destination);
+		} catch (IOException e) {
+			System.err.println("I/O Error while writing the binary schema. Caused by: " + e.getMessage());
+			return;
+		}
+		long writeTime = System.currentTimeMillis() - startTime;
+		
+		try {
+			long sourceSize = Files.size(source);
+			System.out.println(String.format("Schema parsed in %d ms (%d bytes, %d KB/s, %d rules/s), %d rules and %d strata written in %s (%d bytes) in %d ms.", 
+					parseTime, sourceSize, sourceSize*1000/1024/Math.max(1,parseTime), schema.getRules().size()*1000L/Math.max(1,parseTime),
+					schema.getRules().size(), schema.getNbStratums(), destination, Files.size(destination), writeTime));
+		} catch (IOException e) {
+			System.out.println("Schema written in " + destination);
+		}
+		StringBuilder phases = new StringBuilder("Schema construction:");
+		for (Map.Entry<String,Long> phase:schema.getConstructionTimes().entrySet())
+			phases.append(String.format(" %s %d ms,", phase.getKey(), phase.getValue()/1000000));
+		phases.setCharAt(phases.length()-1, '.');
+		System.out.println(phases);
+	}
+	
+	private static final String USAGE = "Usage: CompileSchema <schema file> <output file>\n"
+			+ "  <schema file> : a schema in ShExC (.shex), ShExJ (.json) or ShExR\n"
+			+ "  <output file> : the binary schema, loaded by the validation when its name ends with " + GenParser.BINARY_EXTENSION + "\n";
+}
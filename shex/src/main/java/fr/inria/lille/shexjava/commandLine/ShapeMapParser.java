@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.commandLine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Reads a shape map and computes the list of (focus node, shape label) associations that it selects in a graph.
+ * 
+ * The supported syntax is a comma or newline separated list of associations <code>nodeSpec@shapeLabel</code> where:
+ * <ul>
+ * <li>nodeSpec is an IRI <code>&lt;...&gt;</code>, a blank node <code>_:id</code>, or a triple pattern
+ * <code>{FOCUS &lt;p&gt; _}</code>, <code>{FOCUS &lt;p&gt; &lt;o&gt;}</code>, <code>{_ &lt;p&gt; FOCUS}</code> or <code>{&lt;s&gt; &lt;p&gt; FOCUS}</code>,</li>
+ * <li>shapeLabel is an IRI <code>&lt;...&gt;</code> or a blank node <code>_:id</code>.</li>
+ * </ul>
+ * Lines starting with <code>#</code> are comments.
+ * 
+ * @author Jérémie Dusart
+ */
+public class ShapeMapParser {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private static final String FOCUS = "FOCUS";
+	private static final String WILDCARD = "_";
+	
+	private String text;
+	private int pos;
+	
+	private ShapeMapParser(String text) {
+		this.text = text;
+		this.pos = 0;
+	}
+	
+	/** Parses the shape map and selects the corresponding focus nodes in the graph. The associations are listed in the order of the shape map, without duplicates.
+	 * 
+	 * @param shapeMap
+	 * @param graph
+	 * @return the list of (focus node, shape label) to be validated
+	 */
+	public static List<Pair<Value,Label>> parse(String shapeMap, RDFGraph graph) {
+		ShapeMapParser parser = new ShapeMapParser(shapeMap);
+		Set<Pair<Value,Label>> result = new LinkedHashSet<>();
+		parser.skipSeparators();
+		while (parser.pos < parser.text.length()) {
+			List<Value> nodes = parser.parseNodeSpec(graph);
+			parser.skipBlanks();
+			parser.expect('@');
+			Label label = parser.parseLabel();
+			for (Value node:nodes)
+				result.add(new Pair<>(node,label));
+			parser.skipSeparators();
+		}
+		return new ArrayList<>(result);
+	}
+	
+	private List<Value> parseNodeSpec(RDFGraph graph) {
+		if (text.charAt(pos) != '{')
+			return Collections.singletonList(parseTerm());
+		
+		pos++;
+		String subject = parseToken();
+		String predicate = parseToken();
+		String object = parseToken();
+		skipBlanks();
+		expect('}');
+		IRI prop = (IRI) toTerm(predicate);
+		Set<Value> nodes = new LinkedHashSet<>();
+		if (subject.equals(FOCUS)) {
+			if (object.equals(WILDCARD)) {
+				// the subjects can be listed several times, the neighbours being looked up once per node
+				Iterator<Value> it = graph.listAllSubjectNodes();
+				while (it.hasNext()) {
+					Value node = it.next();
+					if (! nodes.contains(node) && graph.itOutNeighboursWithPredicate(node, Collections.singleton(prop)).hasNext())
+						nodes.add(node);
+				}
+			} else {
+				Iterator<NeighborTriple> it = graph.itInNeighboursWithPredicate(toTerm(object), Collections.singleton(prop));
+				while (it.hasNext())
+					nodes.add(it.next().getOpposite());
+			}
+		} else if (object.equals(FOCUS)) {
+			if (subject.equals(WILDCARD)) {
+				Iterator<Value> it = graph.listAllObjectNodes();
+				while (it.hasNext()) {
+					Value node = it.next();
+					if (! nodes.contains(node) && graph.itInNeighboursWithPredicate(node, Collections.singleton(prop)).hasNext())
+						nodes.add(node);
+				}
+			} else {
+				Iterator<NeighborTriple> it = graph.itOutNeighboursWithPredicate(toTerm(subject), Collections.singleton(prop));
+				while (it.hasNext())
+					nodes.add(it.next().getOpposite());
+			}
+		} else {
+			throw new IllegalArgumentException("Triple pattern without FOCUS at position "+pos+" of the shape map.");
+		}
+		return new ArrayList<>(nodes);
+	}
+	
+	private Label parseLabel() {
+		Value term = parseTerm();
+		if (term instanceof IRI)
+			return new Label((IRI) term);
+		if (term instanceof org.eclipse.rdf4j.model.BNode)
+			return new Label((org.eclipse.rdf4j.model.BNode) term);
+		throw new IllegalArgumentException("Invalid shape label "+term+" in the shape map.");
+	}
+	
+	private Value parseTerm() {
+		return toTerm(parseToken());
+	}
+	
+	private String parseToken() {
+		skipBlanks();
+		int begin = pos;
+		if (pos < text.length() && text.charAt(pos) == '<') {
+			int end = text.indexOf('>', pos);
+			if (end < 0)
+				throw new IllegalArgumentException("Unterminated IRI at position "+pos+" of the shape map.");
+			pos = end+1;
+		} else {
+			while (pos < text.length() && ! Character.isWhitespace(text.charAt(pos)) && "@,{}".indexOf(text.charAt(pos)) < 0)
+				pos++;
+		}
+		if (begin == pos)
+			throw new IllegalArgumentException("Term expected at position "+pos+" of the shape map.");
+		return text.substring(begin, pos);
+	}
+	
+	private Value toTerm(String token) {
+		if (token.startsWith("<") && token.endsWith(">"))
+			return rdfFactory.createIRI(token.substring(1, token.length()-1));
+		if (token.startsWith("_:"))
+			return rdfFactory.createBNode(token.substring(2));
+		throw new IllegalArgumentException("Unsupported term "+token+" in the shape map (only IRIs and blank nodes are allowed).");
+	}
+	
+	private void expect(char c) {
+		if (pos >= text.length() || text.charAt(pos) != c)
+			throw new IllegalArgumentException("'"+c+"' expected at position "+pos+" of the shape map.");
+		pos++;
+	}
+	
+	private void skipBlanks() {
+		while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+			pos++;
+	}
+	
+	private void skipSeparators() {
+		while (pos < text.length()) {
+			char c = text.charAt(pos);
+			if (c == '#') {
+				while (pos < text.length() && text.charAt(pos) != '\n')
+					pos++;
+			} else if (Character.isWhitespace(c) || c == ',') {
+				pos++;
+			} else {
+				return;
+			}
+		}
+	}
+}
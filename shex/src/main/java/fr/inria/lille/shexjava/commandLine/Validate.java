@@ -16,31 +16,50 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.commandLine;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.Rio;
 
+import fr.inria.lille.shexjava.exception.BudgetExceededException;
 import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDFGraph;
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
 import fr.inria.lille.shexjava.schema.parsing.GenParser;
+import fr.inria.lille.shexjava.util.Pair;
 import fr.inria.lille.shexjava.validation.RecursiveValidation;
 import fr.inria.lille.shexjava.validation.RefineValidation;
+import fr.inria.lille.shexjava.validation.TypingWriter;
 import fr.inria.lille.shexjava.validation.ValidationAlgorithm;
+import fr.inria.lille.shexjava.validation.ValidationBudget;
+import fr.inria.lille.shexjava.validation.ValidationExplanation;
+import fr.inria.lille.shexjava.validation.ValidationStatistics;
 
 /** Command line tool for validation.
  * 
@@ -60,8 +79,15 @@ public class Validate {
 	 * -d <data file>
 	 * -f <focus node> : optional
 	 * -l <shape label> : optional
+	 * -m <shape map file> : optional, replaces -f and -l
+	 * -t <number of threads> : optional, used with -m
+	 * -format "json" | "csv" | "ntriples" : optional
 	 * -a "refine" | "recursive"
+	 * -checks "bags" | "specialized" : optional
 	 * -out <file name>
+	 * -stats <file name> : optional
+	 * -explain "text" | "json" : optional, used with -f and -l
+	 * -timeout <milliseconds> : optional
 	 * 
 	 * 
 	 * @param args
@@ -94,18 +120,81 @@ public class Validate {
 			System.out.println(USAGE);
 			return;
 		}
-				
+		
+		if (parameters.get("-format") != null && ! parameters.get("-format").equals("json") 
+				&& ! parameters.get("-format").equals("csv") && ! parameters.get("-format").equals("ntriples")) {
+			System.out.println("Invalid format : " + parameters.get("-format"));
+			System.out.println(USAGE);
+			return;
+		}
+		
+		if (parameters.get("-checks") != null && ! parameters.get("-checks").equals("bags") && ! parameters.get("-checks").equals("specialized")) {
+			System.out.println("Invalid local checks : " + parameters.get("-checks"));
+			System.out.println(USAGE);
+			return;
+		}
+		boolean specializedChecks = "specialized".equals(parameters.get("-checks"));
+		
+		if (parameters.get("-explain") != null && ! parameters.get("-explain").equals("text") && ! parameters.get("-explain").equals("json")) {
+			System.out.println("Invalid explanation format : " + parameters.get("-explain"));
+			System.out.println(USAGE);
+			return;
+		}
+		ValidationStatistics statistics = parameters.get("-stats") != null ? new ValidationStatistics() : null;
+		
+		int nbThreads = 1;
+		if (parameters.get("-t") != null) {
+			try {
+				nbThreads = Integer.parseInt(parameters.get("-t"));
+			} catch (NumberFormatException e) {
+				nbThreads = 0;
+			}
+			if (nbThreads < 1) {
+				System.out.println("Invalid number of threads : " + parameters.get("-t"));
+				System.out.println(USAGE);
+				return;
+			}
+		}
+		
+		ValidationBudget budget = null;
+		if (parameters.get("-timeout") != null) {
+			long timeout;
+			try {
+				timeout = Long.parseLong(parameters.get("-timeout"));
+			} catch (NumberFormatException e) {
+				timeout = 0;
+			}
+			if (timeout < 1) {
+				System.out.println("Invalid timeout : " + parameters.get("-timeout"));
+				System.out.println(USAGE);
+				return;
+			}
+			budget = new ValidationBudget();
+			budget.setTimeout(timeout, TimeUnit.MILLISECONDS);
+		}
+		
+		long startTime = System.currentTimeMillis();
 		ShexSchema schema = getSchema(parameters.get("-s"));
 		if (schema == null) {
 			System.err.println("Was unable to parse the schema. Aborting.");
 			return;
 		}
+		long schemaTime = System.currentTimeMillis() - startTime;
 		
+		startTime = System.currentTimeMillis();
 		Model dataModel = getData(parameters.get("-d"));
 		if (dataModel == null) {
 			System.err.println("Was unable to the parse data. Aborting.");
 			return;
 		}
+		long dataTime = System.currentTimeMillis() - startTime;
+		System.out.println(String.format("Schema parsed in %d ms, data loaded in %d ms (%d triples).", schemaTime, dataTime, dataModel.size()));
+		
+		if (parameters.get("-m") != null) {
+			validateShapeMap(schema, new RDF4JGraph(dataModel), parameters, nbThreads, specializedChecks, statistics, budget);
+			writeStatistics(statistics, parameters);
+			return;
+		}
 		
 		Resource focusNode = null;
 		if (parameters.get("-f") != null)
@@ -117,12 +206,46 @@ public class Validate {
 		
 		ValidationAlgorithm val = null;
 		switch (parameters.get("-a")) {
-			case "refine" : val = new RefineValidation(schema, new RDF4JGraph(dataModel)); break;
-			case "recursive" : val = new RecursiveValidation(schema, new RDF4JGraph(dataModel)); break;
+			case "refine" : 
+				RefineValidation refine = new RefineValidation(schema, new RDF4JGraph(dataModel)); 
+				refine.setSpecializedChecks(specializedChecks);
+				refine.setListener(statistics);
+				refine.setBudget(budget);
+				val = refine;
+				break;
+			case "recursive" : 
+				RecursiveValidation recursive = new RecursiveValidation(schema, new RDF4JGraph(dataModel)); 
+				recursive.setSpecializedChecks(specializedChecks);
+				recursive.setListener(statistics);
+				recursive.setBudget(budget);
+				val = recursive;
+				break;
+		}
+		
+		TypingWriter output = null;
+		if (parameters.get("-out") != null) {
+			try {
+				output = new TypingWriter(Files.newOutputStream(Paths.get(parameters.get("-out"))), getFormat(parameters));
+			} catch (IOException x) {
+			    System.err.format("I/O Error while opening the output");
+			    return;
+			}
+			// the refine typing is written stratum by stratum during the validation
+			if (val instanceof RefineValidation)
+				((RefineValidation) val).setOutput(output);
 		}
 		
 		System.out.println("Validating graph " + parameters.get("-d") + " against schema " + parameters.get("-s") + ".");
-		val.validate(focusNode, shapeLabel);
+		ValidationExplanation explanation = null;
+		try {
+			if (parameters.get("-explain") != null && focusNode != null && shapeLabel != null)
+				explanation = ValidationExplanation.explain(val, focusNode, shapeLabel);
+			else
+				val.validate(focusNode, shapeLabel);
+		} catch (BudgetExceededException e) {
+			System.out.println("Validation stopped, the result is undetermined: " + e.getMessage());
+			return;
+		}
 		System.out.println("Typing constructed.");
 		
 		if (focusNode != null && shapeLabel != null)
@@ -131,17 +254,163 @@ public class Validate {
 			else 
 				System.out.println(String.format("%s DOES NOT SATISFY %s", focusNode, shapeLabel));
 		
+		if (explanation != null) {
+			Writer out = new java.io.OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+			if (parameters.get("-explain").equals("json"))
+				explanation.writeJson(out);
+			else
+				explanation.writeText(out);
+		}
 		
-		if (parameters.get("-out") != null) {
-			String output = val.getTyping().asSet().toString();
-			try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(parameters.get("-out")))) {
-			    writer.write(output, 0, output.length());
-			    System.out.println("Typing written in " + parameters.get("-out"));
+		
+		if (output != null) {
+			try {
+				if (! (val instanceof RefineValidation))
+					output.write(val.getTyping());
+				output.close();
+			    System.out.println(output.getNbRecords() + " typing records written in " + parameters.get("-out"));
 			} catch (IOException x) {
 			    System.err.format("I/O Error while writing the output");
 			    return;
 			}
 		}
+		writeStatistics(statistics, parameters);
+	}
+	
+	
+	private static void writeStatistics(ValidationStatistics statistics, Map<String, String> parameters) {
+		if (statistics == null)
+			return;
+		try (Writer out = Files.newBufferedWriter(Paths.get(parameters.get("-stats")), StandardCharsets.UTF_8)) {
+			statistics.write(out);
+			System.out.println("Validation statistics written in " + parameters.get("-stats"));
+		} catch (IOException x) {
+			System.err.format("I/O Error while writing the statistics");
+		}
+	}
+	
+	
+	private static TypingWriter.Format getFormat(Map<String, String> parameters) {
+		if (parameters.get("-format") == null)
+			return TypingWriter.Format.JSON;
+		return TypingWriter.Format.valueOf(parameters.get("-format").toUpperCase());
+	}
+	
+	
+	/** Validates all the associations selected by the shape map using nbThreads threads. 
+	 * The results are written as soon as they are computed, in the order in which they are produced.
+	 */
+	private static void validateShapeMap(ShexSchema schema, RDFGraph graph, Map<String, String> parameters, int nbThreads, boolean specializedChecks, 
+			ValidationStatistics statistics, ValidationBudget budget) throws Exception {
+		List<Pair<Value,Label>> associations;
+		try {
+			String shapeMap = new String(Files.readAllBytes(Paths.get(parameters.get("-m"))), StandardCharsets.UTF_8);
+			associations = ShapeMapParser.parse(shapeMap, graph);
+		} catch (IOException e) {
+			System.err.println("Error reading the shape map file.");
+			System.err.println("Caused by: ");
+			System.err.println(e.getMessage());
+			return;
+		} catch (IllegalArgumentException e) {
+			System.err.println("Error while parsing the shape map. Caused by: " + e.getMessage());
+			return;
+		}
+		for (Pair<Value,Label> association:associations) {
+			if (! schema.getShapeMap().containsKey(association.two)) {
+				System.err.println("Unknown label in the shape map: " + association.two + ". Aborting.");
+				return;
+			}
+		}
+		System.out.println(String.format("Validating %d associations of %s against schema %s with %d thread(s).", 
+				associations.size(), parameters.get("-d"), parameters.get("-s"), nbThreads));
+		
+		long startTime = System.currentTimeMillis();
+		ThreadLocal<ValidationAlgorithm> validators;
+		if (parameters.get("-a").equals("refine")) {
+			// The refine typing is complete for all the nodes of the graph, it is computed once and shared by all the threads
+			RefineValidation refine = new RefineValidation(schema, graph);
+			Set<Label> requestedLabels = new HashSet<>();
+			for (Pair<Value,Label> association:associations)
+				requestedLabels.add(association.two);
+			refine.setRequestedLabels(requestedLabels);
+			refine.setSpecializedChecks(specializedChecks);
+			refine.setListener(statistics);
+			refine.setBudget(budget);
+			try {
+				refine.validate(null, null);
+			} catch (BudgetExceededException e) {
+				System.out.println("Typing not constructed, the results are undetermined: " + e.getMessage());
+				return;
+			}
+			System.out.println(String.format("Typing constructed in %d ms.", System.currentTimeMillis() - startTime));
+			validators = ThreadLocal.withInitial(() -> refine);
+		} else {
+			validators = ThreadLocal.withInitial(() -> {
+				RecursiveValidation recursive = new RecursiveValidation(schema, graph);
+				recursive.setSpecializedChecks(specializedChecks);
+				recursive.setListener(statistics);
+				recursive.setBudget(budget);
+				return recursive;
+			});
+		}
+		
+		Writer out;
+		if (parameters.get("-out") != null)
+			out = Files.newBufferedWriter(Paths.get(parameters.get("-out")), StandardCharsets.UTF_8);
+		else
+			out = new java.io.OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+		TypingWriter results = new TypingWriter(out, getFormat(parameters));
+		
+		AtomicInteger nbConformant = new AtomicInteger();
+		AtomicInteger nbUndetermined = new AtomicInteger();
+		AtomicLong totalTime = new AtomicLong();
+		LongAccumulator maxTime = new LongAccumulator(Long::max, 0);
+		ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>(associations.size());
+			for (Pair<Value,Label> association:associations) {
+				futures.add(executor.submit(() -> {
+					long start = System.nanoTime();
+					boolean result;
+					try {
+						result = validators.get().validate(association.one, association.two);
+					} catch (BudgetExceededException e) {
+						nbUndetermined.incrementAndGet();
+						results.writeUndetermined(association.one, association.two);
+						return null;
+					}
+					long time = System.nanoTime() - start;
+					totalTime.addAndGet(time);
+					maxTime.accumulate(time);
+					if (result)
+						nbConformant.incrementAndGet();
+					results.write(association.one, association.two, result);
+					return null;
+				}));
+			}
+			for (Future<?> future:futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+			if (parameters.get("-out") != null)
+				results.close();
+			else
+				results.end();
+		}
+		long elapsed = System.currentTimeMillis() - startTime;
+		
+		if (parameters.get("-out") != null)
+			System.out.println("Results written in " + parameters.get("-out"));
+		int nb = associations.size();
+		System.out.println(String.format("%d associations validated in %d ms (%.1f validations/s): %d conformant, %d nonconformant.",
+				nb, elapsed, elapsed == 0 ? 0.0 : nb * 1000.0 / elapsed, nbConformant.get(), nb - nbConformant.get() - nbUndetermined.get()));
+		if (nbUndetermined.get() > 0)
+			System.out.println(String.format("%d associations undetermined, their validation exceeded the timeout.", nbUndetermined.get()));
+		// the time of the undetermined associations is not measured
+		int nbDetermined = nb - nbUndetermined.get();
+		if (nbDetermined > 0)
+			System.out.println(String.format("Time per association: mean %.3f ms, max %.3f ms.",
+					totalTime.get() / 1e6 / nbDetermined, maxTime.get() / 1e6));
 	}
 	
 	
@@ -165,11 +434,24 @@ public class Validate {
 	private static Model getData (String dataFileName) {
 		
 		Model dataModel;
-		
+		RDFFormat format = Rio.getParserFormatForFileName(dataFileName).orElse(RDFFormat.TURTLE);
 		try {
-			java.net.URL documentUrl = new URL(dataFileName);
-			InputStream inputStream = documentUrl.openStream();
-			dataModel  = Rio.parse(inputStream, documentUrl.toString(), RDFFormat.TURTLE);
+			Path path = null;
+			try {
+				path = Paths.get(dataFileName);
+			} catch (Exception e) {
+				// not a local file name
+			}
+			if (path != null && path.toFile().exists()) {
+				try (InputStream inputStream = Files.newInputStream(path)) {
+					dataModel = Rio.parse(inputStream, path.toUri().toString(), format);
+				}
+			} else {
+				java.net.URL documentUrl = new URL(dataFileName);
+				try (InputStream inputStream = documentUrl.openStream()) {
+					dataModel  = Rio.parse(inputStream, documentUrl.toString(), format);
+				}
+			}
 		} catch (Exception e) {
 			System.err.println("Error while reading the data file.");
 			System.err.println("Caused by: ");
@@ -189,6 +471,10 @@ public class Validate {
 		correctParameters.add("-s"); correctParameters.add("-d"); 	
 		correctParameters.add("-f"); correctParameters.add("-l");
 		correctParameters.add("-a"); correctParameters.add("-out"); 	
+		correctParameters.add("-m"); correctParameters.add("-t");
+		correctParameters.add("-format"); correctParameters.add("-checks");
+		correctParameters.add("-stats"); correctParameters.add("-explain");
+		correctParameters.add("-timeout");
 		
 		for (int i = 0; i < args.length; i+=2) {
 			String param = args[i];
@@ -207,11 +493,18 @@ public class Validate {
 		StringBuilder text = new StringBuilder();
 		text.append("Usage:\n");
 		text.append("  -s <schema file>          : path to a ShEx schema in json format\n");
-		text.append("  -d <data file>            : path to a data file in .ttl format\n");
+		text.append("  -d <data file>            : path or URL of a data file, the format is inferred from the extension (default turtle)\n");
 		text.append("  -f <focus node>           : (optional) IRI of the node to be checked\n");
 		text.append("  -l <shape label>          : (optional) IRI of a sape label to be checked\n");
+		text.append("  -m <shape map file>       : (optional) a shape map selecting the nodes and labels to be checked, replaces -f and -l\n");
+		text.append("  -t <number of threads>    : (optional) number of threads used to validate the shape map, default 1\n");
+		text.append("  -format \"json\" | \"csv\" | \"ntriples\" : (optional) format of the output, default json\n");
 		text.append("  -a \"refine\" | \"recursive\" : the algorithm to be used\n");
+		text.append("  -checks \"bags\" | \"specialized\" : (optional) the local checks count the triples when the shape allows it instead of enumerating the bags, default bags\n");
 		text.append("  -out <output file>        : (optional) a path to a file where the resulting typing will be written\n");
+		text.append("  -stats <statistics file>  : (optional) a path to a csv file where the statistics of the local checks by shape label will be written\n");
+		text.append("  -explain \"text\" | \"json\" : (optional) prints the tree of the local checks performed to validate the focus node against the shape label, replaces -stats\n");
+		text.append("  -timeout <milliseconds>   : (optional) maximal duration of a validation, the result being undetermined when it is exceeded (status undetermined with -m)\n");
 		USAGE = text.toString();
 	}
 
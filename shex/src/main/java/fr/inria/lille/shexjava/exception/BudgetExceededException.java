@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.exception;
+
+/** Thrown by a validation that exceeded its budget or was cancelled, the result of the validation being undetermined.
+ * It is unchecked because it is thrown from the evaluation of the shape expressions.
+ * 
+ * @see fr.inria.lille.shexjava.validation.ValidationBudget
+ * @author Jérémie Dusart
+ */
+public class BudgetExceededException extends RuntimeException {
+	public enum Reason { DEADLINE, BAGS, DEPTH, PAIRS, CANCELLED };
+	
+	private final Reason reason;
+	
+	public BudgetExceededException(Reason reason, String message) {
+		super(message);
+		this.reason = reason;
+	}
+	
+	/** @return the limit of the budget that was exceeded */
+	public Reason getReason() {
+		return reason;
+	}
+}
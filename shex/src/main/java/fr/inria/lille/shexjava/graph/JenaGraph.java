@@ -17,15 +17,15 @@
 package fr.inria.lille.shexjava.graph;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.jena.rdf.model.AnonId;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.NodeIterator;
 import org.apache.jena.rdf.model.ResIterator;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
-import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Resource;
@@ -33,17 +33,34 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 
-/** Wraps an RDF4J graph as {@link RDFGraph}.
+/** Wraps a Jena model as {@link RDFGraph}.
+ * 
+ * <p>The conversions between the Jena nodes and the RDF4J values are cached in both directions by a {@link JenaNodeConverter}, 
+ * so that a Jena node is converted to the same value every time it is met, and this value back to the same Jena node. 
+ * When a cache reaches its size, it is emptied.</p>
  * 
  * @author Jérémie Dusart
  */
 public class JenaGraph extends AbstractRDFGraph {
 	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	public final static int DEFAULT_CACHE_SIZE = 100000;
 	protected Model jenaModel;
 	
+	private final JenaNodeConverter converter;
+	private final Map<IRI,org.apache.jena.rdf.model.Property> jenaProperties = new ConcurrentHashMap<>();
+	
 	
 	public JenaGraph(Model jenaModel) {
+		this(jenaModel, DEFAULT_CACHE_SIZE);
+	}
+	
+	/**
+	 * @param jenaModel
+	 * @param cacheSize the maximal number of conversions kept in every cache
+	 */
+	public JenaGraph(Model jenaModel, int cacheSize) {
 		this.jenaModel = jenaModel;
+		this.converter = new JenaNodeConverter(cacheSize);
 	}
 
 
@@ -86,10 +103,11 @@ public class JenaGraph extends AbstractRDFGraph {
 	@Override
 	protected Iterator<NeighborTriple> itOutNeighbours(Value focusNode, IRI predicate) {
 		return new Iterator<NeighborTriple>() {
-			StmtIterator it; { if (convertRDF4JValueToJenaResource(focusNode)==null) {
+			StmtIterator it; { org.apache.jena.rdf.model.Resource subject = convertRDF4JValueToJenaResource(focusNode);
+					if (subject==null) {
 						it = null;
 					}else {
-						it = jenaModel.listStatements(convertRDF4JValueToJenaResource(focusNode),
+						it = jenaModel.listStatements(subject,
 													  convertRDF4JIRIToJenaProperty(predicate),
 													  (org.apache.jena.rdf.model.RDFNode) null);
 						}
@@ -107,9 +125,7 @@ public class JenaGraph extends AbstractRDFGraph {
 				if (it == null)
 					throw new NoSuchElementException();
 				Statement next = it.next();
-				IRI predicate = convertJenaPropertyToRDF4JIRI(next.getPredicate());
-				TCProperty prop = TCProperty.createFwProperty(predicate);
-				return new NeighborTriple(focusNode,prop,convertJenaRDFNodeToValue(next.getObject()));
+				return new NeighborTriple(focusNode,converter.forwardProperty(next.getPredicate().asNode()),convertJenaRDFNodeToValue(next.getObject()));
 			}
 		};
 	}
@@ -131,9 +147,7 @@ public class JenaGraph extends AbstractRDFGraph {
 			@Override
 			public NeighborTriple next() {
 				Statement next = it.next();
-				IRI predicate = convertJenaPropertyToRDF4JIRI(next.getPredicate());
-				TCProperty prop = TCProperty.createInvProperty(predicate);
-				return new NeighborTriple(convertJenaRDFNodeToValue(next.getSubject()),prop,focusNode);
+				return new NeighborTriple(convertJenaRDFNodeToValue(next.getSubject()),converter.inverseProperty(next.getPredicate().asNode()),focusNode);
 			}
 		};
 	}
@@ -150,35 +164,24 @@ public class JenaGraph extends AbstractRDFGraph {
 	public org.apache.jena.rdf.model.Property convertRDF4JIRIToJenaProperty(IRI predicate) {
 		if (predicate == null)
 			return null;
-		return jenaModel.createProperty(predicate.stringValue());
+		org.apache.jena.rdf.model.Property property = jenaProperties.get(predicate);
+		if (property == null)
+			property = converter.cache(jenaProperties, predicate, jenaModel.createProperty(predicate.stringValue()));
+		return property;
 	}
 	
 	public org.apache.jena.rdf.model.Resource convertRDF4JValueToJenaResource(Value value) {
 		if (value == null)
 			return null;
-		if (value instanceof IRI)
-			return jenaModel.createResource(value.stringValue());
-		if (value instanceof BNode) {
-			return jenaModel.createResource(new AnonId(value.stringValue()));
-		}
 		if (value instanceof Literal)
 			return null;
-		System.out.println("Need to convert from RDF4J: "+value.getClass()+" > "+value);
-		
-		return null;
+		return jenaModel.wrapAsResource(converter.convertValueToNode(value));
 	}
 	
 	public org.apache.jena.rdf.model.RDFNode convertRDF4JValueToJenaRDFNode(Value value) {
 		if (value == null)
 			return null;
-		if (value instanceof Literal) {
-			Literal lvalue = (Literal) value;
-			if (lvalue.getLanguage().isPresent())
-				return jenaModel.createLiteral(lvalue.stringValue(), lvalue.getLanguage().get());
-			return jenaModel.createTypedLiteral(lvalue.stringValue(), lvalue.getDatatype().stringValue());
-		} else {
-			return convertRDF4JValueToJenaResource(value);
-		}
+		return jenaModel.asRDFNode(converter.convertValueToNode(value));
 	}
 	
 	//----------------------------------------------
@@ -188,26 +191,19 @@ public class JenaGraph extends AbstractRDFGraph {
 	public IRI convertJenaPropertyToRDF4JIRI(org.apache.jena.rdf.model.Property prop) {
 		if (prop == null)
 			return null;
-		return rdfFactory.createIRI(prop.getURI());
+		return (IRI) convertJenaRDFNodeToValue(prop);
 	}
 	
 	public Value convertJenaRDFNodeToValue(org.apache.jena.rdf.model.RDFNode jenaRes) {
 		if (jenaRes == null)
 			return null;
-		if (jenaRes.isResource()) {
-			return convertJenaRDFNodeToResource((org.apache.jena.rdf.model.Resource) jenaRes);
-		}else {
-			return convertJenaRDFNodeToLiteral((org.apache.jena.rdf.model.Literal) jenaRes);
-		}
+		return converter.convertNodeToValue(jenaRes.asNode());
 	}
 	
 	public Resource convertJenaRDFNodeToResource(org.apache.jena.rdf.model.Resource jenaRes) {
 		if (jenaRes == null)
 			return null;
-		if (jenaRes.isAnon()) {
-			return rdfFactory.createBNode(jenaRes.toString());
-		}
-		return rdfFactory.createIRI(jenaRes.getURI());
+		return (Resource) converter.convertNodeToValue(jenaRes.asNode());
 	}
 	
 	public static Literal convertJenaRDFNodeToLiteral(org.apache.jena.rdf.model.Literal jenaLit) {
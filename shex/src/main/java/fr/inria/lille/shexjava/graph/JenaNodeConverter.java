@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.graph;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/** Converts the Jena nodes to RDF4J values and back, for {@link JenaGraph} and {@link JenaSPIGraph}.
+ * 
+ * <p>The conversions are cached in both directions, so that a Jena node is converted to the same value every time it is met, 
+ * and this value back to the same Jena node. When a cache reaches its size, it is emptied.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+class JenaNodeConverter {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	
+	private final int cacheSize;
+	private final Map<Node,Value> values = new ConcurrentHashMap<>();
+	private final Map<Value,Node> jenaNodes = new ConcurrentHashMap<>();
+	private final Map<Node,TCProperty> forwardProperties = new ConcurrentHashMap<>();
+	private final Map<Node,TCProperty> inverseProperties = new ConcurrentHashMap<>();
+	
+	/**
+	 * @param cacheSize the maximal number of conversions kept in every cache
+	 */
+	JenaNodeConverter(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+	
+	<K,V> V cache(Map<K,V> cache, K key, V value) {
+		if (cache.size() >= cacheSize)
+			cache.clear();
+		cache.put(key, value);
+		return value;
+	}
+	
+	Node convertValueToNode(Value value) {
+		if (value == null)
+			return null;
+		Node node = jenaNodes.get(value);
+		if (node != null)
+			return node;
+		if (value instanceof IRI) {
+			node = NodeFactory.createURI(value.stringValue());
+		} else if (value instanceof BNode) {
+			node = NodeFactory.createBlankNode(value.stringValue());
+		} else {
+			Literal literal = (Literal) value;
+			if (literal.getLanguage().isPresent())
+				node = NodeFactory.createLiteral(literal.stringValue(), literal.getLanguage().get());
+			else
+				node = NodeFactory.createLiteral(literal.stringValue(), TypeMapper.getInstance().getSafeTypeByName(literal.getDatatype().stringValue()));
+		}
+		return cache(jenaNodes, value, node);
+	}
+	
+	Value convertNodeToValue(Node node) {
+		if (node == null)
+			return null;
+		Value value = values.get(node);
+		if (value != null)
+			return value;
+		if (node.isURI()) {
+			value = rdfFactory.createIRI(node.getURI());
+		} else if (node.isBlank()) {
+			value = rdfFactory.createBNode(node.getBlankNodeLabel());
+		} else if (!node.getLiteralLanguage().equals("")) {
+			value = rdfFactory.createLiteral(node.getLiteralLexicalForm(), node.getLiteralLanguage());
+		} else {
+			value = rdfFactory.createLiteral(node.getLiteralLexicalForm(), rdfFactory.createIRI(node.getLiteralDatatypeURI()));
+		}
+		cache(jenaNodes, value, node);
+		return cache(values, node, value);
+	}
+	
+	/** @return the forward property of a predicate */
+	TCProperty forwardProperty(Node predicate) {
+		TCProperty prop = forwardProperties.get(predicate);
+		if (prop == null)
+			prop = cache(forwardProperties, predicate, TCProperty.createFwProperty((IRI) convertNodeToValue(predicate)));
+		return prop;
+	}
+	
+	/** @return the inverse property of a predicate */
+	TCProperty inverseProperty(Node predicate) {
+		TCProperty prop = inverseProperties.get(predicate);
+		if (prop == null)
+			prop = cache(inverseProperties, predicate, TCProperty.createInvProperty((IRI) convertNodeToValue(predicate)));
+		return prop;
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.graph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.core.Transactional;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+
+/** Wraps a Jena {@link Graph} as {@link RDFGraph}. 
+ * 
+ * <p>The neighbourhoods are found with {@link Graph#find(Node, Node, Node)}, without the Model API used by {@link JenaGraph}, 
+ * and the conversions between the Jena nodes and the RDF4J values are cached in both directions as in {@link JenaGraph}. 
+ * The iterators returned by {@link Graph#find(Node, Node, Node)} are closed once the neighbourhood has been read.</p>
+ * 
+ * <p>The graph of a transactional dataset, for example a TDB dataset, must be used inside a transaction. 
+ * {@link #inReadTransaction(Transactional, Callable)} runs a whole validation inside a single read transaction:</p>
+ * <pre>
+ * Dataset dataset = TDBFactory.createDataset(directory);
+ * boolean result = JenaSPIGraph.inReadTransaction(dataset, () -&gt; {
+ *     RDFGraph graph = new JenaSPIGraph(dataset.asDatasetGraph().getDefaultGraph());
+ *     return new RecursiveValidation(schema, graph).validate(node, label);
+ * });
+ * </pre>
+ * 
+ * @author Jérémie Dusart
+ */
+public class JenaSPIGraph extends AbstractRDFGraph {
+	protected Graph jenaGraph;
+	
+	private final JenaNodeConverter converter;
+	
+	
+	public JenaSPIGraph(Graph jenaGraph) {
+		this(jenaGraph, JenaGraph.DEFAULT_CACHE_SIZE);
+	}
+	
+	/**
+	 * @param jenaGraph
+	 * @param cacheSize the maximal number of conversions kept in every cache
+	 */
+	public JenaSPIGraph(Graph jenaGraph, int cacheSize) {
+		this.jenaGraph = jenaGraph;
+		this.converter = new JenaNodeConverter(cacheSize);
+	}
+	
+	/** Runs an action inside a read transaction, or directly if a transaction is already under way.
+	 * 
+	 * @param transactional the dataset
+	 * @param action
+	 * @return the result of the action
+	 * @throws Exception the exception thrown by the action
+	 */
+	public static <T> T inReadTransaction(Transactional transactional, Callable<T> action) throws Exception {
+		if (transactional.isInTransaction())
+			return action.call();
+		transactional.begin(ReadWrite.READ);
+		try {
+			return action.call();
+		} finally {
+			transactional.end();
+		}
+	}
+
+
+	/** The underlying iterator is closed once all the nodes have been listed. */
+	@Override
+	public Iterator<Value> listAllObjectNodes() {
+		return convert(GraphUtil.listObjects(jenaGraph, Node.ANY, Node.ANY));
+	}
+
+
+	/** The underlying iterator is closed once all the nodes have been listed. */
+	@Override
+	public Iterator<Value> listAllSubjectNodes() {
+		return convert(GraphUtil.listSubjects(jenaGraph, Node.ANY, Node.ANY));
+	}
+	
+	private Iterator<Value> convert(ExtendedIterator<Node> it) {
+		return new Iterator<Value>() {
+			@Override
+			public boolean hasNext() {
+				if (it.hasNext())
+					return true;
+				it.close();
+				return false;
+			}
+
+			@Override
+			public Value next() {
+				return convertNodeToValue(it.next());
+			}
+		};
+	}
+
+
+	@Override
+	protected Iterator<NeighborTriple> itOutNeighbours(Value focusNode, IRI predicate) {
+		if (focusNode instanceof Literal)
+			return new EmptyIterator<NeighborTriple>();
+		ExtendedIterator<Triple> it = jenaGraph.find(convertValueToNode(focusNode), predicate == null ? Node.ANY : convertValueToNode(predicate), Node.ANY);
+		List<NeighborTriple> result = new ArrayList<>();
+		try {
+			while (it.hasNext()) {
+				Triple next = it.next();
+				result.add(new NeighborTriple(focusNode,converter.forwardProperty(next.getPredicate()),convertNodeToValue(next.getObject())));
+			}
+		} finally {
+			it.close();
+		}
+		return result.iterator();
+	}
+
+
+	@Override
+	protected Iterator<NeighborTriple> itInNeighbours(Value focusNode, IRI predicate) {
+		ExtendedIterator<Triple> it = jenaGraph.find(Node.ANY, predicate == null ? Node.ANY : convertValueToNode(predicate), convertValueToNode(focusNode));
+		List<NeighborTriple> result = new ArrayList<>();
+		try {
+			while (it.hasNext()) {
+				Triple next = it.next();
+				result.add(new NeighborTriple(focusNode,converter.inverseProperty(next.getPredicate()),convertNodeToValue(next.getSubject())));
+			}
+		} finally {
+			it.close();
+		}
+		return result.iterator();
+	}
+
+	@Override
+	public String toString() {
+		return jenaGraph.toString();
+	}
+	
+	//----------------------------------------------
+	// Conversions
+	//----------------------------------------------
+	
+	public Node convertValueToNode(Value value) {
+		return converter.convertValueToNode(value);
+	}
+	
+	public Value convertNodeToValue(Node node) {
+		return converter.convertNodeToValue(node);
+	}
+}
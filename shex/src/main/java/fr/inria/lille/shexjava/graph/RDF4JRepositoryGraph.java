@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.graph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eclipse.rdf4j.IsolationLevels;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+
+/** Wraps an RDF4J repository as {@link RDFGraph}, for example a native store, without loading its content in memory.
+ * 
+ * <p>All the lookups are made with the same connection, optionally restricted to some contexts. 
+ * The neighbours of a node are looked up predicate by predicate, so that the repository uses its indexes even for nodes with many statements. 
+ * To validate a single snapshot of a repository that is modified at the same time, 
+ * the validation must run inside a transaction of the connection with the isolation level {@link IsolationLevels#SNAPSHOT_READ}, 
+ * as {@link #beginSnapshot()} does.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public class RDF4JRepositoryGraph extends AbstractRDFGraph {
+	private final RepositoryConnection connection;
+	private final Resource[] contexts;
+	
+	/** 
+	 * @param connection the connection to the repository, which is not closed by the graph
+	 * @param contexts the contexts of the graph, all the contexts of the repository if none is given
+	 */
+	public RDF4JRepositoryGraph(RepositoryConnection connection, Resource... contexts) {
+		this.connection = connection;
+		this.contexts = contexts;
+	}
+	
+	/** Begins a transaction of the connection in which every lookup sees the same snapshot of the repository. 
+	 * The transaction is ended by {@link RepositoryConnection#commit()} or {@link RepositoryConnection#rollback()} after the validation. 
+	 */
+	public void beginSnapshot() {
+		connection.begin(IsolationLevels.SNAPSHOT_READ);
+	}
+	
+	/** Lists the subjects while reading the statements, without keeping them in memory. 
+	 * A subject is listed once for each group of consecutive statements, so it can be listed several times if the repository does not return its statements together. 
+	 */
+	@Override
+	public Iterator<Value> listAllSubjectNodes() {
+		return new NodeIterator(connection.getStatements(null, null, null, false, contexts), true);
+	}
+	
+	/** Lists the objects while reading the statements, without keeping them in memory. 
+	 * An object is listed once for each group of consecutive statements, so it is usually listed several times. 
+	 */
+	@Override
+	public Iterator<Value> listAllObjectNodes() {
+		return new NodeIterator(connection.getStatements(null, null, null, false, contexts), false);
+	}
+	
+	@Override
+	protected Iterator<NeighborTriple> itOutNeighbours(Value focusNode, IRI predicate) {
+		if (! (focusNode instanceof Resource))
+			return new EmptyIterator<NeighborTriple>();
+		return neighbours((Resource) focusNode, predicate, null, true);
+	}
+
+	@Override
+	protected Iterator<NeighborTriple> itInNeighbours(Value focusNode, IRI predicate) {
+		return neighbours(null, predicate, focusNode, false);
+	}
+	
+	/** Fetches the statements matching the pattern.
+	 * The statements are read at once, so that the result of the connection is closed even if the iterator is not used until its end. 
+	 */
+	private Iterator<NeighborTriple> neighbours(Resource subject, IRI predicate, Value object, boolean forward) {
+		List<NeighborTriple> neighbours = new ArrayList<>();
+		try (RepositoryResult<Statement> statements = connection.getStatements(subject, predicate, object, false, contexts)) {
+			while (statements.hasNext()) {
+				Statement st = statements.next();
+				if (forward)
+					neighbours.add(new NeighborTriple(st.getSubject(), TCProperty.createFwProperty(st.getPredicate()), st.getObject()));
+				else
+					neighbours.add(new NeighborTriple(st.getObject(), TCProperty.createInvProperty(st.getPredicate()), st.getSubject()));
+			}
+		}
+		return neighbours.iterator();
+	}
+	
+	/** Iterates over the subjects or the objects of the statements, skipping a node equal to the previous one. The result is closed once it is exhausted. */
+	private static class NodeIterator implements Iterator<Value> {
+		private final RepositoryResult<Statement> statements;
+		private final boolean subjects;
+		private Value previous = null;
+		private Value next = null;
+		
+		NodeIterator(RepositoryResult<Statement> statements, boolean subjects) {
+			this.statements = statements;
+			this.subjects = subjects;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			while (next == null && statements.hasNext()) {
+				Statement st = statements.next();
+				Value node = subjects ? st.getSubject() : st.getObject();
+				if (! node.equals(previous))
+					next = node;
+			}
+			if (next == null)
+				statements.close();
+			return next != null;
+		}
+		
+		@Override
+		public Value next() {
+			if (! hasNext())
+				throw new NoSuchElementException();
+			previous = next;
+			next = null;
+			return previous;
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "RDF4JRepositoryGraph(" + connection.getRepository() + ")";
+	}
+}
@@ -76,21 +76,22 @@ public interface RDFGraph {
 	public Iterator<NeighborTriple> itOutNeighboursWithPredicate (Value focusNode,Set<IRI> allowedPredicates);
 
 
-	/** List all the object nodes in the graph.
+	/** List all the object nodes in the graph. Every object node is listed at least once, and some implementations list a node several times.
 	 * 
-	 * @return an iterator over the object nodes of the graph
+	 * @return an iterator over the object nodes of the graph, possibly with repetitions
 	 */
 	public Iterator<Value> listAllObjectNodes ();
 	
-	/** List all the subjects node in the graph.
+	/** List all the subjects node in the graph. Every subject node is listed at least once, and some implementations list a node several times.
 	 * 
-	 * @return an iterator over the subject nodes of the graph
+	 * @return an iterator over the subject nodes of the graph, possibly with repetitions
 	 */
 	public Iterator<Value> listAllSubjectNodes ();
 	
-	/** List all the object and subject in the graph.
+	/** List all the object and subject in the graph. Every node is listed at least once, and a node can be listed several times, 
+	 * for example a node that is both a subject and an object.
 	 * 
-	 * @return an iterator over the nodes of the graph
+	 * @return an iterator over the nodes of the graph, possibly with repetitions
 	 */
 	public Iterator<Value> listAllNodes ();
 }
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.jfr;
+
+import java.nio.file.Path;
+
+import fr.inria.lille.shexjava.validation.ValidationListener;
+
+/** Emits the Java Flight Recorder events of the parsing and of the compilation of the schemas, when the <code>jdk.jfr</code> module is available.
+ * 
+ * <p>The events are objects returned by the <code>begin</code> methods, or null when Java Flight Recorder is not available, 
+ * that must be given back to the corresponding <code>end</code> methods.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public final class FlightRecorderEvents {
+	private static final boolean AVAILABLE = checkAvailability();
+	
+	private FlightRecorderEvents() {
+	}
+	
+	private static boolean checkAvailability() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+	
+	/** @return true if the events can be emitted */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+	
+	/** A listener emitting the events of the validation, see {@link FlightRecorderListener}.
+	 * 
+	 * @param threshold the minimal duration of the recorded local checks, in nanoseconds
+	 * @return the listener, or {@link ValidationListener#NONE} if Java Flight Recorder is not available
+	 */
+	public static ValidationListener listener(long threshold) {
+		if (! AVAILABLE)
+			return ValidationListener.NONE;
+		return new FlightRecorderListener(threshold);
+	}
+	
+	public static Object beginParsing() {
+		if (! AVAILABLE)
+			return null;
+		SchemaParsingEvent event = new SchemaParsingEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endParsing(Object parsing, Path file, long size, int nbRules) {
+		if (parsing == null)
+			return;
+		SchemaParsingEvent event = (SchemaParsingEvent) parsing;
+		event.end();
+		if (event.shouldCommit()) {
+			event.file = file.toString();
+			event.size = size;
+			event.nbRules = nbRules;
+			event.commit();
+		}
+	}
+	
+	public static Object beginCompilation() {
+		if (! AVAILABLE)
+			return null;
+		SchemaCompilationEvent event = new SchemaCompilationEvent();
+		event.begin();
+		return event;
+	}
+	
+	public static void endCompilation(Object compilation, int nbRules, int nbShapeExprs, int nbStrata, boolean extension) {
+		if (compilation == null)
+			return;
+		SchemaCompilationEvent event = (SchemaCompilationEvent) compilation;
+		event.end();
+		if (event.shouldCommit()) {
+			event.nbRules = nbRules;
+			event.nbShapeExprs = nbShapeExprs;
+			event.nbStrata = nbStrata;
+			event.extension = extension;
+			event.commit();
+		}
+	}
+}
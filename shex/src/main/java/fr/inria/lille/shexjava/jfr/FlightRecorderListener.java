@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.jfr;
+
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.validation.ValidationListener;
+
+/** A {@link ValidationListener} that emits Java Flight Recorder events for the strata and the rounds of the refine validation, 
+ * and for the local checks that last longer than a threshold.
+ * 
+ * <p>The events are recorded only when a recording with the events enabled is running. Use {@link FlightRecorderEvents#listener(long)} 
+ * to obtain a listener that can also be used when Java Flight Recorder is not available. A listener must not be shared by validations running concurrently.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public class FlightRecorderListener implements ValidationListener {
+	/** The default threshold of the local checks, in nanoseconds. */
+	public static final long DEFAULT_THRESHOLD = 10_000_000;
+	
+	private final long threshold;
+	// the neighbourhood size and the number of bags of the checks under way
+	private int[] neighbourhoodSizes = new int[16];
+	private int[] nbBags = new int[16];
+	private int nbChecks = 0;
+	private StratumEvent stratum = null;
+	private FixpointRoundEvent round = null;
+	private long nbRemoved;
+	
+	/** Creates a listener that records the local checks longer than {@link #DEFAULT_THRESHOLD}. */
+	public FlightRecorderListener() {
+		this(DEFAULT_THRESHOLD);
+	}
+	
+	/** Creates a listener that records the local checks longer than the threshold.
+	 * 
+	 * @param threshold in nanoseconds
+	 */
+	public FlightRecorderListener(long threshold) {
+		this.threshold = threshold;
+	}
+	
+	@Override
+	public void shapeCheckStarted(Value node, Label label, int depth) {
+		if (nbChecks == neighbourhoodSizes.length) {
+			neighbourhoodSizes = Arrays.copyOf(neighbourhoodSizes, nbChecks*2);
+			nbBags = Arrays.copyOf(nbBags, nbChecks*2);
+		}
+		neighbourhoodSizes[nbChecks] = 0;
+		nbBags[nbChecks] = 0;
+		nbChecks++;
+	}
+	
+	@Override
+	public void neighbourhoodFetched(Value node, Label label, int size) {
+		if (nbChecks > 0)
+			neighbourhoodSizes[nbChecks-1] = size;
+	}
+	
+	@Override
+	public void bagsEnumerated(Value node, Label label, int nb) {
+		if (nbChecks > 0)
+			nbBags[nbChecks-1] = nb;
+	}
+	
+	@Override
+	public void shapeCheckEnded(Value node, Label label, boolean result, long duration) {
+		if (nbChecks == 0)
+			return;
+		nbChecks--;
+		if (duration < threshold)
+			return;
+		ShapeCheckEvent event = new ShapeCheckEvent();
+		if (! event.isEnabled())
+			return;
+		event.shape = label.toString();
+		event.node = node.toString();
+		event.result = result;
+		event.checkDuration = duration;
+		event.depth = nbChecks;
+		event.neighbourhoodSize = neighbourhoodSizes[nbChecks];
+		event.nbBags = nbBags[nbChecks];
+		event.commit();
+	}
+	
+	@Override
+	public void stratumStarted(int stratum) {
+		this.stratum = new StratumEvent();
+		this.stratum.begin();
+		this.round = new FixpointRoundEvent();
+		this.round.begin();
+		this.nbRemoved = 0;
+	}
+	
+	@Override
+	public void roundEnded(int stratum, int round, int nbRemoved) {
+		this.nbRemoved += nbRemoved;
+		if (this.round != null) {
+			this.round.end();
+			if (this.round.shouldCommit()) {
+				this.round.stratum = stratum;
+				this.round.round = round;
+				this.round.nbRemoved = nbRemoved;
+				this.round.commit();
+			}
+		}
+		this.round = new FixpointRoundEvent();
+		this.round.begin();
+	}
+	
+	@Override
+	public void stratumEnded(int stratum, int nbRounds) {
+		this.round = null;
+		if (this.stratum == null)
+			return;
+		this.stratum.end();
+		if (this.stratum.shouldCommit()) {
+			this.stratum.stratum = stratum;
+			this.stratum.nbRounds = nbRounds;
+			this.stratum.nbRemoved = nbRemoved;
+			this.stratum.commit();
+		}
+		this.stratum = null;
+	}
+}
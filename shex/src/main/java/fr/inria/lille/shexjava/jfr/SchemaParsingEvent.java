@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** The parsing of a schema file, without its imports.
+ * 
+ * @author Jérémie Dusart
+ */
+@Name("fr.inria.lille.shexjava.SchemaParsing")
+@Label("Schema Parsing")
+@Category({"ShEx", "Schema"})
+class SchemaParsingEvent extends jdk.jfr.Event {
+	@Label("File")
+	String file;
+	
+	@Label("Size")
+	@DataAmount
+	long size;
+	
+	@Label("Rules")
+	@Description("Number of rules defined in the file")
+	int nbRules;
+}
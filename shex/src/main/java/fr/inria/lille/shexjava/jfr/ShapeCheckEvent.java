@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** A local check of a node against a shape that lasted longer than the threshold of the {@link FlightRecorderListener}.
+ * 
+ * @author Jérémie Dusart
+ */
+@Name("fr.inria.lille.shexjava.ShapeCheck")
+@Label("Slow Shape Check")
+@Category({"ShEx", "Validation"})
+class ShapeCheckEvent extends jdk.jfr.Event {
+	@Label("Shape")
+	String shape;
+	
+	@Label("Node")
+	String node;
+	
+	@Label("Result")
+	boolean result;
+	
+	@Label("Check Duration")
+	@Description("With the recursive validation, includes the duration of the recursive checks")
+	@Timespan(Timespan.NANOSECONDS)
+	long checkDuration;
+	
+	@Label("Depth")
+	int depth;
+	
+	@Label("Neighbourhood Size")
+	int neighbourhoodSize;
+	
+	@Label("Bags")
+	int nbBags;
+}
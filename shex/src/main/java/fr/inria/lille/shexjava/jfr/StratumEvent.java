@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** The computation of the typing of a stratum by the refine validation.
+ * 
+ * @author Jérémie Dusart
+ */
+@Name("fr.inria.lille.shexjava.Stratum")
+@Label("Refine Stratum")
+@Category({"ShEx", "Validation"})
+class StratumEvent extends jdk.jfr.Event {
+	@Label("Stratum")
+	int stratum;
+	
+	@Label("Rounds")
+	int nbRounds;
+	
+	@Label("Removed Pairs")
+	long nbRemoved;
+}
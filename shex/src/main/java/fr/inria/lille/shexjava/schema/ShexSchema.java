@@ -16,54 +16,49 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.schema;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
-import org.jgrapht.Graph;
-import org.jgrapht.alg.CycleDetector;
-import org.jgrapht.alg.KosarajuStrongConnectivityInspector;
-import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.graph.DefaultDirectedWeightedGraph;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.DefaultWeightedEdge;
-import org.jgrapht.graph.DirectedAcyclicGraph;
-import org.jgrapht.graph.builder.GraphBuilder;
 
 import fr.inria.lille.shexjava.exception.CyclicReferencesException;
 import fr.inria.lille.shexjava.exception.NotStratifiedException;
 import fr.inria.lille.shexjava.exception.UndefinedReferenceException;
-import fr.inria.lille.shexjava.graph.TCProperty;
+import fr.inria.lille.shexjava.jfr.FlightRecorderEvents;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryTripleExpr;
 import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
-import fr.inria.lille.shexjava.schema.abstrsynt.EmptyTripleExpression;
-import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.OneOf;
 import fr.inria.lille.shexjava.schema.abstrsynt.RepeatedTripleExpression;
 import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeAnd;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExternal;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleExprRef;
-import fr.inria.lille.shexjava.schema.analysis.SchemaCollectors;
-import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
-import fr.inria.lille.shexjava.schema.analysis.TripleExpressionVisitor;
-import fr.inria.lille.shexjava.util.Pair;
 
 /** A ShEx schema.
  * 
  * An instance of this class represents a well-defined schema, that is, all shape labels are defined, and the set of rules is stratified. All the verification on the set of rules id done in the constructor.
  * The stratification is a most refined stratification.
  * 
+ * The labels are numbered during a single traversal of the rules, and the reference and dependency graphs are built as adjacency arrays on these numbers. 
+ * The cycles of references and the strongly connected components of the dependency graph are computed with Tarjan's algorithm, in time linear in the size of the schema.
+ * 
  * @author Iovka Boneva
  * @author Antonin Durey
  * @author Jérémie Dusart
@@ -73,6 +68,9 @@ public class ShexSchema {
 	private Map<Label, ShapeExpr> rules;
 	private Map<Label,ShapeExpr> shapeMap;
 	private Map<Label,TripleExpr> tripleMap;
+	private Map<Label,Set<Label>> dependencies;
+	private Map<Label,Integer> strata;
+	private Map<String,Long> constructionTimes = new LinkedHashMap<String,Long>();
 
 	/** The constructor try to instantiate a well-defined schema. Label are generated for all shapeExpr and tripleExpr without and ID. References are resolved and a verification that there is no cycles in the references is performed. The stratification of the set of rules is stratified is computed. Rules cannot be modified after initialization
 	 * @param rules
@@ -81,120 +79,471 @@ public class ShexSchema {
 	 * @throws NotStratifiedException
 	 */
 	public ShexSchema(Map<Label, ShapeExpr> rules) throws UndefinedReferenceException, CyclicReferencesException, NotStratifiedException {
-		//check that id are unique
-		
+		Object compilation = FlightRecorderEvents.beginCompilation();
 		this.rules = Collections.unmodifiableMap(new HashMap<Label, ShapeExpr>(rules));
-		// Collect all the ShapeExpr
-		Set<ShapeExpr> allShapes = SchemaCollectors.collectAllShapes(this.rules);
-		Map<Label,ShapeExpr> shapeMapTmp = new HashMap<Label,ShapeExpr>();
-		for(ShapeExpr shexp:allShapes) {
-			checkShapeID(shexp);
-			if (shapeMapTmp.containsKey(shexp.getId()))
-				throw new IllegalArgumentException("Label "+shexp.getId()+" allready used.");
-			shapeMapTmp.put(shexp.getId(),shexp);
-		}
-		this.shapeMap = Collections.unmodifiableMap(new HashMap<Label, ShapeExpr>(shapeMapTmp));
-		// Check that all the shape references are defined
-		for (Map.Entry<Label,ShapeExpr> entry:shapeMap.entrySet()){
-			if (entry.getValue() instanceof ShapeExprRef) {
-				ShapeExprRef ref = (ShapeExprRef) entry.getValue();
-				if (shapeMap.containsKey(ref.getLabel())) {
-					ref.setShapeDefinition(shapeMap.get(ref.getLabel()));
-				}else {
-					throw new UndefinedReferenceException("Undefined shape label: " + ref.getLabel());
-				}
+		LabelGraphs graphs = collectExpressions();
+		
+		// Check that there is no cycle in the definition of the references
+		long start = System.nanoTime();
+		int[][] references = graphs.references.toAdjacency(graphs.labels.size());
+		int[] referenceComponents = new int[graphs.labels.size()];
+		int nbReferenceComponents = stronglyConnectedComponents(references, referenceComponents, null);
+		if (nbReferenceComponents < graphs.labels.size() || graphs.references.hasLoop())
+			throw new CyclicReferencesException("Cyclic dependencies of refences found." );
+		constructionTimes.put("cycles", System.nanoTime()-start);
+		
+		// Starting to check and compute stratification
+		start = System.nanoTime();
+		List<TripleExpr> toVisit = new ArrayList<TripleExpr>();
+		for (Shape shape:graphs.shapes)
+			collectDependencies(shape, graphs, toVisit);
+		int[][] dependences = graphs.dependences.toAdjacency(graphs.labels.size());
+		Map<Label,Set<Label>> dependenciesTmp = new HashMap<Label,Set<Label>>();
+		for (Label label:shapeMap.keySet()) {
+			int[] successors = dependences[graphs.index.get(label)];
+			if (successors.length == 0) {
+				dependenciesTmp.put(label, Collections.emptySet());
+			} else if (successors.length == 1) {
+				dependenciesTmp.put(label, Collections.singleton(graphs.labels.get(successors[0])));
+			} else {
+				Set<Label> labelDependencies = new HashSet<Label>(successors.length*2);
+				for (int successor:successors)
+					labelDependencies.add(graphs.labels.get(successor));
+				dependenciesTmp.put(label, labelDependencies);
 			}
 		}
+		this.dependencies = Collections.unmodifiableMap(dependenciesTmp);
+		constructionTimes.put("dependencies", System.nanoTime()-start);
 		
-		// Collect all TripleExpr
-		Set<TripleExpr> allTriples = SchemaCollectors.collectAllTriples(this.rules);
-		Map<Label,TripleExpr> tripleMapTmp = new HashMap<Label,TripleExpr>();
-		for (TripleExpr tcexp:allTriples) {
-			checkTripleID(tcexp);
-			if (shapeMap.containsKey(tcexp.getId()) || tripleMapTmp.containsKey(tcexp.getId()))
-				throw new IllegalArgumentException("Label "+tcexp.getId()+" allready used.");
-			tripleMapTmp.put(tcexp.getId(),tcexp);
-			
-			//System.out.println("ID:"+tcexp.getId()+" : "+tcexp+ "("+tcexp.getClass()+")");
+		// Compute strongly connected components, a component being numbered after all the components it depends on
+		start = System.nanoTime();
+		int[] components = new int[graphs.labels.size()];
+		int nbComponents = stronglyConnectedComponents(dependences, components, graphs.shapeLabels);
+		
+		// Check that there is no negative edge in a strongly connected component
+		for (int i=0;i<graphs.dependences.size;i++) 
+			if (graphs.dependences.negative[i] && components[graphs.dependences.sources[i]] == components[graphs.dependences.targets[i]])
+				throw new NotStratifiedException("The set of rules is not stratified (negative edge found in a strongly connected component).");
+		
+		// Each component is a stratum
+		int[] componentSizes = new int[nbComponents];
+		for (int i=0;i<graphs.shapeLabels.size;i++)
+			componentSizes[components[graphs.shapeLabels.values[i]]]++;
+		stratification = new HashMap<Integer,Set<Label>>(nbComponents*2);
+		strata = new HashMap<Label,Integer>(shapeMap.size()*2);
+		for (int i=0;i<graphs.shapeLabels.size;i++) {
+			int vertex = graphs.shapeLabels.values[i];
+			Label label = graphs.labels.get(vertex);
+			int stratum = components[vertex];
+			if (componentSizes[stratum] == 1) {
+				stratification.put(stratum, Collections.singleton(label));
+			} else {
+				if (! stratification.containsKey(stratum))
+					stratification.put(stratum, new HashSet<Label>(componentSizes[stratum]*2));
+				stratification.get(stratum).add(label);
+			}
+			strata.put(label, stratum);
 		}
-		tripleMap = Collections.unmodifiableMap(new HashMap<Label,TripleExpr>(tripleMapTmp));
+		constructionTimes.put("stratification", System.nanoTime()-start);
+		FlightRecorderEvents.endCompilation(compilation, this.rules.size(), shapeMap.size(), stratification.size(), false);
+	}
+
+	
+	/** Creates a schema whose dependencies and stratification were computed beforehand, for instance by an earlier construction of the same schema that was saved with {@link fr.inria.lille.shexjava.schema.parsing.ShExBinarySerializer}.
+	 * All the shape expressions and triple expressions must have an ID. The references are resolved, but neither the absence of cycles nor the stratification are verified.
+	 * 
+	 * @param rules
+	 * @param stratification the strata of the shape labels, from 0 to the number of strata - 1
+	 * @param dependencies the shape labels on which each shape label directly depends
+	 * @throws UndefinedReferenceException
+	 */
+	public ShexSchema(Map<Label, ShapeExpr> rules, Map<Integer,Set<Label>> stratification, Map<Label,Set<Label>> dependencies) throws UndefinedReferenceException {
+		this.rules = Collections.unmodifiableMap(new HashMap<Label, ShapeExpr>(rules));
+		collectExpressions();
+		this.stratification = stratification;
+		this.dependencies = Collections.unmodifiableMap(dependencies);
+		this.strata = new HashMap<Label,Integer>();
+		for (Map.Entry<Integer,Set<Label>> stratum:stratification.entrySet())
+			for (Label label:stratum.getValue())
+				strata.put(label, stratum.getKey());
+	}
+	
+	private ShexSchema() {
+	}
+	
+	/** Creates a new schema with the rules of this schema and the given rules, a given rule replacing the rule of this schema with the same label.
+	 * 
+	 * Only the expressions of the given rules are traversed. The references, the dependencies and the strata of the unchanged labels are reused: 
+	 * the strongly connected components of this schema that do not contain a replaced label are contracted before the stratification is computed again. 
+	 * When a rule is replaced, the unchanged rules that reference its labels are copied with new references, so the expressions of this schema are not modified and this schema remains valid.
+	 * 
+	 * @param rules the added and replaced rules
+	 * @return the new schema
+	 * @throws UndefinedReferenceException
+	 * @throws CyclicReferencesException
+	 * @throws NotStratifiedException
+	 */
+	public ShexSchema extend(Map<Label, ShapeExpr> rules) throws UndefinedReferenceException, CyclicReferencesException, NotStratifiedException {
+		Object compilation = FlightRecorderEvents.beginCompilation();
+		long start = System.nanoTime();
+		Map<Label,ShapeExpr> newRules = new HashMap<Label,ShapeExpr>(rules);
 		
-		// Check that all the triple references are defined
-		for (Map.Entry<Label,TripleExpr> entry:tripleMap.entrySet()){
-			if (entry.getValue() instanceof TripleExprRef) {
-				TripleExprRef ref = (TripleExprRef) entry.getValue();
-				if (tripleMap.containsKey(ref.getLabel())) {
-					ref.setTripleDefinition(tripleMap.get(ref.getLabel()));
-				}else {
-					throw new UndefinedReferenceException("Undefined triple label: " + ref.getLabel());
-				}
+		// The labels of the replaced rules
+		Set<Label> removedShapes = new HashSet<Label>();
+		Set<Label> removedTriples = new HashSet<Label>();
+		for (Label label:rules.keySet())
+			if (this.rules.containsKey(label))
+				collectLabels(this.rules.get(label), removedShapes, removedTriples);
+		if (! removedShapes.isEmpty() || ! removedTriples.isEmpty())
+			copyReferencingRules(newRules, removedShapes, removedTriples);
+		Map<Label,ShapeExpr> allRules = new HashMap<Label,ShapeExpr>(this.rules);
+		allRules.putAll(newRules);
+		
+		ShexSchema result = new ShexSchema();
+		result.rules = Collections.unmodifiableMap(allRules);
+		LabelGraphs graphs = new LabelGraphs();
+		Map<Label,ShapeExpr> shapeMapTmp = new HashMap<Label,ShapeExpr>(shapeMap);
+		shapeMapTmp.keySet().removeAll(removedShapes);
+		Map<Label,TripleExpr> tripleMapTmp = new HashMap<Label,TripleExpr>(tripleMap);
+		tripleMapTmp.keySet().removeAll(removedTriples);
+		List<ShapeExprRef> shapeRefs = new ArrayList<ShapeExprRef>();
+		List<TripleExprRef> tripleRefs = new ArrayList<TripleExprRef>();
+		for (ShapeExpr expr:newRules.values())
+			result.collectShape(expr, graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+		for (int i=0;i<graphs.labels.size();i++)
+			if (shapeMapTmp.containsKey(graphs.labels.get(i)) && tripleMapTmp.containsKey(graphs.labels.get(i)))
+				throw new IllegalArgumentException("Label "+graphs.labels.get(i)+" allready used.");
+		result.shapeMap = Collections.unmodifiableMap(shapeMapTmp);
+		result.tripleMap = Collections.unmodifiableMap(tripleMapTmp);
+		result.constructionTimes.put("collect", System.nanoTime()-start);
+		
+		start = System.nanoTime();
+		for (ShapeExprRef ref:shapeRefs)
+			if (! shapeMapTmp.containsKey(ref.getLabel()))
+				throw new UndefinedReferenceException("Undefined shape label: " + ref.getLabel());
+		for (TripleExprRef ref:tripleRefs) {
+			if (tripleMapTmp.containsKey(ref.getLabel())) {
+				ref.setTripleDefinition(tripleMapTmp.get(ref.getLabel()));
+			}else {
+				throw new UndefinedReferenceException("Undefined triple label: " + ref.getLabel());
 			}
 		}
+		result.constructionTimes.put("resolve", System.nanoTime()-start);
 		
-		// Check that there is no cycle in the definition of the references
-		DefaultDirectedGraph<Label,DefaultEdge> referencesGraph = this.computeReferencesGraph();
-		CycleDetector<Label, DefaultEdge> detector = new CycleDetector<>(referencesGraph);
-		if (detector.detectCycles())
+		// A new cycle of references goes through a new or copied expression
+		start = System.nanoTime();
+		List<Label> origins = new ArrayList<Label>(graphs.labels.size());
+		for (Label label:graphs.labels)
+			if ((! shapeMap.containsKey(label) && ! tripleMap.containsKey(label)) || removedShapes.contains(label) || removedTriples.contains(label))
+				if (shapeMapTmp.containsKey(label) || tripleMapTmp.containsKey(label))
+					origins.add(label);
+		if (result.hasReferenceCycle(origins))
 			throw new CyclicReferencesException("Cyclic dependencies of refences found." );
-//		TarjanSimpleCycles<Label,DefaultEdge> cyclesFinder = new TarjanSimpleCycles<Label,DefaultEdge>(referencesGraph);
-//		List<List<Label>> allcycles = cyclesFinder.findSimpleCycles();
-//		if (! allcycles.isEmpty())
-//			throw new CyclicReferencesException("Cyclic dependencies of refences found: " + allcycles);
+		result.constructionTimes.put("cycles", System.nanoTime()-start);
 		
-		//Starting to check and compute stratification
-		DefaultDirectedWeightedGraph<Label,DefaultWeightedEdge> dependecesGraph = this.computeDependencesGraph();
+		start = System.nanoTime();
+		List<TripleExpr> toVisit = new ArrayList<TripleExpr>();
+		for (Shape shape:graphs.shapes)
+			result.collectDependencies(shape, graphs, toVisit);
+		int[][] dependences = graphs.dependences.toAdjacency(graphs.labels.size());
+		Map<Label,Set<Label>> dependenciesTmp = new HashMap<Label,Set<Label>>(dependencies);
+		dependenciesTmp.keySet().removeAll(removedShapes);
+		for (int i=0;i<graphs.shapeLabels.size;i++) {
+			int vertex = graphs.shapeLabels.values[i];
+			Set<Label> labelDependencies = new HashSet<Label>(dependences[vertex].length*2);
+			for (int successor:dependences[vertex])
+				labelDependencies.add(graphs.labels.get(successor));
+			dependenciesTmp.put(graphs.labels.get(vertex), labelDependencies);
+		}
+		result.dependencies = Collections.unmodifiableMap(dependenciesTmp);
+		result.constructionTimes.put("dependencies", System.nanoTime()-start);
 		
-		// Compute strongly connected components
-		KosarajuStrongConnectivityInspector<Label,DefaultWeightedEdge> kscInspector;
-		kscInspector = new KosarajuStrongConnectivityInspector<Label,DefaultWeightedEdge>(dependecesGraph);
-		List<Graph<Label,DefaultWeightedEdge>> strConComp = kscInspector.getStronglyConnectedComponents();
+		start = System.nanoTime();
+		result.stratifyFrom(this, removedShapes, graphs.shapeLabels, graphs.labels);
+		result.constructionTimes.put("stratification", System.nanoTime()-start);
 		
-		// Check that there is no negative edge in a strongly connected component
-		for (Graph<Label,DefaultWeightedEdge> scc:strConComp) {
-			for (DefaultWeightedEdge wedge:scc.edgeSet()) {
-				if(scc.getEdgeWeight(wedge)<0) {
-					throw new NotStratifiedException("The set of rules is not stratified (negative edge found in a strongly connected component).");
-				}
+		for (ShapeExprRef ref:shapeRefs)
+			ref.setShapeDefinition(shapeMapTmp.get(ref.getLabel()));
+		FlightRecorderEvents.endCompilation(compilation, allRules.size(), shapeMapTmp.size(), result.stratification.size(), true);
+		return result;
+	}
+	
+	/** Adds to the new rules a copy of every unchanged rule that references, possibly through other copied rules, a label of a replaced rule.
+	 * The labels of the copied rules are added to the removed labels. The copies share the sub-expressions that do not contain such a reference.
+	 */
+	private void copyReferencingRules(Map<Label,ShapeExpr> newRules, Set<Label> removedShapes, Set<Label> removedTriples) {
+		Map<Label,List<Label>> referencingRules = new HashMap<Label,List<Label>>();
+		List<Label> toCopy = new ArrayList<Label>();
+		for (Map.Entry<Label,ShapeExpr> rule:this.rules.entrySet()) {
+			if (newRules.containsKey(rule.getKey()))
+				continue;
+			if (removedShapes.contains(rule.getValue().getId()))
+				toCopy.add(rule.getKey());
+			Set<Label> references = new HashSet<Label>();
+			collectReferences(rule.getValue(), references, Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>()));
+			for (Label reference:references) {
+				if (! referencingRules.containsKey(reference))
+					referencingRules.put(reference, new ArrayList<Label>());
+				referencingRules.get(reference).add(rule.getKey());
 			}
 		}
 		
-		//	Create a directed acyclic graph to compute the topological sort
-		DirectedAcyclicGraph<Label,DefaultEdge> dag = new DirectedAcyclicGraph<Label,DefaultEdge>(DefaultEdge.class);
+		List<Label> toVisit = new ArrayList<Label>(removedShapes);
+		toVisit.addAll(removedTriples);
+		Set<Label> copied = new HashSet<Label>();
+		while (! toVisit.isEmpty() || ! toCopy.isEmpty()) {
+			if (toCopy.isEmpty()) {
+				List<Label> referencing = referencingRules.get(toVisit.remove(toVisit.size()-1));
+				if (referencing != null)
+					toCopy.addAll(referencing);
+				continue;
+			}
+			Label label = toCopy.remove(toCopy.size()-1);
+			if (! copied.add(label))
+				continue;
+			Set<Label> shapeLabels = new HashSet<Label>();
+			Set<Label> tripleLabels = new HashSet<Label>();
+			collectLabels(this.rules.get(label), shapeLabels, tripleLabels);
+			for (Label shapeLabel:shapeLabels)
+				if (removedShapes.add(shapeLabel))
+					toVisit.add(shapeLabel);
+			for (Label tripleLabel:tripleLabels)
+				if (removedTriples.add(tripleLabel))
+					toVisit.add(tripleLabel);
+		}
 		
-		// create an index map 
-		Map<Label,Label> index = new HashMap<Label,Label>();
-		Map<Label,Set<Label>> revIndex = new HashMap<Label,Set<Label>>();
-		for (Graph<Label,DefaultWeightedEdge> scc:strConComp) {
-			Label representant = null;
-			for (Label dest:scc.vertexSet()) {
-				if (representant==null) {
-					representant=dest;
-					revIndex.put(representant, scc.vertexSet());
-					dag.addVertex(representant);
-				}
-				index.put(dest,representant);
+		Map<Object,Object> copies = new IdentityHashMap<Object,Object>();
+		for (Label label:copied)
+			newRules.put(label, copy(this.rules.get(label), removedShapes, removedTriples, copies));
+	}
+	
+	/** Collects the labels referenced by an expression and by its sub-expressions, without following the references. */
+	private static void collectReferences(ShapeExpr expr, Set<Label> references, Set<Object> visited) {
+		if (! visited.add(expr))
+			return;
+		if (expr instanceof ShapeExprRef) {
+			references.add(((ShapeExprRef) expr).getLabel());
+		} else if (expr instanceof AbstractNaryShapeExpr) {
+			for (ShapeExpr subExpr:((AbstractNaryShapeExpr) expr).getSubExpressions())
+				collectReferences(subExpr, references, visited);
+		} else if (expr instanceof ShapeNot) {
+			collectReferences(((ShapeNot) expr).getSubExpression(), references, visited);
+		} else if (expr instanceof Shape) {
+			collectReferences(((Shape) expr).getTripleExpression(), references, visited);
+		}
+	}
+	
+	private static void collectReferences(TripleExpr expr, Set<Label> references, Set<Object> visited) {
+		if (! visited.add(expr))
+			return;
+		if (expr instanceof TripleExprRef) {
+			references.add(((TripleExprRef) expr).getLabel());
+		} else if (expr instanceof AbstractNaryTripleExpr) {
+			for (TripleExpr subExpr:((AbstractNaryTripleExpr) expr).getSubExpressions())
+				collectReferences(subExpr, references, visited);
+		} else if (expr instanceof RepeatedTripleExpression) {
+			collectReferences(((RepeatedTripleExpression) expr).getSubExpression(), references, visited);
+		} else if (expr instanceof TripleConstraint) {
+			collectReferences(((TripleConstraint) expr).getShapeExpr(), references, visited);
+		}
+	}
+	
+	/** Copies an expression, the references to the given labels being replaced by new unresolved references. 
+	 * An expression that does not contain such a reference is not copied. 
+	 */
+	private static ShapeExpr copy(ShapeExpr expr, Set<Label> shapeLabels, Set<Label> tripleLabels, Map<Object,Object> copies) {
+		if (copies.containsKey(expr))
+			return (ShapeExpr) copies.get(expr);
+		ShapeExpr result = expr;
+		if (expr instanceof ShapeExprRef) {
+			if (shapeLabels.contains(((ShapeExprRef) expr).getLabel()))
+				result = new ShapeExprRef(((ShapeExprRef) expr).getLabel());
+		} else if (expr instanceof AbstractNaryShapeExpr) {
+			List<ShapeExpr> subExprs = new ArrayList<ShapeExpr>();
+			boolean changed = false;
+			for (ShapeExpr subExpr:((AbstractNaryShapeExpr) expr).getSubExpressions()) {
+				subExprs.add(copy(subExpr, shapeLabels, tripleLabels, copies));
+				changed = changed || subExprs.get(subExprs.size()-1) != subExpr;
 			}
+			if (changed)
+				result = expr instanceof ShapeAnd ? new ShapeAnd(subExprs) : new ShapeOr(subExprs);
+		} else if (expr instanceof ShapeNot) {
+			ShapeExpr subExpr = copy(((ShapeNot) expr).getSubExpression(), shapeLabels, tripleLabels, copies);
+			if (subExpr != ((ShapeNot) expr).getSubExpression())
+				result = new ShapeNot(subExpr);
+		} else if (expr instanceof Shape) {
+			Shape shape = (Shape) expr;
+			TripleExpr tripleExpr = copy(shape.getTripleExpression(), shapeLabels, tripleLabels, copies);
+			if (tripleExpr != shape.getTripleExpression())
+				result = new Shape(tripleExpr, shape.getExtraProperties(), shape.isClosed(), shape.getAnnotations());
 		}
+		if (result != expr)
+			result.setId(expr.getId());
+		copies.put(expr, result);
+		return result;
+	}
+	
+	private static TripleExpr copy(TripleExpr expr, Set<Label> shapeLabels, Set<Label> tripleLabels, Map<Object,Object> copies) {
+		if (copies.containsKey(expr))
+			return (TripleExpr) copies.get(expr);
+		TripleExpr result = expr;
+		if (expr instanceof TripleExprRef) {
+			if (tripleLabels.contains(((TripleExprRef) expr).getLabel()))
+				result = new TripleExprRef(((TripleExprRef) expr).getLabel());
+		} else if (expr instanceof AbstractNaryTripleExpr) {
+			List<TripleExpr> subExprs = new ArrayList<TripleExpr>();
+			boolean changed = false;
+			for (TripleExpr subExpr:((AbstractNaryTripleExpr) expr).getSubExpressions()) {
+				subExprs.add(copy(subExpr, shapeLabels, tripleLabels, copies));
+				changed = changed || subExprs.get(subExprs.size()-1) != subExpr;
+			}
+			if (changed)
+				result = expr instanceof EachOf ? new EachOf(subExprs, ((EachOf) expr).getAnnotations()) : new OneOf(subExprs, ((OneOf) expr).getAnnotations());
+		} else if (expr instanceof RepeatedTripleExpression) {
+			RepeatedTripleExpression repeated = (RepeatedTripleExpression) expr;
+			TripleExpr subExpr = copy(repeated.getSubExpression(), shapeLabels, tripleLabels, copies);
+			if (subExpr != repeated.getSubExpression())
+				result = new RepeatedTripleExpression(subExpr, repeated.getCardinality());
+		} else if (expr instanceof TripleConstraint) {
+			TripleConstraint constraint = (TripleConstraint) expr;
+			ShapeExpr shapeExpr = copy(constraint.getShapeExpr(), shapeLabels, tripleLabels, copies);
+			if (shapeExpr != constraint.getShapeExpr())
+				result = new TripleConstraint(constraint.getProperty(), shapeExpr, constraint.getAnnotations());
+		}
+		if (result != expr)
+			result.setId(expr.getId());
+		copies.put(expr, result);
+		return result;
+	}
+	
+	/** Collects the labels of an expression and of its sub-expressions, without following the references. */
+	private static void collectLabels(ShapeExpr expr, Set<Label> shapeLabels, Set<Label> tripleLabels) {
+		if (! shapeLabels.add(expr.getId()))
+			return;
+		if (expr instanceof AbstractNaryShapeExpr) {
+			for (ShapeExpr subExpr:((AbstractNaryShapeExpr) expr).getSubExpressions())
+				collectLabels(subExpr, shapeLabels, tripleLabels);
+		} else if (expr instanceof ShapeNot) {
+			collectLabels(((ShapeNot) expr).getSubExpression(), shapeLabels, tripleLabels);
+		} else if (expr instanceof Shape) {
+			collectLabels(((Shape) expr).getTripleExpression(), shapeLabels, tripleLabels);
+		}
+	}
+	
+	private static void collectLabels(TripleExpr expr, Set<Label> shapeLabels, Set<Label> tripleLabels) {
+		if (! tripleLabels.add(expr.getId()))
+			return;
+		if (expr instanceof AbstractNaryTripleExpr) {
+			for (TripleExpr subExpr:((AbstractNaryTripleExpr) expr).getSubExpressions())
+				collectLabels(subExpr, shapeLabels, tripleLabels);
+		} else if (expr instanceof RepeatedTripleExpression) {
+			collectLabels(((RepeatedTripleExpression) expr).getSubExpression(), shapeLabels, tripleLabels);
+		} else if (expr instanceof TripleConstraint) {
+			collectLabels(((TripleConstraint) expr).getShapeExpr(), shapeLabels, tripleLabels);
+		}
+	}
+	
+	/** Collects all the shape expressions and triple expressions of the rules, generates the missing IDs and resolves the references.
+	 * The labels are numbered and the edges of the reference graph and of the dependency graph between shape expressions are collected at the same time.
+	 * 
+	 * @throws UndefinedReferenceException
+	 */
+	private LabelGraphs collectExpressions() throws UndefinedReferenceException {
+		long start = System.nanoTime();
+		LabelGraphs graphs = new LabelGraphs();
+		Map<Label,ShapeExpr> shapeMapTmp = new HashMap<Label,ShapeExpr>();
+		Map<Label,TripleExpr> tripleMapTmp = new HashMap<Label,TripleExpr>();
+		List<ShapeExprRef> shapeRefs = new ArrayList<ShapeExprRef>();
+		List<TripleExprRef> tripleRefs = new ArrayList<TripleExprRef>();
+		for (ShapeExpr expr:rules.values())
+			collectShape(expr, graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+		for (Label label:tripleMapTmp.keySet())
+			if (shapeMapTmp.containsKey(label))
+				throw new IllegalArgumentException("Label "+label+" allready used.");
+		this.shapeMap = Collections.unmodifiableMap(shapeMapTmp);
+		this.tripleMap = Collections.unmodifiableMap(tripleMapTmp);
+		constructionTimes.put("collect", System.nanoTime()-start);
 		
-		// add the edges
-		for(DefaultWeightedEdge wedge:dependecesGraph.edgeSet()) {
-			Label source = index.get(dependecesGraph.getEdgeSource(wedge));
-			Label target = index.get(dependecesGraph.getEdgeTarget(wedge));
-			if(!source.equals(target))
-				dag.addEdge(source,target);
+		// Check that all the references are defined
+		start = System.nanoTime();
+		for (ShapeExprRef ref:shapeRefs) {
+			if (shapeMap.containsKey(ref.getLabel())) {
+				ref.setShapeDefinition(shapeMap.get(ref.getLabel()));
+			}else {
+				throw new UndefinedReferenceException("Undefined shape label: " + ref.getLabel());
+			}
 		}
+		for (TripleExprRef ref:tripleRefs) {
+			if (tripleMap.containsKey(ref.getLabel())) {
+				ref.setTripleDefinition(tripleMap.get(ref.getLabel()));
+			}else {
+				throw new UndefinedReferenceException("Undefined triple label: " + ref.getLabel());
+			}
+		}
+		constructionTimes.put("resolve", System.nanoTime()-start);
+		return graphs;
+	}
+	
+	private void collectShape(ShapeExpr expr, LabelGraphs graphs, Map<Label,ShapeExpr> shapeMapTmp, Map<Label,TripleExpr> tripleMapTmp, 
+			List<ShapeExprRef> shapeRefs, List<TripleExprRef> tripleRefs) {
+		checkShapeID(expr);
+		ShapeExpr previous = shapeMapTmp.put(expr.getId(), expr);
+		if (previous == expr)
+			return;
+		if (previous != null)
+			throw new IllegalArgumentException("Label "+expr.getId()+" allready used.");
+		int id = graphs.index(expr.getId());
+		graphs.shapeLabels.add(id);
 		
-		// Compute Stratification using an iterator of the dag
-		stratification = new HashMap<Integer,Set<Label>>();
-		int counterStrat = dag.vertexSet().size()-1;
-		for (Label S:dag) {
-			Set<Label> tmp = new HashSet<Label>();
-			for (Label l:revIndex.get(S))
-				tmp.add((Label) l);
-			stratification.put(counterStrat,tmp);
-			counterStrat--;
+		if (expr instanceof ShapeExprRef) {
+			ShapeExprRef ref = (ShapeExprRef) expr;
+			shapeRefs.add(ref);
+			int target = graphs.index(ref.getLabel());
+			graphs.references.add(id, target, false);
+			graphs.dependences.add(id, target, false);
+		} else if (expr instanceof AbstractNaryShapeExpr) {
+			for (ShapeExpr subExpr:((AbstractNaryShapeExpr) expr).getSubExpressions()) {
+				collectShape(subExpr, graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+				int target = graphs.index(subExpr.getId());
+				graphs.references.add(id, target, false);
+				graphs.dependences.add(id, target, false);
+			}
+		} else if (expr instanceof ShapeNot) {
+			ShapeExpr subExpr = ((ShapeNot) expr).getSubExpression();
+			collectShape(subExpr, graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+			int target = graphs.index(subExpr.getId());
+			graphs.references.add(id, target, false);
+			graphs.dependences.add(id, target, true);
+		} else if (expr instanceof Shape) {
+			graphs.shapes.add((Shape) expr);
+			collectTriple(((Shape) expr).getTripleExpression(), graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
 		}
+	}
 	
+	private void collectTriple(TripleExpr expr, LabelGraphs graphs, Map<Label,ShapeExpr> shapeMapTmp, Map<Label,TripleExpr> tripleMapTmp, 
+			List<ShapeExprRef> shapeRefs, List<TripleExprRef> tripleRefs) {
+		checkTripleID(expr);
+		TripleExpr previous = tripleMapTmp.put(expr.getId(), expr);
+		if (previous == expr)
+			return;
+		if (previous != null)
+			throw new IllegalArgumentException("Label "+expr.getId()+" allready used.");
+		int id = graphs.index(expr.getId());
+		
+		if (expr instanceof TripleExprRef) {
+			TripleExprRef ref = (TripleExprRef) expr;
+			tripleRefs.add(ref);
+			graphs.references.add(id, graphs.index(ref.getLabel()), false);
+		} else if (expr instanceof AbstractNaryTripleExpr) {
+			for (TripleExpr subExpr:((AbstractNaryTripleExpr) expr).getSubExpressions()) {
+				collectTriple(subExpr, graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+				graphs.references.add(id, graphs.index(subExpr.getId()), false);
+			}
+		} else if (expr instanceof RepeatedTripleExpression) {
+			collectTriple(((RepeatedTripleExpression) expr).getSubExpression(), graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+		} else if (expr instanceof TripleConstraint) {
+			collectShape(((TripleConstraint) expr).getShapeExpr(), graphs, shapeMapTmp, tripleMapTmp, shapeRefs, tripleRefs);
+		}
 	}
 
 	
@@ -219,6 +568,14 @@ public class ShexSchema {
 		return tripleMap;
 	}
 	
+	/** The time spent in each phase of the construction of the schema: collect, resolve, cycles, dependencies and stratification. 
+	 * Only the first two phases are done when the stratification is given to the constructor.
+	 * @return the duration of each phase in nanoseconds, in the order of the phases
+	 */
+	public Map<String,Long> getConstructionTimes() {
+		return Collections.unmodifiableMap(constructionTimes);
+	}
+	
 	@Override
 	public String toString() {
 		return rules.toString();
@@ -229,9 +586,9 @@ public class ShexSchema {
 	//--------------------------------------------------------------------------------
 	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
 	
-	private static int shapeLabelNb = 0;
+	private static AtomicInteger shapeLabelNb = new AtomicInteger();
 	private static String SHAPE_LABEL_PREFIX = "SLGEN";
-	private static int tripleLabelNb = 0;
+	private static AtomicInteger tripleLabelNb = new AtomicInteger();
 	private static String TRIPLE_LABEL_PREFIX = "TLGEN";
 	
 	private static boolean isIriString (String s) {
@@ -241,6 +598,16 @@ public class ShexSchema {
 		return true;
 	}
 	
+	/** Same as String.format("%s_%04d", prefix, number), which is too slow for the many generated labels of a large schema. */
+	private static String generatedLabel (String prefix, int number) {
+		String digits = Integer.toString(number);
+		StringBuilder label = new StringBuilder(prefix.length()+5+digits.length());
+		label.append(prefix).append('_');
+		for (int i=digits.length();i<4;i++)
+			label.append('0');
+		return label.append(digits).toString();
+	}
+	
 	private static Label createShapeLabel (String string,boolean generated) {
 		if (isIriString(string))
 			return new Label(rdfFactory.createIRI(string),generated);
@@ -250,8 +617,7 @@ public class ShexSchema {
 	
 	private void checkShapeID(ShapeExpr shape) {
 		if (shape.getId() == null) {
-			shape.setId(createShapeLabel(String.format("%s_%04d", SHAPE_LABEL_PREFIX,shapeLabelNb),true));
-			shapeLabelNb++;
+			shape.setId(createShapeLabel(generatedLabel(SHAPE_LABEL_PREFIX,shapeLabelNb.getAndIncrement()),true));
 		}
 	}
 	
@@ -264,311 +630,378 @@ public class ShexSchema {
 	
 	private void checkTripleID(TripleExpr triple) {
 		if (triple.getId() == null) {
-			triple.setId(createTripleLabel(String.format("%s_%04d", TRIPLE_LABEL_PREFIX,tripleLabelNb),true));
-			tripleLabelNb++;
+			triple.setId(createTripleLabel(generatedLabel(TRIPLE_LABEL_PREFIX,tripleLabelNb.getAndIncrement()),true));
 		}
 	}
 	
 	
 	//--------------------------------------------------------------------------------
-	// Graph References computation
+	// Reference and dependency graphs
 	//--------------------------------------------------------------------------------
-
-	class CollectGraphReferencesFromShape extends ShapeExpressionVisitor<Set<Pair<Label,Label>>> {
-		private Set<Pair<Label,Label>> set;
-
-		public CollectGraphReferencesFromShape () {	
-			this.set = new HashSet<Pair<Label,Label>>();
-		}
-		
-		public CollectGraphReferencesFromShape (Set<Pair<Label,Label>> set) {	
-			this.set = set;
-		}	
-		
-		@Override
-		public Set<Pair<Label,Label>> getResult() {
-			return set;
-		}
-		
-		@Override
-		public void visitShape(Shape expr, Object... arguments) {
-			CollectGraphReferencesFromTriple visitor = new CollectGraphReferencesFromTriple(set);
-			expr.getTripleExpression().accept(visitor,arguments);
-		}
-		
-		@Override
-		public void visitNodeConstraint(NodeConstraint expr, Object... arguments) {
-		}
-		
-		@Override
-		public void visitShapeExprRef(ShapeExprRef shapeRef, Object[] arguments) {
-			set.add(new Pair<Label,Label>(shapeRef.getId(),shapeRef.getLabel()));
-		}
-		
-		@Override
-		public void visitShapeExternal(ShapeExternal shapeExt, Object[] arguments) {}
-		
-		@Override
-		public void visitShapeAnd(ShapeAnd expr, Object... arguments) {
-			for (ShapeExpr subExpr: expr.getSubExpressions()) {
-				set.add(new Pair<Label,Label>(expr.getId(),subExpr.getId()));
-			}
-			super.visitShapeAnd(expr, arguments);
-		}
-		
-		@Override
-		public void visitShapeOr(ShapeOr expr, Object... arguments) {
-			for (ShapeExpr subExpr: expr.getSubExpressions()) {
-				set.add(new Pair<Label,Label>(expr.getId(),subExpr.getId()));
+	
+	/** Adds the edges from a shape to the shape expressions of the triple constraints of its triple expression. 
+	 * The edge is negative when the property of the triple constraint is an extra property of the shape.
+	 */
+	private void collectDependencies(Shape shape, LabelGraphs graphs, List<TripleExpr> toVisit) {
+		int id = graphs.index(shape.getId());
+		// the triple expression is a tree, unless it contains references
+		Map<TripleExpr,Boolean> visited = null;
+		toVisit.add(shape.getTripleExpression());
+		while (! toVisit.isEmpty()) {
+			TripleExpr expr = toVisit.remove(toVisit.size()-1);
+			if (visited != null && visited.put(expr, Boolean.TRUE) != null)
+				continue;
+			if (expr instanceof TripleConstraint) {
+				TripleConstraint tc = (TripleConstraint) expr;
+				graphs.dependences.add(id, graphs.index(tc.getShapeExpr().getId()), shape.getExtraProperties().contains(tc.getProperty()));
+			} else if (expr instanceof AbstractNaryTripleExpr) {
+				toVisit.addAll(((AbstractNaryTripleExpr) expr).getSubExpressions());
+			} else if (expr instanceof RepeatedTripleExpression) {
+				toVisit.add(((RepeatedTripleExpression) expr).getSubExpression());
+			} else if (expr instanceof TripleExprRef) {
+				if (visited == null)
+					visited = new IdentityHashMap<TripleExpr,Boolean>();
+				toVisit.add(((TripleExprRef) expr).getTripleExp());
 			}
-			super.visitShapeOr(expr, arguments);
-		}
-		
-		@Override
-		public void visitShapeNot(ShapeNot expr, Object... arguments) {
-			set.add(new Pair<Label,Label>(expr.getId(),expr.getSubExpression().getId()));
-			super.visitShapeNot(expr, arguments);
 		}
 	}
 	
-	
-	class CollectGraphReferencesFromTriple extends TripleExpressionVisitor<Set<Pair<Label,Label>>> {
-		private Set<Pair<Label,Label>> set;
-
-		public CollectGraphReferencesFromTriple(Set<Pair<Label,Label>> set){
-			this.set = set;
+	/** The labels referenced by an expression in the reference graph. */
+	private List<Label> referencedLabels(Label label) {
+		List<Label> result = new ArrayList<Label>();
+		if (shapeMap.containsKey(label)) {
+			ShapeExpr expr = shapeMap.get(label);
+			if (expr instanceof ShapeExprRef)
+				result.add(((ShapeExprRef) expr).getLabel());
+			else if (expr instanceof AbstractNaryShapeExpr)
+				for (ShapeExpr subExpr:((AbstractNaryShapeExpr) expr).getSubExpressions())
+					result.add(subExpr.getId());
+			else if (expr instanceof ShapeNot)
+				result.add(((ShapeNot) expr).getSubExpression().getId());
+		} else if (tripleMap.containsKey(label)) {
+			TripleExpr expr = tripleMap.get(label);
+			if (expr instanceof TripleExprRef)
+				result.add(((TripleExprRef) expr).getLabel());
+			else if (expr instanceof AbstractNaryTripleExpr)
+				for (TripleExpr subExpr:((AbstractNaryTripleExpr) expr).getSubExpressions())
+					result.add(subExpr.getId());
 		}
-		
-		@Override
-		public Set<Pair<Label, Label>> getResult() {
-			return set;
-		}
-
-		@Override		
-		public void visitEachOf (EachOf expr, Object ... arguments) {
-			for (TripleExpr subExpr: expr.getSubExpressions()) {
-				set.add(new Pair<Label,Label>(expr.getId(),subExpr.getId()));
-			}
-			super.visitEachOf(expr, arguments);
-		}
-		
-		@Override		
-		public void visitOneOf (OneOf expr, Object ... arguments) {
-			for (TripleExpr subExpr: expr.getSubExpressions()) {
-				set.add(new Pair<Label,Label>(expr.getId(),subExpr.getId()));
+		return result;
+	}
+	
+	/** Searches a cycle in the part of the reference graph reachable from the origins, with a depth first search. */
+	private boolean hasReferenceCycle(List<Label> origins) {
+		Map<Label,Boolean> onPath = new HashMap<Label,Boolean>();
+		for (Label origin:origins) {
+			if (onPath.containsKey(origin))
+				continue;
+			List<Label> path = new ArrayList<Label>();
+			List<List<Label>> successors = new ArrayList<List<Label>>();
+			onPath.put(origin, true);
+			path.add(origin);
+			successors.add(referencedLabels(origin));
+			while (! path.isEmpty()) {
+				List<Label> next = successors.get(successors.size()-1);
+				if (next.isEmpty()) {
+					onPath.put(path.remove(path.size()-1), false);
+					successors.remove(successors.size()-1);
+					continue;
+				}
+				Label label = next.remove(next.size()-1);
+				Boolean state = onPath.get(label);
+				if (state == null) {
+					onPath.put(label, true);
+					path.add(label);
+					successors.add(referencedLabels(label));
+				} else if (state) {
+					return true;
+				}
 			}
-			super.visitOneOf(expr, arguments);
-		}
-		
-		@Override		
-		public void visitRepeated(RepeatedTripleExpression expr, Object[] arguments) {
-			expr.getSubExpression().accept(this, arguments);
-		}
-		
-		@Override
-		public void visitTripleConstraint(TripleConstraint tc, Object... arguments) {
-			CollectGraphReferencesFromShape visitor = new CollectGraphReferencesFromShape(set);
-			tc.getShapeExpr().accept(visitor,arguments);		
-		}
-
-		@Override
-		public void visitTripleExprReference(TripleExprRef expr, Object... arguments) {
-			set.add(new Pair<Label,Label>(expr.getId(),expr.getLabel()));
 		}
-
-		@Override
-		public void visitEmpty(EmptyTripleExpression expr, Object[] arguments) {}
-		
-	
+		return false;
 	}
 	
-	
-	private DefaultDirectedGraph<Label,DefaultEdge> computeReferencesGraph () {
-		// Visit the schema to collect the references
-		CollectGraphReferencesFromShape collector = new CollectGraphReferencesFromShape();
-		for (ShapeExpr expr: this.rules.values()) {
-			//System.out.println("Rule: "+expr.getId().toString());
-			expr.accept(collector);
-		}
-		
-		// build the graph
-		GraphBuilder<Label,DefaultEdge,DefaultDirectedGraph<Label,DefaultEdge>> builder;
-		builder = new GraphBuilder<Label,DefaultEdge,DefaultDirectedGraph<Label,DefaultEdge>>(new DefaultDirectedGraph<Label,DefaultEdge>(DefaultEdge.class));
-
-		for (Label label : this.shapeMap.keySet()) {
-			builder.addVertex(label);
-		}
-		for (Label label : this.tripleMap.keySet()) {
-			builder.addVertex(label);
-		}
-
-		for (Pair<Label,Label> edge : collector.getResult()) {
-			builder.addEdge(edge.one, edge.two);
-			//System.out.println(edge.one +" -> "+edge.two);
+	/** The labels on which a shape label depends through a negative edge: the operand of a negation, and the shape expressions of the triple constraints on an extra property. */
+	private Set<Label> negativeDependencies(Label label) {
+		ShapeExpr expr = shapeMap.get(label);
+		if (expr instanceof ShapeNot)
+			return Collections.singleton(((ShapeNot) expr).getSubExpression().getId());
+		if (! (expr instanceof Shape) || ((Shape) expr).getExtraProperties().isEmpty())
+			return Collections.emptySet();
+		Shape shape = (Shape) expr;
+		Set<Label> result = new HashSet<Label>();
+		List<TripleExpr> toVisit = new ArrayList<TripleExpr>();
+		Map<TripleExpr,Boolean> visited = new IdentityHashMap<TripleExpr,Boolean>();
+		toVisit.add(shape.getTripleExpression());
+		while (! toVisit.isEmpty()) {
+			TripleExpr texpr = toVisit.remove(toVisit.size()-1);
+			if (visited.put(texpr, Boolean.TRUE) != null)
+				continue;
+			if (texpr instanceof TripleConstraint) {
+				TripleConstraint tc = (TripleConstraint) texpr;
+				if (shape.getExtraProperties().contains(tc.getProperty()))
+					result.add(tc.getShapeExpr().getId());
+			} else if (texpr instanceof AbstractNaryTripleExpr) {
+				toVisit.addAll(((AbstractNaryTripleExpr) texpr).getSubExpressions());
+			} else if (texpr instanceof RepeatedTripleExpression) {
+				toVisit.add(((RepeatedTripleExpression) texpr).getSubExpression());
+			} else if (texpr instanceof TripleExprRef) {
+				toVisit.add(((TripleExprRef) texpr).getTripleExp());
+			}
 		}
-		return builder.build();
+		return result;
 	}
 	
-
-	// -------------------------------------------------------------------------------
-	// Stratification computation and access
-	// -------------------------------------------------------------------------------
-
-	class CollectGraphDependencyFromShape extends ShapeExpressionVisitor<Set<Pair<Pair<Label,Label>,Integer>>> {
-		private Set<Label> visited;
-		private Set<Pair<Pair<Label,Label>,Integer>> set;
-
-		public CollectGraphDependencyFromShape () {	
-			this.set = new HashSet<Pair<Pair<Label,Label>,Integer>>();
-			this.visited = new HashSet<Label>();
-		}
-		
-		public CollectGraphDependencyFromShape (Set<Pair<Pair<Label,Label>,Integer>> set) {	
-			this.set = set;
-			this.visited = new HashSet<Label>();
-		}	
-		
-		@Override
-		public Set<Pair<Pair<Label,Label>,Integer>> getResult() {
-			return set;
-		}
+	/** Computes the stratification of an extension of a schema. Only the part of the dependency graph reachable from the new labels and 
+	 * from the strata of the previous schema that contain a removed label is traversed, the other strata of the previous schema being contracted 
+	 * to a single vertex. The strata of the previous schema that are not reachable are unchanged and numbered after the traversed ones, in their previous order.
+	 */
+	private void stratifyFrom(ShexSchema previous, Set<Label> removedShapes, IntList newShapes, List<Label> newLabels) throws NotStratifiedException {
+		Set<Integer> dissolved = new HashSet<Integer>();
+		for (Label label:removedShapes)
+			if (previous.strata.containsKey(label))
+				dissolved.add(previous.strata.get(label));
 		
-		public Set<Label> getVisited() {
-			return visited;
-		}
+		// The vertices are either a label or a stratum of the previous schema
+		Map<Label,Integer> labelVertices = new HashMap<Label,Integer>();
+		Map<Integer,Integer> strataVertices = new HashMap<Integer,Integer>();
+		List<Set<Label>> vertices = new ArrayList<Set<Label>>();
+		List<Integer> vertexStrata = new ArrayList<Integer>();
+		for (int i=0;i<newShapes.size;i++)
+			addVertex(newLabels.get(newShapes.values[i]), previous, dissolved, labelVertices, strataVertices, vertices, vertexStrata);
+		for (Integer stratum:dissolved)
+			for (Label label:previous.stratification.get(stratum))
+				if (shapeMap.containsKey(label))
+					addVertex(label, previous, dissolved, labelVertices, strataVertices, vertices, vertexStrata);
 		
-		@Override
-		public void visitShape(Shape expr, Object... arguments) {
-			this.visited.add(expr.getId());
-			
-			CollectTripleConstraintDependentOfAShape visitor = new CollectTripleConstraintDependentOfAShape();
-			expr.getTripleExpression().accept(visitor,arguments);
-			Set<TripleConstraint> triples = visitor.getResult();
-			
-			Set<TCProperty> extra = expr.getExtraProperties();
-			for(TripleConstraint texpr:triples) {
-				//System.out.println(texpr.getProperty());
-				if (extra.contains(texpr.getProperty())) {
-					Pair<Label,Label> edge =new Pair<Label,Label>(expr.getId(),texpr.getShapeExpr().getId());
-					set.add(new Pair<Pair<Label,Label>,Integer>(edge,-1));
-				}else {
-					Pair<Label,Label> edge =new Pair<Label,Label>(expr.getId(),texpr.getShapeExpr().getId());
-					set.add(new Pair<Pair<Label,Label>,Integer>(edge,1));
+		List<int[]> successors = new ArrayList<int[]>();
+		IntList targets = new IntList();
+		for (int v=0;v<vertices.size();v++) {
+			targets.size = 0;
+			for (Label label:vertices.get(v))
+				for (Label dependency:dependencies.get(label)) {
+					int w = addVertex(dependency, previous, dissolved, labelVertices, strataVertices, vertices, vertexStrata);
+					if (w != v)
+						targets.add(w);
 				}
-				
-			}
+			successors.add(Arrays.copyOf(targets.values, targets.size));
 		}
+		int[] components = new int[vertices.size()];
+		int nbComponents = stronglyConnectedComponents(successors.toArray(new int[vertices.size()][]), components, null);
 		
-		@Override
-		public void visitNodeConstraint(NodeConstraint expr, Object... arguments) {
-			this.visited.add(expr.getId());
-		}
+		List<List<Integer>> componentVertices = new ArrayList<List<Integer>>(nbComponents);
+		for (int i=0;i<nbComponents;i++)
+			componentVertices.add(new ArrayList<Integer>(1));
+		for (int v=0;v<vertices.size();v++)
+			componentVertices.get(components[v]).add(v);
 		
-		@Override
-		public void visitShapeExprRef(ShapeExprRef shapeRef, Object[] arguments) {
-			this.visited.add(shapeRef.getId());
-			
-			Integer parity = 1;
-			Pair<Label,Label> edge =new Pair<Label,Label>(shapeRef.getId(),shapeRef.getLabel());
-			set.add(new Pair<Pair<Label,Label>,Integer>(edge,parity));
-			
-		}
-		
-		@Override
-		public void visitShapeExternal(ShapeExternal shapeExt, Object[] arguments) {
-			this.visited.add(shapeExt.getId());
-		}
-		
-		@Override
-		public void visitShapeAnd(ShapeAnd expr, Object... arguments) {
-			this.visited.add(expr.getId());
-			
-			for (ShapeExpr subExpr: expr.getSubExpressions()) {
-				Pair<Label,Label> edge =new Pair<Label,Label>(expr.getId(),subExpr.getId());
-				set.add(new Pair<Pair<Label,Label>,Integer>(edge,1));
+		stratification = new HashMap<Integer,Set<Label>>(previous.stratification.size()*2);
+		for (int i=0;i<nbComponents;i++) {
+			List<Integer> component = componentVertices.get(i);
+			Set<Label> stratum;
+			if (component.size() == 1 && vertexStrata.get(component.get(0)) != null) {
+				stratum = vertices.get(component.get(0));
+			} else {
+				stratum = new HashSet<Label>();
+				for (int v:component)
+					stratum.addAll(vertices.get(v));
+				for (Label label:stratum)
+					for (Label negative:negativeDependencies(label))
+						if (stratum.contains(negative))
+							throw new NotStratifiedException("The set of rules is not stratified (negative edge found in a strongly connected component).");
 			}
-			super.visitShapeAnd(expr, arguments);
+			stratification.put(i, stratum);
 		}
+		List<Integer> unchanged = new ArrayList<Integer>(previous.stratification.keySet());
+		Collections.sort(unchanged);
+		for (Integer stratum:unchanged)
+			if (! strataVertices.containsKey(stratum) && ! dissolved.contains(stratum))
+				stratification.put(stratification.size(), previous.stratification.get(stratum));
 		
-		@Override
-		public void visitShapeOr(ShapeOr expr, Object... arguments) {
-			this.visited.add(expr.getId());
-			
-			for (ShapeExpr subExpr: expr.getSubExpressions()) {
-				Pair<Label,Label> edge =new Pair<Label,Label>(expr.getId(),subExpr.getId());
-				set.add(new Pair<Pair<Label,Label>,Integer>(edge,1));
+		strata = new HashMap<Label,Integer>(shapeMap.size()*2);
+		for (Map.Entry<Integer,Set<Label>> stratum:stratification.entrySet())
+			for (Label label:stratum.getValue())
+				strata.put(label, stratum.getKey());
+	}
+	
+	private static int addVertex(Label label, ShexSchema previous, Set<Integer> dissolved, Map<Label,Integer> labelVertices, Map<Integer,Integer> strataVertices, 
+			List<Set<Label>> vertices, List<Integer> vertexStrata) {
+		Integer stratum = previous.strata.get(label);
+		if (stratum != null && ! dissolved.contains(stratum)) {
+			Integer vertex = strataVertices.get(stratum);
+			if (vertex == null) {
+				vertex = vertices.size();
+				strataVertices.put(stratum, vertex);
+				vertices.add(previous.stratification.get(stratum));
+				vertexStrata.add(stratum);
 			}
-			super.visitShapeOr(expr, arguments);
+			return vertex;
+		}
+		Integer vertex = labelVertices.get(label);
+		if (vertex == null) {
+			vertex = vertices.size();
+			labelVertices.put(label, vertex);
+			vertices.add(Collections.singleton(label));
+			vertexStrata.add(null);
 		}
+		return vertex;
+	}
+	
+	/** Computes the strongly connected components of a graph with Tarjan's algorithm, using an explicit stack.
+	 * A component is numbered after all the components that can be reached from it.
+	 * 
+	 * @param successors the successors of each vertex
+	 * @param components filled with the component of each vertex
+	 * @param roots the vertices from which the search starts, or null for all the vertices
+	 * @return the number of components
+	 */
+	private static int stronglyConnectedComponents(int[][] successors, int[] components, IntList roots) {
+		int n = successors.length;
+		int[] order = new int[n];
+		int[] low = new int[n];
+		Arrays.fill(order, -1);
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+		int[] calls = new int[n];
+		int[] nextSuccessor = new int[n];
+		int nbCalls = 0;
+		int counter = 0;
+		int nbComponents = 0;
 		
-		@Override
-		public void visitShapeNot(ShapeNot expr, Object... arguments) {
-			this.visited.add(expr.getId());
+		int nbRoots = roots == null ? n : roots.size;
+		for (int r=0;r<nbRoots;r++) {
+			int root = roots == null ? r : roots.values[r];
+			if (order[root] != -1)
+				continue;
+			order[root] = low[root] = counter++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			calls[nbCalls] = root;
+			nextSuccessor[nbCalls++] = 0;
 			
-			Pair<Label,Label> edge =new Pair<Label,Label>(expr.getId(),expr.getSubExpression().getId());
-			set.add(new Pair<Pair<Label,Label>,Integer>(edge,-1));
-			super.visitShapeNot(expr, arguments);
+			while (nbCalls > 0) {
+				int v = calls[nbCalls-1];
+				if (nextSuccessor[nbCalls-1] < successors[v].length) {
+					int w = successors[v][nextSuccessor[nbCalls-1]++];
+					if (order[w] == -1) {
+						order[w] = low[w] = counter++;
+						stack[stackSize++] = w;
+						onStack[w] = true;
+						calls[nbCalls] = w;
+						nextSuccessor[nbCalls++] = 0;
+					} else if (onStack[w]) {
+						low[v] = Math.min(low[v], order[w]);
+					}
+				} else {
+					nbCalls--;
+					if (low[v] == order[v]) {
+						int w;
+						do {
+							w = stack[--stackSize];
+							onStack[w] = false;
+							components[w] = nbComponents;
+						} while (w != v);
+						nbComponents++;
+					}
+					if (nbCalls > 0) {
+						int parent = calls[nbCalls-1];
+						low[parent] = Math.min(low[parent], low[v]);
+					}
+				}
+			}
 		}
+		return nbComponents;
 	}
 	
 	
-	class CollectTripleConstraintDependentOfAShape extends TripleExpressionVisitor<Set<TripleConstraint>> {
-		private Set<TripleConstraint> set;
-
-		public CollectTripleConstraintDependentOfAShape(){
-			this.set = new HashSet<TripleConstraint>();
-		}
+	/** The numbering of the labels and the edges collected during the construction. */
+	private static class LabelGraphs {
+		private final Map<Label,Integer> index = new HashMap<Label,Integer>();
+		private final List<Label> labels = new ArrayList<Label>();
+		private final IntList shapeLabels = new IntList();
+		private final List<Shape> shapes = new ArrayList<Shape>();
+		private final EdgeList references = new EdgeList();
+		private final EdgeList dependences = new EdgeList();
 		
-		@Override
-		public Set<TripleConstraint> getResult() {
-			return set;
-		}
-
-				
-		@Override		
-		public void visitRepeated(RepeatedTripleExpression expr, Object[] arguments) {
-			expr.getSubExpression().accept(this, arguments);
+		private int index(Label label) {
+			Integer id = index.get(label);
+			if (id == null) {
+				id = labels.size();
+				index.put(label, id);
+				labels.add(label);
+			}
+			return id;
 		}
+	}
+	
+	private static class IntList {
+		private int[] values = new int[16];
+		private int size = 0;
 		
-		@Override
-		public void visitTripleConstraint(TripleConstraint tc, Object... arguments) {
-			set.add(tc);
-		}
-
-		@Override
-		public void visitTripleExprReference(TripleExprRef expr, Object... arguments) {
-			expr.getTripleExp().accept(this, arguments);
+		private void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size*2);
+			values[size++] = value;
 		}
-
-		@Override
-		public void visitEmpty(EmptyTripleExpression expr, Object[] arguments) {}	
 	}
-
 	
-	private DefaultDirectedWeightedGraph<Label,DefaultWeightedEdge> computeDependencesGraph () {
-		// Visit the schema to collect the references
-		CollectGraphDependencyFromShape collector = new CollectGraphDependencyFromShape();
-		for (ShapeExpr expr: shapeMap.values()) {
-			if (!(collector.getVisited().contains(expr.getId()))) {
-				expr.accept(collector);
+	private static class EdgeList {
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private boolean[] negative = new boolean[16];
+		private int size = 0;
+		
+		private void add(int source, int target, boolean isNegative) {
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size*2);
+				targets = Arrays.copyOf(targets, size*2);
+				negative = Arrays.copyOf(negative, size*2);
 			}
+			sources[size] = source;
+			targets[size] = target;
+			negative[size] = isNegative;
+			size++;
 		}
 		
-		// build the graph
-		GraphBuilder<Label,DefaultWeightedEdge,DefaultDirectedWeightedGraph<Label,DefaultWeightedEdge>> builder;
-		builder = new GraphBuilder<Label,DefaultWeightedEdge,DefaultDirectedWeightedGraph<Label,DefaultWeightedEdge>>(new DefaultDirectedWeightedGraph<Label,DefaultWeightedEdge>(DefaultWeightedEdge.class));
-		for (Label label : this.shapeMap.keySet()) {
-			builder.addVertex(label);
+		private boolean hasLoop() {
+			for (int i=0;i<size;i++)
+				if (sources[i] == targets[i])
+					return true;
+			return false;
 		}
-		for (Pair<Pair<Label,Label>,Integer> weightededge : collector.getResult()) {
-			double weight = weightededge.two;
-			Pair<Label,Label> edge = weightededge.one;
-			builder.addEdge(edge.one, edge.two,weight);
+		
+		/** The successors of each vertex, without repetition. */
+		private int[][] toAdjacency(int nbVertices) {
+			int[] degrees = new int[nbVertices];
+			for (int i=0;i<size;i++)
+				degrees[sources[i]]++;
+			int[][] successors = new int[nbVertices][];
+			for (int v=0;v<nbVertices;v++)
+				successors[v] = new int[degrees[v]];
+			Arrays.fill(degrees, 0);
+			for (int i=0;i<size;i++)
+				successors[sources[i]][degrees[sources[i]]++] = targets[i];
+			for (int v=0;v<nbVertices;v++) {
+				if (successors[v].length > 1) {
+					Arrays.sort(successors[v]);
+					int distinct = 1;
+					for (int i=1;i<successors[v].length;i++)
+						if (successors[v][i] != successors[v][distinct-1])
+							successors[v][distinct++] = successors[v][i];
+					if (distinct < successors[v].length)
+						successors[v] = Arrays.copyOf(successors[v], distinct);
+				}
+			}
+			return successors;
 		}
-		return builder.build();
 	}
 	
-	
+
+	// -------------------------------------------------------------------------------
+	// Stratification access
+	// -------------------------------------------------------------------------------
+
 	/** The set of shape labels on a given stratum.
 	 * 
 	 * @param i
@@ -591,15 +1024,42 @@ public class ShexSchema {
 	 * 
 	 */
 	public int hasStratum (Label label) {
-		for (int i = 0; i < getNbStratums(); i++)
-			if (getStratum(i).contains(label))
-				return i;
-		throw new IllegalArgumentException("Unknown shape label: " + label);
+		Integer stratum = strata.get(label);
+		if (stratum == null)
+			throw new IllegalArgumentException("Unknown shape label: " + label);
+		return stratum;
 	}
 	
 	public Map<Integer,Set<Label>> getStratification() {
 		return this.stratification;
 	}
+	
+	/** The shape labels on which a shape label directly depends in the dependency graph used for the stratification.
+	 * 
+	 * @param label
+	 * @return the labels of the shape expressions that have to be evaluated to evaluate the shape expression of label
+	 */
+	public Set<Label> getDependencies (Label label) {
+		if (! dependencies.containsKey(label))
+			throw new IllegalArgumentException("Unknown shape label: " + label);
+		return Collections.unmodifiableSet(dependencies.get(label));
+	}
+	
+	/** The shape labels given as parameter and all the shape labels on which they depend, directly or not.
+	 * 
+	 * @param labels
+	 * @return the closure of the labels for the dependency relation
+	 */
+	public Set<Label> getDependencyClosure (Collection<Label> labels) {
+		Set<Label> closure = new HashSet<Label>();
+		List<Label> toVisit = new ArrayList<Label>(labels);
+		while (! toVisit.isEmpty()) {
+			Label label = toVisit.remove(toVisit.size()-1);
+			if (closure.add(label))
+				toVisit.addAll(getDependencies(label));
+		}
+		return closure;
+	}
 
 }
 
@@ -43,7 +43,7 @@ public class ShapeExprRef extends ShapeExpr {
 	}
 
 	public void setShapeDefinition(ShapeExpr def) {
-		if (this.def != null)
+		if (this.def != null && this.def != def)
 			throw new IllegalStateException("Shape definition can be set at most once");
 		this.def = def;
 	}
@@ -40,7 +40,7 @@ public class TripleExprRef extends TripleExpr {
 
 
 	public void setTripleDefinition(TripleExpr def) {
-		if (this.tripleExp != null)
+		if (this.tripleExp != null && this.tripleExp != def)
 			throw new IllegalStateException("Triple Expression definition can be set at most once");
 		this.tripleExp = def;
 	}
@@ -16,29 +16,22 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.schema.parsing;
 
-import java.io.FileNotFoundException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import org.eclipse.rdf4j.rio.RDFFormat;
 
-import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
 
 /** For all the functions, the parser used depend of the file extension of the files.
  * @author Jérémie Dusart
  *
  */
 public class GenParser {
-	
+	public static final String BINARY_EXTENSION = ".shexb";
 	
 	public static ShexSchema parseSchema(Path filepath) throws Exception{
 		return parseSchema(filepath,Collections.emptyList());
@@ -52,65 +45,49 @@ public class GenParser {
 	
 	
 	/** The function try to find the imports, if any, in the list of directories provided. The format of the schema is infer from the file extension.
+	 * A schema saved in the binary format ({@link #BINARY_EXTENSION}) already contains its imports and is loaded without analysis.
+	 * To share the parsed imports between several schemas, use a {@link SchemaRepository}.
 	 * @param filepath
 	 * @param importDirectories
 	 * @return the parsed ShexSchema
 	 * @throws Exception
 	 */
 	public static ShexSchema parseSchema(Path filepath, List<Path> importDirectories) throws Exception{
-		if (!filepath.toFile().exists())
-			throw new FileNotFoundException("File "+filepath+" not found.");
-		
-		Set<Path> loaded = new HashSet<Path>();
-		Map<Label,ShapeExpr> allRules = new HashMap<Label,ShapeExpr>();
-		
-		List<Path> toload = new ArrayList<Path>();
-		toload.add(filepath);
-		
-		while(toload.size()>0) {
-			Path selectedPath = toload.get(0);
-			loaded.add(selectedPath);
-			toload.remove(0);
-
-			Parser parser;			
-			if (selectedPath.toString().endsWith(".json")) {
-				parser = new ShExJParser();
-			} else if (selectedPath.toString().endsWith(".shex")) {
-				parser = new ShExCParser();
-			}else {
-				parser = new ShExRParser();
-			}
-			allRules.putAll(parser.getRules(selectedPath));
-			List<String> imports = parser.getImports();
-
-			for (String imp:imports) {
-				Path res = null;
-				for (Path p:importDirectories) {
-					if (Paths.get(p.toString(),imp+".shex").toFile().exists()) {
-						res = Paths.get(p.toString(),imp+".shex");
-						break;
-					} else if (Paths.get(p.toString(),imp+".json").toFile().exists()) {
-						res = Paths.get(p.toString(),imp+".json");
-						break;
-					} else {
-						for (RDFFormat format:ShExRParser.RDFFormats) {
-							for (String ext:format.getFileExtensions()) {
-								if (Paths.get(p.toString(),imp+"."+ext).toFile().exists()) {
-									res = Paths.get(p.toString(),imp+"."+ext);
-								}
-							}
+		return new SchemaRepository(importDirectories).getSchema(filepath);
+	}
+	
+	
+	static Parser getParser(Path path) {
+		if (path.toString().endsWith(".json"))
+			return new ShExJParser();
+		if (path.toString().endsWith(".shex"))
+			return new ShExCParser();
+		return new ShExRParser();
+	}
+	
+	/** Searches the file of an import in the directories, trying the extensions of ShExC, ShExJ and then of the RDF formats.
+	 * @return the file of the import, or null if it was not found
+	 */
+	static Path resolveImport(String imp, List<Path> importDirectories) {
+		Path res = null;
+		for (Path p:importDirectories) {
+			if (Paths.get(p.toString(),imp+".shex").toFile().exists()) {
+				res = Paths.get(p.toString(),imp+".shex");
+				break;
+			} else if (Paths.get(p.toString(),imp+".json").toFile().exists()) {
+				res = Paths.get(p.toString(),imp+".json");
+				break;
+			} else {
+				for (RDFFormat format:ShExRParser.RDFFormats) {
+					for (String ext:format.getFileExtensions()) {
+						if (Paths.get(p.toString(),imp+"."+ext).toFile().exists()) {
+							res = Paths.get(p.toString(),imp+"."+ext);
 						}
 					}
-				}	
-				if (res == null){
-					throw new FileNotFoundException("Faild to resolved import "+imp+" from "+selectedPath+".");
 				}
-				if (! loaded.contains(res))
-					toload.add(res);					
 			}
 		}
-		ShexSchema schema = new ShexSchema(allRules);
-		return schema;
+		return res;
 	}
 
 
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.inria.lille.shexjava.jfr.FlightRecorderEvents;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+
+/** Loads schemas and keeps the parsed modules, so that a module imported by several schemas is parsed only once.
+ * 
+ * A module is a schema file without its imports. The rules of a module are kept with the modification time and the size of its file, and the file is parsed again when one of them has changed, or when one of the imports against which its references were resolved has been parsed again. 
+ * The imports of a schema are resolved level by level, and the modules of the same level are parsed in parallel by the executor of the repository.
+ * 
+ * The schemas built by a repository share the shape expressions and the triple expressions of their common modules. 
+ * The construction of a {@link ShexSchema} completes these expressions (generated labels and resolved references), so the schemas of a repository are built one at a time.
+ * 
+ * @author Jérémie Dusart
+ */
+public class SchemaRepository {
+	private final List<Path> importDirectories;
+	private final Executor executor;
+	private final Map<Path,Module> modules;
+	private final Map<String,Path> resolvedImports;
+	private final AtomicLong generations = new AtomicLong();
+	
+	/** Creates a repository that parses the imports in parallel in the common fork join pool.
+	 * @param importDirectories the directories where the imports are searched
+	 */
+	public SchemaRepository(List<Path> importDirectories) {
+		this(importDirectories, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * @param importDirectories the directories where the imports are searched
+	 * @param executor the executor used to parse the imports in parallel
+	 */
+	public SchemaRepository(List<Path> importDirectories, Executor executor) {
+		this.importDirectories = new ArrayList<>(importDirectories);
+		this.executor = executor;
+		this.modules = new ConcurrentHashMap<>();
+		this.resolvedImports = new ConcurrentHashMap<>();
+	}
+	
+	/** Builds the schema of the file and of its imports, using the modules already parsed when their file has not changed.
+	 * A schema saved in the binary format ({@link GenParser#BINARY_EXTENSION}) already contains its imports and is loaded without analysis.
+	 * @param filepath
+	 * @return the schema
+	 * @throws Exception
+	 */
+	public ShexSchema getSchema(Path filepath) throws Exception {
+		if (!filepath.toFile().exists())
+			throw new FileNotFoundException("File "+filepath+" not found.");
+		if (filepath.toString().endsWith(GenParser.BINARY_EXTENSION)) {
+			Object parsing = FlightRecorderEvents.beginParsing();
+			ShexSchema schema = ShExBinaryParser.parseSchema(filepath);
+			FlightRecorderEvents.endParsing(parsing, filepath, Files.size(filepath), schema.getRules().size());
+			return schema;
+		}
+		Map<Label,ShapeExpr> allRules = getRules(filepath);
+		synchronized (this) {
+			return new ShexSchema(allRules);
+		}
+	}
+	
+	/** The rules of the file and of all its imports.
+	 * @param filepath
+	 * @return a new map with the rules of the file and of its imports
+	 * @throws Exception
+	 */
+	public Map<Label,ShapeExpr> getRules(Path filepath) throws Exception {
+		Map<Path,Module> loaded = new LinkedHashMap<Path,Module>();
+		List<Path> level = new ArrayList<Path>();
+		level.add(normalize(filepath));
+		
+		while (level.size()>0) {
+			List<Module> parsed = getModules(level);
+			List<Path> next = new ArrayList<Path>();
+			for (int i=0;i<level.size();i++) {
+				loaded.put(level.get(i), parsed.get(i));
+				for (Path imp:parsed.get(i).imports)
+					if (!loaded.containsKey(imp) && !level.contains(imp) && !next.contains(imp))
+						next.add(imp);
+			}
+			level = next;
+		}
+		
+		// The references of a module are resolved to the expressions of its imports once its rules are used in a schema, 
+		// so a module whose references were resolved against other versions of its imports must be parsed again.
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Map.Entry<Path,Module> entry:loaded.entrySet()) {
+				Map<Path,Long> resolved = entry.getValue().resolvedGenerations;
+				if (resolved == null)
+					continue;
+				for (Path imp:entry.getValue().imports) {
+					if (loaded.get(imp).generation != resolved.get(imp)) {
+						entry.setValue(parseModule(entry.getKey()));
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+		
+		Map<Label,ShapeExpr> allRules = new HashMap<Label,ShapeExpr>();
+		for (Module module:loaded.values()) {
+			allRules.putAll(module.rules);
+			if (module.resolvedGenerations == null) {
+				Map<Path,Long> resolved = new HashMap<Path,Long>();
+				for (Path imp:module.imports)
+					resolved.put(imp, loaded.get(imp).generation);
+				module.resolvedGenerations = resolved;
+			}
+		}
+		return allRules;
+	}
+	
+	/** @return the number of modules parsed by the repository since its creation */
+	long getNbParses() {
+		return generations.get();
+	}
+	
+	/** Forgets all the parsed modules. */
+	public void clear() {
+		modules.clear();
+		resolvedImports.clear();
+	}
+	
+	
+	private List<Module> getModules(List<Path> paths) throws Exception {
+		List<Module> result = new ArrayList<Module>(paths.size());
+		if (paths.size()==1) {
+			result.add(getModule(paths.get(0)));
+			return result;
+		}
+		
+		List<FutureTask<Module>> tasks = new ArrayList<FutureTask<Module>>(paths.size());
+		for (Path path:paths) {
+			FutureTask<Module> task = new FutureTask<Module>(() -> getModule(path));
+			tasks.add(task);
+			executor.execute(task);
+		}
+		for (FutureTask<Module> task:tasks) {
+			try {
+				result.add(task.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			}
+		}
+		return result;
+	}
+	
+	private Module getModule(Path path) throws Exception {
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
+		long size = Files.size(path);
+		Module module = modules.get(path);
+		if (module != null && module.lastModified == lastModified && module.size == size)
+			return module;
+		return parseModule(path);
+	}
+	
+	private Module parseModule(Path path) throws Exception {
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
+		long size = Files.size(path);
+		Object parsing = FlightRecorderEvents.beginParsing();
+		Parser parser = GenParser.getParser(path);
+		Map<Label,ShapeExpr> rules = parser.getRules(path);
+		FlightRecorderEvents.endParsing(parsing, path, size, rules.size());
+		List<Path> imports = new ArrayList<Path>();
+		for (String imp:parser.getImports())
+			imports.add(resolveImport(imp, path));
+		
+		Module module = new Module(generations.incrementAndGet(), lastModified, size, Collections.unmodifiableMap(rules), imports);
+		modules.put(path, module);
+		return module;
+	}
+	
+	private Path resolveImport(String imp, Path from) throws FileNotFoundException {
+		Path res = resolvedImports.get(imp);
+		if (res != null && res.toFile().exists())
+			return res;
+		res = GenParser.resolveImport(imp, importDirectories);
+		if (res == null)
+			throw new FileNotFoundException("Faild to resolved import "+imp+" from "+from+".");
+		res = normalize(res);
+		resolvedImports.put(imp, res);
+		return res;
+	}
+	
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+	
+	
+	private static class Module {
+		private final long generation;
+		private final long lastModified;
+		private final long size;
+		private final Map<Label,ShapeExpr> rules;
+		private final List<Path> imports;
+		/** The generations of the imports against which the references of the rules have been resolved, or null if the rules have not been given yet. */
+		private volatile Map<Path,Long> resolvedGenerations;
+		
+		private Module(long generation, long lastModified, long size, Map<Label,ShapeExpr> rules, List<Path> imports) {
+			this.generation = generation;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.rules = rules;
+			this.imports = imports;
+		}
+	}
+
+}
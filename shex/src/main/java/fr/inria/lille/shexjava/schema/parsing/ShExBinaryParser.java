@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import static fr.inria.lille.shexjava.schema.parsing.ShExBinarySerializer.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import fr.inria.lille.shexjava.exception.UndefinedReferenceException;
+import fr.inria.lille.shexjava.graph.TCProperty;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Annotation;
+import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyShape;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.OneOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.RepeatedTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeAnd;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExprRef;
+import fr.inria.lille.shexjava.schema.concrsynt.Constraint;
+import fr.inria.lille.shexjava.schema.concrsynt.DatatypeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.FacetNumericConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.FacetStringConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.IRIStemConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.IRIStemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LanguageConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LanguageStemConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LanguageStemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LiteralStemConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LiteralStemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.NodeKindConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.ValueSetValueConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.WildcardConstraint;
+import fr.inria.lille.shexjava.util.Interval;
+
+/** Loads a schema saved with {@link ShExBinarySerializer}.
+ * 
+ * The file is memory-mapped and the schema is rebuilt in a single pass. The stratification and the dependencies are read from the file, so that the reference and dependency graphs are not computed again.
+ * 
+ * @author Jérémie Dusart
+ */
+public class ShExBinaryParser {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	
+	private final ByteBuffer buffer;
+	private String[] strings;
+	private final List<Object> read = new ArrayList<>();
+	
+	private ShExBinaryParser(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	public static ShexSchema parseSchema(Path path) throws IOException, UndefinedReferenceException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return parseSchema(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+	
+	/** Loads a schema from a buffer, starting at its current position.
+	 * 
+	 * @param buffer
+	 * @return the schema
+	 * @throws IOException if the content of the buffer is not a schema in a supported version of the binary format
+	 * @throws UndefinedReferenceException
+	 */
+	public static ShexSchema parseSchema(ByteBuffer buffer) throws IOException, UndefinedReferenceException {
+		if (buffer.remaining() < 8 || buffer.getInt() != MAGIC)
+			throw new IOException("Not a binary shex schema.");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported version of the binary format: " + version + ".");
+		try {
+			return new ShExBinaryParser(buffer).readSchema();
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupted binary shex schema.", e);
+		}
+	}
+	
+	
+	//--------------------------------------------------
+	// Schema
+	//--------------------------------------------------
+	
+	private ShexSchema readSchema() throws UndefinedReferenceException {
+		strings = new String[buffer.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		
+		int nbRules = buffer.getInt();
+		Map<Label,ShapeExpr> rules = new HashMap<>(2*nbRules);
+		for (int i = 0; i < nbRules; i++) {
+			Label label = readLabel();
+			rules.put(label, readShapeExpr());
+		}
+		int nbStratums = buffer.getInt();
+		Map<Integer,Set<Label>> stratification = new HashMap<>(2*nbStratums);
+		for (int i = 0; i < nbStratums; i++)
+			stratification.put(i, readLabels());
+		int nbShapes = buffer.getInt();
+		Map<Label,Set<Label>> dependencies = new HashMap<>(2*nbShapes);
+		for (int i = 0; i < nbShapes; i++) {
+			Label label = readLabel();
+			dependencies.put(label, readLabels());
+		}
+		return new ShexSchema(rules, stratification, dependencies);
+	}
+	
+	private Set<Label> readLabels() {
+		int size = buffer.getInt();
+		Set<Label> labels = new HashSet<>(2*size);
+		for (int i = 0; i < size; i++)
+			labels.add(readLabel());
+		return labels;
+	}
+	
+	
+	//--------------------------------------------------
+	// Shape expressions
+	//--------------------------------------------------
+	
+	private ShapeExpr readShapeExpr() {
+		byte type = buffer.get();
+		if (type == PREVIOUS)
+			return (ShapeExpr) read.get(buffer.getInt());
+		// the index of the expression is reserved before its sub-expressions are read
+		int index = read.size();
+		read.add(null);
+		Label id = readLabel();
+		ShapeExpr result;
+		switch (type) {
+		case SHAPE_AND:
+			result = new ShapeAnd(readShapeExprs());
+			break;
+		case SHAPE_OR:
+			result = new ShapeOr(readShapeExprs());
+			break;
+		case SHAPE_NOT:
+			result = new ShapeNot(readShapeExpr());
+			break;
+		case SHAPE_REF:
+			result = new ShapeExprRef(readLabel());
+			break;
+		case SHAPE:
+			boolean closed = buffer.get() != 0;
+			int nbExtra = buffer.getInt();
+			Set<TCProperty> extra = new HashSet<>();
+			for (int i = 0; i < nbExtra; i++)
+				extra.add(readProperty());
+			TripleExpr tripleExpr = readTripleExpr();
+			result = new Shape(tripleExpr, extra, closed, readAnnotations());
+			break;
+		case NODE_CONSTRAINT:
+			result = new NodeConstraint(readConstraints());
+			break;
+		case EMPTY_SHAPE:
+			result = new EmptyShape();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown shape expression type: " + type);
+		}
+		result.setId(id);
+		read.set(index, result);
+		return result;
+	}
+	
+	private List<ShapeExpr> readShapeExprs() {
+		int size = buffer.getInt();
+		List<ShapeExpr> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			result.add(readShapeExpr());
+		return result;
+	}
+	
+	
+	//--------------------------------------------------
+	// Triple expressions
+	//--------------------------------------------------
+	
+	private TripleExpr readTripleExpr() {
+		byte type = buffer.get();
+		if (type == PREVIOUS)
+			return (TripleExpr) read.get(buffer.getInt());
+		int index = read.size();
+		read.add(null);
+		Label id = readLabel();
+		TripleExpr result;
+		switch (type) {
+		case EACH_OF:
+			List<TripleExpr> eachOfSubExprs = readTripleExprs();
+			result = new EachOf(eachOfSubExprs, readAnnotations());
+			break;
+		case ONE_OF:
+			List<TripleExpr> oneOfSubExprs = readTripleExprs();
+			result = new OneOf(oneOfSubExprs, readAnnotations());
+			break;
+		case TRIPLE_REF:
+			result = new TripleExprRef(readLabel());
+			break;
+		case REPEATED:
+			Interval card = new Interval(buffer.getInt(), buffer.getInt());
+			result = new RepeatedTripleExpression(readTripleExpr(), card);
+			break;
+		case TRIPLE_CONSTRAINT:
+			TCProperty property = readProperty();
+			ShapeExpr valueExpr = readShapeExpr();
+			result = new TripleConstraint(property, valueExpr, readAnnotations());
+			break;
+		case EMPTY_TRIPLE:
+			result = new EmptyTripleExpression();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown triple expression type: " + type);
+		}
+		result.setId(id);
+		read.set(index, result);
+		return result;
+	}
+	
+	private List<TripleExpr> readTripleExprs() {
+		int size = buffer.getInt();
+		List<TripleExpr> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			result.add(readTripleExpr());
+		return result;
+	}
+	
+	
+	//--------------------------------------------------
+	// Constraints
+	//--------------------------------------------------
+	
+	private List<Constraint> readConstraints() {
+		int size = buffer.getInt();
+		List<Constraint> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			result.add(readConstraint());
+		return result;
+	}
+	
+	private Constraint readConstraint() {
+		byte type = buffer.get();
+		switch (type) {
+		case NODE_KIND:
+			switch (buffer.get()) {
+			case 0: return NodeKindConstraint.Blank;
+			case 1: return NodeKindConstraint.AllIRI;
+			case 2: return NodeKindConstraint.AllLiteral;
+			case 3: return NodeKindConstraint.AllNonLiteral;
+			default: throw new IllegalArgumentException("Unknown node kind.");
+			}
+		case DATATYPE:
+			return new DatatypeConstraint(rdfFactory.createIRI(readString()));
+		case FACET_NUMERIC:
+			FacetNumericConstraint numeric = new FacetNumericConstraint();
+			String minincl = readString(), minexcl = readString(), maxincl = readString(), maxexcl = readString();
+			if (minincl != null) numeric.setMinincl(new BigDecimal(minincl));
+			if (minexcl != null) numeric.setMinexcl(new BigDecimal(minexcl));
+			if (maxincl != null) numeric.setMaxincl(new BigDecimal(maxincl));
+			if (maxexcl != null) numeric.setMaxexcl(new BigDecimal(maxexcl));
+			Integer totalDigits = readInteger(), fractionDigits = readInteger();
+			if (totalDigits != null) numeric.setTotalDigits(totalDigits);
+			if (fractionDigits != null) numeric.setFractionDigits(fractionDigits);
+			return numeric;
+		case FACET_STRING:
+			FacetStringConstraint facet = new FacetStringConstraint();
+			Integer length = readInteger(), minlength = readInteger(), maxlength = readInteger();
+			if (length != null) facet.setLength(length);
+			if (minlength != null) facet.setMinLength(minlength);
+			if (maxlength != null) facet.setMaxLength(maxlength);
+			facet.setPattern(readString());
+			String flags = readString();
+			if (flags != null) facet.setFlags(flags);
+			return facet;
+		case VALUE_SET:
+			return readValueSet();
+		case LANGUAGE:
+			return new LanguageConstraint(readString());
+		case LANGUAGE_STEM:
+			return new LanguageStemConstraint(readString());
+		case IRI_STEM:
+			return new IRIStemConstraint(readString());
+		case LITERAL_STEM:
+			return new LiteralStemConstraint(readString());
+		case IRI_STEM_RANGE:
+		case LITERAL_STEM_RANGE:
+		case LANGUAGE_STEM_RANGE:
+			Constraint stem = readConstraint();
+			ValueSetValueConstraint exclusions = readValueSet();
+			if (type == IRI_STEM_RANGE)
+				return new IRIStemRangeConstraint(stem, exclusions.getExplicitValues(), exclusions.getConstraintsValue());
+			if (type == LITERAL_STEM_RANGE)
+				return new LiteralStemRangeConstraint(stem, exclusions.getExplicitValues(), exclusions.getConstraintsValue());
+			return new LanguageStemRangeConstraint(stem, exclusions.getExplicitValues(), exclusions.getConstraintsValue());
+		case WILDCARD:
+			return new WildcardConstraint();
+		default:
+			throw new IllegalArgumentException("Unknown constraint type: " + type);
+		}
+	}
+	
+	private ValueSetValueConstraint readValueSet() {
+		int nbValues = buffer.getInt();
+		Set<Value> values = new HashSet<>(2*nbValues);
+		for (int i = 0; i < nbValues; i++)
+			values.add(readValue());
+		return new ValueSetValueConstraint(values, new HashSet<>(readConstraints()));
+	}
+	
+	
+	//--------------------------------------------------
+	// Utils 
+	//--------------------------------------------------
+	
+	private List<Annotation> readAnnotations() {
+		int size = buffer.getInt();
+		if (size == NONE)
+			return null;
+		List<Annotation> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			String predicate = readString();
+			result.add(new Annotation(rdfFactory.createIRI(predicate), readValue()));
+		}
+		return result;
+	}
+	
+	private TCProperty readProperty() {
+		boolean forward = buffer.get() != 0;
+		String iri = readString();
+		if (forward)
+			return TCProperty.createFwProperty(rdfFactory.createIRI(iri));
+		return TCProperty.createInvProperty(rdfFactory.createIRI(iri));
+	}
+	
+	private Label readLabel() {
+		boolean isIri = buffer.get() != 0;
+		boolean generated = buffer.get() != 0;
+		String value = readString();
+		if (isIri)
+			return new Label(rdfFactory.createIRI(value), generated);
+		return new Label(rdfFactory.createBNode(value), generated);
+	}
+	
+	private Value readValue() {
+		byte type = buffer.get();
+		switch (type) {
+		case IRI_VALUE:
+			return rdfFactory.createIRI(readString());
+		case BNODE_VALUE:
+			return rdfFactory.createBNode(readString());
+		case LITERAL_VALUE:
+			String label = readString();
+			String datatype = readString();
+			String language = readString();
+			if (language != null)
+				return rdfFactory.createLiteral(label, language);
+			return rdfFactory.createLiteral(label, rdfFactory.createIRI(datatype));
+		default:
+			throw new IllegalArgumentException("Unknown value type: " + type);
+		}
+	}
+	
+	private Integer readInteger() {
+		int value = buffer.getInt();
+		return value == NONE ? null : value;
+	}
+	
+	private String readString() {
+		int index = buffer.getInt();
+		return index == NONE ? null : strings[index];
+	}
+}
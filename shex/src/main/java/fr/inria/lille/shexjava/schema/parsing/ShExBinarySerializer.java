@@ -0,0 +1,430 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.graph.TCProperty;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryTripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.Annotation;
+import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyShape;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.OneOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.RepeatedTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeAnd;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExprRef;
+import fr.inria.lille.shexjava.schema.concrsynt.Constraint;
+import fr.inria.lille.shexjava.schema.concrsynt.DatatypeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.FacetNumericConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.FacetStringConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.IRIStemConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.IRIStemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LanguageConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LanguageStemConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LanguageStemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LiteralStemConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.LiteralStemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.NodeKindConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.StemRangeConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.ValueSetValueConstraint;
+import fr.inria.lille.shexjava.schema.concrsynt.WildcardConstraint;
+
+/** Saves a shex schema in a compact binary format that can be loaded with {@link ShExBinaryParser} without parsing nor analysis of the schema.
+ * 
+ * The file contains, after a header made of {@link #MAGIC} and {@link #VERSION}:
+ * <ul>
+ * <li>a table of all the strings of the schema, every other string being written as an index in this table,</li>
+ * <li>the rules, with the IDs of all the expressions, generated or not,</li>
+ * <li>the stratification and the dependencies between the shape labels computed by {@link ShexSchema}.</li>
+ * </ul>
+ * The integers are written in big endian. An expression that appears several times in the rules is written once, the next occurrences refer to its first occurrence.
+ * 
+ * @author Jérémie Dusart
+ */
+public class ShExBinarySerializer {
+	public static final int MAGIC = 0x53484558; // "SHEX"
+	public static final int VERSION = 1;
+	
+	static final byte SHAPE_AND = 1, SHAPE_OR = 2, SHAPE_NOT = 3, SHAPE_REF = 4, SHAPE = 5, NODE_CONSTRAINT = 6, EMPTY_SHAPE = 7;
+	static final byte EACH_OF = 1, ONE_OF = 2, TRIPLE_REF = 3, REPEATED = 4, TRIPLE_CONSTRAINT = 5, EMPTY_TRIPLE = 6;
+	static final byte PREVIOUS = 0;
+	static final byte NODE_KIND = 1, DATATYPE = 2, FACET_NUMERIC = 3, FACET_STRING = 4, VALUE_SET = 5, LANGUAGE = 6, LANGUAGE_STEM = 7, 
+			IRI_STEM = 8, LITERAL_STEM = 9, IRI_STEM_RANGE = 10, LITERAL_STEM_RANGE = 11, LANGUAGE_STEM_RANGE = 12, WILDCARD = 13;
+	static final byte IRI_VALUE = 1, BNODE_VALUE = 2, LITERAL_VALUE = 3;
+	static final int NONE = -1;
+	
+	private final Map<String,Integer> strings = new HashMap<>();
+	private final List<String> stringList = new ArrayList<>();
+	private final Map<Object,Integer> written = new IdentityHashMap<>();
+	private DataOutputStream out;
+	
+	private ShExBinarySerializer() {}
+	
+	public static void toBinary(ShexSchema schema, Path destination) throws IOException {
+		try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(destination))) {
+			toBinary(schema, os);
+		}
+	}
+	
+	/** Writes the schema on the stream, that is not closed.
+	 * 
+	 * @param schema
+	 * @param destination
+	 * @throws IOException
+	 */
+	public static void toBinary(ShexSchema schema, OutputStream destination) throws IOException {
+		// the body is written first to collect the strings, then the table of strings is written before it
+		ShExBinarySerializer serializer = new ShExBinarySerializer();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		serializer.out = new DataOutputStream(body);
+		serializer.writeSchema(schema);
+		serializer.out.flush();
+		
+		DataOutputStream out = new DataOutputStream(destination);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(serializer.stringList.size());
+		for (String s:serializer.stringList) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		body.writeTo(out);
+		out.flush();
+	}
+	
+	
+	//--------------------------------------------------
+	// Schema
+	//--------------------------------------------------
+	
+	private void writeSchema(ShexSchema schema) throws IOException {
+		out.writeInt(schema.getRules().size());
+		for (Map.Entry<Label,ShapeExpr> rule:schema.getRules().entrySet()) {
+			writeLabel(rule.getKey());
+			writeShapeExpr(rule.getValue());
+		}
+		out.writeInt(schema.getNbStratums());
+		for (int i = 0; i < schema.getNbStratums(); i++)
+			writeLabels(schema.getStratum(i));
+		out.writeInt(schema.getShapeMap().size());
+		for (Label label:schema.getShapeMap().keySet()) {
+			writeLabel(label);
+			writeLabels(schema.getDependencies(label));
+		}
+	}
+	
+	private void writeLabels(Set<Label> labels) throws IOException {
+		out.writeInt(labels.size());
+		for (Label label:labels)
+			writeLabel(label);
+	}
+	
+	
+	//--------------------------------------------------
+	// Shape expressions
+	//--------------------------------------------------
+	
+	/** Writes a reference to the previous occurrence of obj if it was already written.
+	 * @return true if obj was already written
+	 */
+	private boolean writePrevious(Object obj) throws IOException {
+		Integer index = written.get(obj);
+		if (index != null) {
+			out.writeByte(PREVIOUS);
+			out.writeInt(index);
+			return true;
+		}
+		written.put(obj, written.size());
+		return false;
+	}
+	
+	private void writeShapeExpr(ShapeExpr expr) throws IOException {
+		if (writePrevious(expr))
+			return;
+		if (expr instanceof ShapeAnd) {
+			out.writeByte(SHAPE_AND);
+			writeLabel(expr.getId());
+			writeShapeExprs((AbstractNaryShapeExpr) expr);
+		} else if (expr instanceof ShapeOr) {
+			out.writeByte(SHAPE_OR);
+			writeLabel(expr.getId());
+			writeShapeExprs((AbstractNaryShapeExpr) expr);
+		} else if (expr instanceof ShapeNot) {
+			out.writeByte(SHAPE_NOT);
+			writeLabel(expr.getId());
+			writeShapeExpr(((ShapeNot) expr).getSubExpression());
+		} else if (expr instanceof ShapeExprRef) {
+			out.writeByte(SHAPE_REF);
+			writeLabel(expr.getId());
+			writeLabel(((ShapeExprRef) expr).getLabel());
+		} else if (expr instanceof Shape) {
+			Shape shape = (Shape) expr;
+			out.writeByte(SHAPE);
+			writeLabel(expr.getId());
+			out.writeBoolean(shape.isClosed());
+			out.writeInt(shape.getExtraProperties().size());
+			for (TCProperty property:shape.getExtraProperties())
+				writeProperty(property);
+			writeTripleExpr(shape.getTripleExpression());
+			writeAnnotations(shape.getAnnotations());
+		} else if (expr instanceof EmptyShape) {
+			out.writeByte(EMPTY_SHAPE);
+			writeLabel(expr.getId());
+		} else if (expr instanceof NodeConstraint) {
+			List<Constraint> constraints = ((NodeConstraint) expr).getConstraints();
+			out.writeByte(NODE_CONSTRAINT);
+			writeLabel(expr.getId());
+			writeConstraints(constraints);
+		} else {
+			throw new IllegalArgumentException("Shape expression not supported by the binary format: " + expr.getClass());
+		}
+	}
+	
+	private void writeShapeExprs(AbstractNaryShapeExpr expr) throws IOException {
+		out.writeInt(expr.getSubExpressions().size());
+		for (ShapeExpr subExpr:expr.getSubExpressions())
+			writeShapeExpr(subExpr);
+	}
+	
+	
+	//--------------------------------------------------
+	// Triple expressions
+	//--------------------------------------------------
+	
+	private void writeTripleExpr(TripleExpr expr) throws IOException {
+		if (writePrevious(expr))
+			return;
+		if (expr instanceof EachOf) {
+			out.writeByte(EACH_OF);
+			writeLabel(expr.getId());
+			writeTripleExprs((AbstractNaryTripleExpr) expr);
+			writeAnnotations(((EachOf) expr).getAnnotations());
+		} else if (expr instanceof OneOf) {
+			out.writeByte(ONE_OF);
+			writeLabel(expr.getId());
+			writeTripleExprs((AbstractNaryTripleExpr) expr);
+			writeAnnotations(((OneOf) expr).getAnnotations());
+		} else if (expr instanceof TripleExprRef) {
+			out.writeByte(TRIPLE_REF);
+			writeLabel(expr.getId());
+			writeLabel(((TripleExprRef) expr).getLabel());
+		} else if (expr instanceof RepeatedTripleExpression) {
+			RepeatedTripleExpression repeated = (RepeatedTripleExpression) expr;
+			out.writeByte(REPEATED);
+			writeLabel(expr.getId());
+			out.writeInt(repeated.getCardinality().min);
+			out.writeInt(repeated.getCardinality().max);
+			writeTripleExpr(repeated.getSubExpression());
+		} else if (expr instanceof TripleConstraint) {
+			TripleConstraint tc = (TripleConstraint) expr;
+			out.writeByte(TRIPLE_CONSTRAINT);
+			writeLabel(expr.getId());
+			writeProperty(tc.getProperty());
+			writeShapeExpr(tc.getShapeExpr());
+			writeAnnotations(tc.getAnnotations());
+		} else if (expr instanceof EmptyTripleExpression) {
+			out.writeByte(EMPTY_TRIPLE);
+			writeLabel(expr.getId());
+		} else {
+			throw new IllegalArgumentException("Triple expression not supported by the binary format: " + expr.getClass());
+		}
+	}
+	
+	private void writeTripleExprs(AbstractNaryTripleExpr expr) throws IOException {
+		out.writeInt(expr.getSubExpressions().size());
+		for (TripleExpr subExpr:expr.getSubExpressions())
+			writeTripleExpr(subExpr);
+	}
+	
+	
+	//--------------------------------------------------
+	// Constraints
+	//--------------------------------------------------
+	
+	private void writeConstraints(Collection<Constraint> constraints) throws IOException {
+		out.writeInt(constraints.size());
+		for (Constraint constraint:constraints)
+			writeConstraint(constraint);
+	}
+	
+	private void writeConstraint(Constraint constraint) throws IOException {
+		if (constraint instanceof NodeKindConstraint) {
+			out.writeByte(NODE_KIND);
+			if (constraint == NodeKindConstraint.Blank)
+				out.writeByte(0);
+			else if (constraint == NodeKindConstraint.AllIRI)
+				out.writeByte(1);
+			else if (constraint == NodeKindConstraint.AllLiteral)
+				out.writeByte(2);
+			else if (constraint == NodeKindConstraint.AllNonLiteral)
+				out.writeByte(3);
+			else 
+				throw new IllegalArgumentException("Unknown node kind: " + constraint);
+		} else if (constraint instanceof DatatypeConstraint) {
+			out.writeByte(DATATYPE);
+			writeString(((DatatypeConstraint) constraint).getDatatypeIri().stringValue());
+		} else if (constraint instanceof FacetNumericConstraint) {
+			FacetNumericConstraint facet = (FacetNumericConstraint) constraint;
+			out.writeByte(FACET_NUMERIC);
+			writeString(facet.getMinincl() == null ? null : facet.getMinincl().toString());
+			writeString(facet.getMinexcl() == null ? null : facet.getMinexcl().toString());
+			writeString(facet.getMaxincl() == null ? null : facet.getMaxincl().toString());
+			writeString(facet.getMaxexcl() == null ? null : facet.getMaxexcl().toString());
+			writeInteger(facet.getTotalDigits());
+			writeInteger(facet.getFractionDigits());
+		} else if (constraint instanceof FacetStringConstraint) {
+			FacetStringConstraint facet = (FacetStringConstraint) constraint;
+			out.writeByte(FACET_STRING);
+			writeInteger(facet.getLength());
+			writeInteger(facet.getMinlength());
+			writeInteger(facet.getMaxlength());
+			writeString(facet.getPatternString());
+			writeString(facet.getFlags());
+		} else if (constraint instanceof ValueSetValueConstraint) {
+			out.writeByte(VALUE_SET);
+			writeValueSet((ValueSetValueConstraint) constraint);
+		} else if (constraint instanceof LanguageConstraint) {
+			out.writeByte(LANGUAGE);
+			writeString(((LanguageConstraint) constraint).getLangTag());
+		} else if (constraint instanceof LanguageStemConstraint) {
+			out.writeByte(LANGUAGE_STEM);
+			writeString(((LanguageStemConstraint) constraint).getLangStem());
+		} else if (constraint instanceof IRIStemConstraint) {
+			out.writeByte(IRI_STEM);
+			writeString(((IRIStemConstraint) constraint).getIriStem());
+		} else if (constraint instanceof LiteralStemConstraint) {
+			out.writeByte(LITERAL_STEM);
+			writeString(((LiteralStemConstraint) constraint).getLitStem());
+		} else if (constraint instanceof StemRangeConstraint) {
+			if (constraint instanceof IRIStemRangeConstraint)
+				out.writeByte(IRI_STEM_RANGE);
+			else if (constraint instanceof LiteralStemRangeConstraint)
+				out.writeByte(LITERAL_STEM_RANGE);
+			else if (constraint instanceof LanguageStemRangeConstraint)
+				out.writeByte(LANGUAGE_STEM_RANGE);
+			else
+				throw new IllegalArgumentException("Constraint not supported by the binary format: " + constraint.getClass());
+			writeConstraint(((StemRangeConstraint) constraint).getStem());
+			writeValueSet(((StemRangeConstraint) constraint).getExclusions());
+		} else if (constraint instanceof WildcardConstraint) {
+			out.writeByte(WILDCARD);
+		} else {
+			throw new IllegalArgumentException("Constraint not supported by the binary format: " + constraint.getClass());
+		}
+	}
+	
+	private void writeValueSet(ValueSetValueConstraint constraint) throws IOException {
+		out.writeInt(constraint.getExplicitValues().size());
+		for (Value value:constraint.getExplicitValues())
+			writeValue(value);
+		writeConstraints(constraint.getConstraintsValue());
+	}
+	
+	
+	//--------------------------------------------------
+	// Utils 
+	//--------------------------------------------------
+	
+	private void writeAnnotations(List<Annotation> annotations) throws IOException {
+		if (annotations == null) {
+			out.writeInt(NONE);
+			return;
+		}
+		out.writeInt(annotations.size());
+		for (Annotation annotation:annotations) {
+			writeString(annotation.getPredicate().stringValue());
+			writeValue(annotation.getObjectValue());
+		}
+	}
+	
+	private void writeProperty(TCProperty property) throws IOException {
+		out.writeBoolean(property.isForward());
+		writeString(property.getIri().stringValue());
+	}
+	
+	private void writeLabel(Label label) throws IOException {
+		out.writeBoolean(label.isIri());
+		out.writeBoolean(label.isGenerated());
+		writeString(label.stringValue());
+	}
+	
+	private void writeValue(Value value) throws IOException {
+		if (value instanceof IRI) {
+			out.writeByte(IRI_VALUE);
+			writeString(value.stringValue());
+		} else if (value instanceof BNode) {
+			out.writeByte(BNODE_VALUE);
+			writeString(((BNode) value).getID());
+		} else {
+			Literal literal = (Literal) value;
+			out.writeByte(LITERAL_VALUE);
+			writeString(literal.getLabel());
+			writeString(literal.getDatatype().stringValue());
+			writeString(literal.getLanguage().orElse(null));
+		}
+	}
+	
+	private void writeInteger(Integer value) throws IOException {
+		out.writeInt(value == null ? NONE : value);
+	}
+	
+	private void writeString(String s) throws IOException {
+		if (s == null) {
+			out.writeInt(NONE);
+			return;
+		}
+		Integer index = strings.get(s);
+		if (index == null) {
+			index = stringList.size();
+			strings.put(s, index);
+			stringList.add(s);
+		}
+		out.writeInt(index);
+	}
+}
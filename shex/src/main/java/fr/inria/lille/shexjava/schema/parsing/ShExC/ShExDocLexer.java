@@ -107,6 +107,18 @@ public class ShExDocLexer extends Lexer {
 	}
 
 
+		// true if the last two tokens are '%' and an iri, the only place where a CODE can appear
+		private boolean afterPercent = false;
+		private boolean afterCodeIri = false;
+
+		@Override
+		public void emit(Token token) {
+			super.emit(token);
+			afterCodeIri = afterPercent && (token.getType() == IRIREF || token.getType() == PNAME_LN || token.getType() == PNAME_NS);
+			afterPercent = "%".equals(token.getText());
+		}
+
+
 	public ShExDocLexer(CharStream input) {
 		super(input);
 		_interp = new LexerATNSimulator(this,_ATN,_decisionToDFA,_sharedContextCache);
@@ -127,8 +139,24 @@ public class ShExDocLexer extends Lexer {
 	@Override
 	public ATN getATN() { return _ATN; }
 
+	@Override
+	public boolean sempred(RuleContext _localctx, int ruleIndex, int predIndex) {
+		switch (ruleIndex) {
+		case 50:
+			return CODE_sempred((RuleContext)_localctx, predIndex);
+		}
+		return true;
+	}
+	private boolean CODE_sempred(RuleContext _localctx, int predIndex) {
+		switch (predIndex) {
+		case 0:
+			return afterCodeIri;
+		}
+		return true;
+	}
+
 	public static final String _serializedATN =
-		"\3\u0430\ud6d1\u8206\uad2d\u4417\uaef1\u8d80\uaadd\2H\u0352\b\1\4\2\t"+
+		"\3\u0430\ud6d1\u8206\uad2d\u4417\uaef1\u8d80\uaadd\2H\u0353\b\1\4\2\t"+
 		"\2\4\3\t\3\4\4\t\4\4\5\t\5\4\6\t\6\4\7\t\7\4\b\t\b\4\t\t\t\4\n\t\n\4\13"+
 		"\t\13\4\f\t\f\4\r\t\r\4\16\t\16\4\17\t\17\4\20\t\20\4\21\t\21\4\22\t\22"+
 		"\4\23\t\23\4\24\t\24\4\25\t\25\4\26\t\26\4\27\t\27\4\30\t\30\4\31\t\31"+
@@ -156,26 +184,26 @@ public class ShExDocLexer extends Lexer {
 		".\3.\3.\3.\3.\3.\3.\3.\3.\3.\3.\3.\3.\3.\3/\3/\3/\3/\3\60\3\60\3\60\3"+
 		"\60\3\60\3\61\3\61\3\61\3\61\3\61\3\61\3\62\6\62\u01df\n\62\r\62\16\62"+
 		"\u01e0\3\62\3\62\3\63\3\63\7\63\u01e7\n\63\f\63\16\63\u01ea\13\63\3\63"+
-		"\3\63\3\64\3\64\3\64\3\64\3\64\7\64\u01f3\n\64\f\64\16\64\u01f6\13\64"+
-		"\3\64\3\64\3\64\3\65\3\65\3\66\3\66\3\66\7\66\u0200\n\66\f\66\16\66\u0203"+
-		"\13\66\3\66\3\66\3\67\5\67\u0208\n\67\3\67\3\67\38\38\38\39\39\59\u0211"+
-		"\n9\39\39\3:\3:\3:\3:\3;\3;\3;\3;\3;\6;\u021e\n;\r;\16;\u021f\3;\3;\3"+
-		"<\6<\u0225\n<\r<\16<\u0226\3=\3=\3=\3=\3=\5=\u022e\n=\3=\3=\7=\u0232\n"+
-		"=\f=\16=\u0235\13=\3=\5=\u0238\n=\3>\3>\6>\u023c\n>\r>\16>\u023d\3>\3"+
-		">\6>\u0242\n>\r>\16>\u0243\7>\u0246\n>\f>\16>\u0249\13>\3?\5?\u024c\n"+
-		"?\3?\6?\u024f\n?\r?\16?\u0250\3@\5@\u0254\n@\3@\7@\u0257\n@\f@\16@\u025a"+
-		"\13@\3@\3@\6@\u025e\n@\r@\16@\u025f\3A\5A\u0263\nA\3A\6A\u0266\nA\rA\16"+
-		"A\u0267\3A\3A\7A\u026c\nA\fA\16A\u026f\13A\3A\3A\5A\u0273\nA\3A\6A\u0276"+
-		"\nA\rA\16A\u0277\3A\5A\u027b\nA\3B\3B\3C\3C\3D\3D\5D\u0283\nD\3D\6D\u0286"+
-		"\nD\rD\16D\u0287\3E\3E\3E\3E\7E\u028e\nE\fE\16E\u0291\13E\3E\3E\3F\3F"+
-		"\3F\3F\7F\u0299\nF\fF\16F\u029c\13F\3F\3F\3G\3G\3G\3G\3G\3G\3G\5G\u02a7"+
-		"\nG\3G\3G\3G\5G\u02ac\nG\7G\u02ae\nG\fG\16G\u02b1\13G\3G\3G\3G\3G\3H\3"+
-		"H\3H\3H\3H\3H\3H\5H\u02be\nH\3H\3H\3H\5H\u02c3\nH\7H\u02c5\nH\fH\16H\u02c8"+
+		"\3\63\3\64\3\64\3\64\3\64\3\64\3\64\7\64\u01f4\n\64\f\64\16\64\u01f7\13"+
+		"\64\3\64\3\64\3\64\3\65\3\65\3\66\3\66\3\66\7\66\u0201\n\66\f\66\16\66"+
+		"\u0204\13\66\3\66\3\66\3\67\5\67\u0209\n\67\3\67\3\67\38\38\38\39\39\5"+
+		"9\u0212\n9\39\39\3:\3:\3:\3:\3;\3;\3;\3;\3;\6;\u021f\n;\r;\16;\u0220\3"+
+		";\3;\3<\6<\u0226\n<\r<\16<\u0227\3=\3=\3=\3=\3=\5=\u022f\n=\3=\3=\7=\u0233"+
+		"\n=\f=\16=\u0236\13=\3=\5=\u0239\n=\3>\3>\6>\u023d\n>\r>\16>\u023e\3>"+
+		"\3>\6>\u0243\n>\r>\16>\u0244\7>\u0247\n>\f>\16>\u024a\13>\3?\5?\u024d"+
+		"\n?\3?\6?\u0250\n?\r?\16?\u0251\3@\5@\u0255\n@\3@\7@\u0258\n@\f@\16@\u025b"+
+		"\13@\3@\3@\6@\u025f\n@\r@\16@\u0260\3A\5A\u0264\nA\3A\6A\u0267\nA\rA\16"+
+		"A\u0268\3A\3A\7A\u026d\nA\fA\16A\u0270\13A\3A\3A\5A\u0274\nA\3A\6A\u0277"+
+		"\nA\rA\16A\u0278\3A\5A\u027c\nA\3B\3B\3C\3C\3D\3D\5D\u0284\nD\3D\6D\u0287"+
+		"\nD\rD\16D\u0288\3E\3E\3E\3E\7E\u028f\nE\fE\16E\u0292\13E\3E\3E\3F\3F"+
+		"\3F\3F\7F\u029a\nF\fF\16F\u029d\13F\3F\3F\3G\3G\3G\3G\3G\3G\3G\5G\u02a8"+
+		"\nG\3G\3G\3G\5G\u02ad\nG\7G\u02af\nG\fG\16G\u02b2\13G\3G\3G\3G\3G\3H\3"+
+		"H\3H\3H\3H\3H\3H\5H\u02bf\nH\3H\3H\3H\5H\u02c4\nH\7H\u02c6\nH\fH\16H\u02c9"+
 		"\13H\3H\3H\3H\3H\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3I\3"+
-		"I\3I\3I\5I\u02e2\nI\3J\3J\3J\3K\5K\u02e8\nK\3L\3L\5L\u02ec\nL\3M\3M\5"+
-		"M\u02f0\nM\3N\3N\3N\7N\u02f5\nN\fN\16N\u02f8\13N\3N\5N\u02fb\nN\3O\3O"+
-		"\3O\5O\u0300\nO\3O\3O\3O\7O\u0305\nO\fO\16O\u0308\13O\3O\3O\3O\5O\u030d"+
-		"\nO\5O\u030f\nO\3P\3P\5P\u0313\nP\3Q\3Q\3Q\3Q\3R\5R\u031a\nR\3S\3S\3S"+
+		"I\3I\3I\5I\u02e3\nI\3J\3J\3J\3K\5K\u02e9\nK\3L\3L\5L\u02ed\nL\3M\3M\5"+
+		"M\u02f1\nM\3N\3N\3N\7N\u02f6\nN\fN\16N\u02f9\13N\3N\5N\u02fc\nN\3O\3O"+
+		"\3O\5O\u0301\nO\3O\3O\3O\7O\u0306\nO\fO\16O\u0309\13O\3O\3O\3O\5O\u030e"+
+		"\nO\5O\u0310\nO\3P\3P\5P\u0314\nP\3Q\3Q\3Q\3Q\3R\5R\u031b\nR\3S\3S\3S"+
 		"\3T\3T\3U\3U\3V\3V\3W\3W\3X\3X\3Y\3Y\3Z\3Z\3[\3[\3\\\3\\\3]\3]\3^\3^\3"+
 		"_\3_\3`\3`\3a\3a\3b\3b\3c\3c\3d\3d\3e\3e\3f\3f\3g\3g\3h\3h\3i\3i\3j\3"+
 		"j\3k\3k\3l\3l\3m\3m\2\2n\3\3\5\4\7\5\t\6\13\7\r\b\17\t\21\n\23\13\25\f"+
@@ -196,7 +224,7 @@ public class ShExDocLexer extends Lexer {
 		"<\5\2\62;CHch\t\2##%\61==??ABaa\u0080\u0080\4\2CCcc\4\2DDdd\4\2EEee\4"+
 		"\2FFff\4\2HHhh\4\2IIii\4\2JJjj\4\2KKkk\4\2LLll\4\2MMmm\4\2NNnn\4\2OOo"+
 		"o\4\2PPpp\4\2QQqq\4\2RRrr\4\2SSss\4\2TTtt\4\2UUuu\4\2VVvv\4\2WWww\4\2"+
-		"XXxx\4\2YYyy\4\2ZZzz\4\2[[{{\4\2\\\\||\u036b\2\3\3\2\2\2\2\5\3\2\2\2\2"+
+		"XXxx\4\2YYyy\4\2ZZzz\4\2[[{{\4\2\\\\||\u036c\2\3\3\2\2\2\2\5\3\2\2\2\2"+
 		"\7\3\2\2\2\2\t\3\2\2\2\2\13\3\2\2\2\2\r\3\2\2\2\2\17\3\2\2\2\2\21\3\2"+
 		"\2\2\2\23\3\2\2\2\2\25\3\2\2\2\2\27\3\2\2\2\2\31\3\2\2\2\2\33\3\2\2\2"+
 		"\2\35\3\2\2\2\2\37\3\2\2\2\2!\3\2\2\2\2#\3\2\2\2\2%\3\2\2\2\2\'\3\2\2"+
@@ -220,22 +248,22 @@ public class ShExDocLexer extends Lexer {
 		"\2\2M\u0171\3\2\2\2O\u017e\3\2\2\2Q\u018b\3\2\2\2S\u0198\3\2\2\2U\u019f"+
 		"\3\2\2\2W\u01a9\3\2\2\2Y\u01b3\3\2\2\2[\u01bf\3\2\2\2]\u01ce\3\2\2\2_"+
 		"\u01d2\3\2\2\2a\u01d7\3\2\2\2c\u01de\3\2\2\2e\u01e4\3\2\2\2g\u01ed\3\2"+
-		"\2\2i\u01fa\3\2\2\2k\u01fc\3\2\2\2m\u0207\3\2\2\2o\u020b\3\2\2\2q\u020e"+
-		"\3\2\2\2s\u0214\3\2\2\2u\u0218\3\2\2\2w\u0224\3\2\2\2y\u0228\3\2\2\2{"+
-		"\u0239\3\2\2\2}\u024b\3\2\2\2\177\u0253\3\2\2\2\u0081\u0262\3\2\2\2\u0083"+
-		"\u027c\3\2\2\2\u0085\u027e\3\2\2\2\u0087\u0280\3\2\2\2\u0089\u0289\3\2"+
-		"\2\2\u008b\u0294\3\2\2\2\u008d\u029f\3\2\2\2\u008f\u02b6\3\2\2\2\u0091"+
-		"\u02e1\3\2\2\2\u0093\u02e3\3\2\2\2\u0095\u02e7\3\2\2\2\u0097\u02eb\3\2"+
-		"\2\2\u0099\u02ef\3\2\2\2\u009b\u02f1\3\2\2\2\u009d\u02ff\3\2\2\2\u009f"+
-		"\u0312\3\2\2\2\u00a1\u0314\3\2\2\2\u00a3\u0319\3\2\2\2\u00a5\u031b\3\2"+
-		"\2\2\u00a7\u031e\3\2\2\2\u00a9\u0320\3\2\2\2\u00ab\u0322\3\2\2\2\u00ad"+
-		"\u0324\3\2\2\2\u00af\u0326\3\2\2\2\u00b1\u0328\3\2\2\2\u00b3\u032a\3\2"+
-		"\2\2\u00b5\u032c\3\2\2\2\u00b7\u032e\3\2\2\2\u00b9\u0330\3\2\2\2\u00bb"+
-		"\u0332\3\2\2\2\u00bd\u0334\3\2\2\2\u00bf\u0336\3\2\2\2\u00c1\u0338\3\2"+
-		"\2\2\u00c3\u033a\3\2\2\2\u00c5\u033c\3\2\2\2\u00c7\u033e\3\2\2\2\u00c9"+
-		"\u0340\3\2\2\2\u00cb\u0342\3\2\2\2\u00cd\u0344\3\2\2\2\u00cf\u0346\3\2"+
-		"\2\2\u00d1\u0348\3\2\2\2\u00d3\u034a\3\2\2\2\u00d5\u034c\3\2\2\2\u00d7"+
-		"\u034e\3\2\2\2\u00d9\u0350\3\2\2\2\u00db\u00dc\7?\2\2\u00dc\4\3\2\2\2"+
+		"\2\2i\u01fb\3\2\2\2k\u01fd\3\2\2\2m\u0208\3\2\2\2o\u020c\3\2\2\2q\u020f"+
+		"\3\2\2\2s\u0215\3\2\2\2u\u0219\3\2\2\2w\u0225\3\2\2\2y\u0229\3\2\2\2{"+
+		"\u023a\3\2\2\2}\u024c\3\2\2\2\177\u0254\3\2\2\2\u0081\u0263\3\2\2\2\u0083"+
+		"\u027d\3\2\2\2\u0085\u027f\3\2\2\2\u0087\u0281\3\2\2\2\u0089\u028a\3\2"+
+		"\2\2\u008b\u0295\3\2\2\2\u008d\u02a0\3\2\2\2\u008f\u02b7\3\2\2\2\u0091"+
+		"\u02e2\3\2\2\2\u0093\u02e4\3\2\2\2\u0095\u02e8\3\2\2\2\u0097\u02ec\3\2"+
+		"\2\2\u0099\u02f0\3\2\2\2\u009b\u02f2\3\2\2\2\u009d\u0300\3\2\2\2\u009f"+
+		"\u0313\3\2\2\2\u00a1\u0315\3\2\2\2\u00a3\u031a\3\2\2\2\u00a5\u031c\3\2"+
+		"\2\2\u00a7\u031f\3\2\2\2\u00a9\u0321\3\2\2\2\u00ab\u0323\3\2\2\2\u00ad"+
+		"\u0325\3\2\2\2\u00af\u0327\3\2\2\2\u00b1\u0329\3\2\2\2\u00b3\u032b\3\2"+
+		"\2\2\u00b5\u032d\3\2\2\2\u00b7\u032f\3\2\2\2\u00b9\u0331\3\2\2\2\u00bb"+
+		"\u0333\3\2\2\2\u00bd\u0335\3\2\2\2\u00bf\u0337\3\2\2\2\u00c1\u0339\3\2"+
+		"\2\2\u00c3\u033b\3\2\2\2\u00c5\u033d\3\2\2\2\u00c7\u033f\3\2\2\2\u00c9"+
+		"\u0341\3\2\2\2\u00cb\u0343\3\2\2\2\u00cd\u0345\3\2\2\2\u00cf\u0347\3\2"+
+		"\2\2\u00d1\u0349\3\2\2\2\u00d3\u034b\3\2\2\2\u00d5\u034d\3\2\2\2\u00d7"+
+		"\u034f\3\2\2\2\u00d9\u0351\3\2\2\2\u00db\u00dc\7?\2\2\u00dc\4\3\2\2\2"+
 		"\u00dd\u00de\7#\2\2\u00de\6\3\2\2\2\u00df\u00e0\7}\2\2\u00e0\b\3\2\2\2"+
 		"\u00e1\u00e2\7\177\2\2\u00e2\n\3\2\2\2\u00e3\u00e4\7~\2\2\u00e4\f\3\2"+
 		"\2\2\u00e5\u00e6\7=\2\2\u00e6\16\3\2\2\2\u00e7\u00e8\7&\2\2\u00e8\20\3"+
@@ -318,131 +346,131 @@ public class ShExDocLexer extends Lexer {
 		"\2\2\u01e0\u01e1\3\2\2\2\u01e1\u01e2\3\2\2\2\u01e2\u01e3\b\62\2\2\u01e3"+
 		"d\3\2\2\2\u01e4\u01e8\7%\2\2\u01e5\u01e7\n\3\2\2\u01e6\u01e5\3\2\2\2\u01e7"+
 		"\u01ea\3\2\2\2\u01e8\u01e6\3\2\2\2\u01e8\u01e9\3\2\2\2\u01e9\u01eb\3\2"+
-		"\2\2\u01ea\u01e8\3\2\2\2\u01eb\u01ec\b\63\2\2\u01ecf\3\2\2\2\u01ed\u01f4"+
-		"\7}\2\2\u01ee\u01f3\n\4\2\2\u01ef\u01f0\7^\2\2\u01f0\u01f3\t\4\2\2\u01f1"+
-		"\u01f3\5\u0091I\2\u01f2\u01ee\3\2\2\2\u01f2\u01ef\3\2\2\2\u01f2\u01f1"+
-		"\3\2\2\2\u01f3\u01f6\3\2\2\2\u01f4\u01f2\3\2\2\2\u01f4\u01f5\3\2\2\2\u01f5"+
-		"\u01f7\3\2\2\2\u01f6\u01f4\3\2\2\2\u01f7\u01f8\7\'\2\2\u01f8\u01f9\7\177"+
-		"\2\2\u01f9h\3\2\2\2\u01fa\u01fb\7c\2\2\u01fbj\3\2\2\2\u01fc\u0201\7>\2"+
-		"\2\u01fd\u0200\n\5\2\2\u01fe\u0200\5\u0091I\2\u01ff\u01fd\3\2\2\2\u01ff"+
-		"\u01fe\3\2\2\2\u0200\u0203\3\2\2\2\u0201\u01ff\3\2\2\2\u0201\u0202\3\2"+
-		"\2\2\u0202\u0204\3\2\2\2\u0203\u0201\3\2\2\2\u0204\u0205\7@\2\2\u0205"+
-		"l\3\2\2\2\u0206\u0208\5\u009bN\2\u0207\u0206\3\2\2\2\u0207\u0208\3\2\2"+
-		"\2\u0208\u0209\3\2\2\2\u0209\u020a\7<\2\2\u020an\3\2\2\2\u020b\u020c\5"+
-		"m\67\2\u020c\u020d\5\u009dO\2\u020dp\3\2\2\2\u020e\u0210\7B\2\2\u020f"+
-		"\u0211\5\u009bN\2\u0210\u020f\3\2\2\2\u0210\u0211\3\2\2\2\u0211\u0212"+
-		"\3\2\2\2\u0212\u0213\7<\2\2\u0213r\3\2\2\2\u0214\u0215\7B\2\2\u0215\u0216"+
-		"\5m\67\2\u0216\u0217\5\u009dO\2\u0217t\3\2\2\2\u0218\u021d\7\61\2\2\u0219"+
-		"\u021e\n\6\2\2\u021a\u021b\7^\2\2\u021b\u021e\t\7\2\2\u021c\u021e\5\u0091"+
-		"I\2\u021d\u0219\3\2\2\2\u021d\u021a\3\2\2\2\u021d\u021c\3\2\2\2\u021e"+
-		"\u021f\3\2\2\2\u021f\u021d\3\2\2\2\u021f\u0220\3\2\2\2\u0220\u0221\3\2"+
-		"\2\2\u0221\u0222\7\61\2\2\u0222v\3\2\2\2\u0223\u0225\t\b\2\2\u0224\u0223"+
-		"\3\2\2\2\u0225\u0226\3\2\2\2\u0226\u0224\3\2\2\2\u0226\u0227\3\2\2\2\u0227"+
-		"x\3\2\2\2\u0228\u0229\7a\2\2\u0229\u022a\7<\2\2\u022a\u022d\3\2\2\2\u022b"+
-		"\u022e\5\u0097L\2\u022c\u022e\t\t\2\2\u022d\u022b\3\2\2\2\u022d\u022c"+
-		"\3\2\2\2\u022e\u0237\3\2\2\2\u022f\u0232\5\u0099M\2\u0230\u0232\7\60\2"+
-		"\2\u0231\u022f\3\2\2\2\u0231\u0230\3\2\2\2\u0232\u0235\3\2\2\2\u0233\u0231"+
-		"\3\2\2\2\u0233\u0234\3\2\2\2\u0234\u0236\3\2\2\2\u0235\u0233\3\2\2\2\u0236"+
-		"\u0238\5\u0099M\2\u0237\u0233\3\2\2\2\u0237\u0238\3\2\2\2\u0238z\3\2\2"+
-		"\2\u0239\u023b\7B\2\2\u023a\u023c\t\n\2\2\u023b\u023a\3\2\2\2\u023c\u023d"+
-		"\3\2\2\2\u023d\u023b\3\2\2\2\u023d\u023e\3\2\2\2\u023e\u0247\3\2\2\2\u023f"+
-		"\u0241\7/\2\2\u0240\u0242\t\13\2\2\u0241\u0240\3\2\2\2\u0242\u0243\3\2"+
-		"\2\2\u0243\u0241\3\2\2\2\u0243\u0244\3\2\2\2\u0244\u0246\3\2\2\2\u0245"+
-		"\u023f\3\2\2\2\u0246\u0249\3\2\2\2\u0247\u0245\3\2\2\2\u0247\u0248\3\2"+
-		"\2\2\u0248|\3\2\2\2\u0249\u0247\3\2\2\2\u024a\u024c\t\f\2\2\u024b\u024a"+
-		"\3\2\2\2\u024b\u024c\3\2\2\2\u024c\u024e\3\2\2\2\u024d\u024f\t\t\2\2\u024e"+
-		"\u024d\3\2\2\2\u024f\u0250\3\2\2\2\u0250\u024e\3\2\2\2\u0250\u0251\3\2"+
-		"\2\2\u0251~\3\2\2\2\u0252\u0254\t\f\2\2\u0253\u0252\3\2\2\2\u0253\u0254"+
-		"\3\2\2\2\u0254\u0258\3\2\2\2\u0255\u0257\t\t\2\2\u0256\u0255\3\2\2\2\u0257"+
-		"\u025a\3\2\2\2\u0258\u0256\3\2\2\2\u0258\u0259\3\2\2\2\u0259\u025b\3\2"+
-		"\2\2\u025a\u0258\3\2\2\2\u025b\u025d\7\60\2\2\u025c\u025e\t\t\2\2\u025d"+
-		"\u025c\3\2\2\2\u025e\u025f\3\2\2\2\u025f\u025d\3\2\2\2\u025f\u0260\3\2"+
-		"\2\2\u0260\u0080\3\2\2\2\u0261\u0263\t\f\2\2\u0262\u0261\3\2\2\2\u0262"+
-		"\u0263\3\2\2\2\u0263\u027a\3\2\2\2\u0264\u0266\t\t\2\2\u0265\u0264\3\2"+
-		"\2\2\u0266\u0267\3\2\2\2\u0267\u0265\3\2\2\2\u0267\u0268\3\2\2\2\u0268"+
-		"\u0269\3\2\2\2\u0269\u026d\7\60\2\2\u026a\u026c\t\t\2\2\u026b\u026a\3"+
-		"\2\2\2\u026c\u026f\3\2\2\2\u026d\u026b\3\2\2\2\u026d\u026e\3\2\2\2\u026e"+
-		"\u0270\3\2\2\2\u026f\u026d\3\2\2\2\u0270\u027b\5\u0087D\2\u0271\u0273"+
-		"\7\60\2\2\u0272\u0271\3\2\2\2\u0272\u0273\3\2\2\2\u0273\u0275\3\2\2\2"+
-		"\u0274\u0276\t\t\2\2\u0275\u0274\3\2\2\2\u0276\u0277\3\2\2\2\u0277\u0275"+
-		"\3\2\2\2\u0277\u0278\3\2\2\2\u0278\u0279\3\2\2\2\u0279\u027b\5\u0087D"+
-		"\2\u027a\u0265\3\2\2\2\u027a\u0272\3\2\2\2\u027b\u0082\3\2\2\2\u027c\u027d"+
-		"\7\u0080\2\2\u027d\u0084\3\2\2\2\u027e\u027f\7,\2\2\u027f\u0086\3\2\2"+
-		"\2\u0280\u0282\t\r\2\2\u0281\u0283\t\f\2\2\u0282\u0281\3\2\2\2\u0282\u0283"+
-		"\3\2\2\2\u0283\u0285\3\2\2\2\u0284\u0286\t\t\2\2\u0285\u0284\3\2\2\2\u0286"+
-		"\u0287\3\2\2\2\u0287\u0285\3\2\2\2\u0287\u0288\3\2\2\2\u0288\u0088\3\2"+
-		"\2\2\u0289\u028f\7)\2\2\u028a\u028e\n\16\2\2\u028b\u028e\5\u0093J\2\u028c"+
-		"\u028e\5\u0091I\2\u028d\u028a\3\2\2\2\u028d\u028b\3\2\2\2\u028d\u028c"+
-		"\3\2\2\2\u028e\u0291\3\2\2\2\u028f\u028d\3\2\2\2\u028f\u0290\3\2\2\2\u0290"+
-		"\u0292\3\2\2\2\u0291\u028f\3\2\2\2\u0292\u0293\7)\2\2\u0293\u008a\3\2"+
-		"\2\2\u0294\u029a\7$\2\2\u0295\u0299\n\17\2\2\u0296\u0299\5\u0093J\2\u0297"+
-		"\u0299\5\u0091I\2\u0298\u0295\3\2\2\2\u0298\u0296\3\2\2\2\u0298\u0297"+
-		"\3\2\2\2\u0299\u029c\3\2\2\2\u029a\u0298\3\2\2\2\u029a\u029b\3\2\2\2\u029b"+
-		"\u029d\3\2\2\2\u029c\u029a\3\2\2\2\u029d\u029e\7$\2\2\u029e\u008c\3\2"+
-		"\2\2\u029f\u02a0\7)\2\2\u02a0\u02a1\7)\2\2\u02a1\u02a2\7)\2\2\u02a2\u02af"+
-		"\3\2\2\2\u02a3\u02a7\7)\2\2\u02a4\u02a5\7)\2\2\u02a5\u02a7\7)\2\2\u02a6"+
-		"\u02a3\3\2\2\2\u02a6\u02a4\3\2\2\2\u02a6\u02a7\3\2\2\2\u02a7\u02ab\3\2"+
-		"\2\2\u02a8\u02ac\n\20\2\2\u02a9\u02ac\5\u0093J\2\u02aa\u02ac\5\u0091I"+
-		"\2\u02ab\u02a8\3\2\2\2\u02ab\u02a9\3\2\2\2\u02ab\u02aa\3\2\2\2\u02ac\u02ae"+
-		"\3\2\2\2\u02ad\u02a6\3\2\2\2\u02ae\u02b1\3\2\2\2\u02af\u02ad\3\2\2\2\u02af"+
-		"\u02b0\3\2\2\2\u02b0\u02b2\3\2\2\2\u02b1\u02af\3\2\2\2\u02b2\u02b3\7)"+
-		"\2\2\u02b3\u02b4\7)\2\2\u02b4\u02b5\7)\2\2\u02b5\u008e\3\2\2\2\u02b6\u02b7"+
-		"\7$\2\2\u02b7\u02b8\7$\2\2\u02b8\u02b9\7$\2\2\u02b9\u02c6\3\2\2\2\u02ba"+
-		"\u02be\7$\2\2\u02bb\u02bc\7$\2\2\u02bc\u02be\7$\2\2\u02bd\u02ba\3\2\2"+
-		"\2\u02bd\u02bb\3\2\2\2\u02bd\u02be\3\2\2\2\u02be\u02c2\3\2\2\2\u02bf\u02c3"+
-		"\n\21\2\2\u02c0\u02c3\5\u0093J\2\u02c1\u02c3\5\u0091I\2\u02c2\u02bf\3"+
-		"\2\2\2\u02c2\u02c0\3\2\2\2\u02c2\u02c1\3\2\2\2\u02c3\u02c5\3\2\2\2\u02c4"+
-		"\u02bd\3\2\2\2\u02c5\u02c8\3\2\2\2\u02c6\u02c4\3\2\2\2\u02c6\u02c7\3\2"+
-		"\2\2\u02c7\u02c9\3\2\2\2\u02c8\u02c6\3\2\2\2\u02c9\u02ca\7$\2\2\u02ca"+
-		"\u02cb\7$\2\2\u02cb\u02cc\7$\2\2\u02cc\u0090\3\2\2\2\u02cd\u02ce\7^\2"+
-		"\2\u02ce\u02cf\7w\2\2\u02cf\u02d0\3\2\2\2\u02d0\u02d1\5\u00a3R\2\u02d1"+
+		"\2\2\u01ea\u01e8\3\2\2\2\u01eb\u01ec\b\63\2\2\u01ecf\3\2\2\2\u01ed\u01ee"+
+		"\7}\2\2\u01ee\u01f5\6\64\2\2\u01ef\u01f4\n\4\2\2\u01f0\u01f1\7^\2\2\u01f1"+
+		"\u01f4\t\4\2\2\u01f2\u01f4\5\u0091I\2\u01f3\u01ef\3\2\2\2\u01f3\u01f0"+
+		"\3\2\2\2\u01f3\u01f2\3\2\2\2\u01f4\u01f7\3\2\2\2\u01f5\u01f3\3\2\2\2\u01f5"+
+		"\u01f6\3\2\2\2\u01f6\u01f8\3\2\2\2\u01f7\u01f5\3\2\2\2\u01f8\u01f9\7\'"+
+		"\2\2\u01f9\u01fa\7\177\2\2\u01fah\3\2\2\2\u01fb\u01fc\7c\2\2\u01fcj\3"+
+		"\2\2\2\u01fd\u0202\7>\2\2\u01fe\u0201\n\5\2\2\u01ff\u0201\5\u0091I\2\u0200"+
+		"\u01fe\3\2\2\2\u0200\u01ff\3\2\2\2\u0201\u0204\3\2\2\2\u0202\u0200\3\2"+
+		"\2\2\u0202\u0203\3\2\2\2\u0203\u0205\3\2\2\2\u0204\u0202\3\2\2\2\u0205"+
+		"\u0206\7@\2\2\u0206l\3\2\2\2\u0207\u0209\5\u009bN\2\u0208\u0207\3\2\2"+
+		"\2\u0208\u0209\3\2\2\2\u0209\u020a\3\2\2\2\u020a\u020b\7<\2\2\u020bn\3"+
+		"\2\2\2\u020c\u020d\5m\67\2\u020d\u020e\5\u009dO\2\u020ep\3\2\2\2\u020f"+
+		"\u0211\7B\2\2\u0210\u0212\5\u009bN\2\u0211\u0210\3\2\2\2\u0211\u0212\3"+
+		"\2\2\2\u0212\u0213\3\2\2\2\u0213\u0214\7<\2\2\u0214r\3\2\2\2\u0215\u0216"+
+		"\7B\2\2\u0216\u0217\5m\67\2\u0217\u0218\5\u009dO\2\u0218t\3\2\2\2\u0219"+
+		"\u021e\7\61\2\2\u021a\u021f\n\6\2\2\u021b\u021c\7^\2\2\u021c\u021f\t\7"+
+		"\2\2\u021d\u021f\5\u0091I\2\u021e\u021a\3\2\2\2\u021e\u021b\3\2\2\2\u021e"+
+		"\u021d\3\2\2\2\u021f\u0220\3\2\2\2\u0220\u021e\3\2\2\2\u0220\u0221\3\2"+
+		"\2\2\u0221\u0222\3\2\2\2\u0222\u0223\7\61\2\2\u0223v\3\2\2\2\u0224\u0226"+
+		"\t\b\2\2\u0225\u0224\3\2\2\2\u0226\u0227\3\2\2\2\u0227\u0225\3\2\2\2\u0227"+
+		"\u0228\3\2\2\2\u0228x\3\2\2\2\u0229\u022a\7a\2\2\u022a\u022b\7<\2\2\u022b"+
+		"\u022e\3\2\2\2\u022c\u022f\5\u0097L\2\u022d\u022f\t\t\2\2\u022e\u022c"+
+		"\3\2\2\2\u022e\u022d\3\2\2\2\u022f\u0238\3\2\2\2\u0230\u0233\5\u0099M"+
+		"\2\u0231\u0233\7\60\2\2\u0232\u0230\3\2\2\2\u0232\u0231\3\2\2\2\u0233"+
+		"\u0236\3\2\2\2\u0234\u0232\3\2\2\2\u0234\u0235\3\2\2\2\u0235\u0237\3\2"+
+		"\2\2\u0236\u0234\3\2\2\2\u0237\u0239\5\u0099M\2\u0238\u0234\3\2\2\2\u0238"+
+		"\u0239\3\2\2\2\u0239z\3\2\2\2\u023a\u023c\7B\2\2\u023b\u023d\t\n\2\2\u023c"+
+		"\u023b\3\2\2\2\u023d\u023e\3\2\2\2\u023e\u023c\3\2\2\2\u023e\u023f\3\2"+
+		"\2\2\u023f\u0248\3\2\2\2\u0240\u0242\7/\2\2\u0241\u0243\t\13\2\2\u0242"+
+		"\u0241\3\2\2\2\u0243\u0244\3\2\2\2\u0244\u0242\3\2\2\2\u0244\u0245\3\2"+
+		"\2\2\u0245\u0247\3\2\2\2\u0246\u0240\3\2\2\2\u0247\u024a\3\2\2\2\u0248"+
+		"\u0246\3\2\2\2\u0248\u0249\3\2\2\2\u0249|\3\2\2\2\u024a\u0248\3\2\2\2"+
+		"\u024b\u024d\t\f\2\2\u024c\u024b\3\2\2\2\u024c\u024d\3\2\2\2\u024d\u024f"+
+		"\3\2\2\2\u024e\u0250\t\t\2\2\u024f\u024e\3\2\2\2\u0250\u0251\3\2\2\2\u0251"+
+		"\u024f\3\2\2\2\u0251\u0252\3\2\2\2\u0252~\3\2\2\2\u0253\u0255\t\f\2\2"+
+		"\u0254\u0253\3\2\2\2\u0254\u0255\3\2\2\2\u0255\u0259\3\2\2\2\u0256\u0258"+
+		"\t\t\2\2\u0257\u0256\3\2\2\2\u0258\u025b\3\2\2\2\u0259\u0257\3\2\2\2\u0259"+
+		"\u025a\3\2\2\2\u025a\u025c\3\2\2\2\u025b\u0259\3\2\2\2\u025c\u025e\7\60"+
+		"\2\2\u025d\u025f\t\t\2\2\u025e\u025d\3\2\2\2\u025f\u0260\3\2\2\2\u0260"+
+		"\u025e\3\2\2\2\u0260\u0261\3\2\2\2\u0261\u0080\3\2\2\2\u0262\u0264\t\f"+
+		"\2\2\u0263\u0262\3\2\2\2\u0263\u0264\3\2\2\2\u0264\u027b\3\2\2\2\u0265"+
+		"\u0267\t\t\2\2\u0266\u0265\3\2\2\2\u0267\u0268\3\2\2\2\u0268\u0266\3\2"+
+		"\2\2\u0268\u0269\3\2\2\2\u0269\u026a\3\2\2\2\u026a\u026e\7\60\2\2\u026b"+
+		"\u026d\t\t\2\2\u026c\u026b\3\2\2\2\u026d\u0270\3\2\2\2\u026e\u026c\3\2"+
+		"\2\2\u026e\u026f\3\2\2\2\u026f\u0271\3\2\2\2\u0270\u026e\3\2\2\2\u0271"+
+		"\u027c\5\u0087D\2\u0272\u0274\7\60\2\2\u0273\u0272\3\2\2\2\u0273\u0274"+
+		"\3\2\2\2\u0274\u0276\3\2\2\2\u0275\u0277\t\t\2\2\u0276\u0275\3\2\2\2\u0277"+
+		"\u0278\3\2\2\2\u0278\u0276\3\2\2\2\u0278\u0279\3\2\2\2\u0279\u027a\3\2"+
+		"\2\2\u027a\u027c\5\u0087D\2\u027b\u0266\3\2\2\2\u027b\u0273\3\2\2\2\u027c"+
+		"\u0082\3\2\2\2\u027d\u027e\7\u0080\2\2\u027e\u0084\3\2\2\2\u027f\u0280"+
+		"\7,\2\2\u0280\u0086\3\2\2\2\u0281\u0283\t\r\2\2\u0282\u0284\t\f\2\2\u0283"+
+		"\u0282\3\2\2\2\u0283\u0284\3\2\2\2\u0284\u0286\3\2\2\2\u0285\u0287\t\t"+
+		"\2\2\u0286\u0285\3\2\2\2\u0287\u0288\3\2\2\2\u0288\u0286\3\2\2\2\u0288"+
+		"\u0289\3\2\2\2\u0289\u0088\3\2\2\2\u028a\u0290\7)\2\2\u028b\u028f\n\16"+
+		"\2\2\u028c\u028f\5\u0093J\2\u028d\u028f\5\u0091I\2\u028e\u028b\3\2\2\2"+
+		"\u028e\u028c\3\2\2\2\u028e\u028d\3\2\2\2\u028f\u0292\3\2\2\2\u0290\u028e"+
+		"\3\2\2\2\u0290\u0291\3\2\2\2\u0291\u0293\3\2\2\2\u0292\u0290\3\2\2\2\u0293"+
+		"\u0294\7)\2\2\u0294\u008a\3\2\2\2\u0295\u029b\7$\2\2\u0296\u029a\n\17"+
+		"\2\2\u0297\u029a\5\u0093J\2\u0298\u029a\5\u0091I\2\u0299\u0296\3\2\2\2"+
+		"\u0299\u0297\3\2\2\2\u0299\u0298\3\2\2\2\u029a\u029d\3\2\2\2\u029b\u0299"+
+		"\3\2\2\2\u029b\u029c\3\2\2\2\u029c\u029e\3\2\2\2\u029d\u029b\3\2\2\2\u029e"+
+		"\u029f\7$\2\2\u029f\u008c\3\2\2\2\u02a0\u02a1\7)\2\2\u02a1\u02a2\7)\2"+
+		"\2\u02a2\u02a3\7)\2\2\u02a3\u02b0\3\2\2\2\u02a4\u02a8\7)\2\2\u02a5\u02a6"+
+		"\7)\2\2\u02a6\u02a8\7)\2\2\u02a7\u02a4\3\2\2\2\u02a7\u02a5\3\2\2\2\u02a7"+
+		"\u02a8\3\2\2\2\u02a8\u02ac\3\2\2\2\u02a9\u02ad\n\20\2\2\u02aa\u02ad\5"+
+		"\u0093J\2\u02ab\u02ad\5\u0091I\2\u02ac\u02a9\3\2\2\2\u02ac\u02aa\3\2\2"+
+		"\2\u02ac\u02ab\3\2\2\2\u02ad\u02af\3\2\2\2\u02ae\u02a7\3\2\2\2\u02af\u02b2"+
+		"\3\2\2\2\u02b0\u02ae\3\2\2\2\u02b0\u02b1\3\2\2\2\u02b1\u02b3\3\2\2\2\u02b2"+
+		"\u02b0\3\2\2\2\u02b3\u02b4\7)\2\2\u02b4\u02b5\7)\2\2\u02b5\u02b6\7)\2"+
+		"\2\u02b6\u008e\3\2\2\2\u02b7\u02b8\7$\2\2\u02b8\u02b9\7$\2\2\u02b9\u02ba"+
+		"\7$\2\2\u02ba\u02c7\3\2\2\2\u02bb\u02bf\7$\2\2\u02bc\u02bd\7$\2\2\u02bd"+
+		"\u02bf\7$\2\2\u02be\u02bb\3\2\2\2\u02be\u02bc\3\2\2\2\u02be\u02bf\3\2"+
+		"\2\2\u02bf\u02c3\3\2\2\2\u02c0\u02c4\n\21\2\2\u02c1\u02c4\5\u0093J\2\u02c2"+
+		"\u02c4\5\u0091I\2\u02c3\u02c0\3\2\2\2\u02c3\u02c1\3\2\2\2\u02c3\u02c2"+
+		"\3\2\2\2\u02c4\u02c6\3\2\2\2\u02c5\u02be\3\2\2\2\u02c6\u02c9\3\2\2\2\u02c7"+
+		"\u02c5\3\2\2\2\u02c7\u02c8\3\2\2\2\u02c8\u02ca\3\2\2\2\u02c9\u02c7\3\2"+
+		"\2\2\u02ca\u02cb\7$\2\2\u02cb\u02cc\7$\2\2\u02cc\u02cd\7$\2\2\u02cd\u0090"+
+		"\3\2\2\2\u02ce\u02cf\7^\2\2\u02cf\u02d0\7w\2\2\u02d0\u02d1\3\2\2\2\u02d1"+
 		"\u02d2\5\u00a3R\2\u02d2\u02d3\5\u00a3R\2\u02d3\u02d4\5\u00a3R\2\u02d4"+
-		"\u02e2\3\2\2\2\u02d5\u02d6\7^\2\2\u02d6\u02d7\7W\2\2\u02d7\u02d8\3\2\2"+
-		"\2\u02d8\u02d9\5\u00a3R\2\u02d9\u02da\5\u00a3R\2\u02da\u02db\5\u00a3R"+
+		"\u02d5\5\u00a3R\2\u02d5\u02e3\3\2\2\2\u02d6\u02d7\7^\2\2\u02d7\u02d8\7"+
+		"W\2\2\u02d8\u02d9\3\2\2\2\u02d9\u02da\5\u00a3R\2\u02da\u02db\5\u00a3R"+
 		"\2\u02db\u02dc\5\u00a3R\2\u02dc\u02dd\5\u00a3R\2\u02dd\u02de\5\u00a3R"+
-		"\2\u02de\u02df\5\u00a3R\2\u02df\u02e0\5\u00a3R\2\u02e0\u02e2\3\2\2\2\u02e1"+
-		"\u02cd\3\2\2\2\u02e1\u02d5\3\2\2\2\u02e2\u0092\3\2\2\2\u02e3\u02e4\7^"+
-		"\2\2\u02e4\u02e5\t\22\2\2\u02e5\u0094\3\2\2\2\u02e6\u02e8\t\23\2\2\u02e7"+
-		"\u02e6\3\2\2\2\u02e8\u0096\3\2\2\2\u02e9\u02ec\5\u0095K\2\u02ea\u02ec"+
-		"\7a\2\2\u02eb\u02e9\3\2\2\2\u02eb\u02ea\3\2\2\2\u02ec\u0098\3\2\2\2\u02ed"+
-		"\u02f0\5\u0097L\2\u02ee\u02f0\t\24\2\2\u02ef\u02ed\3\2\2\2\u02ef\u02ee"+
-		"\3\2\2\2\u02f0\u009a\3\2\2\2\u02f1\u02fa\5\u0095K\2\u02f2\u02f5\5\u0099"+
-		"M\2\u02f3\u02f5\7\60\2\2\u02f4\u02f2\3\2\2\2\u02f4\u02f3\3\2\2\2\u02f5"+
-		"\u02f8\3\2\2\2\u02f6\u02f4\3\2\2\2\u02f6\u02f7\3\2\2\2\u02f7\u02f9\3\2"+
-		"\2\2\u02f8\u02f6\3\2\2\2\u02f9\u02fb\5\u0099M\2\u02fa\u02f6\3\2\2\2\u02fa"+
-		"\u02fb\3\2\2\2\u02fb\u009c\3\2\2\2\u02fc\u0300\5\u0097L\2\u02fd\u0300"+
-		"\4\62<\2\u02fe\u0300\5\u009fP\2\u02ff\u02fc\3\2\2\2\u02ff\u02fd\3\2\2"+
-		"\2\u02ff\u02fe\3\2\2\2\u0300\u030e\3\2\2\2\u0301\u0305\5\u0099M\2\u0302"+
-		"\u0305\t\25\2\2\u0303\u0305\5\u009fP\2\u0304\u0301\3\2\2\2\u0304\u0302"+
-		"\3\2\2\2\u0304\u0303\3\2\2\2\u0305\u0308\3\2\2\2\u0306\u0304\3\2\2\2\u0306"+
-		"\u0307\3\2\2\2\u0307\u030c\3\2\2\2\u0308\u0306\3\2\2\2\u0309\u030d\5\u0099"+
-		"M\2\u030a\u030d\7<\2\2\u030b\u030d\5\u009fP\2\u030c\u0309\3\2\2\2\u030c"+
-		"\u030a\3\2\2\2\u030c\u030b\3\2\2\2\u030d\u030f\3\2\2\2\u030e\u0306\3\2"+
-		"\2\2\u030e\u030f\3\2\2\2\u030f\u009e\3\2\2\2\u0310\u0313\5\u00a1Q\2\u0311"+
-		"\u0313\5\u00a5S\2\u0312\u0310\3\2\2\2\u0312\u0311\3\2\2\2\u0313\u00a0"+
-		"\3\2\2\2\u0314\u0315\7\'\2\2\u0315\u0316\5\u00a3R\2\u0316\u0317\5\u00a3"+
-		"R\2\u0317\u00a2\3\2\2\2\u0318\u031a\t\26\2\2\u0319\u0318\3\2\2\2\u031a"+
-		"\u00a4\3\2\2\2\u031b\u031c\7^\2\2\u031c\u031d\t\27\2\2\u031d\u00a6\3\2"+
-		"\2\2\u031e\u031f\t\30\2\2\u031f\u00a8\3\2\2\2\u0320\u0321\t\31\2\2\u0321"+
-		"\u00aa\3\2\2\2\u0322\u0323\t\32\2\2\u0323\u00ac\3\2\2\2\u0324\u0325\t"+
-		"\33\2\2\u0325\u00ae\3\2\2\2\u0326\u0327\t\r\2\2\u0327\u00b0\3\2\2\2\u0328"+
-		"\u0329\t\34\2\2\u0329\u00b2\3\2\2\2\u032a\u032b\t\35\2\2\u032b\u00b4\3"+
-		"\2\2\2\u032c\u032d\t\36\2\2\u032d\u00b6\3\2\2\2\u032e\u032f\t\37\2\2\u032f"+
-		"\u00b8\3\2\2\2\u0330\u0331\t \2\2\u0331\u00ba\3\2\2\2\u0332\u0333\t!\2"+
-		"\2\u0333\u00bc\3\2\2\2\u0334\u0335\t\"\2\2\u0335\u00be\3\2\2\2\u0336\u0337"+
-		"\t#\2\2\u0337\u00c0\3\2\2\2\u0338\u0339\t$\2\2\u0339\u00c2\3\2\2\2\u033a"+
-		"\u033b\t%\2\2\u033b\u00c4\3\2\2\2\u033c\u033d\t&\2\2\u033d\u00c6\3\2\2"+
-		"\2\u033e\u033f\t\'\2\2\u033f\u00c8\3\2\2\2\u0340\u0341\t(\2\2\u0341\u00ca"+
-		"\3\2\2\2\u0342\u0343\t)\2\2\u0343\u00cc\3\2\2\2\u0344\u0345\t*\2\2\u0345"+
-		"\u00ce\3\2\2\2\u0346\u0347\t+\2\2\u0347\u00d0\3\2\2\2\u0348\u0349\t,\2"+
-		"\2\u0349\u00d2\3\2\2\2\u034a\u034b\t-\2\2\u034b\u00d4\3\2\2\2\u034c\u034d"+
-		"\t.\2\2\u034d\u00d6\3\2\2\2\u034e\u034f\t/\2\2\u034f\u00d8\3\2\2\2\u0350"+
-		"\u0351\t\60\2\2\u0351\u00da\3\2\2\2:\2\u01e0\u01e8\u01f2\u01f4\u01ff\u0201"+
-		"\u0207\u0210\u021d\u021f\u0226\u022d\u0231\u0233\u0237\u023d\u0243\u0247"+
-		"\u024b\u0250\u0253\u0258\u025f\u0262\u0267\u026d\u0272\u0277\u027a\u0282"+
-		"\u0287\u028d\u028f\u0298\u029a\u02a6\u02ab\u02af\u02bd\u02c2\u02c6\u02e1"+
-		"\u02e7\u02eb\u02ef\u02f4\u02f6\u02fa\u02ff\u0304\u0306\u030c\u030e\u0312"+
-		"\u0319\3\b\2\2";
+		"\2\u02de\u02df\5\u00a3R\2\u02df\u02e0\5\u00a3R\2\u02e0\u02e1\5\u00a3R"+
+		"\2\u02e1\u02e3\3\2\2\2\u02e2\u02ce\3\2\2\2\u02e2\u02d6\3\2\2\2\u02e3\u0092"+
+		"\3\2\2\2\u02e4\u02e5\7^\2\2\u02e5\u02e6\t\22\2\2\u02e6\u0094\3\2\2\2\u02e7"+
+		"\u02e9\t\23\2\2\u02e8\u02e7\3\2\2\2\u02e9\u0096\3\2\2\2\u02ea\u02ed\5"+
+		"\u0095K\2\u02eb\u02ed\7a\2\2\u02ec\u02ea\3\2\2\2\u02ec\u02eb\3\2\2\2\u02ed"+
+		"\u0098\3\2\2\2\u02ee\u02f1\5\u0097L\2\u02ef\u02f1\t\24\2\2\u02f0\u02ee"+
+		"\3\2\2\2\u02f0\u02ef\3\2\2\2\u02f1\u009a\3\2\2\2\u02f2\u02fb\5\u0095K"+
+		"\2\u02f3\u02f6\5\u0099M\2\u02f4\u02f6\7\60\2\2\u02f5\u02f3\3\2\2\2\u02f5"+
+		"\u02f4\3\2\2\2\u02f6\u02f9\3\2\2\2\u02f7\u02f5\3\2\2\2\u02f7\u02f8\3\2"+
+		"\2\2\u02f8\u02fa\3\2\2\2\u02f9\u02f7\3\2\2\2\u02fa\u02fc\5\u0099M\2\u02fb"+
+		"\u02f7\3\2\2\2\u02fb\u02fc\3\2\2\2\u02fc\u009c\3\2\2\2\u02fd\u0301\5\u0097"+
+		"L\2\u02fe\u0301\4\62<\2\u02ff\u0301\5\u009fP\2\u0300\u02fd\3\2\2\2\u0300"+
+		"\u02fe\3\2\2\2\u0300\u02ff\3\2\2\2\u0301\u030f\3\2\2\2\u0302\u0306\5\u0099"+
+		"M\2\u0303\u0306\t\25\2\2\u0304\u0306\5\u009fP\2\u0305\u0302\3\2\2\2\u0305"+
+		"\u0303\3\2\2\2\u0305\u0304\3\2\2\2\u0306\u0309\3\2\2\2\u0307\u0305\3\2"+
+		"\2\2\u0307\u0308\3\2\2\2\u0308\u030d\3\2\2\2\u0309\u0307\3\2\2\2\u030a"+
+		"\u030e\5\u0099M\2\u030b\u030e\7<\2\2\u030c\u030e\5\u009fP\2\u030d\u030a"+
+		"\3\2\2\2\u030d\u030b\3\2\2\2\u030d\u030c\3\2\2\2\u030e\u0310\3\2\2\2\u030f"+
+		"\u0307\3\2\2\2\u030f\u0310\3\2\2\2\u0310\u009e\3\2\2\2\u0311\u0314\5\u00a1"+
+		"Q\2\u0312\u0314\5\u00a5S\2\u0313\u0311\3\2\2\2\u0313\u0312\3\2\2\2\u0314"+
+		"\u00a0\3\2\2\2\u0315\u0316\7\'\2\2\u0316\u0317\5\u00a3R\2\u0317\u0318"+
+		"\5\u00a3R\2\u0318\u00a2\3\2\2\2\u0319\u031b\t\26\2\2\u031a\u0319\3\2\2"+
+		"\2\u031b\u00a4\3\2\2\2\u031c\u031d\7^\2\2\u031d\u031e\t\27\2\2\u031e\u00a6"+
+		"\3\2\2\2\u031f\u0320\t\30\2\2\u0320\u00a8\3\2\2\2\u0321\u0322\t\31\2\2"+
+		"\u0322\u00aa\3\2\2\2\u0323\u0324\t\32\2\2\u0324\u00ac\3\2\2\2\u0325\u0326"+
+		"\t\33\2\2\u0326\u00ae\3\2\2\2\u0327\u0328\t\r\2\2\u0328\u00b0\3\2\2\2"+
+		"\u0329\u032a\t\34\2\2\u032a\u00b2\3\2\2\2\u032b\u032c\t\35\2\2\u032c\u00b4"+
+		"\3\2\2\2\u032d\u032e\t\36\2\2\u032e\u00b6\3\2\2\2\u032f\u0330\t\37\2\2"+
+		"\u0330\u00b8\3\2\2\2\u0331\u0332\t \2\2\u0332\u00ba\3\2\2\2\u0333\u0334"+
+		"\t!\2\2\u0334\u00bc\3\2\2\2\u0335\u0336\t\"\2\2\u0336\u00be\3\2\2\2\u0337"+
+		"\u0338\t#\2\2\u0338\u00c0\3\2\2\2\u0339\u033a\t$\2\2\u033a\u00c2\3\2\2"+
+		"\2\u033b\u033c\t%\2\2\u033c\u00c4\3\2\2\2\u033d\u033e\t&\2\2\u033e\u00c6"+
+		"\3\2\2\2\u033f\u0340\t\'\2\2\u0340\u00c8\3\2\2\2\u0341\u0342\t(\2\2\u0342"+
+		"\u00ca\3\2\2\2\u0343\u0344\t)\2\2\u0344\u00cc\3\2\2\2\u0345\u0346\t*\2"+
+		"\2\u0346\u00ce\3\2\2\2\u0347\u0348\t+\2\2\u0348\u00d0\3\2\2\2\u0349\u034a"+
+		"\t,\2\2\u034a\u00d2\3\2\2\2\u034b\u034c\t-\2\2\u034c\u00d4\3\2\2\2\u034d"+
+		"\u034e\t.\2\2\u034e\u00d6\3\2\2\2\u034f\u0350\t/\2\2\u0350\u00d8\3\2\2"+
+		"\2\u0351\u0352\t\60\2\2\u0352\u00da\3\2\2\2:\2\u01e0\u01e8\u01f3\u01f5"+
+		"\u0200\u0202\u0208\u0211\u021e\u0220\u0227\u022e\u0232\u0234\u0238\u023e"+
+		"\u0244\u0248\u024c\u0251\u0254\u0259\u0260\u0263\u0268\u026e\u0273\u0278"+
+		"\u027b\u0283\u0288\u028e\u0290\u0299\u029b\u02a7\u02ac\u02b0\u02be\u02c3"+
+		"\u02c7\u02e2\u02e8\u02ec\u02f0\u02f5\u02f7\u02fb\u0300\u0305\u0307\u030d"+
+		"\u030f\u0313\u031a\3\b\2\2";
 	public static final ATN _ATN =
 		new ATNDeserializer().deserialize(_serializedATN.toCharArray());
 	static {
@@ -21,7 +21,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.math.BigDecimal;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -31,7 +31,9 @@ import java.util.Map;
 import java.util.Set;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.NotNull;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -107,24 +109,44 @@ public class ShExCParser extends ShExDocBaseVisitor<Object> implements Parser  {
 	
 	public Map<Label,ShapeExpr> getRules(Path path) throws Exception{
 		this.filename=path;
-		InputStream is = new FileInputStream(path.toFile());
-		return getRules(is);		
+		try (InputStream is = new FileInputStream(path.toFile())) {
+			return getRules(is);
+		}
 	}
 	
+	/** Parses a schema encoded in UTF-8, as required by the ShExC specification.
+	 */
 	public Map<Label,ShapeExpr> getRules(InputStream is) throws Exception{
-		Reader isr = new InputStreamReader(is,Charset.defaultCharset().name());
-		ANTLRInputStream inputStream = new ANTLRInputStream(isr);
+		Reader isr = new InputStreamReader(is,StandardCharsets.UTF_8);
+		return getRules(new ANTLRInputStream(isr));
+	}
+	
+	/** Parses with the fast SLL prediction first, and with the full LL prediction only if the SLL parsing fails. 
+	 * The SLL prediction can fail on a correct input but never accepts an incorrect one, and it is sufficient for almost all the schemas. 
+	 * The syntax errors are always reported by the LL parsing.
+	 */
+	private Map<Label,ShapeExpr> getRules(CharStream inputStream) {
         ShExDocLexer ShExDocLexer = new ShExDocLexer(inputStream);
         ShExDocLexer.removeErrorListeners();
         ShExDocLexer.addErrorListener(new ShExCErrorListener());
         CommonTokenStream commonTokenStream = new CommonTokenStream(ShExDocLexer);
+        // the lexing errors are reported before the parsing
+        commonTokenStream.fill();
         ShExDocParser ShExDocParser = new ShExDocParser(commonTokenStream);   
         
         ShExDocParser.setErrorHandler(new ShExCErrorStrategy());
         ShExDocParser.removeErrorListeners();
-        ShExDocParser.addErrorListener(new ShExCErrorListener());
+        ShExDocParser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        ShExDocParser.ShExDocContext context;
+        try {
+        	context = ShExDocParser.shExDoc();
+        } catch (ParseCancellationException e) {
+        	ShExDocParser.reset();
+        	ShExDocParser.addErrorListener(new ShExCErrorListener());
+        	ShExDocParser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        	context = ShExDocParser.shExDoc();
+        }
         
-        ShExDocParser.ShExDocContext context = ShExDocParser.shExDoc();      
         rules = new HashMap<Label,ShapeExpr>();
         prefixes = new HashMap<String,String>();
         imports = new ArrayList<String>();
@@ -916,11 +938,12 @@ public class ShExCParser extends ShExDocBaseVisitor<Object> implements Parser  {
 		if (ctx.PNAME_NS()!=null)
 			return rdfFactory.createIRI(prefixes.get(ctx.PNAME_NS().getText()));
 
-		String prefix = ctx.PNAME_LN().getText().split(":")[0]+":";
+		String name = ctx.PNAME_LN().getText();
+		int colon = name.indexOf(':');
+		String prefix = name.substring(0, colon+1);
 		if (!prefixes.containsKey(prefix))
 			throw new ParseCancellationException("Unknown prefix: "+prefix);
-		String value = (ctx.PNAME_LN().getText().replaceAll(prefix, prefixes.get(prefix)));
-		return rdfFactory.createIRI(value); 
+		return rdfFactory.createIRI(prefixes.get(prefix)+name.substring(colon+1)); 
 	}
 
 	
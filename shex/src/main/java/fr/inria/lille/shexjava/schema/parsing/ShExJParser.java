@@ -19,7 +19,6 @@ package fr.inria.lille.shexjava.schema.parsing;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.math.BigDecimal;
-import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -35,7 +34,9 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 
-import com.github.jsonldjava.utils.JsonUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.inria.lille.shexjava.graph.TCProperty;
 import fr.inria.lille.shexjava.schema.Label;
@@ -82,6 +83,7 @@ import fr.inria.lille.shexjava.util.Interval;
 @SuppressWarnings("rawtypes")
 public class ShExJParser implements Parser{
 	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static ObjectMapper JSON_MAPPER = new ObjectMapper();
 	private List<String> imports;
 	private Path path;
 
@@ -91,46 +93,62 @@ public class ShExJParser implements Parser{
 
 	// Schema 	{ 	startActs:[SemAct]? start: shapeExpr? shapes:[shapeExpr+]? }
 	public Map<Label,ShapeExpr> getRules(Path path) throws Exception  {
-		InputStream inputStream = new FileInputStream(path.toFile());
-		return getRules(inputStream);
+		try (InputStream inputStream = new FileInputStream(path.toFile())) {
+			return getRules(inputStream);
+		}
 	}
 		
+	/** Reads the schema as a stream of json tokens. Only the json tree of the shape expression being parsed is kept in memory, 
+	 * so that the memory used does not depend on the number of shapes of the schema. The encoding (UTF-8, UTF-16 or UTF-32) is detected from the first bytes of the stream.
+	 */
 	public Map<Label,ShapeExpr> getRules(InputStream is) throws Exception{
 		imports = new ArrayList<>();
-
-		Object schemaObject = JsonUtils.fromInputStream(is,Charset.defaultCharset().name());
-		
-		Map map = (Map) schemaObject;
-
-		if (! "Schema".equals(getType(map))) {
-			throw new ParseException("The type of a schema should be a schema.",-1);	
-		}
-
-		if (map.containsKey("startActs")) {
-			System.err.println("startActs not supported.");
-		}
-
-		if (map.containsKey("start")) {
-			throw new UnsupportedOperationException("Start action not supported.");
-		}
+		Map<Label,ShapeExpr> rules = new HashMap<Label,ShapeExpr>();
+		String type = null;
 		
-		if (map.containsKey("imports")){
-			if (map.get("imports") instanceof String) {
-				imports.add((String) map.get("imports"));
-			}else {
-				imports.addAll((List<String>) map.get("imports"));
+		try (JsonParser parser = JSON_MAPPER.getFactory().createParser(is)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				throw new ParseException("The schema should be a json object.",-1);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				switch (field) {
+				case "type":
+					type = parser.getValueAsString();
+					break;
+				case "startActs":
+					System.err.println("startActs not supported.");
+					parser.skipChildren();
+					break;
+				case "start":
+					throw new UnsupportedOperationException("Start action not supported.");
+				case "imports":
+					Object imp = parser.readValueAs(Object.class);
+					if (imp instanceof String) {
+						imports.add((String) imp);
+					}else {
+						imports.addAll((List<String>) imp);
+					}
+					break;
+				case "shapes":
+					if (parser.currentToken() != JsonToken.START_ARRAY)
+						throw new ParseException("The shapes of a schema should be an array.",-1);
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						Map shape = parser.readValueAs(Map.class);
+						ShapeExpr shexpr = parseShapeExpression(shape);
+						if (rules.containsKey(shexpr.getId()))
+							throw new IllegalArgumentException("Label "+shexpr.getId()+" allready used.");
+						rules.put(shexpr.getId(), shexpr);
+					}
+					break;
+				default:
+					parser.skipChildren();
+				}
 			}
 		}
-		List shapes = (List) (map.get("shapes"));
-
-		Map<Label,ShapeExpr> rules = new HashMap<Label,ShapeExpr>();
-
-		for (Object shapeObj : shapes) {
-			Map shape = (Map) shapeObj;
-			ShapeExpr shexpr = parseShapeExpression(shape);
-			if (rules.containsKey(shexpr.getId()))
-				throw new IllegalArgumentException("Label "+shexpr.getId()+" allready used.");
-			rules.put(shexpr.getId(), shexpr);
+		
+		if (! "Schema".equals(type)) {
+			throw new ParseException("The type of a schema should be a schema.",-1);	
 		}
 
 		return rules;
@@ -209,7 +227,7 @@ public class ShExJParser implements Parser{
 
 	// ShapeNot 	{ 	id:Label? shapeExpr:shapeExpr }
 	protected ShapeExpr parseShapeNot (Map map) {
-		Map shapeExpr = (Map) map.get("shapeExpr");
+		Object shapeExpr = map.get("shapeExpr");
 		ShapeExpr subExpr = parseShapeExpression(shapeExpr);
 		ShapeExpr res = new ShapeNot(subExpr);
 		setShapeId(res, map);
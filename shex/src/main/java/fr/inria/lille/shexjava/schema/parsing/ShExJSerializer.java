@@ -16,22 +16,24 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.schema.parsing;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.jena.ext.com.google.common.io.Files;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerationException;
-import com.github.jsonldjava.utils.JsonUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.inria.lille.shexjava.graph.TCProperty;
 import fr.inria.lille.shexjava.schema.Label;
@@ -75,11 +77,30 @@ import fr.inria.lille.shexjava.util.Interval;
  */
 public class ShExJSerializer {
 	
+	private final static ObjectMapper JSON_MAPPER = new ObjectMapper();
+	
 	public static void ToJson(ShexSchema schema, Path destination) throws JsonGenerationException, IOException {
-		Object json = ToJson(schema.getRules());
-		//FileWriter fw = new FileWriter(destination.toFile());
-		BufferedWriter fw = Files.newWriter(destination.toFile(), Charset.defaultCharset());
-		JsonUtils.writePrettyPrint(fw, json);
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(destination))) {
+			ToJson(schema, out);
+		}
+	}
+	
+	/** Writes the schema in UTF-8 one shape at a time, so that the json tree of the whole schema is never built in memory. 
+	 * The stream is not closed. 
+	 */
+	public static void ToJson(ShexSchema schema, OutputStream destination) throws JsonGenerationException, IOException {
+		JsonGenerator generator = JSON_MAPPER.getFactory().createGenerator(destination, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.useDefaultPrettyPrinter();
+		generator.writeStartObject();
+		generator.writeStringField("@context","http://www.w3.org/ns/shex.jsonld");
+		generator.writeStringField("type", "Schema");
+		generator.writeArrayFieldStart("shapes");
+		for (ShapeExpr shape:schema.getRules().values())
+			generator.writeObject(convertShapeExpr(shape));
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.close();
 	}
 
 	public static Object ToJson(Map<Label,ShapeExpr> rules) {
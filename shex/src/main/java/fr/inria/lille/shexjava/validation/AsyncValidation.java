@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Validates nodes asynchronously, the results being given by {@link CompletableFuture}.
+ * 
+ * <p>The validations are run by an executor, each of them with an algorithm that is not used by any other validation at the same time. 
+ * The algorithms are created by a factory when needed and reused afterward, at most as many idle algorithms being kept as validations 
+ * can run at the same time, the others being dropped. 
+ * When the graph is remote or stored on disk, most of the time of a validation is spent waiting for the neighbourhoods of the nodes, 
+ * and many validations must run at the same time to use the processors: the default executor runs every validation in a virtual thread 
+ * when the platform has them, and otherwise runs at most {@link #MAX_THREADS} validations at the same time, the others waiting in a queue. 
+ * Another executor can be given instead.</p>
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class AsyncValidation {
+	/** The maximal number of threads of the default executor when virtual threads are not available. */
+	public static final int MAX_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+	
+	private static ExecutorService defaultExecutor;
+	
+	private final Supplier<? extends ValidationAlgorithm> factory;
+	private final Executor executor;
+	private final int maxIdle;
+	private final ConcurrentLinkedDeque<ValidationAlgorithm> algorithms = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger nbIdle = new AtomicInteger();
+	
+	/** The validations are run by the default executor.
+	 * 
+	 * @param factory creates the algorithms, for example <code>() -&gt; new RecursiveValidation(schema, graph)</code>
+	 */
+	public AsyncValidation(Supplier<? extends ValidationAlgorithm> factory) {
+		this(factory, getDefaultExecutor());
+	}
+	
+	/** At most as many idle algorithms are kept as the executor runs validations at the same time, 
+	 * and at most {@link #MAX_THREADS} when this number is unknown or larger.
+	 * 
+	 * @param factory creates the algorithms, for example <code>() -&gt; new RecursiveValidation(schema, graph)</code>
+	 * @param executor runs the validations
+	 */
+	public AsyncValidation(Supplier<? extends ValidationAlgorithm> factory, Executor executor) {
+		this(factory, executor, getParallelism(executor));
+	}
+	
+	/** 
+	 * @param factory creates the algorithms, for example <code>() -&gt; new RecursiveValidation(schema, graph)</code>
+	 * @param executor runs the validations
+	 * @param maxIdle the maximal number of idle algorithms kept for the next validations
+	 */
+	public AsyncValidation(Supplier<? extends ValidationAlgorithm> factory, Executor executor, int maxIdle) {
+		if (maxIdle < 0)
+			throw new IllegalArgumentException("Negative number of idle algorithms: "+maxIdle);
+		this.factory = factory;
+		this.executor = executor;
+		this.maxIdle = maxIdle;
+	}
+	
+	/** @return the number of validations run at the same time by the executor, at most {@link #MAX_THREADS} */
+	private static int getParallelism(Executor executor) {
+		if (executor instanceof ThreadPoolExecutor)
+			return Math.min(((ThreadPoolExecutor) executor).getMaximumPoolSize(), MAX_THREADS);
+		if (executor instanceof ForkJoinPool)
+			return Math.min(((ForkJoinPool) executor).getParallelism(), MAX_THREADS);
+		return MAX_THREADS;
+	}
+	
+	/** The default executor: an executor creating a virtual thread for every validation when the platform has them (Java 21 and later), 
+	 * otherwise a pool of at most {@link #MAX_THREADS} daemon threads that stop after one minute without validation. 
+	 */
+	private static synchronized ExecutorService getDefaultExecutor() {
+		if (defaultExecutor == null) {
+			defaultExecutor = newVirtualThreadExecutor();
+			if (defaultExecutor == null) {
+				ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "shex-validation");
+					thread.setDaemon(true);
+					return thread;
+				});
+				pool.allowCoreThreadTimeOut(true);
+				defaultExecutor = pool;
+			}
+		}
+		return defaultExecutor;
+	}
+	
+	/** @return an executor of virtual threads, or null if the platform does not have them */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			// before Java 21, or with the preview of Java 19 and 20 not enabled
+			return null;
+		}
+	}
+	
+	/** Validates a node against a shape label. 
+	 * The future completes exceptionally if the validation fails, for example with a {@link fr.inria.lille.shexjava.exception.BudgetExceededException}.
+	 * 
+	 * @param focusNode
+	 * @param label
+	 * @return the result of the validation
+	 */
+	public CompletableFuture<Boolean> validate(Value focusNode, Label label) {
+		return CompletableFuture.supplyAsync(() -> {
+			ValidationAlgorithm algorithm = algorithms.poll();
+			if (algorithm == null)
+				algorithm = factory.get();
+			else
+				nbIdle.decrementAndGet();
+			try {
+				return algorithm.validate(focusNode, label);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			} finally {
+				release(algorithm);
+			}
+		}, executor);
+	}
+	
+	/** Keeps an algorithm for the next validations, unless enough algorithms are idle. */
+	private void release(ValidationAlgorithm algorithm) {
+		if (nbIdle.incrementAndGet() <= maxIdle)
+			algorithms.push(algorithm);
+		else
+			nbIdle.decrementAndGet();
+	}
+	
+	/** @return the number of idle algorithms kept */
+	int getNbIdle() {
+		return nbIdle.get();
+	}
+	
+	/** Validates all the associations, at the same time as far as the executor allows it. 
+	 * The future completes exceptionally if one of the validations fails.
+	 * 
+	 * @param associations
+	 * @return the results of the validations, in the order of the associations
+	 */
+	public CompletableFuture<Map<Pair<Value,Label>,Boolean>> validateAll(Collection<Pair<Value,Label>> associations) {
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>(associations.size());
+		for (Pair<Value,Label> association:associations)
+			futures.add(validate(association.one, association.two));
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(done -> {
+			Map<Pair<Value,Label>,Boolean> results = new LinkedHashMap<>();
+			int i = 0;
+			for (Pair<Value,Label> association:associations)
+				results.put(association, futures.get(i++).join());
+			return results;
+		});
+	}
+}
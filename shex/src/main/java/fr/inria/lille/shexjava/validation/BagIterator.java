@@ -29,17 +29,37 @@ import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
  */
 public class BagIterator implements Iterator<Bag>{
 
-	private List<List<TripleConstraint>> allMatches;
+	private TripleConstraint[][] allMatches;
 	private int[] currentIndexes;
 	private int[] sizes;
 	
 	public BagIterator(List<List<TripleConstraint>> allMatches) {
-		this.allMatches = allMatches;
-		currentIndexes = new int[allMatches.size()+1]; // Adding an artificial first column allows to write more easily all the operations
-		sizes = new int[allMatches.size()+1];
+		this.allMatches = new TripleConstraint[allMatches.size()][];
+		for (int i = 0; i < this.allMatches.length; i++)
+			this.allMatches[i] = allMatches.get(i).toArray(new TripleConstraint[allMatches.get(i).size()]);
+		init();
+	}
+	
+	/** Iterates over the bags induced by the rows of the table. The table must not contain empty rows.
+	 * 
+	 * @param table
+	 */
+	public BagIterator(MatchingTable table) {
+		this.allMatches = new TripleConstraint[table.size()][];
+		for (int i = 0; i < this.allMatches.length; i++) {
+			this.allMatches[i] = new TripleConstraint[table.getNbMatches(i)];
+			for (int j = 0; j < this.allMatches[i].length; j++)
+				this.allMatches[i][j] = table.getMatch(i, j);
+		}
+		init();
+	}
+	
+	private void init() {
+		currentIndexes = new int[allMatches.length+1]; // Adding an artificial first column allows to write more easily all the operations
+		sizes = new int[allMatches.length+1];
 		for (int i = 0; i < currentIndexes.length-1; i++) {
 			currentIndexes[i+1] = 0;
-			sizes[i+1] = allMatches.get(i).size();
+			sizes[i+1] = allMatches[i].length;
 		}
 		currentIndexes[0] = 0;
 		sizes[0] = 1;
@@ -72,7 +92,7 @@ public class BagIterator implements Iterator<Bag>{
 		
 		Bag next = new Bag();
 		for (int i = 1; i < currentIndexes.length; i++) {
-			next.increment(allMatches.get(i-1).get(currentIndexes[i]));
+			next.increment(allMatches[i-1][currentIndexes[i]]);
 		}
 		
 		goToNext();
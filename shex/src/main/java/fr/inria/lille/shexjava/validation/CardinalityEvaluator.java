@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.util.Interval;
+
+/** A specialized local check for the triple expressions that are a triple constraint, or an {@link fr.inria.lille.shexjava.schema.abstrsynt.EachOf} of triple constraints, possibly repeated.
+ * 
+ * For such an expression, when every triple of the neighbourhood matches exactly one triple constraint, there is a unique bag and the expression is satisfied iff the number of triples matched by each triple constraint is in its cardinality.
+ * The check is then a loop over two arrays of bounds, without building a {@link Bag} nor computing intervals.
+ * Instances are created by {@link EvaluatorCompiler#compileCardinalities(fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr)}.
+ * 
+ * @author Jérémie Dusart
+ */
+public final class CardinalityEvaluator {
+	private final Map<TripleConstraint,Integer> indexes;
+	private final int[] min;
+	private final int[] max;
+	
+	CardinalityEvaluator(List<TripleConstraint> constraints, List<Interval> cardinalities) {
+		this.indexes = new IdentityHashMap<>();
+		this.min = new int[constraints.size()];
+		this.max = new int[constraints.size()];
+		for (int i = 0; i < min.length; i++) {
+			indexes.put(constraints.get(i), i);
+			min[i] = cardinalities.get(i).min;
+			max[i] = cardinalities.get(i).max;
+		}
+	}
+	
+	/** Tests whether the table can be checked with this evaluator, that is whether every row contains exactly one triple constraint.
+	 * 
+	 * @param table the table after the removal of the unmatched rows 
+	 * @return true if the table has a unique bag
+	 */
+	public boolean accepts(MatchingTable table) {
+		for (int i = 0; i < table.size(); i++)
+			if (table.getNbMatches(i) != 1)
+				return false;
+		return true;
+	}
+	
+	/** Tests whether the unique bag of the table satisfies the triple expression. 
+	 * The result is valid only if {@link #accepts(MatchingTable)} returns true for the table.
+	 * 
+	 * @param table
+	 * @return true if the expression is satisfied
+	 */
+	public boolean evaluate(MatchingTable table) {
+		int[] counts = new int[min.length];
+		for (int i = 0; i < table.size(); i++)
+			counts[indexes.get(table.getMatch(i, 0))]++;
+		for (int i = 0; i < counts.length; i++)
+			if (counts[i] < min[i] || counts[i] > max[i])
+				return false;
+		return true;
+	}
+}
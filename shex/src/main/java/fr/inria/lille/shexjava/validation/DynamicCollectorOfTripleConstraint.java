@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import fr.inria.lille.shexjava.graph.TCProperty;
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
 import fr.inria.lille.shexjava.schema.abstrsynt.EmptyTripleExpression;
@@ -38,9 +39,11 @@ import fr.inria.lille.shexjava.schema.analysis.TripleExpressionVisitor;
  */
 public class DynamicCollectorOfTripleConstraint extends TripleExpressionVisitor<List<TripleConstraint>>{
 	private Map<Label,List<TripleConstraint>> dynamiqueRes;
+	private Map<Label,Map<TCProperty,List<TripleConstraint>>> dynamiqueIndex;
 
 	public DynamicCollectorOfTripleConstraint() {
 		this.dynamiqueRes = new HashMap<Label,List<TripleConstraint>>();
+		this.dynamiqueIndex = new HashMap<Label,Map<TCProperty,List<TripleConstraint>>>();
 	}
 	
 	public List<TripleConstraint> getResult(TripleExpr triple) {
@@ -50,6 +53,29 @@ public class DynamicCollectorOfTripleConstraint extends TripleExpressionVisitor<
 		return dynamiqueRes.get(triple.getId());
 	} 
 	
+	/** The triple constraints that appear in the triple expression indexed by their property. For every property, the constraints are in the same order as in {@link #getResult(TripleExpr)}.
+	 * The result is stored and will not be recomputed.
+	 * 
+	 * @param triple
+	 * @return a map that associates to every property the triple constraints with that property
+	 */
+	public Map<TCProperty,List<TripleConstraint>> getIndexedResult(TripleExpr triple) {
+		Map<TCProperty,List<TripleConstraint>> result = dynamiqueIndex.get(triple.getId());
+		if (result == null) {
+			result = new HashMap<TCProperty,List<TripleConstraint>>();
+			for (TripleConstraint tc:getResult(triple)) {
+				List<TripleConstraint> candidates = result.get(tc.getProperty());
+				if (candidates == null) {
+					candidates = new ArrayList<TripleConstraint>();
+					result.put(tc.getProperty(), candidates);
+				}
+				candidates.add(tc);
+			}
+			dynamiqueIndex.put(triple.getId(), result);
+		}
+		return result;
+	}
+	
 	@Override
 	public List<TripleConstraint> getResult() {
 		return null;
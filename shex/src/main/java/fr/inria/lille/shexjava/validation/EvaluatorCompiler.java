@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryTripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.EmptyTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.OneOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.RepeatedTripleExpression;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeAnd;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExternal;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExprRef;
+import fr.inria.lille.shexjava.util.Interval;
+
+/** Compiles shape expressions and triple expressions into trees of small evaluators, one class per type of expression, that are used by the validation algorithms instead of visitors.
+ * An expression is compiled once, the evaluators are stored and will not be recomputed.
+ * 
+ * The compiler is parameterized by the validation algorithm:
+ * <ul>
+ * <li>the local check decides whether a node satisfies a {@link Shape},</li>
+ * <li>the reference check decides whether a node satisfies a {@link ShapeExprRef}. If it is null, the definition of the reference is evaluated instead.</li>
+ * </ul>
+ * 
+ * @author Jérémie Dusart
+ */
+public class EvaluatorCompiler {
+	private final BiPredicate<Value,Shape> localCheck;
+	private final BiPredicate<Value,Label> referenceCheck;
+	private final DynamicCollectorOfTripleConstraint collectorTC;
+	private final Map<Label,ShapeExprEvaluator> shapeEvaluators;
+	private final Map<Label,IntervalEvaluator> intervalEvaluators;
+	private final Map<Label,CardinalityEvaluator> cardinalityEvaluators;
+	
+	/** 
+	 * @param localCheck
+	 * @param referenceCheck the check used for the references, null if the definition of the reference must be evaluated
+	 * @param collectorTC
+	 */
+	public EvaluatorCompiler(BiPredicate<Value,Shape> localCheck, BiPredicate<Value,Label> referenceCheck, DynamicCollectorOfTripleConstraint collectorTC) {
+		this.localCheck = localCheck;
+		this.referenceCheck = referenceCheck;
+		this.collectorTC = collectorTC;
+		this.shapeEvaluators = new HashMap<Label,ShapeExprEvaluator>();
+		this.intervalEvaluators = new HashMap<Label,IntervalEvaluator>();
+		this.cardinalityEvaluators = new HashMap<Label,CardinalityEvaluator>();
+	}
+	
+	
+	//--------------------------------------------------------------------------------
+	// Shape expressions
+	//--------------------------------------------------------------------------------
+	
+	public ShapeExprEvaluator compile(ShapeExpr expr) {
+		ShapeExprEvaluator result = shapeEvaluators.get(expr.getId());
+		if (result == null) {
+			result = doCompile(expr);
+			shapeEvaluators.put(expr.getId(), result);
+		}
+		return result;
+	}
+	
+	private ShapeExprEvaluator doCompile(ShapeExpr expr) {
+		if (expr instanceof ShapeAnd) 
+			return new AndEvaluator(compileAll((ShapeAnd) expr));
+		if (expr instanceof ShapeOr) 
+			return new OrEvaluator(compileAll((ShapeOr) expr));
+		if (expr instanceof ShapeNot) 
+			return new NotEvaluator(compile(((ShapeNot) expr).getSubExpression()));
+		if (expr instanceof Shape) 
+			return new ShapeEvaluator((Shape) expr, localCheck);
+		if (expr instanceof NodeConstraint) 
+			return new NodeConstraintEvaluator((NodeConstraint) expr);
+		if (expr instanceof ShapeExprRef) {
+			ShapeExprRef ref = (ShapeExprRef) expr;
+			if (referenceCheck == null)
+				return compile(ref.getShapeDefinition());
+			return new ReferenceEvaluator(ref.getLabel(), referenceCheck);
+		}
+		if (expr instanceof ShapeExternal)
+			return new ExternalEvaluator();
+		throw new IllegalArgumentException("Unknown shape expression: " + expr.getClass());
+	}
+	
+	private ShapeExprEvaluator[] compileAll(AbstractNaryShapeExpr expr) {
+		List<ShapeExpr> subExprs = expr.getSubExpressions();
+		ShapeExprEvaluator[] result = new ShapeExprEvaluator[subExprs.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = compile(subExprs.get(i));
+		return result;
+	}
+	
+	private static final class AndEvaluator extends ShapeExprEvaluator {
+		private final ShapeExprEvaluator[] subEvaluators;
+		
+		AndEvaluator(ShapeExprEvaluator[] subEvaluators) {
+			this.subEvaluators = subEvaluators;
+		}
+		
+		@Override
+		public boolean evaluate(Value node) {
+			for (ShapeExprEvaluator sub:subEvaluators)
+				if (! sub.evaluate(node))
+					return false;
+			return true;
+		}
+	}
+	
+	private static final class OrEvaluator extends ShapeExprEvaluator {
+		private final ShapeExprEvaluator[] subEvaluators;
+		
+		OrEvaluator(ShapeExprEvaluator[] subEvaluators) {
+			this.subEvaluators = subEvaluators;
+		}
+		
+		@Override
+		public boolean evaluate(Value node) {
+			for (ShapeExprEvaluator sub:subEvaluators)
+				if (sub.evaluate(node))
+					return true;
+			return false;
+		}
+	}
+	
+	private static final class NotEvaluator extends ShapeExprEvaluator {
+		private final ShapeExprEvaluator subEvaluator;
+		
+		NotEvaluator(ShapeExprEvaluator subEvaluator) {
+			this.subEvaluator = subEvaluator;
+		}
+		
+		@Override
+		public boolean evaluate(Value node) {
+			return ! subEvaluator.evaluate(node);
+		}
+	}
+	
+	private static final class ShapeEvaluator extends ShapeExprEvaluator {
+		private final Shape shape;
+		private final BiPredicate<Value,Shape> localCheck;
+		
+		ShapeEvaluator(Shape shape, BiPredicate<Value,Shape> localCheck) {
+			this.shape = shape;
+			this.localCheck = localCheck;
+		}
+		
+		@Override
+		public boolean evaluate(Value node) {
+			return localCheck.test(node, shape);
+		}
+	}
+	
+	private static final class NodeConstraintEvaluator extends ShapeExprEvaluator {
+		private final NodeConstraint constraint;
+		
+		NodeConstraintEvaluator(NodeConstraint constraint) {
+			this.constraint = constraint;
+		}
+		
+		@Override
+		public boolean evaluate(Value node) {
+			return constraint.contains(node);
+		}
+	}
+	
+	private static final class ReferenceEvaluator extends ShapeExprEvaluator {
+		private final Label label;
+		private final BiPredicate<Value,Label> referenceCheck;
+		
+		ReferenceEvaluator(Label label, BiPredicate<Value,Label> referenceCheck) {
+			this.label = label;
+			this.referenceCheck = referenceCheck;
+		}
+		
+		@Override
+		public boolean evaluate(Value node) {
+			return referenceCheck.test(node, label);
+		}
+	}
+	
+	private static final class ExternalEvaluator extends ShapeExprEvaluator {
+		@Override
+		public boolean evaluate(Value node) {
+			throw new UnsupportedOperationException("Not yet implemented.");
+		}
+	}
+	
+	
+	//--------------------------------------------------------------------------------
+	// Triple expressions
+	//--------------------------------------------------------------------------------
+	
+	/** Compiles a triple expression that satisfies the constraints of {@link IntervalComputation}.
+	 * 
+	 * @param expr
+	 * @return the evaluator of the intervals of expr
+	 */
+	public IntervalEvaluator compile(TripleExpr expr) {
+		IntervalEvaluator result = intervalEvaluators.get(expr.getId());
+		if (result == null) {
+			result = doCompile(expr);
+			intervalEvaluators.put(expr.getId(), result);
+		}
+		return result;
+	}
+	
+	private IntervalEvaluator doCompile(TripleExpr expr) {
+		if (expr instanceof TripleConstraint) 
+			return new TripleConstraintEvaluator((TripleConstraint) expr);
+		if (expr instanceof EmptyTripleExpression) 
+			return new EmptyEvaluator();
+		if (expr instanceof OneOf) 
+			return new OneOfEvaluator(compileAll((OneOf) expr));
+		if (expr instanceof EachOf) 
+			return new EachOfEvaluator(compileAll((EachOf) expr));
+		if (expr instanceof TripleExprRef) 
+			return compile(((TripleExprRef) expr).getTripleExp());
+		if (expr instanceof RepeatedTripleExpression) {
+			RepeatedTripleExpression repeated = (RepeatedTripleExpression) expr;
+			Interval card = repeated.getCardinality();
+			TripleExpr subExpr = repeated.getSubExpression();
+			List<TripleConstraint> constraints = collectorTC.getResult(expr);
+			TripleConstraint[] subConstraints = constraints.toArray(new TripleConstraint[constraints.size()]);
+			if (card.equals(Interval.STAR)) 
+				return new StarEvaluator(compile(subExpr), subConstraints);
+			if (card.equals(Interval.PLUS)) 
+				return new PlusEvaluator(compile(subExpr), subConstraints);
+			if (card.equals(Interval.OPT)) 
+				return new OptEvaluator(compile(subExpr));
+			if (subExpr instanceof TripleConstraint) 
+				return new RepeatedTripleConstraintEvaluator((TripleConstraint) subExpr, card);
+			if (card.equals(Interval.EMPTY))
+				throw new UnsupportedOperationException("not yet implemented");
+			throw new IllegalArgumentException("Arbitrary repetition " + card + "allowed on triple constraints only.");
+		}
+		throw new IllegalArgumentException("Unknown triple expression: " + expr.getClass());
+	}
+	
+	private IntervalEvaluator[] compileAll(AbstractNaryTripleExpr expr) {
+		List<TripleExpr> subExprs = expr.getSubExpressions();
+		IntervalEvaluator[] result = new IntervalEvaluator[subExprs.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = compile(subExprs.get(i));
+		return result;
+	}
+	
+	private static boolean isEmptySubbag(Bag bag, TripleConstraint[] constraints) {
+		for (TripleConstraint tc:constraints)
+			if (bag.getMult(tc) != 0)
+				return false;
+		return true;
+	}
+	
+	/** Compiles a triple expression into a {@link CardinalityEvaluator} if it is a triple constraint or an {@link EachOf} of triple constraints, possibly repeated.
+	 * 
+	 * @param expr
+	 * @return the specialized evaluator of expr, or null if expr must be evaluated with {@link #compile(TripleExpr)}
+	 */
+	public CardinalityEvaluator compileCardinalities(TripleExpr expr) {
+		if (cardinalityEvaluators.containsKey(expr.getId()))
+			return cardinalityEvaluators.get(expr.getId());
+		List<TripleConstraint> constraints = new ArrayList<>();
+		List<Interval> cardinalities = new ArrayList<>();
+		CardinalityEvaluator result = null;
+		// a triple constraint that appears twice cannot be counted independently
+		if (collectCardinalities(expr, constraints, cardinalities) && new HashSet<>(constraints).size() == constraints.size())
+			result = new CardinalityEvaluator(constraints, cardinalities);
+		cardinalityEvaluators.put(expr.getId(), result);
+		return result;
+	}
+	
+	private static boolean collectCardinalities(TripleExpr expr, List<TripleConstraint> constraints, List<Interval> cardinalities) {
+		if (expr instanceof TripleConstraint) {
+			constraints.add((TripleConstraint) expr);
+			cardinalities.add(Interval.ONE);
+			return true;
+		}
+		if (expr instanceof RepeatedTripleExpression && ((RepeatedTripleExpression) expr).getSubExpression() instanceof TripleConstraint) {
+			constraints.add((TripleConstraint) ((RepeatedTripleExpression) expr).getSubExpression());
+			cardinalities.add(((RepeatedTripleExpression) expr).getCardinality());
+			return true;
+		}
+		if (expr instanceof EmptyTripleExpression)
+			return true;
+		if (expr instanceof EachOf) {
+			for (TripleExpr subExpr:((EachOf) expr).getSubExpressions())
+				if (! collectCardinalities(subExpr, constraints, cardinalities))
+					return false;
+			return true;
+		}
+		return false;
+	}
+	
+	private static final class TripleConstraintEvaluator extends IntervalEvaluator {
+		private final TripleConstraint tc;
+		
+		TripleConstraintEvaluator(TripleConstraint tc) {
+			this.tc = tc;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			int nbOcc = bag.getMult(tc);
+			return new Interval(nbOcc, nbOcc);
+		}
+	}
+	
+	private static final class EmptyEvaluator extends IntervalEvaluator {
+		@Override
+		public Interval evaluate(Bag bag) {
+			return Interval.STAR;
+		}
+	}
+	
+	private static final class OneOfEvaluator extends IntervalEvaluator {
+		private final IntervalEvaluator[] subEvaluators;
+		
+		OneOfEvaluator(IntervalEvaluator[] subEvaluators) {
+			this.subEvaluators = subEvaluators;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			Interval res = Interval.ZERO; // the neutral element for addition
+			for (IntervalEvaluator sub:subEvaluators)
+				res = IntervalComputation.add(res, sub.evaluate(bag));
+			return res;
+		}
+	}
+	
+	private static final class EachOfEvaluator extends IntervalEvaluator {
+		private final IntervalEvaluator[] subEvaluators;
+		
+		EachOfEvaluator(IntervalEvaluator[] subEvaluators) {
+			this.subEvaluators = subEvaluators;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			Interval res = Interval.STAR; // the neutral element for intersection
+			for (IntervalEvaluator sub:subEvaluators)
+				res = IntervalComputation.inter(res, sub.evaluate(bag));
+			return res;
+		}
+	}
+	
+	private static final class StarEvaluator extends IntervalEvaluator {
+		private final IntervalEvaluator subEvaluator;
+		private final TripleConstraint[] subConstraints;
+		
+		StarEvaluator(IntervalEvaluator subEvaluator, TripleConstraint[] subConstraints) {
+			this.subEvaluator = subEvaluator;
+			this.subConstraints = subConstraints;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			if (isEmptySubbag(bag, subConstraints))
+				return Interval.STAR;
+			Interval res = subEvaluator.evaluate(bag);
+			if (! res.equals(Interval.EMPTY))
+				return Interval.PLUS;
+			return res;
+		}
+	}
+	
+	private static final class PlusEvaluator extends IntervalEvaluator {
+		private final IntervalEvaluator subEvaluator;
+		private final TripleConstraint[] subConstraints;
+		
+		PlusEvaluator(IntervalEvaluator subEvaluator, TripleConstraint[] subConstraints) {
+			this.subEvaluator = subEvaluator;
+			this.subConstraints = subConstraints;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			if (isEmptySubbag(bag, subConstraints))
+				return Interval.ZERO;
+			Interval res = subEvaluator.evaluate(bag);
+			if (! res.equals(Interval.EMPTY))
+				return new Interval(1, res.max);
+			return Interval.EMPTY;
+		}
+	}
+	
+	private static final class OptEvaluator extends IntervalEvaluator {
+		private final IntervalEvaluator subEvaluator;
+		
+		OptEvaluator(IntervalEvaluator subEvaluator) {
+			this.subEvaluator = subEvaluator;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			return IntervalComputation.add(subEvaluator.evaluate(bag), Interval.STAR);
+		}
+	}
+	
+	private static final class RepeatedTripleConstraintEvaluator extends IntervalEvaluator {
+		private final TripleConstraint tc;
+		private final Interval card;
+		
+		RepeatedTripleConstraintEvaluator(TripleConstraint tc, Interval card) {
+			this.tc = tc;
+			this.card = card;
+		}
+		
+		@Override
+		public Interval evaluate(Bag bag) {
+			return IntervalComputation.div(bag.getMult(tc), card);
+		}
+	}
+}
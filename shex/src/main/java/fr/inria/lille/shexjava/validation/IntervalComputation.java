@@ -164,7 +164,7 @@ public class IntervalComputation extends TripleExpressionVisitor<Interval>{
 	 * @param card
 	 * @return
 	 */
-	private Interval div(int nbOcc, Interval card) {
+	static Interval div(int nbOcc, Interval card) {
 
 		if (card.equals(Interval.ZERO)) {
 			if (nbOcc == 0) return Interval.STAR;
@@ -201,7 +201,7 @@ public class IntervalComputation extends TripleExpressionVisitor<Interval>{
 
 	}
 
-	private Interval add (Interval i1, Interval i2) {
+	static Interval add (Interval i1, Interval i2) {
 		int imin, imax;
 
 		imin = i1.min + i2.min;
@@ -213,7 +213,7 @@ public class IntervalComputation extends TripleExpressionVisitor<Interval>{
 		return new Interval(imin, imax);
 	}
 
-	private Interval inter (Interval i1, Interval i2) {
+	static Interval inter (Interval i1, Interval i2) {
 		int imin, imax;
 
 		imin = Math.max(i1.min, i2.min);
@@ -19,9 +19,11 @@ package fr.inria.lille.shexjava.validation;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 
 import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.graph.TCProperty;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 
 /** Defines a custom condition on whether a neighbor triple matches a triple constraint.
@@ -54,4 +56,27 @@ public interface Matcher extends BiFunction<NeighborTriple, TripleConstraint, Bo
 		return result;
 	}
 	
+	/** Fills the table given as parameter with, for all neighbor triple, the triple constraints that the triple matches according to the matcher.
+	 * Only the triple constraints with the same property as the triple are tested. The previous content of the table is removed.
+	 * 
+	 * @param neighbourhood
+	 * @param constraintsByProperty the triple constraints indexed by their property, see {@link DynamicCollectorOfTripleConstraint#getIndexedResult(fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr)}
+	 * @param matcher
+	 * @param result
+	 */
+	public static void collectMatchingTC (List<NeighborTriple> neighbourhood, Map<TCProperty,List<TripleConstraint>> constraintsByProperty, Matcher matcher, MatchingTable result) {
+		result.clear();
+		for (NeighborTriple triple: neighbourhood) {
+			result.addTriple(triple);
+			List<TripleConstraint> candidates = constraintsByProperty.get(triple.getPredicate());
+			if (candidates == null)
+				continue;
+			for (TripleConstraint tc: candidates) {
+				if (matcher.apply(triple, tc)) {
+					result.addMatch(tc);
+				}
+			}
+		}
+	}
+	
 }
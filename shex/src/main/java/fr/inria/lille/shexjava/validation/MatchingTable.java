@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.Arrays;
+
+import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+
+/** Associates to every triple of a neighbourhood the list of triple constraints that it matches.
+ * 
+ * The associations are stored in flat arrays so that the same table can be cleared and filled again for every local check, without allocating a map entry and a list per neighbour triple. 
+ * Row i contains the triple {@link #getTriple(int)} and its matching triple constraints {@link #getMatch(int, int)} for 0 &le; j &lt; {@link #getNbMatches(int)}.
+ * 
+ * @author Jérémie Dusart
+ */
+public class MatchingTable {
+	private NeighborTriple[] triples;
+	private TripleConstraint[] matches;
+	// the matches of the row i are stored in matches[start[i]] ... matches[start[i+1]-1]
+	private int[] start;
+	private int nbTriples;
+	private int nbMatches;
+	
+	public MatchingTable() {
+		this.triples = new NeighborTriple[16];
+		this.matches = new TripleConstraint[16];
+		this.start = new int[17];
+		this.nbTriples = 0;
+		this.nbMatches = 0;
+	}
+	
+	/** Removes all the rows of the table. The allocated arrays are kept for the next use.
+	 * 
+	 */
+	public void clear() {
+		Arrays.fill(triples, 0, nbTriples, null);
+		Arrays.fill(matches, 0, nbMatches, null);
+		nbTriples = 0;
+		nbMatches = 0;
+		start[0] = 0;
+	}
+	
+	/** Adds a new row for the triple. The following calls to {@link #addMatch(TripleConstraint)} add matches to this row. 
+	 * 
+	 * @param triple
+	 */
+	public void addTriple(NeighborTriple triple) {
+		if (nbTriples == triples.length) {
+			triples = Arrays.copyOf(triples, 2*triples.length);
+			start = Arrays.copyOf(start, triples.length+1);
+		}
+		triples[nbTriples] = triple;
+		start[nbTriples] = nbMatches;
+		nbTriples++;
+		start[nbTriples] = nbMatches;
+	}
+	
+	/** Adds a triple constraint to the last row of the table.
+	 * 
+	 * @param tc
+	 */
+	public void addMatch(TripleConstraint tc) {
+		if (nbMatches == matches.length)
+			matches = Arrays.copyOf(matches, 2*matches.length);
+		matches[nbMatches] = tc;
+		nbMatches++;
+		start[nbTriples] = nbMatches;
+	}
+	
+	/** Removes the rows that do not contain any triple constraint. The order of the other rows is preserved.
+	 * 
+	 */
+	public void removeUnmatched() {
+		int newNbTriples = 0;
+		for (int i = 0; i < nbTriples; i++) {
+			if (start[i+1] > start[i]) {
+				triples[newNbTriples] = triples[i];
+				start[newNbTriples] = start[i];
+				newNbTriples++;
+			}
+		}
+		Arrays.fill(triples, newNbTriples, nbTriples, null);
+		// the matches are contiguous, so the end of the last kept row is the total number of matches
+		start[newNbTriples] = nbMatches;
+		nbTriples = newNbTriples;
+	}
+	
+	/** The number of rows of the table.
+	 * 
+	 * @return the number of triples in the table
+	 */
+	public int size() {
+		return nbTriples;
+	}
+	
+	public NeighborTriple getTriple(int i) {
+		return triples[i];
+	}
+	
+	public int getNbMatches(int i) {
+		return start[i+1] - start[i];
+	}
+	
+	public TripleConstraint getMatch(int i, int j) {
+		return matches[start[i]+j];
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("MatchingTable[");
+		for (int i = 0; i < nbTriples; i++) {
+			result.append(triples[i]).append("=").append(Arrays.asList(matches).subList(start[i], start[i+1]));
+			if (i < nbTriples-1)
+				result.append(", ");
+		}
+		return result.append("]").toString();
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+
+/** Validates every named graph of a dataset independently, for datasets in which every named graph is a record, such as N-Quads files.
+ * 
+ * <p>The dataset is partitioned by named graph, the statements of the default graph being ignored. 
+ * Every named graph is validated by a task of the executor, against the shared schema, with its own graph and algorithm, 
+ * and the results are given as a stream in the order in which the validations end. 
+ * The tasks are submitted as the stream is consumed, with at most maxGraphs named graphs validated or waiting for their result at the same time, 
+ * so that the statements of the other named graphs are not copied before they are needed.</p>
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class NamedGraphValidation {
+	private final ShexSchema schema;
+	private final Executor executor;
+	private BiFunction<ShexSchema,RDFGraph,ValidationAlgorithm> algorithms = RecursiveValidation::new;
+	private int maxGraphs = 2 * Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * @param schema
+	 * @param executor runs the validations of the named graphs
+	 */
+	public NamedGraphValidation(ShexSchema schema, Executor executor) {
+		this.schema = schema;
+		this.executor = executor;
+	}
+	
+	/** Sets the algorithm used to validate every named graph, {@link RecursiveValidation} by default.
+	 * 
+	 * @param algorithms creates an algorithm for a named graph
+	 */
+	public void setAlgorithms(BiFunction<ShexSchema,RDFGraph,ValidationAlgorithm> algorithms) {
+		this.algorithms = algorithms;
+	}
+	
+	/** Sets the maximal number of named graphs whose validation is submitted and whose result is not yet taken from the stream, 
+	 * twice the number of processors by default.
+	 * 
+	 * @param maxGraphs
+	 */
+	public void setMaxGraphs(int maxGraphs) {
+		if (maxGraphs < 1)
+			throw new IllegalArgumentException("The number of named graphs must be positive.");
+		this.maxGraphs = maxGraphs;
+	}
+	
+	/** Validates the name of every named graph against the label.
+	 * 
+	 * @param dataset
+	 * @param label
+	 * @return the results of the named graphs
+	 */
+	public Stream<Result> validate(Model dataset, Label label) {
+		return validate(dataset, label, (name, graph) -> name);
+	}
+	
+	/** Validates a node of every named graph against the label. 
+	 * The stream throws an {@link IllegalStateException} if the thread is interrupted while waiting for a result.
+	 * 
+	 * @param dataset
+	 * @param label
+	 * @param focusNode selects the node to validate from the name and the statements of a named graph, an exception giving a result with this error
+	 * @return the results of the named graphs
+	 */
+	public Stream<Result> validate(Model dataset, Label label, BiFunction<Resource,Model,Value> focusNode) {
+		List<Resource> names = new ArrayList<>();
+		for (Resource name:dataset.contexts())
+			if (name != null)
+				names.add(name);
+		
+		CompletionService<Result> results = new ExecutorCompletionService<>(executor);
+		Iterator<Result> it = new Iterator<Result>() {
+			int nbSubmitted = 0;
+			int nbTaken = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return nbTaken < names.size();
+			}
+
+			@Override
+			public Result next() {
+				if (! hasNext())
+					throw new NoSuchElementException();
+				while (nbSubmitted < names.size() && nbSubmitted - nbTaken < maxGraphs)
+					submit(names.get(nbSubmitted++));
+				try {
+					Result result = results.take().get();
+					nbTaken++;
+					return result;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for the validation of a named graph.", e);
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			
+			private void submit(Resource name) {
+				results.submit(() -> {
+					Model graph = new LinkedHashModel(dataset.filter(null, null, null, name));
+					Value node = null;
+					try {
+						node = focusNode.apply(name, graph);
+						return new Result(name, node, label, algorithms.apply(schema, new RDF4JGraph(graph)).validate(node, label), null);
+					} catch (Exception e) {
+						return new Result(name, node, label, false, e);
+					}
+				});
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliterator(it, names.size(), Spliterator.NONNULL | Spliterator.SIZED), false);
+	}
+	
+	
+	/** The result of the validation of a named graph, whose node is null if it could not be selected. */
+	public static final class Result extends ValidationResult {
+		private final Resource graph;
+		
+		private Result(Resource graph, Value node, Label label, boolean conformant, Exception error) {
+			super(node, label, conformant, error);
+			this.graph = graph;
+		}
+		
+		/** @return the name of the graph */
+		public Resource getGraph() {
+			return graph;
+		}
+		
+		@Override
+		public String toString() {
+			return graph + ": " + super.toString();
+		}
+	}
+}
@@ -16,7 +16,9 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.validation;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.Value;
@@ -45,6 +47,11 @@ public class RecursiveTyping implements Typing {
 		return typing;
 	}
 	
+	@Override
+	public Iterator<Pair<Value, Label>> iterator() {
+		return Collections.unmodifiableSet(typing).iterator();
+	}
+	
 	public void addHypothesis(Value node, Label label) {
 		typing.add(new Pair<Value, Label>(node,label));
 	}
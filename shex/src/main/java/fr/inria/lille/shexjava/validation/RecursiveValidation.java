@@ -17,21 +17,27 @@
 package fr.inria.lille.shexjava.validation;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Value;
 
 import fr.inria.lille.shexjava.graph.NeighborTriple;
 import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.graph.TCProperty;
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.AbstractNaryShapeExpr;
 import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeAnd;
@@ -42,13 +48,19 @@ import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
 import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
-import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
 import fr.inria.lille.shexjava.util.Pair;
 
 
 /** Implements the Recursive validation algorithm.
  * This algorithm will check only the shape definition necessary, but can return false positive.
  * 
+ * <p>The recursion is not done on the call stack: the validation is driven by an explicit stack of frames, one for every pair (node, label) 
+ * under validation and for every shape expression under evaluation, so that chains of millions of nodes can be validated with the default stack size.
+ * A validation can also be started with {@link #start(Value, Label)} and run by steps with {@link #resume(long)}, the state of the validation 
+ * being kept between the calls.</p>
+ * 
+ * <p>With {@link #setParallelism(ForkJoinPool, int)}, the neighbours of a node are validated in parallel when there are many of them.</p>
+ * 
  * @author Jérémie Dusart 
  */
 public class RecursiveValidation implements ValidationAlgorithm {
@@ -58,6 +70,29 @@ public class RecursiveValidation implements ValidationAlgorithm {
 	private RecursiveTyping typing;
 	
 	private DynamicCollectorOfTripleConstraint collectorTC;
+	// only used after the recursive validations of the neighbours, so it can be shared by all the local checks
+	private MatchingTable matchingTC = new MatchingTable();
+	// only the triple expressions are compiled, the shape expressions are evaluated by the frames
+	private EvaluatorCompiler compiler;
+	private boolean specializedChecks = false;
+	private ValidationListener listener = ValidationListener.NONE;
+	private ValidationBudget budget = new ValidationBudget();
+	private ValidationBudget.Tracker tracker;
+	
+	// the frames of the validation under way, the last one is the one that runs
+	private List<Frame> stack = new ArrayList<>();
+	// the result of the last frame that ended
+	private boolean lastResult;
+	// the number of pairs (node, label) under validation
+	private int depth = 0;
+	private Value focusNode;
+	private Label focusLabel;
+	private boolean finished = false;
+	
+	private ForkJoinPool pool = null;
+	private int minNeighbours;
+	// the engines that are not running a sub-validation, shared by the engine of the validation and all the engines it creates
+	private ConcurrentLinkedDeque<RecursiveValidation> workers;
 	
 	
 	public RecursiveValidation(ShexSchema schema, RDFGraph graph) {
@@ -67,10 +102,72 @@ public class RecursiveValidation implements ValidationAlgorithm {
 		this.schema = schema;
 		this.collectorTC = new DynamicCollectorOfTripleConstraint();
 		this.typing = new RecursiveTyping();
+		this.compiler = new EvaluatorCompiler(null, null, collectorTC);
 	}
 	
+	/** Creates an engine for the sub-validations forked by another engine. */
+	private RecursiveValidation(RecursiveValidation parent) {
+		this(parent.schema, parent.graph);
+		inheritSettings(parent);
+	}
+	
+	/** Copies the settings of the engine that forks a sub-validation, which may have changed since the previous one. */
+	private void inheritSettings(RecursiveValidation parent) {
+		this.specializedChecks = parent.specializedChecks;
+		this.listener = parent.listener;
+		this.pool = parent.pool;
+		this.minNeighbours = parent.minNeighbours;
+		this.workers = parent.workers;
+	}
+	
+	/** Resets the typing, and stops the validation under way if any.
+	 * 
+	 */
 	public void resetTyping() {
 		this.typing = new RecursiveTyping();
+		this.stack.clear();
+		this.depth = 0;
+		this.finished = false;
+	}
+	
+	/** Enables the counting of the triples instead of the enumeration of the bags when possible. Disabled by default.
+	 * 
+	 * @see RefineValidation#setSpecializedChecks(boolean)
+	 * @param specializedChecks
+	 */
+	public void setSpecializedChecks(boolean specializedChecks) {
+		this.specializedChecks = specializedChecks;
+	}
+	
+	/** Sets the listener notified of the local checks.
+	 * 
+	 * @param listener the listener, or {@link ValidationListener#NONE} to disable the notifications
+	 */
+	@Override
+	public void setListener(ValidationListener listener) {
+		this.listener = listener == null ? ValidationListener.NONE : listener;
+	}
+	
+	/** Enables the parallel validation of the neighbours. When a node has at least minNeighbours neighbours to validate, 
+	 * they are validated by tasks of the pool, before the matching of the neighbourhood. 
+	 * Every task starts with the hypotheses of the node under validation and is run by its own engine, so the results are the same as 
+	 * the sequential validation. The listener must then be thread safe, and the numbers of bags and pairs of the budget are approximate.
+	 * A step of {@link #resume(long)} that forks tasks ends when all of them are done.
+	 * 
+	 * @param pool the pool running the tasks, or null for a sequential validation
+	 * @param minNeighbours the minimal number of neighbours of a node that are validated in parallel
+	 */
+	public void setParallelism(ForkJoinPool pool, int minNeighbours) {
+		if (minNeighbours < 1)
+			throw new IllegalArgumentException("The minimal number of neighbours must be positive: " + minNeighbours);
+		this.pool = pool;
+		this.minNeighbours = minNeighbours;
+		this.workers = pool == null ? null : new ConcurrentLinkedDeque<>();
+	}
+	
+	@Override
+	public void setBudget(ValidationBudget budget) {
+		this.budget = budget == null ? new ValidationBudget() : budget;
 	}
 	
 	@Override
@@ -80,180 +177,422 @@ public class RecursiveValidation implements ValidationAlgorithm {
 	
 	@Override
 	public boolean validate(Value focusNode, Label label) throws Exception {
+		start(focusNode, label);
+		resume(Long.MAX_VALUE);
+		return getResult();
+	}
+	
+	/** Starts the validation of a node against a shape label, without running it. The validation under way, if any, is stopped.
+	 * The budget of the validation starts at this call.
+	 * 
+	 * @param focusNode
+	 * @param label
+	 * @throws Exception if the label is unknown
+	 */
+	public void start(Value focusNode, Label label) throws Exception {
 		if (label == null || !schema.getShapeMap().containsKey(label))
 			throw new Exception("Unknown label: "+label);
 		this.resetTyping();
-		boolean result = recursiveValidation(focusNode,label);
-		if (result) {
-			this.typing.addHypothesis(focusNode, label);
+		this.focusNode = focusNode;
+		this.focusLabel = label;
+		this.tracker = budget.start();
+		this.stack.add(new LabelFrame(focusNode, label));
+	}
+	
+	/** Runs the validation started by {@link #start(Value, Label)} for at most the given number of steps. 
+	 * A step handles a pair (node, label), a shape expression, or a neighbour of a node. 
+	 * If the budget is exceeded, the typing is reset and a {@link fr.inria.lille.shexjava.exception.BudgetExceededException} is thrown.
+	 * 
+	 * @param maxSteps
+	 * @return true if the validation is finished
+	 */
+	public boolean resume(long maxSteps) {
+		try {
+			for (long step = 0; step < maxSteps && ! stack.isEmpty(); step++)
+				stack.get(stack.size()-1).step();
+		} catch (RuntimeException e) {
+			this.resetTyping();
+			throw e;
 		}
-		return result;
+		if (stack.isEmpty() && ! finished && focusLabel != null) {
+			finished = true;
+			if (lastResult)
+				this.typing.addHypothesis(focusNode, focusLabel);
+		}
+		return finished;
 	}
 	
-	protected boolean recursiveValidation(Value focusNode, Label label) {
-		this.typing.addHypothesis(focusNode, label);
-		EvaluateShapeExpressionVisitor visitor = new EvaluateShapeExpressionVisitor(focusNode);
-		schema.getShapeMap().get(label).accept(visitor);
-		this.typing.removeHypothesis(focusNode, label);
-		return visitor.result;
+	/** Validates a node with the given hypotheses, the validation being a sub-validation at the given depth. */
+	private boolean validate(Value node, Label label, Set<Pair<Value,Label>> hypotheses, int depth, ValidationBudget.Tracker tracker) {
+		this.resetTyping();
+		this.typing.addHypothesis(hypotheses);
+		this.focusLabel = null;
+		this.depth = depth;
+		this.tracker = tracker;
+		this.stack.add(new LabelFrame(node, label));
+		try {
+			while (! stack.isEmpty())
+				stack.get(stack.size()-1).step();
+		} catch (RuntimeException e) {
+			this.resetTyping();
+			throw e;
+		}
+		return lastResult;
+	}
+	
+	/** Validates the pairs by tasks of the pool, each of them with the current hypotheses.
+	 * 
+	 * @return the pairs that are valid
+	 */
+	private Set<Pair<Value,Label>> validateInParallel(Collection<Pair<Value,Label>> pairs) {
+		Set<Pair<Value,Label>> hypotheses = Collections.unmodifiableSet(new HashSet<>(typing.asSet()));
+		List<SubValidation> tasks = new ArrayList<>(pairs.size());
+		for (Pair<Value,Label> pair:pairs)
+			tasks.add(new SubValidation(pair, hypotheses));
+		if (ForkJoinTask.getPool() == pool)
+			ForkJoinTask.invokeAll(tasks);
+		else
+			pool.invoke(ForkJoinTask.adapt(() -> { ForkJoinTask.invokeAll(tasks); }));
 		
+		Set<Pair<Value,Label>> result = new HashSet<>();
+		for (SubValidation task:tasks)
+			if (task.join())
+				result.add(task.pair);
+		return result;
 	}
 	
-	class EvaluateShapeExpressionVisitor extends ShapeExpressionVisitor<Boolean> {
-		private Value node; 
-		private Boolean result;
+	private final class SubValidation extends RecursiveTask<Boolean> {
+		private static final long serialVersionUID = 1L;
+		private final Pair<Value,Label> pair;
+		private final Set<Pair<Value,Label>> hypotheses;
+		private final int parentDepth = depth;
+		private final ValidationBudget.Tracker parentTracker = tracker;
 		
-		public EvaluateShapeExpressionVisitor(Value one) {
-			this.node = one;
-		}
-
-		@Override
-		public Boolean getResult() {
-			if (result == null) return false;
-			return result;
+		SubValidation(Pair<Value,Label> pair, Set<Pair<Value,Label>> hypotheses) {
+			this.pair = pair;
+			this.hypotheses = hypotheses;
 		}
 		
 		@Override
-		public void visitShapeAnd(ShapeAnd expr, Object... arguments) {
-			for (ShapeExpr e : expr.getSubExpressions()) {
-				e.accept(this);
-				if (!result) break;
+		protected Boolean compute() {
+			// an engine that is running cannot be used, even by the same thread which may run this task while joining other tasks
+			RecursiveValidation engine = workers.poll();
+			if (engine == null)
+				engine = new RecursiveValidation(RecursiveValidation.this);
+			else
+				engine.inheritSettings(RecursiveValidation.this);
+			try {
+				return engine.validate(pair.one, pair.two, hypotheses, parentDepth, parentTracker);
+			} finally {
+				workers.push(engine);
 			}
 		}
-
-		@Override
-		public void visitShapeOr(ShapeOr expr, Object... arguments) {
-			for (ShapeExpr e : expr.getSubExpressions()) {
-				e.accept(this);
-				if (result) break;
-			}
+	}
+	
+	/** @return true if the validation started by {@link #start(Value, Label)} is finished */
+	public boolean isFinished() {
+		return finished;
+	}
+	
+	/** @return the result of the last validation
+	 * @throws IllegalStateException if the validation is not finished
+	 */
+	public boolean getResult() {
+		if (! finished)
+			throw new IllegalStateException("The validation is not finished.");
+		return lastResult;
+	}
+	
+	
+	//--------------------------------------------------------------------------------
+	// Frames
+	//--------------------------------------------------------------------------------
+	
+	/** The evaluation of an expression or of a pair (node, label). 
+	 * A step either pushes a new frame, whose result is read at the next step, or ends the frame. 
+	 */
+	private abstract class Frame {
+		abstract void step();
+		
+		void end(boolean result) {
+			stack.remove(stack.size()-1);
+			lastResult = result;
+		}
+	}
+	
+	/** Pushes the frame evaluating the expression on the node. The node constraints are evaluated immediately. */
+	private void push(ShapeExpr expr, Value node) {
+		if (expr instanceof ShapeAnd || expr instanceof ShapeOr)
+			stack.add(new NaryFrame((AbstractNaryShapeExpr) expr, node));
+		else if (expr instanceof ShapeNot)
+			stack.add(new NotFrame((ShapeNot) expr, node));
+		else if (expr instanceof Shape)
+			stack.add(new ShapeFrame((Shape) expr, node));
+		else if (expr instanceof NodeConstraint)
+			lastResult = ((NodeConstraint) expr).contains(node);
+		else if (expr instanceof ShapeExprRef)
+			push(((ShapeExprRef) expr).getShapeDefinition(), node);
+		else if (expr instanceof ShapeExternal)
+			throw new UnsupportedOperationException("Not yet implemented.");
+		else
+			throw new IllegalArgumentException("Unknown shape expression: " + expr.getClass());
+	}
+	
+	/** Validates a node against a label, with the hypothesis that the node satisfies the label. */
+	private final class LabelFrame extends Frame {
+		private final Value node;
+		private final Label label;
+		private boolean started = false;
+		
+		LabelFrame(Value node, Label label) {
+			this.node = node;
+			this.label = label;
 		}
 		
 		@Override
-		public void visitShapeNot(ShapeNot expr, Object... arguments) {
-			expr.getSubExpression().accept(this);
-			result = !result;
+		void step() {
+			if (! started) {
+				started = true;
+				typing.addHypothesis(node, label);
+				depth++;
+				tracker.depthReached(depth);
+				tracker.pairExamined();
+				push(schema.getShapeMap().get(label), node);
+			} else {
+				depth--;
+				typing.removeHypothesis(node, label);
+				end(lastResult);
+			}
 		}
+	}
+	
+	/** Evaluates the sub-expressions of a conjunction or a disjunction in order, until the result is known. */
+	private final class NaryFrame extends Frame {
+		private final List<ShapeExpr> subExpressions;
+		private final boolean conjunction;
+		private final Value node;
+		private int next = 0;
 		
-		@Override
-		public void visitShape(Shape expr, Object... arguments) {
-			result = isLocallyValid(node, expr);
+		NaryFrame(AbstractNaryShapeExpr expr, Value node) {
+			this.subExpressions = expr.getSubExpressions();
+			this.conjunction = expr instanceof ShapeAnd;
+			this.node = node;
 		}
-
+		
 		@Override
-		public void visitNodeConstraint(NodeConstraint expr, Object... arguments) {
-			result = expr.contains(node);
+		void step() {
+			if (next > 0 && lastResult != conjunction)
+				end(! conjunction);
+			else if (next == subExpressions.size())
+				end(conjunction);
+			else
+				push(subExpressions.get(next++), node);
 		}
-
-		@Override
-		public void visitShapeExprRef(ShapeExprRef ref, Object[] arguments) {
-			ref.getShapeDefinition().accept(this);
+	}
+	
+	private final class NotFrame extends Frame {
+		private final ShapeNot expr;
+		private final Value node;
+		private boolean started = false;
+		
+		NotFrame(ShapeNot expr, Value node) {
+			this.expr = expr;
+			this.node = node;
 		}
-
+		
 		@Override
-		public void visitShapeExternal(ShapeExternal shapeExt, Object[] arguments) {
-			throw new UnsupportedOperationException("Not yet implemented.");
+		void step() {
+			if (! started) {
+				started = true;
+				push(expr.getSubExpression(), node);
+			} else {
+				end(! lastResult);
+			}
 		}
 	}
 	
-	
-	private boolean isLocallyValid (Value node, Shape shape) {
-		TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
-		Iterator<NeighborTriple> tmp ;
-
-		List<TripleConstraint> constraints = collectorTC.getResult(tripleExpression);
-		if (constraints.size() == 0) {
-			if (!shape.isClosed()) {
-				return true;
+	/** The local check of a node against a shape. The neighbours are validated one step at a time against the shapes of the triple constraints 
+	 * they can match, then the neighbourhood is matched with the triple expression of the shape.
+	 */
+	private final class ShapeFrame extends Frame {
+		private final Shape shape;
+		private final Value node;
+		private long startTime;
+		private TripleExpr tripleExpression;
+		private List<NeighborTriple> neighbourhood = null;
+		private Map<TCProperty,List<TripleConstraint>> constraintsByProperty;
+		// the next triple of the neighbourhood and the next triple constraint it can match
+		private int triple = 0;
+		private int constraint = 0;
+		// the neighbour under validation
+		private Pair<Value,Label> pending = null;
+		// the neighbours that satisfy the shape of a triple constraint
+		private Set<Pair<Value, Label>> shapeMap = null;
+		
+		ShapeFrame(Shape shape, Value node) {
+			this.shape = shape;
+			this.node = node;
+		}
+		
+		@Override
+		void step() {
+			if (neighbourhood == null) {
+				begin();
 			} else {
-				tmp = graph.itOutNeighbours(node);
-				if (! tmp.hasNext()) {
-					return true;
-				} else {
-					return false;
+				if (lastResult) {
+					if (shapeMap == null)
+						shapeMap = new HashSet<>();
+					shapeMap.add(pending);
 				}
+				pending = null;
+				next();
 			}
 		}
 		
-		Set<IRI> inversePredicate = new HashSet<IRI>();
-		Set<IRI> forwardPredicate = new HashSet<IRI>();
-		for (TripleConstraint tc:constraints) {
-			if (tc.getProperty().isForward()) {
-				forwardPredicate.add(tc.getProperty().getIri());
-			}else {
-				inversePredicate.add(tc.getProperty().getIri());
+		private void begin() {
+			if (listener != ValidationListener.NONE) {
+				listener.shapeCheckStarted(node, shape.getId(), depth);
+				startTime = System.nanoTime();
+			}
+			tripleExpression = sorbeGenerator.getSORBETripleExpr(shape);
+			
+			List<TripleConstraint> constraints = collectorTC.getResult(tripleExpression);
+			if (constraints.size() == 0) {
+				if (!shape.isClosed())
+					finish(true);
+				else
+					finish(! graph.itOutNeighbours(node).hasNext());
+				return;
 			}
+			
+			Set<IRI> inversePredicate = new HashSet<IRI>();
+			Set<IRI> forwardPredicate = new HashSet<IRI>();
+			for (TripleConstraint tc:constraints) {
+				if (tc.getProperty().isForward()) {
+					forwardPredicate.add(tc.getProperty().getIri());
+				}else {
+					inversePredicate.add(tc.getProperty().getIri());
+				}
+			}
+			
+			neighbourhood = new ArrayList<NeighborTriple>();
+			graph.itInNeighboursWithPredicate(node, inversePredicate).forEachRemaining(neighbourhood::add);
+			if (shape.isClosed())
+				graph.itOutNeighbours(node).forEachRemaining(neighbourhood::add);
+			else
+				graph.itOutNeighboursWithPredicate(node,forwardPredicate).forEachRemaining(neighbourhood::add);
+			listener.neighbourhoodFetched(node, shape.getId(), neighbourhood.size());
+			
+			// Match using only predicate and recursive test. The following line are the only difference with refine validation
+			constraintsByProperty = collectorTC.getIndexedResult(tripleExpression);
+			if (pool != null && neighbourhood.size() >= minNeighbours)
+				nextInParallel();
+			else
+				next();
 		}
 		
-		List<NeighborTriple> neighbourhood = new ArrayList<NeighborTriple>();
-		tmp = graph.itInNeighboursWithPredicate(node, inversePredicate);
-		while(tmp.hasNext()) neighbourhood.add(tmp.next());
-		if (shape.isClosed()) {
-			tmp = graph.itOutNeighbours(node);
-			while(tmp.hasNext()) neighbourhood.add(tmp.next());
-		} else {
-			tmp = graph.itOutNeighboursWithPredicate(node,forwardPredicate);
-			while(tmp.hasNext()) neighbourhood.add(tmp.next());
+		/** Validates in parallel the neighbours against the shapes of the triple constraints if there are enough of them, 
+		 * then matches the neighbourhood. 
+		 */
+		private void nextInParallel() {
+			Set<Pair<Value,Label>> pairs = new LinkedHashSet<>();
+			for (NeighborTriple neighbour:neighbourhood) {
+				List<TripleConstraint> possibility = constraintsByProperty.get(neighbour.getPredicate());
+				if (possibility == null) {
+					if (! shape.getExtraProperties().contains(neighbour.getPredicate())) {
+						finish(false);
+						return;
+					}
+					continue;
+				}
+				for (TripleConstraint tc:possibility)
+					if (! typing.contains(neighbour.getOpposite(), tc.getShapeExpr().getId()))
+						pairs.add(new Pair<>(neighbour.getOpposite(), tc.getShapeExpr().getId()));
+			}
+			if (pairs.size() < minNeighbours) {
+				next();
+				return;
+			}
+			shapeMap = validateInParallel(pairs);
+			finish(matchNeighbourhood());
 		}
 		
-		// Match using only predicate and recursive test. The following line are the only difference with refine validation
-		Set<Pair<Value, Label>> shapeMap = new HashSet<Pair<Value, Label>>();
-		Matcher matcher1 = new MatcherPredicateOnly();
-		LinkedHashMap<NeighborTriple,List<TripleConstraint>> matchingTC1 = Matcher.collectMatchingTC(neighbourhood, constraints, matcher1);
-
-		for(Entry<NeighborTriple,List<TripleConstraint>> entry:matchingTC1.entrySet()) {
-			List<TripleConstraint> possibility = entry.getValue();
-			if (possibility.isEmpty() & ! shape.getExtraProperties().contains(entry.getKey().getPredicate()))
-				return false;
-			for (TripleConstraint tc:possibility) {
-				Value destNode = entry.getKey().getOpposite();
-				if (! this.typing.contains(destNode, tc.getShapeExpr().getId())) {
-					if (this.recursiveValidation(destNode, tc.getShapeExpr().getId()))
-						shapeMap.add(new Pair<>(destNode, tc.getShapeExpr().getId()));
+		/** Pushes the validation of the next neighbour against the shape of a triple constraint, or matches the neighbourhood when all are validated. */
+		private void next() {
+			while (triple < neighbourhood.size()) {
+				NeighborTriple neighbour = neighbourhood.get(triple);
+				List<TripleConstraint> possibility = constraintsByProperty.get(neighbour.getPredicate());
+				if (possibility == null) {
+					if (! shape.getExtraProperties().contains(neighbour.getPredicate())) {
+						finish(false);
+						return;
+					}
+				} else if (constraint < possibility.size()) {
+					TripleConstraint tc = possibility.get(constraint++);
+					Value destNode = neighbour.getOpposite();
+					if (! typing.contains(destNode, tc.getShapeExpr().getId())) {
+						pending = new Pair<>(destNode, tc.getShapeExpr().getId());
+						stack.add(new LabelFrame(destNode, tc.getShapeExpr().getId()));
+						return;
+					}
+					continue;
 				}
+				triple++;
+				constraint = 0;
 			}
+			finish(matchNeighbourhood());
 		}
 		
-		// Add the detected node value to the typing
-		this.typing.addHypothesis(shapeMap);
+		private boolean matchNeighbourhood() {
+			Set<Pair<Value, Label>> hypothesis = shapeMap == null ? Collections.emptySet() : shapeMap;
+			// Add the detected node value to the typing
+			typing.addHypothesis(hypothesis);
+			
+			Matcher matcher2 = new MatcherPredicateAndValue(typing); 
+			Matcher.collectMatchingTC(neighbourhood, constraintsByProperty, matcher2, matchingTC);
+			listener.constraintsMatched(node, shape.getId(), matchingTC);
 
-
-		Matcher matcher2 = new MatcherPredicateAndValue(this.getTyping()); 
-		LinkedHashMap<NeighborTriple,List<TripleConstraint>> matchingTC2 = Matcher.collectMatchingTC(neighbourhood, constraints, matcher2);
-
-		// Check that the neighbor that cannot be match to a constraint are in extra
-		Iterator<Map.Entry<NeighborTriple,List<TripleConstraint>>> iteMatchingTC = matchingTC2.entrySet().iterator();
-		while(iteMatchingTC.hasNext()) {
-			Entry<NeighborTriple, List<TripleConstraint>> listTC = iteMatchingTC.next();
-			if (listTC.getValue().isEmpty()) {
-				if (! shape.getExtraProperties().contains(listTC.getKey().getPredicate())){
-					this.typing.removeHypothesis(shapeMap);
+			// Check that the neighbor that cannot be match to a constraint are in extra
+			for (int i = 0; i < matchingTC.size(); i++) {
+				if (matchingTC.getNbMatches(i) == 0 && ! shape.getExtraProperties().contains(matchingTC.getTriple(i).getPredicate())) {
+					typing.removeHypothesis(hypothesis);
 					return false;
 				}
-				iteMatchingTC.remove();
 			}
+			matchingTC.removeUnmatched();
+			
+			CardinalityEvaluator cardinalityEvaluator = specializedChecks ? compiler.compileCardinalities(tripleExpression) : null;
+			if (cardinalityEvaluator != null && cardinalityEvaluator.accepts(matchingTC)) {
+				boolean result = cardinalityEvaluator.evaluate(matchingTC);
+				typing.removeHypothesis(hypothesis);
+				return result;
+			}
+			
+			// Create a BagIterator for all possible bags induced by the matching triple constraints
+			BagIterator bagIt = new BagIterator(matchingTC);
+			IntervalEvaluator intervalEvaluator = compiler.compile(tripleExpression);
+			
+			int nbBags = 0;
+			while(bagIt.hasNext()){
+				Bag bag = bagIt.next();
+				nbBags++;
+				tracker.bagEnumerated();
+				if (intervalEvaluator.evaluate(bag).contains(1)) {
+					listener.bagsEnumerated(node, shape.getId(), nbBags);
+					typing.removeHypothesis(hypothesis);
+					return true;
+				}
+			}
+			listener.bagsEnumerated(node, shape.getId(), nbBags);
+
+			typing.removeHypothesis(hypothesis);
+			return false;
 		}
 		
-		// Create a BagIterator for all possible bags induced by the matching triple constraints
-		ArrayList<List<TripleConstraint>> listMatchingTC = new ArrayList<List<TripleConstraint>>();
-		for(NeighborTriple nt:matchingTC2.keySet())
-			listMatchingTC.add(matchingTC2.get(nt));
-		
-		BagIterator bagIt = new BagIterator(listMatchingTC);
-		IntervalComputation intervalComputation = new IntervalComputation(this.collectorTC);
-		
-		while(bagIt.hasNext()){
-			Bag bag = bagIt.next();
-			tripleExpression.accept(intervalComputation, bag, this);
-			if (intervalComputation.getResult().contains(1)) {
-				this.typing.removeHypothesis(shapeMap);
-				return true;
-			}
+		private void finish(boolean result) {
+			if (listener != ValidationListener.NONE)
+				listener.shapeCheckEnded(node, shape.getId(), result, System.nanoTime() - startTime);
+			end(result);
 		}
-
-		this.typing.removeHypothesis(shapeMap);
-		return false;
-	}	
-
-
+	}
 }
@@ -16,14 +16,12 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.validation;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.IRI;
@@ -33,17 +31,9 @@ import fr.inria.lille.shexjava.graph.NeighborTriple;
 import fr.inria.lille.shexjava.graph.RDFGraph;
 import fr.inria.lille.shexjava.schema.Label;
 import fr.inria.lille.shexjava.schema.ShexSchema;
-import fr.inria.lille.shexjava.schema.abstrsynt.NodeConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeAnd;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExternal;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
-import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
 import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
-import fr.inria.lille.shexjava.schema.analysis.ShapeExpressionVisitor;
 import fr.inria.lille.shexjava.util.Pair;
 
 /** Implements the Refinement validation algorithm.
@@ -63,6 +53,14 @@ public class RefineValidation implements ValidationAlgorithm {
 	private RefinementTyping typing = null;
 	private Set<Label> extraShape;
 	private DynamicCollectorOfTripleConstraint collectorTC;
+	private MatchingTable matchingTC = new MatchingTable();
+	private TypingWriter output = null;
+	private Set<Label> requestedLabels = null;
+	private EvaluatorCompiler compiler;
+	private boolean specializedChecks = false;
+	private ValidationListener listener = ValidationListener.NONE;
+	private ValidationBudget budget = new ValidationBudget();
+	private ValidationBudget.Tracker tracker;
 	
 
 	public RefineValidation(ShexSchema schema, RDFGraph graph) {
@@ -72,7 +70,7 @@ public class RefineValidation implements ValidationAlgorithm {
 		this.sorbeGenerator = new SORBEGenerator();
 		this.collectorTC = new DynamicCollectorOfTripleConstraint();
 		this.extraShape=Collections.emptySet();
-		this.extraShape=Collections.emptySet();
+		this.compiler = new EvaluatorCompiler(this::isLocallyValid, (node, label) -> typing.contains(node, label), collectorTC);
 	}
 	
 	public RefineValidation(ShexSchema schema, RDFGraph graph,Set<Label> extraShape) {
@@ -82,6 +80,31 @@ public class RefineValidation implements ValidationAlgorithm {
 		this.sorbeGenerator = new SORBEGenerator();
 		this.collectorTC = new DynamicCollectorOfTripleConstraint();
 		this.extraShape=extraShape;
+		this.compiler = new EvaluatorCompiler(this::isLocallyValid, (node, label) -> typing.contains(node, label), collectorTC);
+	}
+	
+	/** Enables the specialized local check of the shapes whose triple expression is a triple constraint or an each-of of triple constraints, possibly repeated.
+	 * When enabled, the neighbourhoods in which every triple matches exactly one triple constraint are checked by counting the triples, see {@link CardinalityEvaluator}. The other shapes and neighbourhoods are evaluated with the bags as before.
+	 * Disabled by default.
+	 * 
+	 * @param specializedChecks
+	 */
+	public void setSpecializedChecks(boolean specializedChecks) {
+		this.specializedChecks = specializedChecks;
+	}
+	
+	/** Sets the listener notified of the local checks and of the rounds of the computation of the typing.
+	 * 
+	 * @param listener the listener, or {@link ValidationListener#NONE} to disable the notifications
+	 */
+	@Override
+	public void setListener(ValidationListener listener) {
+		this.listener = listener == null ? ValidationListener.NONE : listener;
+	}
+	
+	@Override
+	public void setBudget(ValidationBudget budget) {
+		this.budget = budget == null ? new ValidationBudget() : budget;
 	}
 	
 	@Override
@@ -89,6 +112,29 @@ public class RefineValidation implements ValidationAlgorithm {
 		return typing;
 	}
 	
+	/** Restricts the typing to the given labels and to the labels they depend on, instead of all the selected shapes of the schema. 
+	 * The typing is reset and will be computed at the next call of validate, which can then only be called with one of these labels.
+	 * 
+	 * @param labels the labels to be typed, or null to type all the selected shapes
+	 */
+	public void setRequestedLabels(Set<Label> labels) {
+		if (labels != null) 
+			for (Label label:labels)
+				if (!schema.getShapeMap().containsKey(label))
+					throw new IllegalArgumentException("Unknown label: "+label);
+		this.requestedLabels = labels == null ? null : new HashSet<>(labels);
+		resetTyping();
+	}
+	
+	/** Sets a writer to which the typing of every stratum is written as soon as the stratum is finalized, during the next computation of the typing.
+	 * The writer is not closed by the validation.
+	 * 
+	 * @param output the writer, or null to disable the output
+	 */
+	public void setOutput(TypingWriter output) {
+		this.output = output;
+	}
+	
 	/** Reset typing to null.
 	 * 
 	 */
@@ -96,102 +142,75 @@ public class RefineValidation implements ValidationAlgorithm {
 		this.typing = null;
 	}
 	
+	/** Computes the typing if needed. If the budget is exceeded, the typing is reset and a {@link fr.inria.lille.shexjava.exception.BudgetExceededException} is thrown.
+	 */
 	@Override
 	public boolean validate(Value focusNode, Label label)  throws Exception {
 		if (typing == null) {
-			this.typing = new RefinementTyping(schema, graph, extraShape);
-			for (int stratum = 0; stratum < schema.getNbStratums(); stratum++) {
-				typing.addAllLabelsFrom(stratum, focusNode);
-							
-				boolean changed;
-				do {
-					changed = false;
-					Iterator<Pair<Value, Label>> typesIt = typing.typesIterator(stratum);
-					while (typesIt.hasNext()) {
-						Pair<Value, Label> nl = typesIt.next();
-						
-						if (! isLocallyValid(nl)) {
-							typesIt.remove();
-							changed = true;
-						}
-					}
-				} while (changed);
+			try {
+				computeTyping(focusNode);
+			} catch (IOException | RuntimeException e) {
+				this.typing = null;
+				throw e;
 			}
 		}		
 		if (focusNode==null || label==null)
 			return false;
 		if (!schema.getShapeMap().containsKey(label))
 			throw new Exception("Unknown label: "+label);
+		if (requestedLabels != null && !typing.getSelectedShape().contains(label))
+			throw new Exception("Label not selected for the typing: "+label);
 		return typing.contains(focusNode, label);
 	}
+	
+	private void computeTyping(Value focusNode) throws IOException {
+		this.tracker = budget.start();
+		this.typing = new RefinementTyping(schema, graph, extraShape, requestedLabels);
+		for (int stratum = 0; stratum < schema.getNbStratums(); stratum++) {
+			listener.stratumStarted(stratum);
+			typing.addAllLabelsFrom(stratum, focusNode);
+						
+			int nbRemoved;
+			int round = 0;
+			do {
+				nbRemoved = 0;
+				Iterator<Pair<Value, Label>> typesIt = typing.typesIterator(stratum);
+				while (typesIt.hasNext()) {
+					Pair<Value, Label> nl = typesIt.next();
+					tracker.pairExamined();
+					
+					if (! isLocallyValid(nl)) {
+						typesIt.remove();
+						nbRemoved++;
+					}
+				}
+				listener.roundEnded(stratum, round++, nbRemoved);
+			} while (nbRemoved > 0);
+			typing.finalizeStratum(stratum);
+			listener.stratumEnded(stratum, round);
+			if (output != null)
+				output.write(typing.typesIterator(stratum));
+		}
+	}
 
 	
 	private boolean isLocallyValid(Pair<Value, Label> nl) {
-		EvaluateShapeExpressionVisitor visitor = new EvaluateShapeExpressionVisitor(nl.one);
-		schema.getShapeMap().get(nl.two).accept(visitor);
-		return visitor.getResult();
+		return compiler.compile(schema.getShapeMap().get(nl.two)).evaluate(nl.one);
 	}
 	
-	class EvaluateShapeExpressionVisitor extends ShapeExpressionVisitor<Boolean> {
-		
-		private Value node; 
-		private Boolean result;
-		
-		public EvaluateShapeExpressionVisitor(Value one) {
-			this.node = one;
-		}
-
-		@Override
-		public Boolean getResult() {
-			if (result == null) return false;
-			return result;
-		}
-		
-		@Override
-		public void visitShapeAnd(ShapeAnd expr, Object... arguments) {
-			for (ShapeExpr e : expr.getSubExpressions()) {
-				e.accept(this);
-				if (!result) break;
-			}
-		}
-
-		@Override
-		public void visitShapeOr(ShapeOr expr, Object... arguments) {
-			for (ShapeExpr e : expr.getSubExpressions()) {
-				e.accept(this);
-				if (result) break;
-			}
-		}
-		
-		@Override
-		public void visitShapeNot(ShapeNot expr, Object... arguments) {
-			expr.getSubExpression().accept(this);
-			result = !result;
-		}
-		
-		@Override
-		public void visitShape(Shape expr, Object... arguments) {
-			result = isLocallyValid(node, expr);
-		}
-
-		@Override
-		public void visitNodeConstraint(NodeConstraint expr, Object... arguments) {
-			result = expr.contains(node);
-		}
-
-		@Override
-		public void visitShapeExprRef(ShapeExprRef ref, Object[] arguments) {
-			result = typing.contains(node, ref.getLabel());
-		}
-
-		@Override
-		public void visitShapeExternal(ShapeExternal shapeExt, Object[] arguments) {
-			throw new UnsupportedOperationException("Not yet implemented.");
-		}
+	
+	private boolean isLocallyValid (Value node, Shape shape) {
+		if (listener == ValidationListener.NONE)
+			return checkShape(node, shape);
+		listener.shapeCheckStarted(node, shape.getId(), 0);
+		long start = System.nanoTime();
+		boolean result = checkShape(node, shape);
+		listener.shapeCheckEnded(node, shape.getId(), result, System.nanoTime() - start);
+		return result;
 	}
 	
 	
-	private boolean isLocallyValid (Value node, Shape shape) {
+	private boolean checkShape (Value node, Shape shape) {
 		TripleExpr tripleExpression = this.sorbeGenerator.getSORBETripleExpr(shape);
 		Iterator<NeighborTriple> tmp ;
 
@@ -229,36 +248,38 @@ public class RefineValidation implements ValidationAlgorithm {
 			tmp = graph.itOutNeighboursWithPredicate(node,forwardPredicate);
 			while(tmp.hasNext()) neighbourhood.add(tmp.next());
 		}
+		listener.neighbourhoodFetched(node, shape.getId(), neighbourhood.size());
 		
 		Matcher matcher = new MatcherPredicateAndValue(this.getTyping()); 
-		LinkedHashMap<NeighborTriple,List<TripleConstraint>> matchingTC = Matcher.collectMatchingTC(neighbourhood, constraints, matcher);
+		Matcher.collectMatchingTC(neighbourhood, collectorTC.getIndexedResult(tripleExpression), matcher, matchingTC);
+		listener.constraintsMatched(node, shape.getId(), matchingTC);
 		// Check that the neighbor that cannot be match to a constraint are in extra
-		Iterator<Map.Entry<NeighborTriple,List<TripleConstraint>>> iteMatchingTC = matchingTC.entrySet().iterator();
-		while(iteMatchingTC.hasNext()) {
-			Entry<NeighborTriple, List<TripleConstraint>> listTC = iteMatchingTC.next();
-			if (listTC.getValue().isEmpty()) {
-				if (! shape.getExtraProperties().contains(listTC.getKey().getPredicate())){
-					return false;
-				}
-				iteMatchingTC.remove();
+		for (int i = 0; i < matchingTC.size(); i++) {
+			if (matchingTC.getNbMatches(i) == 0 && ! shape.getExtraProperties().contains(matchingTC.getTriple(i).getPredicate())) {
+				return false;
 			}
 		}
+		matchingTC.removeUnmatched();
 
+		CardinalityEvaluator cardinalityEvaluator = specializedChecks ? compiler.compileCardinalities(tripleExpression) : null;
+		if (cardinalityEvaluator != null && cardinalityEvaluator.accepts(matchingTC)) return cardinalityEvaluator.evaluate(matchingTC);
+		
 		// Create a BagIterator for all possible bags induced by the matching triple constraints
-		List<List<TripleConstraint>> listMatchingTC = new ArrayList<List<TripleConstraint>>();
-		for(NeighborTriple nt:matchingTC.keySet())
-			listMatchingTC.add(matchingTC.get(nt));
-		BagIterator bagIt = new BagIterator(listMatchingTC);
+		BagIterator bagIt = new BagIterator(matchingTC);
 
-		IntervalComputation intervalComputation = new IntervalComputation(this.collectorTC);
+		IntervalEvaluator intervalEvaluator = compiler.compile(tripleExpression);
 		
+		int nbBags = 0;
 		while(bagIt.hasNext()){
 			Bag bag = bagIt.next();
-			tripleExpression.accept(intervalComputation, bag, this);
-			if (intervalComputation.getResult().contains(1)) {
+			nbBags++;
+			tracker.bagEnumerated();
+			if (intervalEvaluator.evaluate(bag).contains(1)) {
+				listener.bagsEnumerated(node, shape.getId(), nbBags);
 				return true;
 			}
 		}
+		listener.bagsEnumerated(node, shape.getId(), nbBags);
 
 		return false;
 	}	
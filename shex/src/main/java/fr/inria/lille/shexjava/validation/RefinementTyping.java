@@ -18,10 +18,15 @@ package fr.inria.lille.shexjava.validation;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.Value;
@@ -36,35 +41,52 @@ import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
 import fr.inria.lille.shexjava.util.Pair;
 
 /** The shape selected by default are the shapes of the set rules, the shapes that appear in a shape ref and the shapes that appear in a triple constraint.
+ * 
+ * The nodes of the graph are numbered, and for every selected label the typing stores the set of the numbers of its nodes.
+ * The stratum being computed is stored with one {@link BitSet} per label. Once a stratum is finalized (see {@link #finalizeStratum(int)}),
+ * its sets are compacted into read-only sets, either sorted arrays of numbers or trimmed bit sets depending on their density.
  * 
  * @author Iovka Boneva
  */
 public class RefinementTyping implements Typing {
 	private ShexSchema schema;
 	private RDFGraph graph;
-	private List<Set<Pair<Value, Label>>> theTyping;
 	private Set<Label> selectedShape;
 	
+	// numbering of the nodes
+	private Map<Value,Integer> nodeIds;
+	private Value[] nodes;
+	
+	// the set of nodes of the selected labels of the current and of the finalized strata
+	private Map<Label,NodeSet> theTyping;
+	
 	public RefinementTyping(ShexSchema schema, RDFGraph graph) {
-		this.schema = schema;
-		this.graph = graph;
-		this.theTyping = new ArrayList<>(schema.getNbStratums());
-		for (int i = 0; i < schema.getNbStratums(); i++) {
-			theTyping.add(new HashSet<>());
-		}
-		initSelectedShape(Collections.emptySet());
+		this(schema, graph, Collections.emptySet());
 	}
 	
 	public RefinementTyping(ShexSchema schema, RDFGraph graph, Set<Label> extraShapes) {
 		this.schema = schema;
 		this.graph = graph;
-		this.theTyping = new ArrayList<>(schema.getNbStratums());
-		for (int i = 0; i < schema.getNbStratums(); i++) {
-			theTyping.add(new HashSet<>());
-		}
+		this.theTyping = new HashMap<>();
 		initSelectedShape(extraShapes);
 	}
 	
+	/** The selected shapes are restricted to the requested labels and to the selected shapes on which they depend.
+	 * 
+	 * @param schema
+	 * @param graph
+	 * @param extraShapes
+	 * @param requestedLabels the labels for which the typing must be complete, all the labels if null
+	 */
+	public RefinementTyping(ShexSchema schema, RDFGraph graph, Set<Label> extraShapes, Set<Label> requestedLabels) {
+		this(schema, graph, extraShapes);
+		if (requestedLabels != null) {
+			Set<Label> closure = schema.getDependencyClosure(requestedLabels);
+			this.selectedShape.retainAll(closure);
+			this.selectedShape.addAll(requestedLabels);
+		}
+	}
+	
 	protected void initSelectedShape(Set<Label> extraLabel) {
 		this.selectedShape = new HashSet<Label>(extraLabel);
 		this.selectedShape.addAll(schema.getRules().keySet());
@@ -81,40 +103,142 @@ public class RefinementTyping implements Typing {
 		return this.selectedShape;
 	}
 	
+	
+	private void initNodes(Value focusNode) {
+		if (nodeIds != null)
+			return;
+		nodeIds = new HashMap<>();
+		List<Value> list = new ArrayList<>();
+		Iterator<Value> ite = graph.listAllNodes();
+		while(ite.hasNext()) {
+			Value node = ite.next();
+			if (! nodeIds.containsKey(node)) {
+				nodeIds.put(node, list.size());
+				list.add(node);
+			}
+		}
+		if (focusNode != null && ! nodeIds.containsKey(focusNode)) {
+			nodeIds.put(focusNode, list.size());
+			list.add(focusNode);
+		}
+		nodes = list.toArray(new Value[list.size()]);
+	}
+	
 
+	/** Starts the computation of a stratum: all the nodes of the graph and the focus node are associated with all the selected labels of the stratum.
+	 * 
+	 * @param stratum
+	 * @param focusNode
+	 */
 	public void addAllLabelsFrom(int stratum, Value focusNode) {
-		Set<Label> labels = schema.getStratum(stratum);
-		Set<Pair<Value, Label>> set = theTyping.get(stratum);
-		for (Label label: labels) {
+		initNodes(focusNode);
+		for (Label label: schema.getStratum(stratum)) {
 			if (selectedShape.contains(label)) {
-				Iterator<Value> ite = graph.listAllNodes();
-				while(ite.hasNext()) {
-					set.add(new Pair<>(ite.next(), label));
-				}
-				if (focusNode != null)
-					set.add(new Pair<>(focusNode, label));
+				BitSet set = new BitSet(nodes.length);
+				set.set(0, nodes.length);
+				theTyping.put(label, new BitNodeSet(set, true));
 			}
 		}
 	}
 	
 	
+	/** Compacts the sets of the stratum, which cannot be modified afterwards. 
+	 * 
+	 * @param stratum
+	 */
+	public void finalizeStratum(int stratum) {
+		for (Label label: schema.getStratum(stratum)) {
+			NodeSet set = theTyping.get(label);
+			if (set != null)
+				theTyping.put(label, set.compact(nodes.length));
+		}
+	}
+	
+	
+	/** Iterates over the pairs of a stratum. The iterator supports removal as long as the stratum is not finalized.
+	 * 
+	 * @param stratum
+	 * @return an iterator over the pairs (node, label) of the stratum
+	 */
 	public Iterator<Pair<Value, Label>> typesIterator (int stratum) {
-		return theTyping.get(stratum).iterator();
+		return new Iterator<Pair<Value, Label>>() {
+			private Iterator<Label> labels = schema.getStratum(stratum).iterator();
+			private Label label = null;
+			private NodeSet set = null;
+			private int next = -1;
+			private int last = -1;
+			
+			@Override
+			public boolean hasNext() {
+				while (next < 0) {
+					if (! labels.hasNext())
+						return false;
+					label = labels.next();
+					set = theTyping.get(label);
+					next = set == null ? -1 : set.next(0);
+				}
+				return true;
+			}
+
+			@Override
+			public Pair<Value, Label> next() {
+				if (! hasNext())
+					throw new NoSuchElementException();
+				last = next;
+				next = set.next(next+1);
+				return new Pair<>(nodes[last], label);
+			}
+			
+			@Override
+			public void remove() {
+				if (last < 0)
+					throw new IllegalStateException();
+				set.remove(last);
+				last = -1;
+			}
+		};
 	}
 	
 	
 	@Override
 	public boolean contains (Value node, Label label) {
-		return theTyping.get(schema.hasStratum(label)).contains(new Pair<>(node, label));
+		Integer id = nodeIds == null ? null : nodeIds.get(node);
+		if (id == null)
+			return false;
+		NodeSet set = theTyping.get(label);
+		return set != null && set.contains(id);
 	}
 	
+	@Override
+	public Iterator<Pair<Value, Label>> iterator() {
+		return new Iterator<Pair<Value, Label>>() {
+			private int stratum = 0;
+			private Iterator<Pair<Value, Label>> current = schema.getNbStratums() == 0 ? null : typesIterator(0);
+			
+			@Override
+			public boolean hasNext() {
+				while (current != null && ! current.hasNext()) {
+					stratum++;
+					current = stratum < schema.getNbStratums() ? typesIterator(stratum) : null;
+				}
+				return current != null;
+			}
+
+			@Override
+			public Pair<Value, Label> next() {
+				if (! hasNext())
+					throw new NoSuchElementException();
+				return current.next();
+			}
+		};
+	}
 	
 	@Override
 	public Set<Pair<Value, Label>> asSet() {
 		Set<Pair<Value, Label>> set = new HashSet<>();
-		for (Set<Pair<Value, Label>> subset : theTyping)
-			set.addAll(subset);
-		
+		Iterator<Pair<Value, Label>> ite = iterator();
+		while (ite.hasNext())
+			set.add(ite.next());
 		return set;
 	}
 	
@@ -122,5 +246,97 @@ public class RefinementTyping implements Typing {
 	public String toString() {
 		return asSet().toString();
 	}
+	
+	
+	//--------------------------------------------------------------------------------
+	// Sets of node numbers
+	//--------------------------------------------------------------------------------
+	
+	static abstract class NodeSet {
+		abstract boolean contains(int id);
+		
+		/** The smallest id greater or equal to from in the set, -1 if none.
+		 */
+		abstract int next(int from);
+		
+		abstract void remove(int id);
+		
+		/** A read-only version of the set using as few memory as possible.
+		 */
+		abstract NodeSet compact(int nbNodes);
+	}
+	
+	
+	static class BitNodeSet extends NodeSet {
+		private final BitSet bits;
+		private final boolean mutable;
+		
+		BitNodeSet(BitSet bits, boolean mutable) {
+			this.bits = bits;
+			this.mutable = mutable;
+		}
+		
+		@Override
+		boolean contains(int id) {
+			return bits.get(id);
+		}
+		
+		@Override
+		int next(int from) {
+			return bits.nextSetBit(from);
+		}
+		
+		@Override
+		void remove(int id) {
+			if (! mutable)
+				throw new UnsupportedOperationException("The stratum is finalized.");
+			bits.clear(id);
+		}
+		
+		@Override
+		NodeSet compact(int nbNodes) {
+			int cardinality = bits.cardinality();
+			// a sorted array uses 32 bits per node, a bit set one bit per node of the graph
+			if ((long) cardinality * Integer.SIZE < nbNodes) {
+				int[] ids = new int[cardinality];
+				int i = 0;
+				for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id+1))
+					ids[i++] = id;
+				return new SortedNodeSet(ids);
+			}
+			return new BitNodeSet(BitSet.valueOf(bits.toLongArray()), false);
+		}
+	}
+	
+	
+	static class SortedNodeSet extends NodeSet {
+		private final int[] ids;
+		
+		SortedNodeSet(int[] ids) {
+			this.ids = ids;
+		}
+		
+		@Override
+		boolean contains(int id) {
+			return Arrays.binarySearch(ids, id) >= 0;
+		}
+		
+		@Override
+		int next(int from) {
+			int pos = Arrays.binarySearch(ids, from);
+			if (pos < 0)
+				pos = -pos - 1;
+			return pos < ids.length ? ids[pos] : -1;
+		}
+		
+		@Override
+		void remove(int id) {
+			throw new UnsupportedOperationException("The stratum is finalized.");
+		}
+		
+		@Override
+		NodeSet compact(int nbNodes) {
+			return this;
+		}
+	}
 }
-
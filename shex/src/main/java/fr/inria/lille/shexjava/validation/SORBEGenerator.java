@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -43,7 +44,8 @@ import fr.inria.lille.shexjava.util.Interval;
  */
 public class SORBEGenerator {
 	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
-	private static int tripleLabelNb = 0;
+	// generators may be used concurrently by validators running in different threads
+	private static AtomicInteger tripleLabelNb = new AtomicInteger();
 	private static String TRIPLE_LABEL_PREFIX = "LABEL_FOR_SORBE_GENERATED";
 	
 	private Map<Label,TripleExpr> sorbeMap;
@@ -158,8 +160,7 @@ public class SORBEGenerator {
 	
 
 	private void setTripleLabel(TripleExpr triple) {
-		triple.setId(new Label(rdfFactory.createBNode(TRIPLE_LABEL_PREFIX+"_"+tripleLabelNb),true));
-		tripleLabelNb++;
+		triple.setId(new Label(rdfFactory.createBNode(TRIPLE_LABEL_PREFIX+"_"+tripleLabelNb.getAndIncrement()),true));
 	}
 	
 	class CheckIfContainsEmpty extends TripleExpressionVisitor<Boolean>{
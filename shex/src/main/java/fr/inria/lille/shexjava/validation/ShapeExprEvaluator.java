@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import org.eclipse.rdf4j.model.Value;
+
+/** A shape expression compiled by an {@link EvaluatorCompiler}. 
+ * 
+ * @author Jérémie Dusart
+ */
+public abstract class ShapeExprEvaluator {
+	
+	/** Evaluates the shape expression on a node.
+	 * 
+	 * @param node
+	 * @return true if the node satisfies the shape expression
+	 */
+	public abstract boolean evaluate(Value node);
+}
@@ -16,6 +16,7 @@
  ******************************************************************************/
 package fr.inria.lille.shexjava.validation;
 
+import java.util.Iterator;
 import java.util.Set;
 
 import org.eclipse.rdf4j.model.Value;
@@ -40,8 +41,17 @@ public interface Typing {
 	public boolean contains(Value node, Label label);
 	
 	/** Returns the typing as a set of pairs (node, label). Use for testing purpose.
+	 * The set may be a copy of the typing, use {@link #iterator()} to go through large typings.
 	 * 
 	 */
 	public Set<Pair<Value, Label>> asSet(); // For testing purposes
+	
+	/** Iterates over the pairs (node, label) of the typing without copying them.
+	 * 
+	 * @return an iterator over the pairs of the typing
+	 */
+	public default Iterator<Pair<Value, Label>> iterator() {
+		return asSet().iterator();
+	}
 
 }
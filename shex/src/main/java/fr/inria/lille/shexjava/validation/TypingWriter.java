@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Writes (node, label, status) records to a {@link Writer} as soon as they are produced, without building any intermediate collection.
+ * 
+ * <p>Three formats are available:</p>
+ * <ul>
+ * <li>{@link Format#JSON}: a ShapeMap JSON array of objects <code>{"node": ..., "shape": ..., "status": ...}</code>,</li>
+ * <li>{@link Format#CSV}: lines <code>node,shape,status</code> after a header line,</li>
+ * <li>{@link Format#NTRIPLES}: for every record a blank node with the properties {@link #NODE}, {@link #SHAPE} and {@link #STATUS}.</li>
+ * </ul>
+ * 
+ * <p>The records can be written concurrently by several threads. A typing can be written as a whole with {@link #write(Typing)}, 
+ * or stratum by stratum during a refine validation, see {@link RefineValidation#setOutput(TypingWriter)}.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public class TypingWriter implements Closeable {
+	public enum Format { JSON, CSV, NTRIPLES };
+	
+	public static final String NAMESPACE = "http://shex.io/ns/shapemap#";
+	public static final String NODE = NAMESPACE+"node";
+	public static final String SHAPE = NAMESPACE+"shape";
+	public static final String STATUS = NAMESPACE+"status";
+	public static final String CONFORMANT = "conformant";
+	public static final String NONCONFORMANT = "nonconformant";
+	public static final String UNDETERMINED = "undetermined";
+	
+	private Writer out;
+	private Format format;
+	private long nbRecords;
+	private boolean ended;
+	
+	public TypingWriter(Writer out, Format format) throws IOException {
+		this.out = out;
+		this.format = format;
+		this.nbRecords = 0;
+		this.ended = false;
+		if (format == Format.CSV)
+			out.write("node,shape,status\n");
+		else if (format == Format.JSON)
+			out.write("[");
+	}
+	
+	/** The records are written in UTF-8 in the stream.
+	 * 
+	 * @param out
+	 * @param format
+	 * @throws IOException
+	 */
+	public TypingWriter(OutputStream out, Format format) throws IOException {
+		this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), format);
+	}
+	
+	/** Writes a record.
+	 * 
+	 * @param node
+	 * @param label
+	 * @param conformant
+	 * @throws IOException
+	 */
+	public void write(Value node, Label label, boolean conformant) throws IOException {
+		write(node, label, conformant ? CONFORMANT : NONCONFORMANT);
+	}
+	
+	/** Writes a record with the status {@link #UNDETERMINED}, for an association whose validation did not finish, for instance because it exceeded its budget.
+	 * 
+	 * @param node
+	 * @param label
+	 * @throws IOException
+	 */
+	public void writeUndetermined(Value node, Label label) throws IOException {
+		write(node, label, UNDETERMINED);
+	}
+	
+	private synchronized void write(Value node, Label label, String status) throws IOException {
+		switch (format) {
+			case CSV:
+				out.write(csvEscape(nodeToString(node)));
+				out.write(',');
+				out.write(csvEscape(labelToString(label)));
+				out.write(',');
+				out.write(status);
+				out.write('\n');
+				break;
+			case JSON:
+				out.write(nbRecords == 0 ? "\n" : ",\n");
+				out.write("  {\"node\": ");
+				out.write(jsonEscape(nodeToString(node)));
+				out.write(", \"shape\": ");
+				out.write(jsonEscape(labelToString(label)));
+				out.write(", \"status\": \"");
+				out.write(status);
+				out.write("\"}");
+				break;
+			case NTRIPLES:
+				String record = "_:r"+nbRecords;
+				out.write(record+" <"+NODE+"> "+NTriplesUtil.toNTriplesString(node)+" .\n");
+				out.write(record+" <"+SHAPE+"> "+labelToNTriples(label)+" .\n");
+				out.write(record+" <"+STATUS+"> \""+status+"\" .\n");
+				break;
+		}
+		nbRecords++;
+	}
+	
+	/** Writes all the pairs (node, label) given by the iterator with the status conformant.
+	 * 
+	 * @param typing
+	 * @throws IOException
+	 */
+	public synchronized void write(Iterator<Pair<Value,Label>> typing) throws IOException {
+		while (typing.hasNext()) {
+			Pair<Value,Label> pair = typing.next();
+			write(pair.one, pair.two, true);
+		}
+	}
+	
+	/** Writes all the pairs of the typing with the status conformant. The typing is iterated, not copied.
+	 * 
+	 * @param typing
+	 * @throws IOException
+	 */
+	public void write(Typing typing) throws IOException {
+		write(typing.iterator());
+	}
+	
+	/** The number of records written so far.
+	 * 
+	 */
+	public synchronized long getNbRecords() {
+		return nbRecords;
+	}
+	
+	/** Terminates the output and flushes it, without closing the underlying writer. No record can be written afterwards.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void end() throws IOException {
+		if (ended)
+			return;
+		if (format == Format.JSON)
+			out.write(nbRecords == 0 ? "]\n" : "\n]\n");
+		out.flush();
+		ended = true;
+	}
+	
+	/** Terminates the output and closes the underlying writer.
+	 * 
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		end();
+		out.close();
+	}
+	
+	static String nodeToString(Value node) {
+		if (node instanceof IRI)
+			return node.stringValue();
+		return NTriplesUtil.toNTriplesString(node);
+	}
+	
+	static String labelToString(Label label) {
+		if (label.isIri())
+			return label.stringValue();
+		return "_:"+label.stringValue();
+	}
+	
+	private static String labelToNTriples(Label label) {
+		if (label.isIri())
+			return "<"+label.stringValue()+">";
+		return "_:"+label.stringValue();
+	}
+	
+	static String csvEscape(String s) {
+		if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0)
+			return s;
+		return "\"" + s.replace("\"", "\"\"") + "\"";
+	}
+	
+	static String jsonEscape(String s) {
+		StringBuilder result = new StringBuilder(s.length()+2);
+		result.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"' : result.append("\\\""); break;
+				case '\\' : result.append("\\\\"); break;
+				case '\n' : result.append("\\n"); break;
+				case '\r' : result.append("\\r"); break;
+				case '\t' : result.append("\\t"); break;
+				default :
+					if (c < 0x20)
+						result.append(String.format("\\u%04x", (int) c));
+					else
+						result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+}
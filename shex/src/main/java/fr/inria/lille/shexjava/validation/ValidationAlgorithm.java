@@ -47,6 +47,25 @@ public interface ValidationAlgorithm {
 	 */
 	public boolean validate(Value focusNode, Label label)  throws Exception;
 	
+	/** Sets the listener notified of the local checks performed by the next validations, see {@link ValidationStatistics} and {@link ValidationExplanation}.
+	 * The default implementation ignores the listener, for the algorithms that do not notify the checks.
+	 * 
+	 * @param listener the listener, or {@link ValidationListener#NONE} to disable the notifications
+	 */
+	public default void setListener(ValidationListener listener) {
+	}
+	
+	/** Sets the budget of the next validations. A validation that exceeds its budget throws a {@link fr.inria.lille.shexjava.exception.BudgetExceededException}.
+	 * The default implementation only accepts no limit, for the algorithms that do not check a budget.
+	 * 
+	 * @param budget the budget, or null for no limit
+	 * @throws UnsupportedOperationException if the algorithm does not check a budget
+	 */
+	public default void setBudget(ValidationBudget budget) {
+		if (budget != null)
+			throw new UnsupportedOperationException("The budget is not supported by "+getClass().getName());
+	}
+	
 	/** Retrieves the typing constructed by a previous call of {@link #validate(Value, Label)}.
 	 * 
 	 */
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.inria.lille.shexjava.exception.BudgetExceededException;
+
+/** Limits the resources used by every call of {@link ValidationAlgorithm#validate(org.eclipse.rdf4j.model.Value, fr.inria.lille.shexjava.schema.Label)}: 
+ * duration, number of bags enumerated, recursion depth and number of pairs (node, label) examined. No limit is set by default.
+ * 
+ * <p>The limits are checked cooperatively in the loops of the validation, which throws a {@link BudgetExceededException} when one of them is exceeded, 
+ * when the budget is cancelled with {@link #cancel()} or when the validating thread is interrupted. The result of the validation is then undetermined 
+ * and its typing is reset.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public class ValidationBudget {
+	private long timeout = Long.MAX_VALUE;
+	private long maxBags = Long.MAX_VALUE;
+	private int maxDepth = Integer.MAX_VALUE;
+	private long maxPairs = Long.MAX_VALUE;
+	private volatile boolean cancelled = false;
+	
+	/** Sets the maximal duration of a validation.
+	 * 
+	 * @param timeout
+	 * @param unit
+	 */
+	public void setTimeout(long timeout, TimeUnit unit) {
+		this.timeout = unit.toNanos(timeout);
+	}
+	
+	/** Sets the maximal number of bags enumerated by the local checks of a validation. */
+	public void setMaxBags(long maxBags) {
+		this.maxBags = maxBags;
+	}
+	
+	/** Sets the maximal number of nested checks of the recursive validation. */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+	
+	/** Sets the maximal number of pairs (node, label) examined by a validation. */
+	public void setMaxPairs(long maxPairs) {
+		this.maxPairs = maxPairs;
+	}
+	
+	/** Stops the validations using this budget as soon as they check it, and the following validations. */
+	public void cancel() {
+		this.cancelled = true;
+	}
+	
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/** Starts counting the resources used by a validation. */
+	Tracker start() {
+		return new Tracker();
+	}
+	
+	/** The resources used by one validation. The counters are shared by the sub-validations running in parallel. */
+	final class Tracker {
+		private final long deadline;
+		private final AtomicLong nbBags = new AtomicLong();
+		private final AtomicLong nbPairs = new AtomicLong();
+		
+		private Tracker() {
+			long now = System.nanoTime();
+			this.deadline = timeout == Long.MAX_VALUE || now + timeout < now ? Long.MAX_VALUE : now + timeout;
+			checkTime();
+		}
+		
+		void pairExamined() {
+			if (nbPairs.incrementAndGet() > maxPairs)
+				throw new BudgetExceededException(BudgetExceededException.Reason.PAIRS, "More than "+maxPairs+" pairs examined.");
+			checkTime();
+		}
+		
+		void bagEnumerated() {
+			long nb = nbBags.incrementAndGet();
+			if (nb > maxBags)
+				throw new BudgetExceededException(BudgetExceededException.Reason.BAGS, "More than "+maxBags+" bags enumerated.");
+			if ((nb & 0xFF) == 0)
+				checkTime();
+		}
+		
+		void depthReached(int depth) {
+			if (depth > maxDepth)
+				throw new BudgetExceededException(BudgetExceededException.Reason.DEPTH, "Recursion deeper than "+maxDepth+".");
+		}
+		
+		void checkTime() {
+			if (cancelled || Thread.currentThread().isInterrupted())
+				throw new BudgetExceededException(BudgetExceededException.Reason.CANCELLED, "Validation cancelled.");
+			if (deadline != Long.MAX_VALUE && System.nanoTime() > deadline)
+				throw new BudgetExceededException(BudgetExceededException.Reason.DEADLINE, "Validation longer than "+TimeUnit.NANOSECONDS.toMillis(timeout)+" ms.");
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.schema.Label;
+
+/** A {@link ValidationListener} that records the tree of the local checks performed by a validation: for every check, the shape label, the node, 
+ * the size of the neighbourhood, the number of triple constraints matched by every triple, the number of bags evaluated, the duration and the result.
+ * With the recursive validation, the checks caused by a check are its children. With the refine validation, the checks are listed with their stratum and round.
+ * 
+ * <p>The explanation is built from the events of the validation itself, so it reflects its real costs, apart from the recording. It can be written as text or as JSON.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public class ValidationExplanation implements ValidationListener {
+	private final List<Check> checks = new ArrayList<>();
+	private final Deque<Check> current = new ArrayDeque<>();
+	private int stratum = -1;
+	private int round = 0;
+	private Boolean result = null;
+	
+	/** A local check of a node against a shape. */
+	public static class Check {
+		private final Label label;
+		private final Value node;
+		private final int depth;
+		private final int stratum;
+		private final int round;
+		private int neighbourhoodSize = 0;
+		private List<NeighborTriple> triples = Collections.emptyList();
+		private int[] nbCandidates = new int[0];
+		private int nbBags = -1;
+		private long duration;
+		private boolean result;
+		private final List<Check> children = new ArrayList<>();
+		
+		private Check(Label label, Value node, int depth, int stratum, int round) {
+			this.label = label;
+			this.node = node;
+			this.depth = depth;
+			this.stratum = stratum;
+			this.round = round;
+		}
+		
+		public Label getLabel() {
+			return label;
+		}
+		
+		public Value getNode() {
+			return node;
+		}
+		
+		/** @return the recursion depth of the check, 0 for the refine validation */
+		public int getDepth() {
+			return depth;
+		}
+		
+		/** @return the stratum of the check with the refine validation, -1 for the recursive validation */
+		public int getStratum() {
+			return stratum;
+		}
+		
+		/** @return the round of the computation of the stratum with the refine validation */
+		public int getRound() {
+			return round;
+		}
+		
+		public int getNeighbourhoodSize() {
+			return neighbourhoodSize;
+		}
+		
+		/** @return the triples of the neighbourhood that were matched with the triple constraints, see {@link #getNbCandidates(int)} */
+		public List<NeighborTriple> getTriples() {
+			return Collections.unmodifiableList(triples);
+		}
+		
+		/** @param i
+		 * @return the number of triple constraints matched by the triple {@link #getTriples()}.get(i)
+		 */
+		public int getNbCandidates(int i) {
+			return nbCandidates[i];
+		}
+		
+		/** @return the number of bags evaluated, or -1 if the bags were not enumerated */
+		public int getNbBags() {
+			return nbBags;
+		}
+		
+		/** @return the duration in nanoseconds, including the duration of the children */
+		public long getDuration() {
+			return duration;
+		}
+		
+		public boolean getResult() {
+			return result;
+		}
+		
+		public List<Check> getChildren() {
+			return Collections.unmodifiableList(children);
+		}
+	}
+	
+	/** Validates a node against a shape with the given validation and records the checks performed.
+	 * 
+	 * @param validation
+	 * @param focusNode
+	 * @param label
+	 * @return the explanation of the validation
+	 * @throws Exception
+	 */
+	public static ValidationExplanation explain(ValidationAlgorithm validation, Value focusNode, Label label) throws Exception {
+		ValidationExplanation explanation = new ValidationExplanation();
+		validation.setListener(explanation);
+		try {
+			explanation.result = validation.validate(focusNode, label);
+		} finally {
+			validation.setListener(ValidationListener.NONE);
+		}
+		return explanation;
+	}
+	
+	@Override
+	public void shapeCheckStarted(Value node, Label label, int depth) {
+		Check check = new Check(label, node, depth, stratum, round);
+		if (current.isEmpty())
+			checks.add(check);
+		else
+			current.peek().children.add(check);
+		current.push(check);
+	}
+	
+	@Override
+	public void neighbourhoodFetched(Value node, Label label, int size) {
+		if (! current.isEmpty())
+			current.peek().neighbourhoodSize = size;
+	}
+	
+	@Override
+	public void constraintsMatched(Value node, Label label, MatchingTable table) {
+		if (current.isEmpty())
+			return;
+		Check check = current.peek();
+		check.triples = new ArrayList<>(table.size());
+		check.nbCandidates = new int[table.size()];
+		for (int i = 0; i < table.size(); i++) {
+			check.triples.add(table.getTriple(i));
+			check.nbCandidates[i] = table.getNbMatches(i);
+		}
+	}
+	
+	@Override
+	public void bagsEnumerated(Value node, Label label, int nbBags) {
+		if (! current.isEmpty())
+			current.peek().nbBags = nbBags;
+	}
+	
+	@Override
+	public void shapeCheckEnded(Value node, Label label, boolean result, long duration) {
+		if (current.isEmpty())
+			return;
+		Check check = current.pop();
+		check.result = result;
+		check.duration = duration;
+	}
+	
+	@Override
+	public void stratumStarted(int stratum) {
+		this.stratum = stratum;
+		this.round = 0;
+	}
+	
+	@Override
+	public void roundEnded(int stratum, int round, int nbRemoved) {
+		this.round = round+1;
+	}
+	
+	/** @return the checks that were not caused by another check, in the order in which they were performed */
+	public List<Check> getChecks() {
+		return Collections.unmodifiableList(checks);
+	}
+	
+	/** @return the result of the validation, or null if the explanation was not built by {@link #explain(ValidationAlgorithm, Value, Label)} */
+	public Boolean getResult() {
+		return result;
+	}
+	
+	/** Writes the tree of the checks, one check by line indented by its depth, followed by the triples of its neighbourhood with their number of matched triple constraints.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeText(Writer out) throws IOException {
+		if (result != null)
+			out.write(result ? "conformant\n" : "nonconformant\n");
+		for (Check check:checks)
+			writeText(out, check, "");
+		out.flush();
+	}
+	
+	private static void writeText(Writer out, Check check, String indent) throws IOException {
+		out.write(indent);
+		if (check.stratum >= 0)
+			out.write(String.format("[stratum %d, round %d] ", check.stratum, check.round));
+		out.write(String.format(Locale.ROOT, "%s @ %s: %s in %.3f ms, %d triples", TypingWriter.nodeToString(check.node), TypingWriter.labelToString(check.label), 
+				check.result ? "conformant" : "nonconformant", check.duration / 1e6, check.neighbourhoodSize));
+		if (check.nbBags >= 0)
+			out.write(String.format(", %d bags", check.nbBags));
+		out.write('\n');
+		for (int i = 0; i < check.triples.size(); i++) {
+			NeighborTriple triple = check.triples.get(i);
+			out.write(String.format("%s  | %s %s: %d constraints\n", indent, triple.getPredicate(), TypingWriter.nodeToString(triple.getOpposite()), check.nbCandidates[i]));
+		}
+		for (Check child:check.children)
+			writeText(out, child, indent+"  ");
+	}
+	
+	/** Writes the tree of the checks as a JSON object. The durations are in nanoseconds.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeJson(Writer out) throws IOException {
+		out.write("{");
+		if (result != null)
+			out.write("\"result\": \"" + (result ? TypingWriter.CONFORMANT : TypingWriter.NONCONFORMANT) + "\", ");
+		out.write("\"checks\": ");
+		writeJson(out, checks, "");
+		out.write("}\n");
+		out.flush();
+	}
+	
+	private static void writeJson(Writer out, List<Check> checks, String indent) throws IOException {
+		if (checks.isEmpty()) {
+			out.write("[]");
+			return;
+		}
+		out.write("[\n");
+		for (int c = 0; c < checks.size(); c++) {
+			Check check = checks.get(c);
+			out.write(indent+"  {");
+			out.write("\"node\": " + TypingWriter.jsonEscape(TypingWriter.nodeToString(check.node)));
+			out.write(", \"shape\": " + TypingWriter.jsonEscape(TypingWriter.labelToString(check.label)));
+			out.write(", \"status\": \"" + (check.result ? TypingWriter.CONFORMANT : TypingWriter.NONCONFORMANT) + "\"");
+			out.write(", \"depth\": " + check.depth);
+			if (check.stratum >= 0)
+				out.write(", \"stratum\": " + check.stratum + ", \"round\": " + check.round);
+			out.write(", \"time\": " + check.duration);
+			out.write(", \"neighbourhood\": " + check.neighbourhoodSize);
+			if (check.nbBags >= 0)
+				out.write(", \"bags\": " + check.nbBags);
+			out.write(", \"triples\": [");
+			for (int i = 0; i < check.triples.size(); i++) {
+				NeighborTriple triple = check.triples.get(i);
+				if (i > 0)
+					out.write(", ");
+				out.write("{\"predicate\": " + TypingWriter.jsonEscape(triple.getPredicate().toString()) 
+					+ ", \"node\": " + TypingWriter.jsonEscape(TypingWriter.nodeToString(triple.getOpposite())) 
+					+ ", \"constraints\": " + check.nbCandidates[i] + "}");
+			}
+			out.write("], \"checks\": ");
+			writeJson(out, check.children, indent+"  ");
+			out.write(c < checks.size()-1 ? "},\n" : "}\n");
+		}
+		out.write(indent+"]");
+	}
+	
+	@Override
+	public String toString() {
+		StringWriter result = new StringWriter();
+		try {
+			writeText(result);
+		} catch (IOException e) {
+			// cannot happen with a StringWriter
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+
+/** Receives the events of a validation, to collect statistics on the validation, see {@link ValidationStatistics}.
+ * 
+ * <p>The local check of a node against a shape emits {@link #shapeCheckStarted(Value, Label, int)}, {@link #neighbourhoodFetched(Value, Label, int)}, 
+ * {@link #constraintsMatched(Value, Label, MatchingTable)}, {@link #bagsEnumerated(Value, Label, int)} when the bags are enumerated, and {@link #shapeCheckEnded(Value, Label, boolean, long)}. 
+ * The refine validation also emits {@link #stratumStarted(int)}, {@link #roundEnded(int, int, int)} at the end of every round of the computation 
+ * of the fixpoint of the stratum, and {@link #stratumEnded(int, int)}.</p>
+ * 
+ * <p>All the methods do nothing by default. When the listener of a validation is {@link #NONE}, the validation does not measure the duration of the checks.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public interface ValidationListener {
+	/** The listener that ignores all the events. */
+	public static final ValidationListener NONE = new ValidationListener() {};
+	
+	/** The local check of a node against a shape starts.
+	 * 
+	 * @param node
+	 * @param label the label of the shape
+	 * @param depth the number of recursive calls under way, 0 for the refine validation
+	 */
+	public default void shapeCheckStarted(Value node, Label label, int depth) {
+	}
+	
+	/** The neighbourhood of the node that is relevant for the shape has been retrieved from the graph.
+	 * 
+	 * @param node
+	 * @param label the label of the shape
+	 * @param size the number of triples in the neighbourhood
+	 */
+	public default void neighbourhoodFetched(Value node, Label label, int size) {
+	}
+	
+	/** The triples of the neighbourhood have been matched with the triple constraints of the shape.
+	 * 
+	 * @param node
+	 * @param label the label of the shape
+	 * @param table the triple constraints matched by every triple, which can only be read during the call
+	 */
+	public default void constraintsMatched(Value node, Label label, MatchingTable table) {
+	}
+	
+	/** The bags of triple constraints induced by the neighbourhood have been enumerated.
+	 * 
+	 * @param node
+	 * @param label the label of the shape
+	 * @param nbBags the number of bags evaluated before the check ended
+	 */
+	public default void bagsEnumerated(Value node, Label label, int nbBags) {
+	}
+	
+	/** The local check of a node against a shape ends. With the recursive validation, the duration includes the recursive checks.
+	 * 
+	 * @param node
+	 * @param label the label of the shape
+	 * @param result
+	 * @param duration the duration of the check in nanoseconds
+	 */
+	public default void shapeCheckEnded(Value node, Label label, boolean result, long duration) {
+	}
+	
+	/** The refine validation starts computing the typing of a stratum.
+	 * 
+	 * @param stratum
+	 */
+	public default void stratumStarted(int stratum) {
+	}
+	
+	/** A round of the computation of the typing of a stratum by the refine validation ends.
+	 * 
+	 * @param stratum
+	 * @param round the number of the round in the stratum, starting from 0
+	 * @param nbRemoved the number of pairs (node, label) removed from the typing during the round
+	 */
+	public default void roundEnded(int stratum, int round, int nbRemoved) {
+	}
+	
+	/** The typing of a stratum is finalized by the refine validation.
+	 * 
+	 * @param stratum
+	 * @param nbRounds the number of rounds of the computation of the fixpoint
+	 */
+	public default void stratumEnded(int stratum, int nbRounds) {
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+
+/** A stage of a pipeline that validates a stream of nodes and publishes the results by batches.
+ * 
+ * <p>The nodes are submitted one by one, and validated by an {@link AsyncValidation} with at most maxConcurrency validations at the same time. 
+ * When this number is reached, {@link #submit(Value, Label)} waits for a validation to end, which slows down the producer of the nodes 
+ * to the speed of the validation. The results are given to the consumer by batches of batchSize results, in the order in which the validations end, 
+ * and the consumer is never called by two threads at the same time. A slow consumer also slows down the validations.</p>
+ * 
+ * <p>If the consumer throws an exception, the results of the batch are kept and the nodes can no longer be submitted: 
+ * {@link #submit(Value, Label)} and {@link #offer(Value, Label)} throw an {@link IllegalStateException} caused by this exception 
+ * until {@link #flush()} succeeds in giving the kept results, with the ones that ended since, to the consumer.</p>
+ * 
+ * <p>{@link #close()} waits for the validations under way and publishes the last results.</p>
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class ValidationPipeline implements AutoCloseable {
+	private final AsyncValidation validation;
+	private final int maxConcurrency;
+	private final int batchSize;
+	private final Consumer<List<ValidationResult>> consumer;
+	private final Semaphore permits;
+	private List<ValidationResult> batch;
+	private volatile boolean closed = false;
+	private volatile Throwable failure;
+	
+	/**
+	 * @param validation validates the nodes
+	 * @param maxConcurrency the maximal number of validations under way
+	 * @param batchSize the number of results given at once to the consumer
+	 * @param consumer receives the results
+	 */
+	public ValidationPipeline(AsyncValidation validation, int maxConcurrency, int batchSize, Consumer<List<ValidationResult>> consumer) {
+		if (maxConcurrency < 1 || batchSize < 1)
+			throw new IllegalArgumentException("The concurrency and the size of the batches must be positive.");
+		this.validation = validation;
+		this.maxConcurrency = maxConcurrency;
+		this.batchSize = batchSize;
+		this.consumer = consumer;
+		this.permits = new Semaphore(maxConcurrency);
+		this.batch = new ArrayList<>(batchSize);
+	}
+	
+	/** Validates a node, waiting if maxConcurrency validations are under way.
+	 * 
+	 * @param focusNode
+	 * @param label
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void submit(Value focusNode, Label label) throws InterruptedException {
+		checkOpen();
+		permits.acquire();
+		startOrRelease(focusNode, label);
+	}
+	
+	/** Validates a node if less than maxConcurrency validations are under way.
+	 * 
+	 * @param focusNode
+	 * @param label
+	 * @return false if the node is not validated
+	 */
+	public boolean offer(Value focusNode, Label label) {
+		checkOpen();
+		if (! permits.tryAcquire())
+			return false;
+		startOrRelease(focusNode, label);
+		return true;
+	}
+	
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("The pipeline is closed.");
+		if (failure != null)
+			throw new IllegalStateException("The consumer of the results failed.", failure);
+	}
+	
+	/** Starts the validation with the permit that has been acquired, unless the pipeline has been closed while waiting for it. */
+	private void startOrRelease(Value focusNode, Label label) {
+		try {
+			checkOpen();
+			validation.validate(focusNode, label).whenComplete((result, error) -> {
+				try {
+					if (error instanceof CompletionException && error.getCause() != null)
+						error = error.getCause();
+					add(new ValidationResult(focusNode, label, result, error));
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+	
+	private synchronized void add(ValidationResult result) {
+		batch.add(result);
+		if (failure == null && batch.size() >= batchSize) {
+			try {
+				publish();
+			} catch (RuntimeException | Error e) {
+				failure = e;
+			}
+		}
+	}
+	
+	/** Gives the results that are not yet published to the consumer, without waiting for the validations under way. 
+	 * If the consumer throws an exception, the exception is thrown again and the results are kept for the next try.
+	 */
+	public synchronized void flush() {
+		if (! batch.isEmpty())
+			publish();
+		failure = null;
+	}
+	
+	private void publish() {
+		List<ValidationResult> results = batch;
+		batch = new ArrayList<>(batchSize);
+		try {
+			consumer.accept(results);
+		} catch (RuntimeException | Error e) {
+			// the consumer may keep the list it failed on, which is therefore not reused
+			batch = new ArrayList<>(results);
+			throw e;
+		}
+	}
+	
+	/** Waits for the end of the validations under way and gives the last results to the consumer. No node can be submitted afterward.
+	 * The exception thrown by the consumer, if any, is thrown again.
+	 * 
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		closed = true;
+		permits.acquire(maxConcurrency);
+		try {
+			flush();
+		} finally {
+			permits.release(maxConcurrency);
+		}
+	}
+}
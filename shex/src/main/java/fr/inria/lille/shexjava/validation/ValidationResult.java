@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+
+/** The result of the validation of a node, given for example by {@link ValidationPipeline}.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class ValidationResult {
+	private final Value node;
+	private final Label label;
+	private final Boolean conformant;
+	private final Throwable error;
+	
+	ValidationResult(Value node, Label label, Boolean conformant, Throwable error) {
+		this.node = node;
+		this.label = label;
+		this.conformant = conformant;
+		this.error = error;
+	}
+
+	public Value getNode() {
+		return node;
+	}
+
+	public Label getLabel() {
+		return label;
+	}
+
+	/** @return true if the node is conformant, false if it is not or if its validation failed */
+	public boolean isConformant() {
+		return error == null && conformant;
+	}
+
+	/** @return the exception that stopped the validation, for example a {@link fr.inria.lille.shexjava.exception.BudgetExceededException}, or null */
+	public Throwable getError() {
+		return error;
+	}
+	
+	@Override
+	public String toString() {
+		return node + "@" + label + (error == null ? " " + conformant : " " + error);
+	}
+}
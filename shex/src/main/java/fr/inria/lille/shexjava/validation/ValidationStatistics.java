@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.rdf4j.model.Value;
+
+import fr.inria.lille.shexjava.schema.Label;
+
+/** A {@link ValidationListener} that aggregates the events of one or several validations into statistics by shape label:
+ * number of checks, of successful checks, durations with a latency histogram, sizes of the neighbourhoods, number of bags and recursion depth.
+ * The rounds of the refine validation are recorded by stratum.
+ * 
+ * <p>The statistics can be shared by validations running in several threads. The durations of the recursive checks are included in the duration of the checks that caused them.</p>
+ * 
+ * @author Jérémie Dusart
+ */
+public class ValidationStatistics implements ValidationListener {
+	/** The number of buckets of the latency histograms. The bucket i contains the durations between 2^i and 2^(i+1) microseconds, the first bucket also contains the shorter durations. */
+	public static final int NB_BUCKETS = 32;
+	
+	private final Map<Label,LabelStatistics> statistics = new ConcurrentHashMap<>();
+	private final Map<Integer,List<Integer>> rounds = new TreeMap<>();
+	
+	/** The statistics of the checks against one shape label. */
+	public static class LabelStatistics {
+		private long nbChecks;
+		private long nbEnded;
+		private long nbValid;
+		private long totalTime;
+		private long maxTime;
+		private long nbTriples;
+		private long maxTriples;
+		private long nbBags;
+		private int maxDepth;
+		private final long[] histogram = new long[NB_BUCKETS];
+		
+		private synchronized void started(int depth) {
+			nbChecks++;
+			maxDepth = Math.max(maxDepth, depth);
+		}
+		
+		private synchronized void fetched(int size) {
+			nbTriples += size;
+			maxTriples = Math.max(maxTriples, size);
+		}
+		
+		private synchronized void enumerated(int nb) {
+			nbBags += nb;
+		}
+		
+		private synchronized void ended(boolean result, long duration) {
+			nbEnded++;
+			if (result)
+				nbValid++;
+			totalTime += duration;
+			maxTime = Math.max(maxTime, duration);
+			histogram[bucket(duration)]++;
+		}
+		
+		public synchronized long getNbChecks() {
+			return nbChecks;
+		}
+		
+		/** @return the number of checks that ended, which excludes the checks stopped by an exceeded budget */
+		public synchronized long getNbEnded() {
+			return nbEnded;
+		}
+		
+		public synchronized long getNbValid() {
+			return nbValid;
+		}
+		
+		/** @return the total duration of the checks in nanoseconds */
+		public synchronized long getTotalTime() {
+			return totalTime;
+		}
+		
+		/** @return the longest duration of a check in nanoseconds */
+		public synchronized long getMaxTime() {
+			return maxTime;
+		}
+		
+		/** @return the total number of triples in the neighbourhoods */
+		public synchronized long getNbTriples() {
+			return nbTriples;
+		}
+		
+		/** @return the number of triples in the largest neighbourhood */
+		public synchronized long getMaxTriples() {
+			return maxTriples;
+		}
+		
+		/** @return the total number of bags evaluated */
+		public synchronized long getNbBags() {
+			return nbBags;
+		}
+		
+		/** @return the maximal recursion depth at which a check started */
+		public synchronized int getMaxDepth() {
+			return maxDepth;
+		}
+		
+		/** @return a copy of the latency histogram, see {@link ValidationStatistics#NB_BUCKETS} */
+		public synchronized long[] getHistogram() {
+			return histogram.clone();
+		}
+		
+		/** Estimates a percentile of the durations from the histogram, which contains the checks that ended.
+		 * 
+		 * @param percentile between 0 and 100
+		 * @return the upper bound in microseconds of the bucket containing the percentile
+		 */
+		public synchronized long getPercentile(double percentile) {
+			long rank = (long) Math.ceil(nbEnded * percentile / 100);
+			long count = 0;
+			for (int i=0;i<NB_BUCKETS;i++) {
+				count += histogram[i];
+				if (count >= rank && count > 0)
+					return 1L << (i+1);
+			}
+			return 0;
+		}
+	}
+	
+	private static int bucket(long duration) {
+		long micros = duration / 1000;
+		if (micros < 2)
+			return 0;
+		return Math.min(NB_BUCKETS-1, 63 - Long.numberOfLeadingZeros(micros));
+	}
+	
+	private LabelStatistics get(Label label) {
+		LabelStatistics result = statistics.get(label);
+		if (result == null)
+			result = statistics.computeIfAbsent(label, l -> new LabelStatistics());
+		return result;
+	}
+	
+	@Override
+	public void shapeCheckStarted(Value node, Label label, int depth) {
+		get(label).started(depth);
+	}
+	
+	@Override
+	public void neighbourhoodFetched(Value node, Label label, int size) {
+		get(label).fetched(size);
+	}
+	
+	@Override
+	public void bagsEnumerated(Value node, Label label, int nbBags) {
+		get(label).enumerated(nbBags);
+	}
+	
+	@Override
+	public void shapeCheckEnded(Value node, Label label, boolean result, long duration) {
+		get(label).ended(result, duration);
+	}
+	
+	@Override
+	public void roundEnded(int stratum, int round, int nbRemoved) {
+		synchronized (rounds) {
+			rounds.computeIfAbsent(stratum, s -> new ArrayList<>()).add(nbRemoved);
+		}
+	}
+	
+	/** @return the statistics by shape label */
+	public Map<Label,LabelStatistics> getStatistics() {
+		return Collections.unmodifiableMap(statistics);
+	}
+	
+	/** @return the statistics of a shape label, or null if no node has been checked against the label */
+	public LabelStatistics getStatistics(Label label) {
+		return statistics.get(label);
+	}
+	
+	/** @return for every stratum computed by a refine validation, the number of pairs removed at each round */
+	public Map<Integer,List<Integer>> getRounds() {
+		synchronized (rounds) {
+			Map<Integer,List<Integer>> result = new TreeMap<>();
+			for (Map.Entry<Integer,List<Integer>> entry:rounds.entrySet())
+				result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+			return result;
+		}
+	}
+	
+	/** Forgets all the statistics. */
+	public void clear() {
+		statistics.clear();
+		synchronized (rounds) {
+			rounds.clear();
+		}
+	}
+	
+	/** Writes the statistics as csv lines, one by label, the labels with the largest total duration first. The durations are in microseconds.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(Writer out) throws IOException {
+		List<Map.Entry<Label,LabelStatistics>> entries = new ArrayList<>(statistics.entrySet());
+		entries.sort((e1, e2) -> Long.compare(e2.getValue().getTotalTime(), e1.getValue().getTotalTime()));
+		out.write("label,checks,valid,total,mean,p50,p99,max,triples,max triples,bags,max depth\n");
+		for (Map.Entry<Label,LabelStatistics> entry:entries) {
+			LabelStatistics stat = entry.getValue();
+			synchronized (stat) {
+				out.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%d,%d,%d,%d,%d,%d,%d\n", TypingWriter.csvEscape(TypingWriter.labelToString(entry.getKey())), stat.nbChecks, stat.nbValid, 
+						stat.totalTime / 1000, stat.nbEnded == 0 ? 0.0 : stat.totalTime / 1000.0 / stat.nbEnded, 
+						stat.getPercentile(50), stat.getPercentile(99), stat.maxTime / 1000, 
+						stat.nbTriples, stat.maxTriples, stat.nbBags, stat.maxDepth));
+			}
+		}
+		out.flush();
+	}
+	
+	@Override
+	public String toString() {
+		StringWriter result = new StringWriter();
+		try {
+			write(result);
+		} catch (IOException e) {
+			// cannot happen with a StringWriter
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.commandLine;
+
+import static fr.inria.lille.shexjava.util.Persons.NAMESPACE;
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDF4JRepositoryGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Tests the shape map syntax accepted and rejected by the command line.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class TestShapeMapParser {
+	private final static String PERSON_IRI = "<http://a.example/Person>";
+	
+	@Test
+	public void nodes() throws Exception {
+		RDF4JGraph graph = graph();
+		assertEquals(Arrays.asList(pair("alice"), pair("bob")), 
+				ShapeMapParser.parse("<http://a.example/alice>@"+PERSON_IRI+", <http://a.example/bob> @ "+PERSON_IRI, graph));
+		// comments, newlines, repeated separators and duplicates
+		assertEquals(Arrays.asList(pair("bob"), pair("alice")), 
+				ShapeMapParser.parse("# the persons\n<http://a.example/bob>@"+PERSON_IRI+",,\n\n"
+						+ "<http://a.example/alice>@"+PERSON_IRI+"  # alice\n"
+						+ "<http://a.example/bob>@"+PERSON_IRI+"\n", graph));
+		// the nodes and the labels can be blank nodes, the nodes being selected even when absent from the graph
+		SimpleValueFactory factory = SimpleValueFactory.getInstance();
+		assertEquals(Arrays.asList(new Pair<Value,Label>(factory.createBNode("b0"), new Label(factory.createBNode("S")))), 
+				ShapeMapParser.parse("_:b0@_:S", graph));
+		assertEquals(0, ShapeMapParser.parse(" \n# nothing\n", graph).size());
+	}
+	
+	@Test
+	public void triplePatterns() throws Exception {
+		RDF4JGraph graph = graph();
+		assertEquals(Arrays.asList(pair("alice"), pair("bob")), 
+				ShapeMapParser.parse("{FOCUS <http://a.example/knows> _}@"+PERSON_IRI, graph));
+		assertEquals(Arrays.asList(pair("bob"), pair("carol")), 
+				ShapeMapParser.parse("{ _ <http://a.example/knows> FOCUS }@"+PERSON_IRI, graph));
+		assertEquals(Arrays.asList(pair("bob")), 
+				ShapeMapParser.parse("{FOCUS <http://a.example/knows> <http://a.example/carol>}@"+PERSON_IRI, graph));
+		assertEquals(Arrays.asList(pair("carol")), 
+				ShapeMapParser.parse("{<http://a.example/bob> <http://a.example/knows> FOCUS}@"+PERSON_IRI, graph));
+		assertEquals(0, ShapeMapParser.parse("{FOCUS <http://a.example/unknown> _}@"+PERSON_IRI, graph).size());
+		// a node spec selected by two patterns is listed once
+		assertEquals(Arrays.asList(pair("alice"), pair("bob"), pair("carol")), 
+				ShapeMapParser.parse("{FOCUS <http://a.example/knows> _}@"+PERSON_IRI+"\n"
+						+ "{_ <http://a.example/knows> FOCUS}@"+PERSON_IRI, graph));
+	}
+	
+	/** A node listed several times by the graph is selected once, and its neighbours are not looked up again once it is selected. */
+	@Test
+	public void repeatedNodes() throws Exception {
+		Repository repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		try (RepositoryConnection connection = repository.getConnection()) {
+			connection.add(new StringReader("@prefix ex: <http://a.example/> .\n"
+					+ "ex:alice ex:knows ex:carol ; ex:name \"Alice\" .\n"
+					+ "ex:bob ex:knows ex:carol ; ex:name \"Bob\" .\n"
+					+ "ex:dave ex:knows ex:carol ; ex:name \"Dave\" .\n"), NAMESPACE, RDFFormat.TURTLE);
+			AtomicInteger nbLookups = new AtomicInteger();
+			RDF4JRepositoryGraph graph = new RDF4JRepositoryGraph(connection) {
+				@Override
+				public Iterator<NeighborTriple> itInNeighboursWithPredicate(Value focusNode, Set<IRI> allowedPredicates) {
+					nbLookups.incrementAndGet();
+					return super.itInNeighboursWithPredicate(focusNode, allowedPredicates);
+				}
+			};
+			List<Value> objects = new ArrayList<>();
+			graph.listAllObjectNodes().forEachRemaining(objects::add);
+			assertEquals(3, Collections.frequency(objects, node("carol")));
+			
+			assertEquals(Arrays.asList(pair("carol")), 
+					ShapeMapParser.parse("{_ <http://a.example/knows> FOCUS}@"+PERSON_IRI, graph));
+			// carol once, and the three names
+			assertEquals(4, nbLookups.get());
+		}
+	}
+	
+	@Test
+	public void rejected() throws Exception {
+		RDF4JGraph graph = graph();
+		List<String> invalid = Arrays.asList(
+				"<http://a.example/alice>",
+				"<http://a.example/alice>@",
+				"<http://a.example/alice "+PERSON_IRI,
+				"<http://a.example/alice>"+PERSON_IRI,
+				"ex:alice@"+PERSON_IRI,
+				"\"alice\"@"+PERSON_IRI,
+				"<http://a.example/alice>@ex:Person",
+				"{<http://a.example/alice> <http://a.example/knows> _}@"+PERSON_IRI,
+				"{FOCUS <http://a.example/knows> _@"+PERSON_IRI,
+				"{FOCUS <http://a.example/knows>}@"+PERSON_IRI,
+				"@"+PERSON_IRI);
+		for (String shapeMap:invalid) {
+			try {
+				ShapeMapParser.parse(shapeMap, graph);
+				fail("Shape map accepted: "+shapeMap);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+	
+	private static Pair<Value,Label> pair(String name) {
+		return new Pair<>(node(name), PERSON);
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.graph;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.tdb.TDBFactory;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+import fr.inria.lille.shexjava.validation.RecursiveValidation;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+
+/** Compares {@link JenaGraph} and {@link JenaSPIGraph} on a TDB dataset stored in a temporary directory, 
+ * both validations running inside a read transaction.
+ * 
+ * <p>Arguments: number of persons (default 100000).</p>
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class JenaGraphBenchmark {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Person { ex:name . ; ex:knows @ex:Person * }";
+	
+	public static void main(String[] args) throws Exception {
+		int nbPersons = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		Path directory = Files.createTempDirectory("tdb");
+		Dataset dataset = TDBFactory.createDataset(directory.toString());
+		
+		dataset.begin(ReadWrite.WRITE);
+		try {
+			Model model = dataset.getDefaultModel();
+			Property name = model.createProperty("http://a.example/name");
+			Property knows = model.createProperty("http://a.example/knows");
+			for (int i = 0; i < nbPersons; i++) {
+				Resource person = model.createResource("http://a.example/p" + i);
+				person.addProperty(name, "p" + i);
+				// chains of 5 persons
+				if (i % 5 != 4)
+					person.addProperty(knows, model.createResource("http://a.example/p" + (i + 1)));
+			}
+			dataset.commit();
+		} finally {
+			dataset.end();
+		}
+		
+		ShexSchema schema = new ShexSchema(new ShExCParser().getRules(new ByteArrayInputStream(SCHEMA.getBytes(StandardCharsets.UTF_8))));
+		Label person = new Label(rdfFactory.createIRI("http://a.example/Person"));
+		for (int round = 0; round < 3; round++) {
+			JenaSPIGraph.inReadTransaction(dataset, () -> {
+				run("JenaGraph", new JenaGraph(dataset.getDefaultModel()), schema, person, nbPersons);
+				run("JenaSPIGraph", new JenaSPIGraph(dataset.asDatasetGraph().getDefaultGraph()), schema, person, nbPersons);
+				return null;
+			});
+		}
+		dataset.close();
+	}
+	
+	private static void run(String name, RDFGraph graph, ShexSchema schema, Label label, int nbPersons) throws Exception {
+		long start = System.nanoTime();
+		RecursiveValidation recursive = new RecursiveValidation(schema, graph);
+		int nbValid = 0;
+		for (int i = 0; i < nbPersons; i++)
+			if (recursive.validate(rdfFactory.createIRI("http://a.example/p" + i), label))
+				nbValid++;
+		long recursiveTime = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		new RefineValidation(schema, graph).validate(null, null);
+		long refineTime = System.nanoTime() - start;
+		System.out.println(String.format("%s: recursive %d ms (%d valid), refine %d ms.", name, 
+				TimeUnit.NANOSECONDS.toMillis(recursiveTime), nbValid, TimeUnit.NANOSECONDS.toMillis(refineTime)));
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.graph;
+
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.tdb.TDBFactory;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.validation.RecursiveValidation;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestJenaGraph {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	
+	@Test
+	public void cachedConversions() {
+		Model model = ModelFactory.createDefaultModel();
+		Resource alice = model.createResource("http://a.example/alice");
+		Property name = model.createProperty("http://a.example/name");
+		alice.addProperty(name, "Alice", "en");
+		JenaGraph graph = new JenaGraph(model);
+		
+		IRI aliceIRI = node("alice");
+		NeighborTriple first = graph.itOutNeighbours(aliceIRI).next();
+		NeighborTriple second = graph.itOutNeighbours(aliceIRI).next();
+		assertEquals(rdfFactory.createLiteral("Alice", "en"), first.getOpposite());
+		assertSame(first.getOpposite(), second.getOpposite());
+		assertSame(first.getPredicate(), second.getPredicate());
+		assertSame(graph.convertRDF4JValueToJenaRDFNode(first.getOpposite()), graph.convertRDF4JValueToJenaRDFNode(second.getOpposite()));
+		
+		Value converted = graph.convertJenaRDFNodeToValue(alice);
+		assertSame(converted, graph.convertJenaRDFNodeToValue(model.createResource("http://a.example/alice")));
+		assertSame(alice, graph.convertRDF4JValueToJenaResource(converted));
+	}
+	
+	/** A blank node is converted to the same value by every conversion method, and back to the same Jena node. */
+	@Test
+	public void blankNodes() {
+		Model model = ModelFactory.createDefaultModel();
+		Resource blank = model.createResource();
+		blank.addProperty(model.createProperty("http://a.example/name"), "Alice");
+		JenaGraph graph = new JenaGraph(model);
+		
+		Value fromNode = graph.convertJenaRDFNodeToValue(blank);
+		Value fromResource = graph.convertJenaRDFNodeToResource(blank);
+		assertTrue(fromNode instanceof BNode);
+		assertEquals(fromNode, fromResource);
+		assertEquals(blank, graph.convertRDF4JValueToJenaResource(fromResource));
+		assertEquals(fromNode, graph.listAllSubjectNodes().next());
+		assertTrue(graph.itOutNeighbours(fromResource).hasNext());
+	}
+	
+	@Test
+	public void smallCache() {
+		Model model = ModelFactory.createDefaultModel();
+		Property knows = model.createProperty("http://a.example/knows");
+		for (int i = 0; i < 10; i++)
+			model.createResource("http://a.example/p" + i).addProperty(knows, model.createResource("http://a.example/p" + (i + 1)));
+		JenaGraph graph = new JenaGraph(model, 3);
+		for (int i = 0; i < 10; i++) {
+			Iterator<NeighborTriple> it = graph.itOutNeighboursWithPredicate(node("p" + i), 
+					Collections.singleton(node("knows")));
+			assertEquals(node("p" + (i + 1)), it.next().getOpposite());
+		}
+	}
+	
+	@Test
+	public void graphInTransaction() throws Exception {
+		Dataset dataset = TDBFactory.createDataset();
+		dataset.begin(ReadWrite.WRITE);
+		try {
+			Model model = dataset.getDefaultModel();
+			Property name = model.createProperty("http://a.example/name");
+			Property knows = model.createProperty("http://a.example/knows");
+			model.createResource("http://a.example/alice").addProperty(name, "Alice").addProperty(knows, model.createResource("http://a.example/bob"));
+			model.createResource("http://a.example/bob").addProperty(name, "Bob", "en");
+			model.createResource("http://a.example/carol").addProperty(knows, model.createResource("http://a.example/alice"));
+			dataset.commit();
+		} finally {
+			dataset.end();
+		}
+		ShexSchema shex = schema();
+		
+		JenaSPIGraph.inReadTransaction(dataset, () -> {
+			JenaSPIGraph graph = new JenaSPIGraph(dataset.asDatasetGraph().getDefaultGraph());
+			RecursiveValidation validation = new RecursiveValidation(shex, graph);
+			assertTrue(validation.validate(node("alice"), PERSON));
+			assertTrue(validation.validate(node("bob"), PERSON));
+			assertFalse(validation.validate(node("carol"), PERSON));
+			assertEquals(rdfFactory.createLiteral("Bob", "en"), 
+					graph.itOutNeighbours(node("bob")).next().getOpposite());
+			Iterator<NeighborTriple> knownBy = graph.itInNeighbours(node("alice"));
+			assertEquals(node("carol"), knownBy.next().getOpposite());
+			assertTrue(dataset.isInTransaction());
+			return null;
+		});
+		assertFalse(dataset.isInTransaction());
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.graph;
+
+import static fr.inria.lille.shexjava.util.Persons.KNOWS;
+import static fr.inria.lille.shexjava.util.Persons.NAME;
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.validation.RecursiveValidation;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestRDF4JRepositoryGraph {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Person { ex:name . ; ex:knows @ex:Person * ; ^ex:knows . * }";
+	private final static String DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "ex:alice ex:name \"Alice\" ; ex:knows ex:bob .\n"
+			+ "ex:bob ex:name \"Bob\" .\n";
+	private final static String OTHER_DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "ex:bob ex:knows ex:carol .\n";
+	
+	@Test
+	public void contexts() throws Exception {
+		IRI graph1 = node("graph1");
+		IRI graph2 = node("graph2");
+		Repository repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		try (RepositoryConnection connection = repository.getConnection()) {
+			connection.add(new StringReader(DATA), "http://a.example/", RDFFormat.TURTLE, graph1);
+			connection.add(new StringReader(OTHER_DATA), "http://a.example/", RDFFormat.TURTLE, graph2);
+			ShexSchema schema = schema(SCHEMA);
+			
+			RDF4JRepositoryGraph first = new RDF4JRepositoryGraph(connection, graph1);
+			first.beginSnapshot();
+			assertTrue(new RecursiveValidation(schema, first).validate(node("alice"), PERSON));
+			assertTrue(new RecursiveValidation(schema, first).validate(node("bob"), PERSON));
+			RefineValidation refine = new RefineValidation(schema, first);
+			refine.validate(null, null);
+			assertTrue(refine.getTyping().contains(node("bob"), PERSON));
+			connection.commit();
+			
+			// carol has no name
+			RDF4JRepositoryGraph all = new RDF4JRepositoryGraph(connection);
+			assertFalse(new RecursiveValidation(schema, all).validate(node("alice"), PERSON));
+			Iterator<NeighborTriple> it = all.itInNeighboursWithPredicate(node("bob"), 
+					new HashSet<>(Arrays.asList(KNOWS, NAME)));
+			NeighborTriple triple = it.next();
+			assertEquals(node("bob"), triple.getFocus());
+			assertEquals(node("alice"), triple.getOpposite());
+			assertFalse(triple.getPredicate().isForward());
+			assertFalse(it.hasNext());
+		} finally {
+			repository.shutDown();
+		}
+	}
+	
+	@Test
+	public void nodes() throws Exception {
+		Repository repository = new SailRepository(new MemoryStore());
+		repository.initialize();
+		try (RepositoryConnection connection = repository.getConnection()) {
+			connection.add(new StringReader(DATA), "http://a.example/", RDFFormat.TURTLE);
+			connection.add(new StringReader(OTHER_DATA), "http://a.example/", RDFFormat.TURTLE);
+			RDF4JRepositoryGraph graph = new RDF4JRepositoryGraph(connection);
+			assertEquals(new HashSet<>(Arrays.asList(node("alice"), node("bob"))), toSet(graph.listAllSubjectNodes()));
+			assertEquals(new HashSet<>(Arrays.asList(node("bob"), node("carol"), rdfFactory.createLiteral("Alice"), rdfFactory.createLiteral("Bob"))), 
+					toSet(graph.listAllObjectNodes()));
+			// the results of the lookups are closed, so the connection can start a transaction
+			graph.beginSnapshot();
+			assertEquals(2, toSet(graph.itOutNeighboursWithPredicate(node("alice"), 
+					new HashSet<>(Arrays.asList(KNOWS, NAME)))).size());
+			connection.commit();
+		} finally {
+			repository.shutDown();
+		}
+	}
+	
+	private static <T> Set<T> toSet(Iterator<T> it) {
+		Set<T> result = new HashSet<>();
+		while (it.hasNext())
+			result.add(it.next());
+		return result;
+	}
+}
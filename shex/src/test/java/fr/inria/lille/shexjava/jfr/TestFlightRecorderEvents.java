@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.jfr;
+
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.inria.lille.shexjava.util.Persons;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestFlightRecorderEvents {
+	private final static String SCHEMA = Persons.SCHEMA + "\nex:Other NOT @ex:Person";
+	private final static String DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "ex:alice ex:name \"Alice\" ; ex:knows ex:bob .\n"
+			+ "ex:bob ex:knows ex:alice .\n";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void refine() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("validation.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(SchemaCompilationEvent.class);
+			recording.enable(StratumEvent.class);
+			recording.enable(FixpointRoundEvent.class);
+			recording.enable(ShapeCheckEvent.class);
+			recording.start();
+			
+			RefineValidation validation = new RefineValidation(schema(SCHEMA), graph(DATA));
+			validation.setListener(new FlightRecorderListener(0));
+			validation.validate(node("alice"), PERSON);
+			
+			recording.stop();
+			recording.dump(file);
+		}
+		
+		Map<String,Integer> counts = new HashMap<>();
+		int maxNeighbourhood = 0;
+		for (RecordedEvent event:RecordingFile.readAllEvents(file)) {
+			counts.merge(event.getEventType().getName(), 1, Integer::sum);
+			if (event.getEventType().getName().equals("fr.inria.lille.shexjava.ShapeCheck")) {
+				assertTrue(event.getString("shape").contains("http://a.example/Person"));
+				maxNeighbourhood = Math.max(maxNeighbourhood, event.getInt("neighbourhoodSize"));
+			}
+		}
+		assertEquals(1, (int) counts.get("fr.inria.lille.shexjava.SchemaCompilation"));
+		assertTrue(counts.get("fr.inria.lille.shexjava.Stratum") >= 2);
+		assertTrue(counts.get("fr.inria.lille.shexjava.FixpointRound") >= counts.get("fr.inria.lille.shexjava.Stratum"));
+		assertTrue(counts.get("fr.inria.lille.shexjava.ShapeCheck") >= 2);
+		assertEquals(2, maxNeighbourhood);
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.exception.NotStratifiedException;
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeOr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExprRef;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+import fr.inria.lille.shexjava.validation.RecursiveValidation;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestSchemaExtension {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String PREFIX = "PREFIX ex: <http://a.example/>\n";
+	private final static String BASE = PREFIX
+			+ "ex:A { ex:p @ex:B ; ex:q @ex:C }\n"
+			+ "ex:B { ex:p @ex:A }\n"
+			+ "ex:C { ex:r . }\n"
+			+ "ex:D NOT @ex:C\n"
+			+ "ex:E @ex:D OR @ex:C\n";
+	
+	@Test
+	public void addedRules() throws Exception {
+		String added = PREFIX + "ex:F { ex:p @ex:A ; ex:s @ex:G }\nex:G { ex:t @ex:F }\n";
+		checkExtension(added);
+	}
+	
+	@Test
+	public void replacedRules() throws Exception {
+		String replaced = PREFIX + "ex:C { ex:r @ex:B }\nex:B { ex:p . }\n";
+		checkExtension(replaced);
+		
+		ShexSchema schema = new ShexSchema(parse(BASE + "ex:F { ex:s . }\n"));
+		ShexSchema extended = schema.extend(parse(replaced));
+		assertSame(schema.getStratification().get(schema.hasStratum(label("F"))), extended.getStratification().get(extended.hasStratum(label("F"))));
+		assertSame(schema.getRules().get(label("F")), extended.getRules().get(label("F")));
+		for (ShapeExpr expr:((ShapeOr) extended.getRules().get(label("E"))).getSubExpressions())
+			if (((ShapeExprRef) expr).getLabel().equals(label("C")))
+				assertSame(extended.getRules().get(label("C")), ((ShapeExprRef) expr).getShapeDefinition());
+	}
+	
+	@Test
+	public void originalSchemaAfterExtension() throws Exception {
+		String data = "PREFIX ex: <http://a.example/>\n"
+				+ "ex:a ex:p ex:b ; ex:q ex:c .\n"
+				+ "ex:b ex:p ex:a .\n"
+				+ "ex:c ex:r 1 .\n";
+		RDFGraph graph = new RDF4JGraph(Rio.parse(new StringReader(data), "http://a.example/", RDFFormat.TURTLE));
+		ShexSchema schema = new ShexSchema(parse(BASE));
+		ShexSchema extended = schema.extend(parse(PREFIX + "ex:C { ex:r @ex:B }\n"));
+		
+		assertFalse(new RecursiveValidation(extended, graph).validate(node("a"), label("A")));
+		assertTrue(new RecursiveValidation(schema, graph).validate(node("a"), label("A")));
+		RefineValidation refine = new RefineValidation(schema, graph);
+		refine.validate(node("a"), label("A"));
+		assertTrue(refine.getTyping().contains(node("a"), label("A")));
+		for (ShapeExpr expr:((ShapeOr) schema.getRules().get(label("E"))).getSubExpressions())
+			if (((ShapeExprRef) expr).getLabel().equals(label("C")))
+				assertSame(schema.getRules().get(label("C")), ((ShapeExprRef) expr).getShapeDefinition());
+	}
+	
+	@Test
+	public void replacedTripleExpression() throws Exception {
+		String base = PREFIX + "ex:T { $ex:t (ex:p . ; ex:q .) }\nex:U { &ex:t ; ex:r @ex:T }\n";
+		ShexSchema schema = new ShexSchema(parse(base));
+		ShexSchema extended = schema.extend(parse(PREFIX + "ex:T { $ex:t (ex:p @ex:V ; ex:q .) }\nex:V { ex:s . }\n"));
+		TripleExpr tripleExpr = extended.getTripleMap().get(new Label(rdfFactory.createIRI("http://a.example/t")));
+		assertSame(tripleExpr, ((TripleExprRef) ((EachOf) ((Shape) extended.getRules().get(label("U"))).getTripleExpression()).getSubExpressions().get(0)).getTripleExp());
+		assertTrue(extended.hasStratum(label("V")) < extended.hasStratum(label("U")));
+	}
+	
+	@Test
+	public void notStratified() throws Exception {
+		ShexSchema schema = new ShexSchema(parse(BASE));
+		try {
+			schema.extend(parse(PREFIX + "ex:C { ex:r @ex:D }\n"));
+			fail("The extended schema is not stratified.");
+		} catch (NotStratifiedException e) {
+		}
+	}
+	
+	private ShexSchema checkExtension(String rules) throws Exception {
+		ShexSchema extended = new ShexSchema(parse(BASE)).extend(parse(rules));
+		Map<Label,ShapeExpr> allRules = parse(BASE);
+		allRules.putAll(parse(rules));
+		ShexSchema expected = new ShexSchema(allRules);
+		
+		assertEquals(namedStrata(expected), namedStrata(extended));
+		for (Label label:expected.getRules().keySet()) {
+			assertEquals(named(expected.getDependencies(label)), named(extended.getDependencies(label)));
+			for (Label dependency:extended.getDependencies(label))
+				assertTrue(extended.hasStratum(dependency) <= extended.hasStratum(label));
+		}
+		return extended;
+	}
+	
+	private static Set<Set<Label>> namedStrata(ShexSchema schema) {
+		Set<Set<Label>> result = new HashSet<Set<Label>>();
+		for (Set<Label> stratum:schema.getStratification().values())
+			if (! named(stratum).isEmpty())
+				result.add(named(stratum));
+		return result;
+	}
+	
+	private static Set<Label> named(Set<Label> labels) {
+		Set<Label> result = new HashSet<Label>();
+		for (Label label:labels)
+			if (! label.isGenerated())
+				result.add(label);
+		return result;
+	}
+	
+	private static Label label(String name) {
+		return new Label(rdfFactory.createIRI("http://a.example/"+name));
+	}
+	
+	private static IRI node(String name) {
+		return rdfFactory.createIRI("http://a.example/"+name);
+	}
+	
+	private static Map<Label,ShapeExpr> parse(String schema) throws Exception {
+		return new HashMap<Label,ShapeExpr>(new ShExCParser().getRules(new ByteArrayInputStream(schema.getBytes(StandardCharsets.UTF_8))));
+	}
+}
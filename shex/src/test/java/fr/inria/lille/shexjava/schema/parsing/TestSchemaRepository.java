@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestSchemaRepository {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static Label CORE = new Label(rdfFactory.createIRI("http://a.example/Core"));
+	private final static Label BASE = new Label(rdfFactory.createIRI("http://a.example/Base"));
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private SchemaRepository repository;
+	
+	@Before
+	public void createSchemas() throws Exception {
+		write("base.shex", "PREFIX ex: <http://a.example/>\nex:Base { ex:p . }");
+		write("core.shex", "PREFIX ex: <http://a.example/>\nIMPORT <base>\nex:Core { ex:q @ex:Base }");
+		write("d1.shex", "PREFIX ex: <http://a.example/>\nIMPORT <core>\nex:D1 { ex:r @ex:Core }");
+		write("d2.shex", "PREFIX ex: <http://a.example/>\nIMPORT <core>\nIMPORT <base>\nex:D2 { ex:r @ex:Core ; ex:s @ex:Base }");
+		repository = new SchemaRepository(Collections.singletonList(folder.getRoot().toPath()));
+	}
+	
+	@Test
+	public void sharedModules() throws Exception {
+		ShexSchema d1 = repository.getSchema(file("d1.shex"));
+		ShexSchema d2 = repository.getSchema(file("d2.shex"));
+		assertEquals(3, d1.getRules().size());
+		assertEquals(3, d2.getRules().size());
+		assertSame(d1.getRules().get(CORE), d2.getRules().get(CORE));
+		assertSame(d1.getRules().get(BASE), d2.getRules().get(BASE));
+	}
+	
+	@Test
+	public void modifiedImport() throws Exception {
+		ShexSchema before = repository.getSchema(file("d1.shex"));
+		Path base = file("base.shex");
+		Files.setLastModifiedTime(base, FileTime.fromMillis(Files.getLastModifiedTime(base).toMillis()+10000));
+		ShexSchema after = repository.getSchema(file("d2.shex"));
+		assertNotSame(before.getRules().get(BASE), after.getRules().get(BASE));
+		// core refers to base, so it is parsed again too
+		assertNotSame(before.getRules().get(CORE), after.getRules().get(CORE));
+	}
+	
+	/** Every module is parsed once on a cold load, and not parsed again while neither its file nor its imports change. */
+	@Test
+	public void nbParses() throws Exception {
+		repository.getSchema(file("d1.shex"));
+		assertEquals(3, repository.getNbParses());
+		repository.getSchema(file("d1.shex"));
+		assertEquals(3, repository.getNbParses());
+		repository.getSchema(file("d2.shex"));
+		assertEquals(4, repository.getNbParses());
+		
+		// base, and then core and d1 whose references were resolved against it
+		Path base = file("base.shex");
+		Files.setLastModifiedTime(base, FileTime.fromMillis(Files.getLastModifiedTime(base).toMillis()+10000));
+		repository.getSchema(file("d1.shex"));
+		assertEquals(7, repository.getNbParses());
+		repository.getSchema(file("d1.shex"));
+		assertEquals(7, repository.getNbParses());
+		
+		SchemaRepository cold = new SchemaRepository(Collections.singletonList(folder.getRoot().toPath()));
+		cold.getSchema(file("d2.shex"));
+		assertEquals(3, cold.getNbParses());
+	}
+	
+	@Test(expected=FileNotFoundException.class)
+	public void missingImport() throws Exception {
+		write("d3.shex", "PREFIX ex: <http://a.example/>\nIMPORT <missing>\nex:D3 { ex:r . }");
+		repository.getSchema(file("d3.shex"));
+	}
+	
+	private Path file(String name) {
+		return new File(folder.getRoot(), name).toPath();
+	}
+	
+	private void write(String name, String content) throws Exception {
+		Files.write(file(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
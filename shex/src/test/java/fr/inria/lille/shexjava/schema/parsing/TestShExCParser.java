@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.abstrsynt.EachOf;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestShExCParser {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String PREFIX = "PREFIX ex: <http://a.example/>\n";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void semanticActions() throws Exception {
+		Map<Label,ShapeExpr> rules = parse(PREFIX
+				+ "%ex:start{ var brace = \"{\"; %}\n"
+				+ "ex:S { ex:p . %ex:act{ print(\"}\") %} ; ex:q @ex:T %ex:empty% } %<http://a.example/shape>{ \\% %}\n"
+				+ "ex:T { ex:r . }\n");
+		assertEquals(2, rules.size());
+		EachOf eachOf = (EachOf) ((Shape) rules.get(label("S"))).getTripleExpression();
+		assertEquals(2, eachOf.getSubExpressions().size());
+		assertEquals(label("T"), ((ShapeExprRef) ((TripleConstraint) eachOf.getSubExpressions().get(1)).getShapeExpr()).getLabel());
+	}
+	
+	@Test
+	public void prefixedNameBeforeBrace() throws Exception {
+		Map<Label,ShapeExpr> rules = parse(PREFIX + "ex:S{ex:p @ex:T}ex:T{ex:q .}ex:a:ex:b{ex:r .}\n");
+		assertEquals(3, rules.size());
+		TripleConstraint constraint = (TripleConstraint) ((Shape) rules.get(label("S"))).getTripleExpression();
+		assertEquals(rdfFactory.createIRI("http://a.example/p"), constraint.getProperty().getIri());
+		assertEquals(label("T"), ((ShapeExprRef) constraint.getShapeExpr()).getLabel());
+		assertTrue(rules.containsKey(label("a:ex:b")));
+	}
+	
+	@Test
+	public void utf8() throws Exception {
+		String schema = PREFIX + "ex:Café { ex:nom [\"Hélène\"] }\n";
+		assertTrue(parse(schema).containsKey(label("Café")));
+		Path path = folder.newFile("schema.shex").toPath();
+		Files.write(path, schema.getBytes(StandardCharsets.UTF_8));
+		assertTrue(new ShExCParser().getRules(path).containsKey(label("Café")));
+	}
+	
+	private static Label label(String name) {
+		return new Label(rdfFactory.createIRI("http://a.example/"+name));
+	}
+	
+	private static Map<Label,ShapeExpr> parse(String schema) throws Exception {
+		return new ShExCParser().getRules(new ByteArrayInputStream(schema.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExprRef;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeNot;
+import fr.inria.lille.shexjava.util.SchemaEquality;
+
+/** Tests the streaming ShExJ parser and the serialization of a schema into a stream.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class TestShExJParser {
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+			+ "ex:S { ex:p @ex:T + ; ( ex:q xsd:integer MININCLUSIVE 1 | ex:r [ex:a ex:b~ \"c\"@fr] {2,3} ) ; ^ex:s IRI ? }\n"
+			+ "ex:T CLOSED EXTRA ex:t { ex:t LITERAL MAXLENGTH 5 ; &ex:u }\n"
+			+ "ex:U { $ex:u ex:u . }\n"
+			+ "ex:V @ex:S OR ( @ex:T AND NOT { ex:v . } )\n"
+			+ "ex:Café { ex:nom [\"Hélène\"] }\n";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void roundTrip() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ShExJSerializer.ToJson(schema, out);
+		assertTrue(SchemaEquality.areEquals(schema, new ShexSchema(parse(out.toByteArray()))));
+		
+		Path path = folder.newFile("schema.json").toPath();
+		ShExJSerializer.ToJson(schema, path);
+		// the file is closed after the parsing and can be deleted
+		assertTrue(SchemaEquality.areEquals(schema, new ShexSchema(new ShExJParser().getRules(path))));
+		Files.delete(path);
+	}
+	
+	/** The serializer writes into a stream without closing it, and the parser reads the schema from the stream without reading past the schema. */
+	@Test
+	public void streams() throws Exception {
+		StringBuilder shexc = new StringBuilder("PREFIX ex: <http://a.example/>\n");
+		for (int i = 0; i < 2000; i++)
+			shexc.append("ex:S"+i+" { ex:p @ex:S"+(i+1)%2000+" ? ; ex:q ["+i+"] }\n");
+		ShexSchema schema = schema(shexc.toString());
+		boolean[] closed = {false};
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		ShExJSerializer.ToJson(schema, out);
+		assertFalse(closed[0]);
+		out.write(' ');
+		
+		Map<Label,ShapeExpr> rules = parse(out.toByteArray());
+		assertEquals(2000, rules.size());
+		assertTrue(SchemaEquality.areEquals(schema, new ShexSchema(rules)));
+	}
+	
+	@Test
+	public void encodings() throws Exception {
+		String json = new String(serialize(SCHEMA), StandardCharsets.UTF_8);
+		assertTrue(json.contains("Hélène"));
+		for (Charset charset:new Charset[] {StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE})
+			assertTrue(charset.name(), parse(json.getBytes(charset)).containsKey(new Label(node("Café"))));
+	}
+	
+	/** The members of the schema can come in any order, the unknown ones being ignored. */
+	@Test
+	public void members() throws Exception {
+		String shapes = "\"shapes\": [ { \"type\": \"Shape\", \"id\": \"http://a.example/S\", \"expression\": "
+				+ "{ \"predicate\": \"http://a.example/p\", \"type\": \"TripleConstraint\" } } ]";
+		String[] schemas = {
+				"{ \"type\": \"Schema\", " + shapes + " }",
+				"{ " + shapes + ", \"@context\": \"http://www.w3.org/ns/shex.jsonld\", \"type\": \"Schema\" }",
+				"{ \"comment\": { \"shapes\": [ 1, { \"a\": [] } ] }, " + shapes + ", \"type\": \"Schema\", \"imports\": [] }",
+		};
+		for (String schema:schemas) {
+			Map<Label,ShapeExpr> rules = parse(schema.getBytes(StandardCharsets.UTF_8));
+			assertEquals(schema, 1, rules.size());
+			assertTrue(schema, rules.containsKey(new Label(node("S"))));
+		}
+		assertEquals(0, parse("{ \"type\": \"Schema\" }".getBytes(StandardCharsets.UTF_8)).size());
+	}
+	
+	@Test
+	public void invalidSchemas() throws Exception {
+		String shape = "{ \"type\": \"Shape\", \"id\": \"http://a.example/S\" }";
+		String[] schemas = {
+				"[ " + shape + " ]",
+				"{ \"shapes\": [ " + shape + " ] }",
+				"{ \"type\": \"Shape\", \"shapes\": [ " + shape + " ] }",
+				"{ \"type\": \"Schema\", \"shapes\": " + shape + " }",
+		};
+		for (String schema:schemas) {
+			try {
+				parse(schema.getBytes(StandardCharsets.UTF_8));
+				fail("Schema accepted: "+schema);
+			} catch (ParseException e) {
+				// expected
+			}
+		}
+		try {
+			parse(("{ \"type\": \"Schema\", \"shapes\": [ " + shape + ", " + shape + " ] }").getBytes(StandardCharsets.UTF_8));
+			fail("Label used twice accepted.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	/** The operand of a ShapeNot can be a reference to a shape. */
+	@Test
+	public void shapeNotReference() throws Exception {
+		ShexSchema schema = schema("PREFIX ex: <http://a.example/>\n"
+				+ "ex:S NOT @ex:T\n"
+				+ "ex:T { ex:p . }\n");
+		assertTrue(SchemaEquality.areEquals(schema, new ShexSchema(parse(serialize(schema)))));
+		String json = "{ \"type\": \"Schema\", \"shapes\": [ "
+				+ "{ \"type\": \"ShapeNot\", \"id\": \"http://a.example/S\", \"shapeExpr\": \"http://a.example/T\" }, "
+				+ "{ \"type\": \"Shape\", \"id\": \"http://a.example/T\" } ] }";
+		ShapeNot not = (ShapeNot) parse(json.getBytes(StandardCharsets.UTF_8)).get(new Label(node("S")));
+		assertEquals(new Label(node("T")), ((ShapeExprRef) not.getSubExpression()).getLabel());
+	}
+	
+	private static byte[] serialize(String shexc) throws Exception {
+		return serialize(schema(shexc));
+	}
+	
+	private static byte[] serialize(ShexSchema schema) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ShExJSerializer.ToJson(schema, out);
+		return out.toByteArray();
+	}
+	
+	private static Map<Label,ShapeExpr> parse(byte[] json) throws Exception {
+		return new ShExJParser().getRules(new ByteArrayInputStream(json));
+	}
+}
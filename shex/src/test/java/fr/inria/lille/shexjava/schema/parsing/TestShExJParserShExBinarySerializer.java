@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.schema.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.util.SchemaEquality;
+import fr.inria.lille.shexjava.validation.RecursiveValidation;
+import fr.inria.lille.shexjava.validation.RefineValidation;
+
+
+/** Checks that the schemas of the test resources are unchanged when they are saved in the binary format and loaded again:
+ * same rules, same strata and same validation results on a graph using the predicates and the values of the schemas.
+ * @author Jérémie Dusart
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestShExJParserShExBinarySerializer {
+	protected static final Path SCHEMAS_DIR = Paths.get("src","test","ressources","success");
+	private final static String DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "@prefix s: <http://schema.example/> .\n"
+			+ "@prefix h: <http://schema.example/#> .\n"
+			+ "ex:n1 ex:son s:s3s, s:s4s .\n"
+			+ "ex:n2 ex:son s:s5s, s:s6s .\n"
+			+ "ex:n3 ex:son s:s3s, s:s4s, s:s5s, s:s6s .\n"
+			+ "ex:n4 ex:son s:s4s .\n"
+			+ "ex:n5 ex:son s:s3s ; ex:p1 ex:n5 .\n"
+			+ "ex:n6 ex:p1 ex:n7 ; ex:son ex:n1 .\n"
+			+ "ex:n7 ex:p1 ex:n5 .\n"
+			+ "ex:n8 h:p1 1 ; h:p2 2 .\n"
+			+ "ex:n9 h:p1 1, 2 ; h:p2 3, 4 .\n"
+			+ "ex:n10 h:p1 1, 2, 3 ; h:p2 4 .\n"
+			+ "ex:n11 h:p1 1, 2, 3 ; h:p2 4, 5 .\n";
+	
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> parameters() throws IOException {
+		try (Stream<Path> files = Files.walk(SCHEMAS_DIR)) {
+			return files.filter(path -> path.toString().endsWith(".json"))
+					.sorted()
+					.map(path -> new Object[] {path})
+					.collect(Collectors.toList());
+		}
+	}
+	
+	@Parameter
+	public Path schemaFile;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void roundTrip() throws Exception {
+		ShexSchema fromJson = GenParser.parseSchema(schemaFile);
+		Path binary = folder.newFile("schema" + GenParser.BINARY_EXTENSION).toPath();
+		ShExBinarySerializer.toBinary(fromJson, binary);
+		ShexSchema fromBinary = GenParser.parseSchema(binary);
+		
+		assertTrue(SchemaEquality.areEquals(fromJson, fromBinary));
+		assertEquals(fromJson.getNbStratums(), fromBinary.getNbStratums());
+		for (Label label:fromJson.getRules().keySet())
+			assertEquals(label.toString(), fromJson.hasStratum(label), fromBinary.hasStratum(label));
+		
+		RDF4JGraph graph = new RDF4JGraph(Rio.parse(new StringReader(DATA), "http://a.example/", RDFFormat.TURTLE));
+		List<Value> nodes = new ArrayList<>();
+		graph.listAllNodes().forEachRemaining(nodes::add);
+		RecursiveValidation recursiveFromJson = new RecursiveValidation(fromJson, graph);
+		RecursiveValidation recursiveFromBinary = new RecursiveValidation(fromBinary, graph);
+		RefineValidation refineFromJson = new RefineValidation(fromJson, graph);
+		RefineValidation refineFromBinary = new RefineValidation(fromBinary, graph);
+		Set<Boolean> results = new HashSet<>();
+		for (Label label:fromJson.getRules().keySet())
+			for (Value node:nodes) {
+				recursiveFromJson.resetTyping();
+				recursiveFromBinary.resetTyping();
+				boolean expected = recursiveFromJson.validate(node, label);
+				results.add(expected);
+				assertEquals(node + "@" + label, expected, recursiveFromBinary.validate(node, label));
+				assertEquals(node + "@" + label, refineFromJson.validate(node, label), refineFromBinary.validate(node, label));
+			}
+		// the graph has nodes that conform to the schema and nodes that do not
+		assertEquals(2, results.size());
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+
+/** The schema of persons and the small graphs used by the tests of the validation, the names being in the namespace http://a.example/.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public final class Persons {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	public final static String NAMESPACE = "http://a.example/";
+	public final static Label PERSON = new Label(node("Person"));
+	public final static IRI NAME = node("name");
+	public final static IRI KNOWS = node("knows");
+	public final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Person { ex:name . ; ex:knows @ex:Person * }";
+	/** alice knows bob who knows carol, and all of them are persons. */
+	public final static String DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "ex:alice ex:name \"Alice\" ; ex:knows ex:bob .\n"
+			+ "ex:bob ex:name \"Bob\" ; ex:knows ex:carol .\n"
+			+ "ex:carol ex:name \"Carol\" .\n";
+	
+	private Persons() {
+	}
+	
+	/** @return the IRI of a name of the namespace */
+	public static IRI node(String name) {
+		return rdfFactory.createIRI(NAMESPACE + name);
+	}
+	
+	public static ShexSchema schema() throws Exception {
+		return schema(SCHEMA);
+	}
+	
+	/** @return the schema of a ShExC text */
+	public static ShexSchema schema(String shexc) throws Exception {
+		Map<Label,ShapeExpr> rules = new ShExCParser().getRules(new ByteArrayInputStream(shexc.getBytes(StandardCharsets.UTF_8)));
+		return new ShexSchema(rules);
+	}
+	
+	public static RDF4JGraph graph() throws Exception {
+		return graph(DATA);
+	}
+	
+	/** @return the graph of a Turtle text */
+	public static RDF4JGraph graph(String turtle) throws Exception {
+		return new RDF4JGraph(model(turtle));
+	}
+	
+	/** @return the model of a Turtle text */
+	public static Model model(String turtle) throws Exception {
+		return Rio.parse(new StringReader(turtle), NAMESPACE, RDFFormat.TURTLE);
+	}
+}
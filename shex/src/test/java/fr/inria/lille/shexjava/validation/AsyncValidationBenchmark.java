@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Compares the blocking and the asynchronous validations of nodes of a graph whose accesses last some time, as a remote graph.
+ * 
+ * <p>Arguments: number of nodes (default 200), latency of an access in milliseconds (default 2).</p>
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class AsyncValidationBenchmark {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Person { ex:name . ; ex:knows @ex:Person * }";
+	
+	public static void main(String[] args) throws Exception {
+		int nbNodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		long latency = args.length > 1 ? Long.parseLong(args[1]) : 2;
+		
+		IRI name = rdfFactory.createIRI("http://a.example/name");
+		IRI knows = rdfFactory.createIRI("http://a.example/knows");
+		Model model = new LinkedHashModel();
+		List<Pair<Value,Label>> associations = new ArrayList<>();
+		Label person = new Label(rdfFactory.createIRI("http://a.example/Person"));
+		for (int i = 0; i < nbNodes; i++) {
+			IRI node = rdfFactory.createIRI("http://a.example/p" + i);
+			model.add(node, name, rdfFactory.createLiteral("p" + i));
+			// chains of 5 persons
+			if (i % 5 != 4)
+				model.add(node, knows, rdfFactory.createIRI("http://a.example/p" + (i + 1)));
+			associations.add(new Pair<>(node, person));
+		}
+		ShexSchema schema = new ShexSchema(new ShExCParser().getRules(new ByteArrayInputStream(SCHEMA.getBytes(StandardCharsets.UTF_8))));
+		RDFGraph graph = new LatencyGraph(new RDF4JGraph(model), latency);
+		long start = System.nanoTime();
+		RecursiveValidation blocking = new RecursiveValidation(schema, graph);
+		int nbValid = 0;
+		for (Pair<Value,Label> association:associations)
+			if (blocking.validate(association.one, association.two))
+				nbValid++;
+		System.out.println(String.format("Blocking: %d associations, %d valid, in %d ms.", 
+				associations.size(), nbValid, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		
+		start = System.nanoTime();
+		AsyncValidation async = new AsyncValidation(() -> new RecursiveValidation(schema, graph));
+		Map<Pair<Value,Label>,Boolean> results = async.validateAll(associations).join();
+		nbValid = 0;
+		for (boolean result:results.values())
+			if (result)
+				nbValid++;
+		System.out.println(String.format("Asynchronous: %d associations, %d valid, in %d ms.", 
+				associations.size(), nbValid, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+	}
+	
+	/** A graph whose accesses to the neighbourhoods last the given latency. */
+	static class LatencyGraph implements RDFGraph {
+		private final RDFGraph graph;
+		private final long latency;
+		
+		LatencyGraph(RDFGraph graph, long latency) {
+			this.graph = graph;
+			this.latency = latency;
+		}
+		
+		private <T> T delay(T result) {
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return result;
+		}
+
+		@Override
+		public Iterator<NeighborTriple> itAllNeighbours(Value focusNode) {
+			return delay(graph.itAllNeighbours(focusNode));
+		}
+
+		@Override
+		public Iterator<NeighborTriple> itAllNeighboursWithPredicate(Value focusNode, Set<IRI> allowedPredicates) {
+			return delay(graph.itAllNeighboursWithPredicate(focusNode, allowedPredicates));
+		}
+
+		@Override
+		public Iterator<NeighborTriple> itInNeighbours(Value focusNode) {
+			return delay(graph.itInNeighbours(focusNode));
+		}
+
+		@Override
+		public Iterator<NeighborTriple> itInNeighboursWithPredicate(Value focusNode, Set<IRI> allowedPredicates) {
+			return delay(graph.itInNeighboursWithPredicate(focusNode, allowedPredicates));
+		}
+
+		@Override
+		public Iterator<NeighborTriple> itOutNeighbours(Value focusNode) {
+			return delay(graph.itOutNeighbours(focusNode));
+		}
+
+		@Override
+		public Iterator<NeighborTriple> itOutNeighboursWithPredicate(Value focusNode, Set<IRI> allowedPredicates) {
+			return delay(graph.itOutNeighboursWithPredicate(focusNode, allowedPredicates));
+		}
+
+		@Override
+		public Iterator<Value> listAllObjectNodes() {
+			return graph.listAllObjectNodes();
+		}
+
+		@Override
+		public Iterator<Value> listAllSubjectNodes() {
+			return graph.listAllSubjectNodes();
+		}
+
+		@Override
+		public Iterator<Value> listAllNodes() {
+			return graph.listAllNodes();
+		}
+	}
+}
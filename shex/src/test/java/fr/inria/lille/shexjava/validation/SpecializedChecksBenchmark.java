@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+
+/** Compares the enumeration of the bags and the counting of the triples on nodes with many triples matched by a flat shape, with both algorithms.
+ * 
+ * The cardinalities of the shape are *, + and ?, as the other ones are unfolded into several triple constraints by the {@link fr.inria.lille.shexjava.validation.SORBEGenerator}, which the counting does not handle.
+ * 
+ * <p>Arguments: number of nodes (default 20000), number of triples of each predicate per node (default 10), number of runs (default 5).</p>
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class SpecializedChecksBenchmark {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Flat { ex:p . * ; ex:q . + ; ex:r . * ; ex:s . ? }";
+	
+	public static void main(String[] args) throws Exception {
+		int nbNodes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int nbTriples = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int nbRuns = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		
+		Model model = new LinkedHashModel();
+		IRI[] predicates = new IRI[3];
+		for (int i = 0; i < predicates.length; i++)
+			predicates[i] = rdfFactory.createIRI("http://a.example/" + (char) ('p' + i));
+		for (int i = 0; i < nbNodes; i++)
+			for (IRI predicate:predicates)
+				for (int j = 0; j < nbTriples; j++)
+					model.add(rdfFactory.createIRI("http://a.example/n" + i), predicate, rdfFactory.createLiteral(j));
+		ShexSchema schema = new ShexSchema(new ShExCParser().getRules(new ByteArrayInputStream(SCHEMA.getBytes(StandardCharsets.UTF_8))));
+		RDFGraph graph = new RDF4JGraph(model);
+		Label flat = new Label(rdfFactory.createIRI("http://a.example/Flat"));
+		
+		for (int run = 0; run < nbRuns; run++)
+			for (boolean specializedChecks:new boolean[] {false, true}) {
+				long start = System.nanoTime();
+				RefineValidation refine = new RefineValidation(schema, graph);
+				refine.setSpecializedChecks(specializedChecks);
+				refine.validate(rdfFactory.createIRI("http://a.example/n0"), flat);
+				long refineTime = System.nanoTime() - start;
+				
+				start = System.nanoTime();
+				RecursiveValidation recursive = new RecursiveValidation(schema, graph);
+				recursive.setSpecializedChecks(specializedChecks);
+				int nbValid = 0;
+				for (int i = 0; i < nbNodes; i++)
+					if (recursive.validate(rdfFactory.createIRI("http://a.example/n" + i), flat))
+						nbValid++;
+				long recursiveTime = System.nanoTime() - start;
+				System.out.println(String.format("Run %d, %s: refine in %d ms, recursive in %d ms, %d valid.", run, 
+						specializedChecks ? "counting" : "bags", TimeUnit.NANOSECONDS.toMillis(refineTime), TimeUnit.NANOSECONDS.toMillis(recursiveTime), nbValid));
+			}
+	}
+}
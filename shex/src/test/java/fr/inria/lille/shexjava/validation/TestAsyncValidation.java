@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.Value;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.util.Pair;
+import fr.inria.lille.shexjava.util.Persons;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestAsyncValidation {
+	private final static String DATA = Persons.DATA + "ex:dave ex:knows ex:alice .\n";
+	
+	@Test
+	public void validateAll() throws Exception {
+		ShexSchema schema = schema();
+		RDFGraph graph = new AsyncValidationBenchmark.LatencyGraph(graph(DATA), 1);
+		List<Pair<Value,Label>> associations = Arrays.asList(
+				new Pair<>(node("alice"), PERSON), new Pair<>(node("dave"), PERSON), 
+				new Pair<>(node("carol"), PERSON), new Pair<>(node("bob"), PERSON));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AsyncValidation validation = new AsyncValidation(() -> new RecursiveValidation(schema, graph), executor);
+			Map<Pair<Value,Label>,Boolean> results = validation.validateAll(associations).join();
+			Iterator<Map.Entry<Pair<Value,Label>,Boolean>> it = results.entrySet().iterator();
+			assertEquals(node("alice"), it.next().getKey().one);
+			assertEquals(Arrays.asList(true, false, true, true), Arrays.asList(results.values().toArray()));
+			assertTrue(validation.validate(node("bob"), PERSON).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void maxIdle() throws Exception {
+		ShexSchema schema = schema();
+		RDFGraph graph = new AsyncValidationBenchmark.LatencyGraph(graph(DATA), 1);
+		AtomicInteger nbCreated = new AtomicInteger();
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			AsyncValidation validation = new AsyncValidation(() -> {
+				nbCreated.incrementAndGet();
+				return new RecursiveValidation(schema, graph);
+			}, executor, 2);
+			List<Pair<Value,Label>> associations = new ArrayList<>();
+			for (int i=0;i<16;i++)
+				associations.add(new Pair<>(node("alice"), PERSON));
+			validation.validateAll(associations).join();
+			assertTrue(nbCreated.get() >= validation.getNbIdle());
+			assertTrue(validation.getNbIdle() >= 1 && validation.getNbIdle() <= 2);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void unknownLabel() throws Exception {
+		ShexSchema schema = schema();
+		RDFGraph graph = graph(DATA);
+		AsyncValidation validation = new AsyncValidation(() -> new RecursiveValidation(schema, graph));
+		try {
+			validation.validate(node("alice"), new Label(node("Unknown"))).join();
+			fail("The validation should fail.");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause().getMessage().startsWith("Unknown label"));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+import fr.inria.lille.shexjava.util.Interval;
+
+/** Checks that the compiled {@link IntervalEvaluator} computes the same intervals as {@link IntervalComputation} on all the small bags.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class TestIntervalEvaluator {
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:EachOf { ex:p . ; ex:q . ; ex:r . }\n"
+			+ "ex:OneOf { ex:p . | ex:q . | ex:r . }\n"
+			+ "ex:OptionalChoice { ex:p . | ex:q . * }\n"
+			+ "ex:Star { (ex:p . ; ex:q .) * ; ex:r . }\n"
+			+ "ex:Plus { (ex:p . | ex:q .) + ; ex:r . ? }\n"
+			+ "ex:Optional { (ex:p . ; ex:q . *) ? }\n"
+			+ "ex:Bounded { ex:p . {2,3} ; ex:q . {0,2} ; ex:r . {2} }\n"
+			+ "ex:Nested { (ex:p . ; (ex:q . | ex:r .) *) + ; ex:s . ? }\n"
+			+ "ex:Empty { }\n";
+	private final static String[] LABELS = {"EachOf", "OneOf", "OptionalChoice", "Star", "Plus", "Optional", "Bounded", "Nested", "Empty"};
+	private final static int MAX_MULT = 3;
+	
+	@Test
+	public void parsedExpressions() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		DynamicCollectorOfTripleConstraint collector = new DynamicCollectorOfTripleConstraint();
+		EvaluatorCompiler compiler = new EvaluatorCompiler(null, null, collector);
+		for (String name:LABELS)
+			compare(((Shape) schema.getRules().get(new Label(node(name)))).getTripleExpression(), compiler, collector);
+	}
+	
+	@Test
+	public void sorbeExpressions() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		SORBEGenerator generator = new SORBEGenerator();
+		DynamicCollectorOfTripleConstraint collector = new DynamicCollectorOfTripleConstraint();
+		EvaluatorCompiler compiler = new EvaluatorCompiler(null, null, collector);
+		for (String name:LABELS)
+			compare(generator.getSORBETripleExpr((Shape) schema.getRules().get(new Label(node(name)))), compiler, collector);
+	}
+	
+	@Test
+	public void emptyBag() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		DynamicCollectorOfTripleConstraint collector = new DynamicCollectorOfTripleConstraint();
+		EvaluatorCompiler compiler = new EvaluatorCompiler(null, null, collector);
+		assertEquals(Interval.ZERO, evaluate("EachOf", schema, compiler));
+		assertEquals(Interval.ZERO, evaluate("OneOf", schema, compiler));
+		assertEquals(Interval.STAR, evaluate("Optional", schema, compiler));
+		assertEquals(Interval.STAR, evaluate("Empty", schema, compiler));
+		assertEquals(Interval.ZERO, evaluate("Bounded", schema, compiler));
+	}
+	
+	private static Interval evaluate(String name, ShexSchema schema, EvaluatorCompiler compiler) {
+		TripleExpr expr = ((Shape) schema.getRules().get(new Label(node(name)))).getTripleExpression();
+		Interval expected = compute(expr, new Bag(), new DynamicCollectorOfTripleConstraint());
+		assertEquals(expected, compiler.compile(expr).evaluate(new Bag()));
+		return expected;
+	}
+	
+	/** Compares the intervals on the bags in which every triple constraint of expr has at most MAX_MULT triples. */
+	private static void compare(TripleExpr expr, EvaluatorCompiler compiler, DynamicCollectorOfTripleConstraint collector) {
+		List<TripleConstraint> constraints = new ArrayList<>(new LinkedHashSet<>(collector.getResult(expr)));
+		IntervalEvaluator evaluator = compiler.compile(expr);
+		int[] mults = new int[constraints.size()];
+		int nbBags = 0;
+		do {
+			Bag bag = new Bag();
+			for (int i = 0; i < mults.length; i++)
+				for (int j = 0; j < mults[i]; j++)
+					bag.increment(constraints.get(i));
+			assertEquals(expr + " on " + bag, compute(expr, bag, collector), evaluator.evaluate(bag));
+			nbBags++;
+		} while (next(mults));
+		assertEquals((int) Math.pow(MAX_MULT + 1, constraints.size()), nbBags);
+	}
+	
+	private static Interval compute(TripleExpr expr, Bag bag, DynamicCollectorOfTripleConstraint collector) {
+		IntervalComputation computation = new IntervalComputation(collector);
+		expr.accept(computation, bag);
+		return computation.getResult();
+	}
+	
+	private static boolean next(int[] mults) {
+		for (int i = 0; i < mults.length; i++) {
+			if (mults[i] < MAX_MULT) {
+				mults[i]++;
+				return true;
+			}
+			mults[i] = 0;
+		}
+		return false;
+	}
+}
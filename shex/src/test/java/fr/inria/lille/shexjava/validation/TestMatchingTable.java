@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.NeighborTriple;
+import fr.inria.lille.shexjava.graph.TCProperty;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.Shape;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleConstraint;
+import fr.inria.lille.shexjava.schema.abstrsynt.TripleExpr;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestMatchingTable {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:S { ex:p . ; ex:p [1 2] ; ex:q . * ; ^ex:p . }\n";
+	private final static TCProperty P = TCProperty.createFwProperty(node("p"));
+	private final static TCProperty Q = TCProperty.createFwProperty(node("q"));
+	private final static TCProperty R = TCProperty.createFwProperty(node("r"));
+	private final static TCProperty INV_P = TCProperty.createInvProperty(node("p"));
+	
+	@Test
+	public void rows() throws Exception {
+		List<TripleConstraint> tcs = constraints();
+		MatchingTable table = new MatchingTable();
+		// more rows and matches than the initial capacity, row i having i % 3 matches
+		for (int i = 0; i < 40; i++) {
+			table.addTriple(triple(P, i));
+			for (int j = 0; j < i % 3; j++)
+				table.addMatch(tcs.get(j));
+		}
+		assertEquals(40, table.size());
+		assertEquals(0, table.getNbMatches(0));
+		assertEquals(2, table.getNbMatches(38));
+		assertSame(tcs.get(1), table.getMatch(38, 1));
+		
+		table.removeUnmatched();
+		assertEquals(26, table.size());
+		for (int k = 0; k < table.size(); k++) {
+			// the kept rows are 1, 2, 4, 5, 7, 8...
+			int i = 3 * (k / 2) + 1 + k % 2;
+			assertEquals(triple(P, i).getOpposite(), table.getTriple(k).getOpposite());
+			assertEquals(i % 3, table.getNbMatches(k));
+			for (int j = 0; j < i % 3; j++)
+				assertSame(tcs.get(j), table.getMatch(k, j));
+		}
+		
+		// a row added after the compaction
+		table.addTriple(triple(Q, 100));
+		table.addMatch(tcs.get(2));
+		assertEquals(27, table.size());
+		assertEquals(1, table.getNbMatches(26));
+		assertEquals(2, table.getNbMatches(25));
+		
+		table.clear();
+		assertEquals(0, table.size());
+		table.addTriple(triple(Q, 0));
+		table.addMatch(tcs.get(2));
+		assertEquals(1, table.size());
+		assertSame(tcs.get(2), table.getMatch(0, 0));
+	}
+	
+	@Test
+	public void removeUnmatched() throws Exception {
+		List<TripleConstraint> tcs = constraints();
+		MatchingTable table = new MatchingTable();
+		table.removeUnmatched();
+		assertEquals(0, table.size());
+		
+		table.addTriple(triple(R, 0));
+		table.addTriple(triple(R, 1));
+		table.removeUnmatched();
+		assertEquals(0, table.size());
+		
+		table.clear();
+		table.addTriple(triple(R, 0));
+		table.addTriple(triple(P, 1));
+		table.addMatch(tcs.get(0));
+		table.addMatch(tcs.get(1));
+		table.addTriple(triple(R, 2));
+		table.addTriple(triple(Q, 3));
+		table.addMatch(tcs.get(2));
+		table.addTriple(triple(R, 4));
+		table.removeUnmatched();
+		assertEquals("[1, 3]", Arrays.toString(new int[] {value(table.getTriple(0)), value(table.getTriple(1))}));
+		assertEquals(2, table.getNbMatches(0));
+		assertEquals(1, table.getNbMatches(1));
+		assertSame(tcs.get(2), table.getMatch(1, 0));
+	}
+	
+	@Test
+	public void bagIterator() throws Exception {
+		List<TripleConstraint> tcs = constraints();
+		MatchingTable table = new MatchingTable();
+		List<List<TripleConstraint>> lists = new ArrayList<>();
+		int[][] rows = {{0, 1}, {2}, {0, 1, 2}, {3}};
+		for (int i = 0; i < rows.length; i++) {
+			table.addTriple(triple(P, i));
+			List<TripleConstraint> list = new ArrayList<>();
+			for (int j:rows[i]) {
+				table.addMatch(tcs.get(j));
+				list.add(tcs.get(j));
+			}
+			lists.add(list);
+		}
+		BagIterator fromTable = new BagIterator(table);
+		BagIterator fromLists = new BagIterator(lists);
+		int nbBags = 0;
+		while (fromLists.hasNext()) {
+			assertEquals(mults(fromLists.next(), tcs), mults(fromTable.next(), tcs));
+			nbBags++;
+		}
+		assertEquals(false, fromTable.hasNext());
+		assertEquals(6, nbBags);
+		
+		// the empty table has the empty bag only
+		BagIterator empty = new BagIterator(new MatchingTable());
+		assertEquals(Arrays.asList(0, 0, 0, 0), mults(empty.next(), tcs));
+		assertEquals(false, empty.hasNext());
+	}
+	
+	/** The table filled from the constraints indexed by property has the rows of the map of all the constraints, the unmatched rows being removed. */
+	@Test
+	public void collectMatchingTC() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		TripleExpr expr = ((Shape) schema.getRules().get(new Label(node("S")))).getTripleExpression();
+		DynamicCollectorOfTripleConstraint collector = new DynamicCollectorOfTripleConstraint();
+		List<TripleConstraint> tcs = collector.getResult(expr);
+		TripleConstraint values = tcs.get(1);
+		// ex:p [1 2] only matches the values 1 and 2
+		Matcher matcher = (triple, tc) -> tc.getProperty().equals(triple.getPredicate()) 
+				&& (tc != values || value(triple) == 1 || value(triple) == 2);
+		List<NeighborTriple> neighbourhood = Arrays.asList(triple(P, 1), triple(R, 2), triple(P, 3), triple(Q, 4), 
+				triple(INV_P, 5), triple(P, 2), triple(R, 6));
+		
+		LinkedHashMap<NeighborTriple,List<TripleConstraint>> expected = Matcher.collectMatchingTC(neighbourhood, tcs, matcher);
+		MatchingTable table = new MatchingTable();
+		table.addTriple(triple(Q, 0));
+		Matcher.collectMatchingTC(neighbourhood, collector.getIndexedResult(expr), matcher, table);
+		assertEquals(neighbourhood.size(), table.size());
+		table.removeUnmatched();
+		
+		int k = 0;
+		for (Map.Entry<NeighborTriple,List<TripleConstraint>> entry:expected.entrySet()) {
+			if (entry.getValue().isEmpty())
+				continue;
+			assertSame(entry.getKey(), table.getTriple(k));
+			List<TripleConstraint> row = new ArrayList<>();
+			for (int j = 0; j < table.getNbMatches(k); j++)
+				row.add(table.getMatch(k, j));
+			assertEquals(entry.getValue(), row);
+			k++;
+		}
+		assertEquals(5, k);
+		assertEquals(k, table.size());
+		assertEquals(2, table.getNbMatches(0));
+		assertEquals(Collections.singletonList(tcs.get(0)), expected.get(neighbourhood.get(2)));
+	}
+	
+	private static List<TripleConstraint> constraints() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		return new DynamicCollectorOfTripleConstraint().getResult(((Shape) schema.getRules().get(new Label(node("S")))).getTripleExpression());
+	}
+	
+	private static NeighborTriple triple(TCProperty property, int value) {
+		return new NeighborTriple(node("s"), property, rdfFactory.createLiteral(value));
+	}
+	
+	private static int value(NeighborTriple triple) {
+		return Integer.parseInt(triple.getOpposite().stringValue());
+	}
+	
+	private static List<Integer> mults(Bag bag, List<TripleConstraint> tcs) {
+		List<Integer> result = new ArrayList<>();
+		for (TripleConstraint tc:tcs)
+			result.add(bag.getMult(tc));
+		return result;
+	}
+}
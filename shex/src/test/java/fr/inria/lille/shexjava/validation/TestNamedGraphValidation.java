@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.NAME;
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.Test;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestNamedGraphValidation {
+	// the statements about bob in the graph of alice are not seen when validating the graph of bob
+	private final static String DATA = 
+			  "<http://a.example/alice> <http://a.example/name> \"Alice\" <http://a.example/alice> .\n"
+			+ "<http://a.example/alice> <http://a.example/knows> <http://a.example/bob> <http://a.example/alice> .\n"
+			+ "<http://a.example/bob> <http://a.example/name> \"Bob\" <http://a.example/alice> .\n"
+			+ "<http://a.example/bob> <http://a.example/knows> <http://a.example/carol> <http://a.example/bob> .\n"
+			+ "<http://a.example/carol> <http://a.example/name> \"Carol\" <http://a.example/carol> .\n"
+			+ "<http://a.example/dave> <http://a.example/name> \"Dave\" .\n";
+	
+	@Test
+	public void namedGraphs() throws Exception {
+		Model dataset = Rio.parse(new StringReader(DATA), "http://a.example/", RDFFormat.NQUADS);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			NamedGraphValidation validation = new NamedGraphValidation(schema(), executor);
+			Map<String,Boolean> results = new TreeMap<>();
+			validation.validate(dataset, PERSON).forEach(result -> {
+				assertNull(result.getError());
+				assertEquals(result.getGraph(), result.getNode());
+				results.put(result.getGraph().stringValue(), result.isConformant());
+			});
+			assertEquals("{http://a.example/alice=true, http://a.example/bob=false, http://a.example/carol=true}", results.toString());
+			
+			// a node that has a name, there is none in the graph of bob
+			Map<String,String> selected = new TreeMap<>();
+			validation.validate(dataset, PERSON, (name, graph) -> graph.filter(null, NAME, null).subjects().iterator().next()).forEach(result -> 
+				selected.put(result.getGraph().stringValue(), result.getError() == null ? Boolean.toString(result.isConformant()) : "error"));
+			assertEquals("{http://a.example/alice=true, http://a.example/bob=error, http://a.example/carol=true}", selected.toString());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void maxGraphs() throws Exception {
+		Model dataset = Rio.parse(new StringReader(DATA), "http://a.example/", RDFFormat.NQUADS);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			AtomicInteger nbSubmitted = new AtomicInteger();
+			NamedGraphValidation validation = new NamedGraphValidation(schema(), runnable -> {
+				nbSubmitted.incrementAndGet();
+				executor.execute(runnable);
+			});
+			validation.setMaxGraphs(2);
+			Iterator<NamedGraphValidation.Result> results = validation.validate(dataset, PERSON).iterator();
+			assertEquals(0, nbSubmitted.get());
+			assertEquals(PERSON, results.next().getLabel());
+			assertEquals(2, nbSubmitted.get());
+			results.next();
+			assertEquals(3, nbSubmitted.get());
+			results.next();
+			assertFalse(results.hasNext());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.abstrsynt.ShapeExpr;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestRecursiveValidation {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static Label NODE = new Label(rdfFactory.createIRI("http://a.example/Node"));
+	private final static IRI NEXT = rdfFactory.createIRI("http://a.example/next");
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Node IRI AND { ex:next @ex:Node ? }";
+	private final static int LENGTH = 100000;
+	private final static IRI HUB_NODE = rdfFactory.createIRI("http://a.example/hub");
+	private final static Label HUB = new Label(rdfFactory.createIRI("http://a.example/Hub"));
+	private final static IRI MEMBER = rdfFactory.createIRI("http://a.example/member");
+	private final static Label MEMBER_LABEL = new Label(rdfFactory.createIRI("http://a.example/Member"));
+	private final static IRI IN = rdfFactory.createIRI("http://a.example/in");
+	private final static String HUB_SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Hub { ex:member @ex:Member * }\n"
+			+ "ex:Member IRI AND { ex:in @ex:Hub ; ex:next @ex:Member ? }";
+	
+	@Test
+	public void longChain() throws Exception {
+		RecursiveValidation validation = new RecursiveValidation(schema(), new RDF4JGraph(chain(rdfFactory.createIRI("http://a.example/end"))));
+		assertTrue(validation.validate(node(0), NODE));
+		assertTrue(validation.getTyping().contains(node(0), NODE));
+		
+		validation = new RecursiveValidation(schema(), new RDF4JGraph(chain(rdfFactory.createLiteral("end"))));
+		assertFalse(validation.validate(node(0), NODE));
+		assertFalse(validation.validate(node(LENGTH/2), NODE));
+	}
+	
+	@Test
+	public void suspendAndResume() throws Exception {
+		RecursiveValidation validation = new RecursiveValidation(schema(), new RDF4JGraph(chain(rdfFactory.createLiteral("end"))));
+		validation.start(node(0), NODE);
+		int nbResumes = 0;
+		while (! validation.resume(1000))
+			nbResumes++;
+		assertTrue(nbResumes > LENGTH / 1000);
+		assertTrue(validation.isFinished());
+		assertFalse(validation.getResult());
+		
+		validation.start(node(LENGTH-1), NODE);
+		assertFalse(validation.isFinished());
+		validation.resume(Long.MAX_VALUE);
+		assertFalse(validation.getResult());
+	}
+	
+	@Test
+	public void parallel() throws Exception {
+		IRI hub = HUB_NODE;
+		Model model = hub();
+		ShexSchema schema = schema(HUB_SCHEMA);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			RecursiveValidation validation = new RecursiveValidation(schema, new RDF4JGraph(model));
+			validation.setParallelism(pool, 10);
+			assertTrue(validation.validate(hub, HUB));
+			assertTrue(validation.validate(node(7), MEMBER_LABEL));
+			
+			model.add((IRI) node(35), NEXT, rdfFactory.createLiteral("end"));
+			RecursiveValidation sequential = new RecursiveValidation(schema, new RDF4JGraph(model));
+			assertFalse(sequential.validate(hub, HUB));
+			assertFalse(validation.validate(hub, HUB));
+			assertFalse(validation.validate(node(7), MEMBER_LABEL));
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void parallelListenerChange() throws Exception {
+		Model model = hub();
+		ShexSchema schema = schema(HUB_SCHEMA);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			RecursiveValidation validation = new RecursiveValidation(schema, new RDF4JGraph(model));
+			validation.setParallelism(pool, 10);
+			AtomicInteger first = new AtomicInteger();
+			validation.setListener(new ValidationListener() {
+				@Override
+				public void shapeCheckStarted(Value node, Label label, int depth) {
+					first.incrementAndGet();
+				}
+			});
+			assertTrue(validation.validate(HUB_NODE, HUB));
+			int firstChecks = first.get();
+			assertTrue(firstChecks > 50);
+			
+			AtomicInteger second = new AtomicInteger();
+			validation.setListener(new ValidationListener() {
+				@Override
+				public void shapeCheckStarted(Value node, Label label, int depth) {
+					second.incrementAndGet();
+				}
+			});
+			validation.setSpecializedChecks(true);
+			validation.resetTyping();
+			assertTrue(validation.validate(HUB_NODE, HUB));
+			assertEquals(firstChecks, first.get());
+			assertEquals(firstChecks, second.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	private static Model hub() {
+		Model model = new LinkedHashModel();
+		for (int i = 0; i < 50; i++) {
+			model.add(HUB_NODE, MEMBER, node(i));
+			model.add((IRI) node(i), IN, HUB_NODE);
+			if (i % 10 != 9)
+				model.add((IRI) node(i), NEXT, node(i+1));
+		}
+		return model;
+	}
+	
+	private static Value node(int i) {
+		return rdfFactory.createIRI("http://a.example/n" + i);
+	}
+	
+	private static Model chain(Value end) {
+		Model model = new LinkedHashModel();
+		for (int i = 0; i < LENGTH - 1; i++)
+			model.add((IRI) node(i), NEXT, node(i+1));
+		model.add((IRI) node(LENGTH-1), NEXT, end);
+		return model;
+	}
+	
+	private static ShexSchema schema() throws Exception {
+		return schema(SCHEMA);
+	}
+	
+	private static ShexSchema schema(String schema) throws Exception {
+		Map<Label,ShapeExpr> rules = new ShExCParser().getRules(new ByteArrayInputStream(schema.getBytes(StandardCharsets.UTF_8)));
+		return new ShexSchema(rules);
+	}
+}
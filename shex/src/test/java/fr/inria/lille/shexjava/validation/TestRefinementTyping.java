@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.KNOWS;
+import static fr.inria.lille.shexjava.util.Persons.NAME;
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.util.Pair;
+import fr.inria.lille.shexjava.validation.RefinementTyping.BitNodeSet;
+import fr.inria.lille.shexjava.validation.RefinementTyping.NodeSet;
+import fr.inria.lille.shexjava.validation.RefinementTyping.SortedNodeSet;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestRefinementTyping {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Person { ex:name . ; ex:knows @ex:Person * }\n"
+			+ "ex:Rare { ex:rare . }\n"
+			+ "ex:Anything { ex:other . * }\n";
+	private final static Label RARE = new Label(node("Rare"));
+	private final static Label ANYTHING = new Label(node("Anything"));
+	private final static int NB_PERSONS = 100;
+	
+	@Test
+	public void bitNodeSet() {
+		BitSet bits = new BitSet();
+		bits.set(0, 10);
+		NodeSet set = new BitNodeSet(bits, true);
+		set.remove(3);
+		set.remove(9);
+		assertFalse(set.contains(3));
+		assertTrue(set.contains(4));
+		assertEquals(4, set.next(3));
+		assertEquals(-1, set.next(9));
+		
+		// dense: 8 nodes out of 10
+		NodeSet dense = set.compact(10);
+		assertTrue(dense instanceof BitNodeSet);
+		assertSameNodes(set, dense, 10);
+		try {
+			dense.remove(4);
+			fail("The compacted set should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			assertTrue(dense.contains(4));
+		}
+		// the compacted set does not share the bits of the mutable set
+		set.remove(4);
+		assertTrue(dense.contains(4));
+	}
+	
+	@Test
+	public void sortedNodeSet() {
+		BitSet bits = new BitSet();
+		bits.set(5);
+		bits.set(70);
+		bits.set(199);
+		NodeSet set = new BitNodeSet(bits, true);
+		// sparse: 3 nodes out of 200
+		NodeSet sparse = set.compact(200);
+		assertTrue(sparse instanceof SortedNodeSet);
+		assertSameNodes(set, sparse, 200);
+		assertEquals(5, sparse.next(0));
+		assertEquals(70, sparse.next(6));
+		assertEquals(199, sparse.next(199));
+		assertEquals(-1, sparse.next(200));
+		assertTrue(sparse.compact(200) == sparse);
+		try {
+			sparse.remove(5);
+			fail("The compacted set should be read-only.");
+		} catch (UnsupportedOperationException e) {
+			assertTrue(sparse.contains(5));
+		}
+		
+		NodeSet empty = new BitNodeSet(new BitSet(), true).compact(200);
+		assertTrue(empty instanceof SortedNodeSet);
+		assertEquals(-1, empty.next(0));
+		assertFalse(empty.contains(0));
+	}
+	
+	/** The typing of refine is the one of the recursive validation, for a dense and a sparse label, and every pair is listed once. */
+	@Test
+	public void typing() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		RDF4JGraph graph = new RDF4JGraph(persons());
+		RefineValidation refine = new RefineValidation(schema, graph);
+		refine.validate(null, null);
+		RefinementTyping typing = (RefinementTyping) refine.getTyping();
+		
+		RecursiveValidation recursive = new RecursiveValidation(schema, graph);
+		Set<Pair<Value,Label>> expected = new HashSet<>();
+		Set<Value> nodes = new HashSet<>();
+		graph.listAllNodes().forEachRemaining(nodes::add);
+		for (Value node:nodes)
+			for (Label label:new Label[] {PERSON, RARE, ANYTHING}) {
+				recursive.resetTyping();
+				if (recursive.validate(node, label))
+					expected.add(new Pair<>(node, label));
+				assertEquals(node + "@" + label, recursive.validate(node, label), typing.contains(node, label));
+			}
+		
+		int nbPairs = 0;
+		Set<Pair<Value,Label>> listed = new HashSet<>();
+		for (Iterator<Pair<Value,Label>> it = typing.iterator(); it.hasNext();) {
+			Pair<Value,Label> pair = it.next();
+			nbPairs++;
+			if (pair.two.equals(PERSON) || pair.two.equals(RARE) || pair.two.equals(ANYTHING))
+				listed.add(pair);
+		}
+		assertEquals(expected, listed);
+		assertEquals(nbPairs, typing.asSet().size());
+		assertTrue(typing.contains(node("p7"), RARE));
+		assertFalse(typing.contains(node("p8"), RARE));
+		
+		// the strata are finalized
+		for (int stratum = 0; stratum < schema.getNbStratums(); stratum++) {
+			Iterator<Pair<Value,Label>> it = typing.typesIterator(stratum);
+			if (it.hasNext()) {
+				it.next();
+				try {
+					it.remove();
+					fail("The stratum should be finalized.");
+				} catch (UnsupportedOperationException e) {
+					// expected
+				}
+			}
+		}
+	}
+	
+	/** A focus node that is not in the graph is numbered after the nodes of the graph. */
+	@Test
+	public void focusNodeOutsideTheGraph() throws Exception {
+		RefineValidation refine = new RefineValidation(schema(SCHEMA), new RDF4JGraph(persons()));
+		assertTrue(refine.validate(node("zoe"), ANYTHING));
+		assertFalse(refine.validate(node("zoe"), PERSON));
+		assertTrue(refine.validate(node("p1"), ANYTHING));
+		assertFalse(refine.getTyping().contains(node("yann"), ANYTHING));
+	}
+	
+	private static void assertSameNodes(NodeSet expected, NodeSet actual, int nbNodes) {
+		for (int id = 0; id <= nbNodes; id++) {
+			assertEquals(expected.contains(id), actual.contains(id));
+			assertEquals(expected.next(id), actual.next(id));
+		}
+	}
+	
+	/** Persons p0 to p99 knowing the next one. The multiples of 10 have no name, and p7 is the only one to be rare. */
+	private static Model persons() {
+		Model model = new LinkedHashModel();
+		for (int i = 0; i < NB_PERSONS; i++) {
+			IRI person = node("p" + i);
+			if (i % 10 != 0)
+				model.add(person, NAME, rdfFactory.createLiteral("p" + i));
+			if (i < NB_PERSONS - 1)
+				model.add(person, KNOWS, node("p" + (i + 1)));
+		}
+		model.add(node("p7"), node("rare"), rdfFactory.createLiteral(true));
+		return model;
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+
+/** Tests the dependency closure of the schema and the refine validation restricted to requested labels.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class TestRequestedLabels {
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:A { ex:p @ex:B ; ex:q @ex:C ? }\n"
+			+ "ex:B { ex:r @ex:D * }\n"
+			+ "ex:C NOT @ex:E\n"
+			+ "ex:D { ex:s . }\n"
+			+ "ex:E { ex:t . }\n"
+			+ "ex:F { ex:u @ex:A }\n"
+			+ "ex:G { ex:v . }\n";
+	private final static String DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "ex:a1 ex:p ex:b1 ; ex:q ex:c1 .\n"
+			+ "ex:a2 ex:p ex:b1 ; ex:q ex:e1 .\n"
+			+ "ex:b1 ex:r ex:d1, ex:d2 .\n"
+			+ "ex:b2 ex:r ex:e1 .\n"
+			+ "ex:d1 ex:s 1 .\n"
+			+ "ex:d2 ex:s 2 .\n"
+			+ "ex:e1 ex:t 1 .\n"
+			+ "ex:f1 ex:u ex:a1 .\n"
+			+ "ex:g1 ex:v 1 .\n";
+	private final static String[] LABELS = {"A", "B", "C", "D", "E", "F", "G"};
+	
+	@Test
+	public void dependencyClosure() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		Set<Label> closure = schema.getDependencyClosure(Collections.singleton(label("A")));
+		for (String name:new String[] {"A", "B", "C", "D", "E"})
+			assertTrue(name, closure.contains(label(name)));
+		assertFalse(closure.contains(label("F")));
+		assertFalse(closure.contains(label("G")));
+		
+		Set<Label> closureOfE = schema.getDependencyClosure(Collections.singleton(label("E")));
+		assertTrue(closureOfE.contains(label("E")));
+		assertFalse(closureOfE.contains(label("C")));
+		assertFalse(closureOfE.contains(label("D")));
+		
+		Set<Label> union = schema.getDependencyClosure(Arrays.asList(label("B"), label("G")));
+		Set<Label> expected = new HashSet<>(schema.getDependencyClosure(Collections.singleton(label("B"))));
+		expected.addAll(schema.getDependencyClosure(Collections.singleton(label("G"))));
+		assertEquals(expected, union);
+		assertTrue(schema.getDependencyClosure(Collections.emptySet()).isEmpty());
+		
+		try {
+			schema.getDependencyClosure(Collections.singleton(label("Unknown")));
+			fail("The label is unknown.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void requestedLabels() throws Exception {
+		ShexSchema schema = schema(SCHEMA);
+		RDF4JGraph graph = graph(DATA);
+		RefineValidation full = new RefineValidation(schema, graph);
+		RefineValidation restricted = new RefineValidation(schema, graph);
+		restricted.setRequestedLabels(Collections.singleton(label("A")));
+		
+		Set<Value> nodes = new HashSet<>();
+		graph.listAllNodes().forEachRemaining(nodes::add);
+		int nbConformant = 0;
+		for (Value node:nodes) {
+			for (String name:new String[] {"A", "B", "C", "D", "E"}) {
+				boolean result = full.validate(node, label(name));
+				assertEquals(node + "@" + name, result, restricted.validate(node, label(name)));
+				if (result)
+					nbConformant++;
+			}
+		}
+		assertTrue(restricted.validate(node("a1"), label("A")));
+		assertFalse(restricted.validate(node("a2"), label("A")));
+		assertTrue(nbConformant > 5);
+		
+		for (String name:new String[] {"F", "G"}) {
+			try {
+				restricted.validate(node("a1"), label(name));
+				fail("The label " + name + " is not selected.");
+			} catch (Exception e) {
+				assertTrue(e.getMessage().startsWith("Label not selected"));
+			}
+		}
+		
+		// all the labels are typed again
+		restricted.setRequestedLabels(null);
+		for (String name:LABELS)
+			for (Value node:nodes)
+				assertEquals(full.validate(node, label(name)), restricted.validate(node, label(name)));
+		
+		try {
+			restricted.setRequestedLabels(Collections.singleton(label("Unknown")));
+			fail("The label is unknown.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	private static Label label(String name) {
+		return new Label(node(name));
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.graph.RDFGraph;
+import fr.inria.lille.shexjava.schema.Label;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+import fr.inria.lille.shexjava.schema.parsing.ShExCParser;
+import fr.inria.lille.shexjava.util.Pair;
+
+/** Checks that the counting of the triples gives the same typings as the enumeration of the bags.
+ * 
+ * @author Jérémie Dusart
+ *
+ */
+public class TestSpecializedChecks {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static String SCHEMA = "PREFIX ex: <http://a.example/>\n"
+			+ "ex:Counted { ex:p . {2,3} ; ex:q @ex:Choice * ; ex:r . ? }\n"
+			+ "ex:Choice { (ex:p . | ex:q . {2}) ; ex:r . * }\n"
+			+ "ex:Group { (ex:p . ; ex:q .){1,2} ; ex:r . }\n"
+			+ "ex:Nested { ex:p . ; (ex:q . {0,2} ; ex:r . ){2,} }\n"
+			+ "ex:Repeated { ex:p . ; ex:p . + ; ex:q . * }\n"
+			+ "ex:Values { ex:p [1 2] * ; ex:p [3] ; ex:q @ex:Counted {1,2} }\n"
+			+ "ex:Single { ex:r @ex:Group }\n"
+			+ "ex:Flat { ex:p . * ; ex:q @ex:Choice + ; ex:r . ? }\n"
+			+ "ex:FlatValues { ex:p [1 2] * ; ex:p [3] ? ; ex:q @ex:Flat * }\n";
+	private final static String[] LABELS = {"Counted", "Choice", "Group", "Nested", "Repeated", "Values", "Single", "Flat", "FlatValues"};
+	private final static int NB_NODES = 60;
+	
+	@Test
+	public void refine() throws Exception {
+		ShexSchema schema = schema();
+		RDFGraph graph = new RDF4JGraph(graph(1));
+		Set<Pair<Value,Label>> bags = refine(schema, graph, false);
+		Set<Pair<Value,Label>> counts = refine(schema, graph, true);
+		assertEquals(bags, counts);
+		assertFalse(bags.isEmpty());
+	}
+	
+	@Test
+	public void recursive() throws Exception {
+		ShexSchema schema = schema();
+		for (int seed = 1; seed <= 3; seed++) {
+			RDFGraph graph = new RDF4JGraph(graph(seed));
+			Set<Pair<Value,Label>> expected = refine(schema, graph, false);
+			RecursiveValidation bags = new RecursiveValidation(schema, graph);
+			RecursiveValidation counts = new RecursiveValidation(schema, graph);
+			counts.setSpecializedChecks(true);
+			int nbValid = 0;
+			for (int i = 0; i < NB_NODES; i++)
+				for (String name:LABELS) {
+					Pair<Value,Label> pair = new Pair<>(node(i), label(name));
+					bags.resetTyping();
+					counts.resetTyping();
+					boolean result = bags.validate(pair.one, pair.two);
+					assertEquals(pair.toString(), expected.contains(pair), result);
+					assertEquals(pair.toString(), result, counts.validate(pair.one, pair.two));
+					if (result)
+						nbValid++;
+				}
+			assertTrue(nbValid > 0);
+		}
+	}
+	
+	private static Set<Pair<Value,Label>> refine(ShexSchema schema, RDFGraph graph, boolean specializedChecks) throws Exception {
+		RefineValidation validation = new RefineValidation(schema, graph);
+		validation.setSpecializedChecks(specializedChecks);
+		validation.validate(node(0), label(LABELS[0]));
+		return validation.getTyping().asSet();
+	}
+	
+	/** A graph where every node has a random number of triples with each predicate, as objects other nodes or the integers 1 to 3. 
+	 * Every node also has a name, so that the typing of the refinement contains all the nodes.
+	 */
+	static Model graph(long seed) {
+		Random random = new Random(seed);
+		List<IRI> predicates = new ArrayList<>();
+		for (String name:new String[] {"p", "q", "r"})
+			predicates.add(rdfFactory.createIRI("http://a.example/" + name));
+		IRI name = rdfFactory.createIRI("http://a.example/name");
+		Model model = new LinkedHashModel();
+		for (int i = 0; i < NB_NODES; i++) {
+			model.add(node(i), name, rdfFactory.createLiteral("n" + i));
+			for (IRI predicate:predicates) {
+				int nbTriples = random.nextInt(5);
+				for (int j = 0; j < nbTriples; j++)
+					if (random.nextBoolean())
+						model.add(node(i), predicate, node(random.nextInt(NB_NODES)));
+					else
+						model.add(node(i), predicate, rdfFactory.createLiteral(1 + random.nextInt(3)));
+			}
+		}
+		return model;
+	}
+	
+	static IRI node(int i) {
+		return rdfFactory.createIRI("http://a.example/n" + i);
+	}
+	
+	static Label label(String name) {
+		return new Label(rdfFactory.createIRI("http://a.example/" + name));
+	}
+	
+	static ShexSchema schema() throws Exception {
+		return new ShexSchema(new ShExCParser().getRules(new ByteArrayInputStream(SCHEMA.getBytes(StandardCharsets.UTF_8))));
+	}
+}
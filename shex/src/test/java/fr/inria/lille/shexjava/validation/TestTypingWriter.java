@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.schema.Label;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestTypingWriter {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	private final static Label S = new Label(rdfFactory.createIRI("http://a.example/S"));
+	
+	@Test
+	public void json() throws Exception {
+		StringWriter out = new StringWriter();
+		TypingWriter writer = new TypingWriter(out, TypingWriter.Format.JSON);
+		writer.write(rdfFactory.createIRI("http://a.example/n1"), S, true);
+		writer.write(rdfFactory.createLiteral("a\"b"), S, false);
+		writer.close();
+		assertEquals("[\n"
+				+ "  {\"node\": \"http://a.example/n1\", \"shape\": \"http://a.example/S\", \"status\": \"conformant\"},\n"
+				+ "  {\"node\": \"\\\"a\\\\\\\"b\\\"\", \"shape\": \"http://a.example/S\", \"status\": \"nonconformant\"}\n"
+				+ "]\n", out.toString());
+	}
+	
+	@Test
+	public void emptyJson() throws Exception {
+		StringWriter out = new StringWriter();
+		new TypingWriter(out, TypingWriter.Format.JSON).close();
+		assertEquals("[]\n", out.toString());
+	}
+	
+	@Test
+	public void csv() throws Exception {
+		StringWriter out = new StringWriter();
+		TypingWriter writer = new TypingWriter(out, TypingWriter.Format.CSV);
+		writer.write(rdfFactory.createIRI("http://a.example/n1"), S, true);
+		writer.write(rdfFactory.createBNode("b1"), new Label(rdfFactory.createBNode("T")), false);
+		writer.writeUndetermined(rdfFactory.createIRI("http://a.example/n2"), S);
+		writer.close();
+		assertEquals("node,shape,status\n"
+				+ "http://a.example/n1,http://a.example/S,conformant\n"
+				+ "_:b1,_:T,nonconformant\n"
+				+ "http://a.example/n2,http://a.example/S,undetermined\n", out.toString());
+		assertEquals(3, writer.getNbRecords());
+	}
+	
+	@Test
+	public void ntriples() throws Exception {
+		StringWriter out = new StringWriter();
+		TypingWriter writer = new TypingWriter(out, TypingWriter.Format.NTRIPLES);
+		writer.write(rdfFactory.createIRI("http://a.example/n1"), S, true);
+		writer.close();
+		assertEquals("_:r0 <"+TypingWriter.NODE+"> <http://a.example/n1> .\n"
+				+ "_:r0 <"+TypingWriter.SHAPE+"> <http://a.example/S> .\n"
+				+ "_:r0 <"+TypingWriter.STATUS+"> \"conformant\" .\n", out.toString());
+		assertEquals(1, writer.getNbRecords());
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.exception.BudgetExceededException;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestValidationBudget {
+	private final static IRI ALICE = node("alice");
+	
+	@Test
+	public void maxDepth() throws Exception {
+		RecursiveValidation validation = new RecursiveValidation(schema(), graph());
+		ValidationBudget budget = new ValidationBudget();
+		budget.setMaxDepth(2);
+		validation.setBudget(budget);
+		assertExceeded(validation, BudgetExceededException.Reason.DEPTH);
+		
+		budget.setMaxDepth(4);
+		assertTrue(validation.validate(ALICE, PERSON));
+	}
+	
+	@Test
+	public void maxBags() throws Exception {
+		RefineValidation validation = new RefineValidation(schema(), graph());
+		ValidationBudget budget = new ValidationBudget();
+		budget.setMaxBags(0);
+		validation.setBudget(budget);
+		assertExceeded(validation, BudgetExceededException.Reason.BAGS);
+		assertNull(validation.getTyping());
+		
+		validation.setBudget(null);
+		assertTrue(validation.validate(ALICE, PERSON));
+	}
+	
+	@Test
+	public void maxPairs() throws Exception {
+		RecursiveValidation validation = new RecursiveValidation(schema(), graph());
+		ValidationBudget budget = new ValidationBudget();
+		budget.setMaxPairs(2);
+		validation.setBudget(budget);
+		assertExceeded(validation, BudgetExceededException.Reason.PAIRS);
+	}
+	
+	/** The sub-validations running in parallel share the counters of their tracker. */
+	@Test
+	public void sharedTracker() throws Exception {
+		ValidationBudget budget = new ValidationBudget();
+		budget.setMaxPairs(4 * 10000);
+		ValidationBudget.Tracker tracker = budget.start();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int i=0;i<4;i++)
+				tasks.add(() -> { for (int j=0;j<10000;j++) tracker.pairExamined(); return null; });
+			for (Future<Void> future:executor.invokeAll(tasks))
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		try {
+			tracker.pairExamined();
+			fail("The budget should be exceeded.");
+		} catch (BudgetExceededException e) {
+			assertEquals(BudgetExceededException.Reason.PAIRS, e.getReason());
+		}
+	}
+	
+	@Test
+	public void cancelled() throws Exception {
+		RefineValidation validation = new RefineValidation(schema(), graph());
+		ValidationBudget budget = new ValidationBudget();
+		validation.setBudget(budget);
+		budget.cancel();
+		assertExceeded(validation, BudgetExceededException.Reason.CANCELLED);
+	}
+	
+	private static void assertExceeded(ValidationAlgorithm validation, BudgetExceededException.Reason reason) throws Exception {
+		try {
+			validation.validate(ALICE, PERSON);
+			fail("The budget should be exceeded.");
+		} catch (BudgetExceededException e) {
+			assertEquals(reason, e.getReason());
+		}
+	}
+}
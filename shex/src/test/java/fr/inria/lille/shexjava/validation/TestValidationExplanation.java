@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.validation.ValidationExplanation.Check;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestValidationExplanation {
+	private final static IRI ALICE = node("alice");
+	
+	@Test
+	public void recursive() throws Exception {
+		RecursiveValidation validation = new RecursiveValidation(schema(), graph());
+		ValidationExplanation explanation = ValidationExplanation.explain(validation, ALICE, PERSON);
+		assertTrue(explanation.getResult());
+		
+		assertEquals(1, explanation.getChecks().size());
+		Check alice = explanation.getChecks().get(0);
+		assertEquals(ALICE, alice.getNode());
+		assertEquals(PERSON, alice.getLabel());
+		assertTrue(alice.getResult());
+		assertEquals(2, alice.getNeighbourhoodSize());
+		assertEquals(2, alice.getTriples().size());
+		assertEquals(1, alice.getNbCandidates(0));
+		assertEquals(1, alice.getNbBags());
+		assertEquals(1, alice.getChildren().size());
+		Check bob = alice.getChildren().get(0);
+		assertEquals(node("bob"), bob.getNode());
+		assertEquals(1, bob.getChildren().size());
+		assertTrue(bob.getChildren().get(0).getChildren().isEmpty());
+		assertTrue(alice.getDuration() >= bob.getDuration());
+		
+		String text = explanation.toString();
+		assertTrue(text.startsWith("conformant\nhttp://a.example/alice @ http://a.example/Person: conformant in "));
+		assertTrue(text.contains("\n    http://a.example/carol @ http://a.example/Person: conformant in "));
+		
+		StringWriter json = new StringWriter();
+		explanation.writeJson(json);
+		assertTrue(json.toString().startsWith("{\"result\": \"conformant\", \"checks\": [\n  {\"node\": \"http://a.example/alice\", \"shape\": \"http://a.example/Person\""));
+	}
+	
+	@Test
+	public void refine() throws Exception {
+		RefineValidation validation = new RefineValidation(schema(), graph());
+		ValidationExplanation explanation = ValidationExplanation.explain(validation, node("dave"), PERSON);
+		assertFalse(explanation.getResult());
+		assertFalse(explanation.getChecks().isEmpty());
+		for (Check check:explanation.getChecks()) {
+			assertEquals(0, check.getDepth());
+			assertTrue(check.getStratum() >= 0);
+			assertTrue(check.getChildren().isEmpty());
+		}
+		assertTrue(explanation.toString().contains("[stratum "));
+	}
+}
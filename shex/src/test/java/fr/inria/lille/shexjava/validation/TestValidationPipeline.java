@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.KNOWS;
+import static fr.inria.lille.shexjava.util.Persons.NAME;
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.exception.BudgetExceededException;
+import fr.inria.lille.shexjava.graph.RDF4JGraph;
+import fr.inria.lille.shexjava.schema.ShexSchema;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestValidationPipeline {
+	private final static ValueFactory rdfFactory = SimpleValueFactory.getInstance();
+	
+	@Test
+	public void batches() throws Exception {
+		RDF4JGraph graph = new RDF4JGraph(persons(100));
+		ShexSchema schema = schema();
+		List<List<ValidationResult>> batches = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			AsyncValidation validation = new AsyncValidation(() -> new RecursiveValidation(schema, graph), executor);
+			try (ValidationPipeline pipeline = new ValidationPipeline(validation, 3, 7, batches::add)) {
+				for (int i = 0; i < 100; i++)
+					pipeline.submit(person(i), PERSON);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(15, batches.size());
+		int nbConformant = 0;
+		for (int i = 0; i < batches.size(); i++) {
+			assertEquals(i < 14 ? 7 : 2, batches.get(i).size());
+			for (ValidationResult result:batches.get(i)) {
+				assertNull(result.getError());
+				if (result.isConformant())
+					nbConformant++;
+			}
+		}
+		// the persons whose number is a multiple of 10 have no name
+		assertEquals(90, nbConformant);
+	}
+	
+	@Test
+	public void backpressure() throws Exception {
+		RDF4JGraph graph = new RDF4JGraph(persons(10));
+		ShexSchema schema = schema();
+		// the validations run only when the tasks are run explicitly
+		List<Runnable> tasks = new ArrayList<>();
+		AsyncValidation validation = new AsyncValidation(() -> {
+			RecursiveValidation recursive = new RecursiveValidation(schema, graph);
+			ValidationBudget budget = new ValidationBudget();
+			budget.setMaxDepth(1);
+			recursive.setBudget(budget);
+			return recursive;
+		}, tasks::add);
+		List<ValidationResult> results = new ArrayList<>();
+		ValidationPipeline pipeline = new ValidationPipeline(validation, 2, 1, results::addAll);
+		assertTrue(pipeline.offer(person(1), PERSON));
+		assertTrue(pipeline.offer(person(2), PERSON));
+		assertFalse(pipeline.offer(person(3), PERSON));
+		
+		tasks.remove(0).run();
+		assertEquals(1, results.size());
+		assertTrue(results.get(0).getError() instanceof BudgetExceededException);
+		assertFalse(results.get(0).isConformant());
+		assertTrue(pipeline.offer(person(3), PERSON));
+		
+		tasks.forEach(Runnable::run);
+		pipeline.close();
+		assertEquals(3, results.size());
+	}
+	
+	@Test
+	public void consumerFailure() throws Exception {
+		RDF4JGraph graph = new RDF4JGraph(persons(10));
+		ShexSchema schema = schema();
+		List<Runnable> tasks = new ArrayList<>();
+		AsyncValidation validation = new AsyncValidation(() -> new RecursiveValidation(schema, graph), tasks::add);
+		List<ValidationResult> results = new ArrayList<>();
+		AtomicBoolean failing = new AtomicBoolean(true);
+		ValidationPipeline pipeline = new ValidationPipeline(validation, 2, 1, batch -> {
+			if (failing.get())
+				throw new IllegalArgumentException("unavailable");
+			results.addAll(batch);
+		});
+		pipeline.submit(person(1), PERSON);
+		pipeline.submit(person(2), PERSON);
+		tasks.remove(0).run();
+		try {
+			pipeline.submit(person(3), PERSON);
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		tasks.remove(0).run();
+		try {
+			pipeline.flush();
+			fail();
+		} catch (IllegalArgumentException e) {
+			// the results are kept
+		}
+		failing.set(false);
+		pipeline.flush();
+		assertEquals(2, results.size());
+		
+		pipeline.submit(person(3), PERSON);
+		tasks.remove(0).run();
+		pipeline.close();
+		assertEquals(3, results.size());
+		try {
+			pipeline.offer(person(4), PERSON);
+			fail();
+		} catch (IllegalStateException e) {
+			assertNull(e.getCause());
+		}
+	}
+	
+	private static IRI person(int i) {
+		return node("p" + i);
+	}
+	
+	private static Model persons(int nb) {
+		Model model = new LinkedHashModel();
+		for (int i = 0; i < nb; i++) {
+			if (i % 10 != 0)
+				model.add(person(i), NAME, rdfFactory.createLiteral("p" + i));
+			if (i % 5 != 4)
+				model.add(person(i), KNOWS, person(i + 1));
+		}
+		return model;
+	}
+}
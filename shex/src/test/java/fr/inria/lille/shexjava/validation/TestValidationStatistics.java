@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2018 Université de Lille - Inria
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package fr.inria.lille.shexjava.validation;
+
+import static fr.inria.lille.shexjava.util.Persons.PERSON;
+import static fr.inria.lille.shexjava.util.Persons.graph;
+import static fr.inria.lille.shexjava.util.Persons.node;
+import static fr.inria.lille.shexjava.util.Persons.schema;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.inria.lille.shexjava.exception.BudgetExceededException;
+import fr.inria.lille.shexjava.validation.ValidationStatistics.LabelStatistics;
+
+/**
+ * @author Jérémie Dusart
+ *
+ */
+public class TestValidationStatistics {
+	private final static String DATA = "@prefix ex: <http://a.example/> .\n"
+			+ "ex:alice ex:name \"Alice\" ; ex:knows ex:bob .\n"
+			+ "ex:bob ex:name \"Bob\" ; ex:knows ex:alice, ex:carol .\n"
+			+ "ex:carol ex:knows ex:alice .\n";
+	
+	@Test
+	public void recursive() throws Exception {
+		ValidationStatistics statistics = new ValidationStatistics();
+		RecursiveValidation validation = new RecursiveValidation(schema(), graph(DATA));
+		validation.setListener(statistics);
+		assertFalse(validation.validate(node("alice"), PERSON));
+		
+		LabelStatistics person = statistics.getStatistics(PERSON);
+		assertTrue(person.getNbChecks() >= 3);
+		assertTrue(person.getNbValid() < person.getNbChecks());
+		assertTrue(person.getMaxDepth() >= 3);
+		assertEquals(3, person.getMaxTriples());
+		assertEquals(person.getNbChecks(), Arrays.stream(person.getHistogram()).sum());
+		assertTrue(statistics.getRounds().isEmpty());
+	}
+	
+	@Test
+	public void refine() throws Exception {
+		ValidationStatistics statistics = new ValidationStatistics();
+		RefineValidation validation = new RefineValidation(schema(), graph(DATA));
+		validation.setListener(statistics);
+		assertFalse(validation.validate(node("alice"), PERSON));
+		
+		LabelStatistics person = statistics.getStatistics(PERSON);
+		assertTrue(person.getNbValid() < person.getNbChecks());
+		assertEquals(0, person.getMaxDepth());
+		int nbRemoved = 0;
+		for (List<Integer> rounds:statistics.getRounds().values()) {
+			assertEquals(0, (int) rounds.get(rounds.size()-1));
+			for (int removed:rounds)
+				nbRemoved += removed;
+		}
+		assertTrue(nbRemoved > 0);
+		assertTrue(statistics.toString().startsWith("label,checks,valid,"));
+		assertTrue(statistics.toString().contains("\nhttp://a.example/Person,"));
+	}
+	
+	@Test
+	public void budgetExceeded() throws Exception {
+		ValidationStatistics statistics = new ValidationStatistics();
+		RecursiveValidation validation = new RecursiveValidation(schema(), graph());
+		validation.setListener(statistics);
+		ValidationBudget budget = new ValidationBudget();
+		budget.setMaxDepth(2);
+		validation.setBudget(budget);
+		assertTrue(validation.validate(node("carol"), PERSON));
+		try {
+			validation.validate(node("alice"), PERSON);
+			fail("The budget should be exceeded.");
+		} catch (BudgetExceededException e) {
+			// the checks under way when the budget is exceeded do not end
+		}
+		
+		LabelStatistics person = statistics.getStatistics(PERSON);
+		assertTrue(person.getNbEnded() < person.getNbChecks());
+		assertEquals(person.getNbEnded(), Arrays.stream(person.getHistogram()).sum());
+		assertTrue(person.getPercentile(100) > 0);
+	}
+}